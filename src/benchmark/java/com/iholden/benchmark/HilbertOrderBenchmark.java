@@ -0,0 +1,171 @@
+package com.iholden.benchmark;
+
+import com.iholden.constants.Connectivity;
+import com.iholden.index.ConnectedComponents;
+import com.iholden.index.ContainmentIndex;
+import com.iholden.index.PointStabbingIndex;
+import com.iholden.support.HilbertOrder;
+import com.iholden.support.PrimitiveSorts;
+import com.iholden.support.RectangleColumns;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>Compares queries over rectangles kept in input order with the same queries over the rectangles reordered by
+ *    {@link HilbertOrder}, each index being built over, and queried in, the order being measured.</p>
+ * <p>The rectangles are random, with lower left corners on a grid of 1,000,000 by 1,000,000 and sides of up to
+ *    1,500, drawn from a fixed seed so that runs can be repeated. Each benchmark is run several times, and the median
+ *    time is reported, along with a checksum of its results, which must match between the two orders.</p>
+ * <p>Run it with {@code ./gradlew hilbertBenchmark --args="<rectangle count> <runs> <seed>"}; every argument is
+ *    optional, and defaults to 1,000,000 rectangles, 3 runs and seed 1. Run it on an otherwise idle machine.</p>
+ */
+public class HilbertOrderBenchmark
+{
+    private static final int GRID_SIZE = 1_000_000;
+    private static final int MAX_SIDE = 1_500;
+
+    /**
+     * @param args optional rectangle count, number of runs, and seed
+     */
+    public static void main(String[] args)
+    {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        RectangleColumns input = randomRectangles(count, seed);
+        RectangleColumns hilbert = HilbertOrder.reorder(input);
+
+        System.out.println("BENCHMARK\tINPUT_MS\tHILBERT_MS\tCHECKSUM");
+
+        report("CONTAINMENT_ENCLOSING", runs, () -> countEnclosing(input), () -> countEnclosing(hilbert));
+        report("POINT_STABBING", runs, () -> countContaining(input), () -> countContaining(hilbert));
+        report("CONNECTED_COMPONENTS_EDGE", runs, () -> ConnectedComponents.of(input, Connectivity.EDGE).componentCount(),
+                () -> ConnectedComponents.of(hilbert, Connectivity.EDGE).componentCount());
+
+        // Both sorts order the same keys; the first column is the merge sort, the second the radix sort
+        long[] keys = HilbertOrder.keysOf(input);
+
+        report("KEY_SORT_MERGE_VS_RADIX", runs, () -> sortKeys(keys, false), () -> sortKeys(keys, true));
+        report("REORDER", runs, () -> HilbertOrder.reorder(input).size(), null);
+    }
+
+    private static RectangleColumns randomRectangles(int count, long seed)
+    {
+        var random = new Random(seed);
+        var minX = new long[count];
+        var minY = new long[count];
+        var maxX = new long[count];
+        var maxY = new long[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            minX[i] = random.nextInt(GRID_SIZE);
+            minY[i] = random.nextInt(GRID_SIZE);
+            maxX[i] = minX[i] + random.nextInt(MAX_SIDE);
+            maxY[i] = minY[i] + random.nextInt(MAX_SIDE);
+        }
+
+        return RectangleColumns.of(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * One {@link ContainmentIndex#countEnclosing} query per rectangle, in the order of the columns
+     */
+    private static long countEnclosing(RectangleColumns rectangles)
+    {
+        var index = ContainmentIndex.of(rectangles);
+        long total = 0;
+
+        for (int i = 0; i < rectangles.size(); i++)
+        {
+            total += index.countEnclosing(rectangles.getMinX(i), rectangles.getMinY(i), rectangles.getMaxX(i), rectangles.getMaxY(i));
+        }
+
+        return total;
+    }
+
+    /**
+     * One {@link PointStabbingIndex#countContaining(long, long)} query at each lower left corner, in the order of the
+     * columns
+     */
+    private static long countContaining(RectangleColumns rectangles)
+    {
+        var index = PointStabbingIndex.of(rectangles);
+        long total = 0;
+
+        for (int i = 0; i < rectangles.size(); i++)
+        {
+            total += index.countContaining(rectangles.getMinX(i), rectangles.getMinY(i));
+        }
+
+        return total;
+    }
+
+    private static long sortKeys(long[] keys, boolean radix)
+    {
+        long[] sorted = keys.clone();
+        var values = new int[sorted.length];
+
+        if (radix)
+        {
+            PrimitiveSorts.radixSortParallel(sorted, values, 0, sorted.length);
+        }
+        else
+        {
+            PrimitiveSorts.sortParallel(sorted, values, 0, sorted.length);
+        }
+
+        return sorted.length == 0 ? 0 : sorted[sorted.length / 2];
+    }
+
+    /**
+     * Runs both benchmarks {@code runs} times, alternating them, and prints the median time of each
+     * @param second benchmark to compare {@code first} with, or null to time {@code first} alone
+     */
+    private static void report(String name, int runs, LongSupplier first, LongSupplier second)
+    {
+        var firstTimes = new long[runs];
+        var secondTimes = new long[runs];
+        long firstChecksum = 0, secondChecksum = 0;
+
+        for (int run = 0; run < runs; run++)
+        {
+            long start = System.nanoTime();
+            firstChecksum = first.getAsLong();
+            firstTimes[run] = System.nanoTime() - start;
+
+            if (second != null)
+            {
+                start = System.nanoTime();
+                secondChecksum = second.getAsLong();
+                secondTimes[run] = System.nanoTime() - start;
+            }
+        }
+
+        if (second == null)
+        {
+            System.out.println(name + "\t" + medianMillis(firstTimes) + "\t-\t" + firstChecksum);
+            return;
+        }
+
+        if (firstChecksum != secondChecksum)
+        {
+            throw new IllegalStateException(name + " results differ: " + firstChecksum + " vs " + secondChecksum);
+        }
+
+        System.out.println(name + "\t" + medianMillis(firstTimes) + "\t" + medianMillis(secondTimes) + "\t" + firstChecksum);
+    }
+
+    private static long medianMillis(long[] nanos)
+    {
+        Arrays.sort(nanos);
+
+        return nanos[nanos.length / 2] / 1_000_000;
+    }
+
+    // Discourage Instantiation
+    private HilbertOrderBenchmark(){};
+}
@@ -0,0 +1,157 @@
+package com.iholden.benchmark;
+
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.entities.impl.RectangleImpl;
+import com.iholden.registry.RectangleRegistry;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>Measures how read throughput of a {@link RectangleRegistry} grows with the number of reader threads, while one
+ *    writer keeps replacing rectangles.</p>
+ * <p>Each reader repeatedly takes a snapshot, looks up a random id, and finds the rectangles intersecting a random
+ *    query. Reader counts double from 1 to twice the number of available processors; for each, the total number of
+ *    reads per second is reported, along with its ratio to the single reader's throughput times the reader count,
+ *    which stays near 1 while reads scale linearly. Beyond the number of processors, readers share cores, and the
+ *    ratio falls accordingly.</p>
+ * <p>Run it with {@code ./gradlew registryReadBenchmark --args="<rectangle count> <seconds per reader count>"};
+ *    every argument is optional, and defaults to 100,000 rectangles and 3 seconds.</p>
+ */
+public class RegistryReadBenchmark
+{
+    private static final int GRID_SIZE = 100_000;
+    private static final int MAX_SIDE = 100;
+
+    /**
+     * @param args optional rectangle count, and seconds to measure each reader count for
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int processors = Runtime.getRuntime().availableProcessors();
+        var registry = new RectangleRegistry();
+        var random = new Random(1);
+
+        for (int i = 0; i < count; i++)
+        {
+            registry.put("r" + i, randomRectangle(random));
+        }
+
+        // Warm up the query paths before measuring
+        measure(registry, count, 1, 1);
+
+        System.out.println("READERS\tREADS_PER_SECOND\tSCALING");
+
+        double single = 0;
+
+        for (int readers = 1; readers <= 2 * processors; readers *= 2)
+        {
+            double throughput = measure(registry, count, readers, seconds);
+
+            single = readers == 1 ? throughput : single;
+            System.out.printf("%d\t%.0f\t%.2f%n", readers, throughput, throughput / (single * readers));
+        }
+
+        System.err.println("Available processors: " + processors);
+    }
+
+    /**
+     * @return reads per second over {@code readers} threads, measured for {@code seconds}
+     */
+    private static double measure(RectangleRegistry registry, int count, int readers, int seconds) throws InterruptedException
+    {
+        var stop = new AtomicBoolean();
+        var start = new CountDownLatch(1);
+        var reads = new long[readers];
+        var threads = new ArrayList<Thread>();
+
+        for (int reader = 0; reader < readers; reader++)
+        {
+            final int readerId = reader;
+
+            threads.add(new Thread(() ->
+            {
+                var random = new Random(readerId);
+                long done = 0;
+                long found = 0;
+
+                awaitQuietly(start);
+
+                while (!stop.get())
+                {
+                    var snapshot = registry.snapshot();
+
+                    found += snapshot.get("r" + random.nextInt(count)) == null ? 0 : 1;
+                    found += snapshot.findIntersecting(randomRectangle(random)).size();
+                    done++;
+                }
+
+                // Keep the results alive, so the reads cannot be optimized away
+                reads[readerId] = found >= 0 ? done : 0;
+            }));
+        }
+
+        // One writer, so that readers see new snapshots as they would in a live service
+        threads.add(new Thread(() ->
+        {
+            var random = new Random(-1);
+
+            awaitQuietly(start);
+
+            while (!stop.get())
+            {
+                registry.put("r" + random.nextInt(count), randomRectangle(random));
+            }
+        }));
+
+        threads.forEach(Thread::start);
+
+        long began = System.nanoTime();
+
+        start.countDown();
+        TimeUnit.SECONDS.sleep(seconds);
+        stop.set(true);
+
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        long elapsed = System.nanoTime() - began;
+        long total = 0;
+
+        for (long done : reads)
+        {
+            total += done;
+        }
+
+        return total * 1e9 / elapsed;
+    }
+
+    private static Rectangle randomRectangle(Random random)
+    {
+        return new RectangleImpl(random.nextInt(MAX_SIDE) + 1, random.nextInt(MAX_SIDE) + 1,
+                new PointImpl(random.nextInt(GRID_SIZE), random.nextInt(GRID_SIZE)));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Discourage Instantiation
+    private RegistryReadBenchmark(){};
+}
@@ -1,12 +1,47 @@
 package com.iholden;
 
-import com.iholden.entities.Rectangle;
+import com.iholden.batch.BatchEvaluator;
+import com.iholden.batch.BatchQuery;
+import com.iholden.batch.CheckpointedBatch;
+import com.iholden.cluster.RectangleDataset;
+import com.iholden.cluster.RelatedPairs;
+import com.iholden.cluster.ShardCoordinator;
+import com.iholden.cluster.ShardStats;
+import com.iholden.cluster.ShardedResult;
+import com.iholden.cluster.WorkerLauncher;
+import com.iholden.constants.Adjacency;
+import com.iholden.constants.Relation;
+import com.iholden.diagnostics.Magnitudes;
+import com.iholden.diagnostics.ParseEvent;
 import com.iholden.entities.impl.PointImpl;
+import com.iholden.exceptions.ShardFailedException;
 import com.iholden.entities.impl.RectangleImpl;
+import com.iholden.output.ResultEncoder;
+import com.iholden.sampling.Estimate;
+import com.iholden.sampling.RelationEstimates;
+import com.iholden.sampling.RelationSampler;
+import com.iholden.session.RectangleSession;
+import com.iholden.session.RelationCodes;
 import com.iholden.support.ConsoleTextUtils;
-
+import com.iholden.support.HilbertOrder;
+import com.iholden.support.RectangleColumns;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
-import java.util.HashMap;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.Scanner;
@@ -15,11 +50,33 @@ public class RectangleApplication
 {
     static Scanner scanner;
     static PrintStream out;
+    static RectangleSession session;
 
     public static void main(String[] args)
     {
+        if (args.length > 0 && ConsoleTextUtils.BATCH_OPTION.equals(args[0]))
+        {
+            System.exit(runBatch(args));
+        }
+
+        if (args.length > 0 && ConsoleTextUtils.SHARDED_OPTION.equals(args[0]))
+        {
+            System.exit(runSharded(args));
+        }
+
+        if (args.length > 0 && ConsoleTextUtils.ESTIMATE_OPTION.equals(args[0]))
+        {
+            System.exit(runEstimate(args));
+        }
+
+        if (args.length > 0 && ConsoleTextUtils.REORDER_OPTION.equals(args[0]))
+        {
+            System.exit(runReorder(args));
+        }
+
         scanner = new Scanner(System.in).useDelimiter(System.lineSeparator());
         out = System.out;
+        session = new RectangleSession();
 
         out.println(ConsoleTextUtils.INITIAL_MESSAGE);
 
@@ -32,26 +89,385 @@ public class RectangleApplication
         while (continueRunning);
     }
 
-    private static boolean executeMainLoop()
+    private static int runBatch(String[] args)
+    {
+        if (args.length < 2)
+        {
+            System.err.println(ConsoleTextUtils.BATCH_USAGE);
+            return 2;
+        }
+
+        try
+        {
+            var options = new ArrayList<>(Arrays.asList(args).subList(2, args.length));
+            String output = takeOption(options, ConsoleTextUtils.BATCH_OUTPUT_OPTION);
+            String checkpoint = takeOption(options, ConsoleTextUtils.BATCH_CHECKPOINT_OPTION);
+            String interval = takeOption(options, ConsoleTextUtils.BATCH_CHECKPOINT_INTERVAL_OPTION);
+            boolean resume = options.remove(ConsoleTextUtils.BATCH_RESUME_OPTION);
+            BatchQuery query = BatchQuery.parse(options);
+
+            if (checkpoint != null)
+            {
+                if (output == null)
+                {
+                    throw new IllegalArgumentException(ConsoleTextUtils.BATCH_CHECKPOINT_OPTION + " requires " + ConsoleTextUtils.BATCH_OUTPUT_OPTION);
+                }
+
+                Duration checkpointInterval = interval == null ? CheckpointedBatch.DEFAULT_INTERVAL : Duration.ofSeconds(parseCount(interval));
+
+                if (resume)
+                {
+                    CheckpointedBatch.resume(Path.of(args[1]), Path.of(output), Path.of(checkpoint), query, checkpointInterval);
+                }
+                else
+                {
+                    CheckpointedBatch.run(Path.of(args[1]), Path.of(output), Path.of(checkpoint), query, checkpointInterval);
+                }
+
+                return 0;
+            }
+
+            if (resume || interval != null)
+            {
+                throw new IllegalArgumentException(ConsoleTextUtils.BATCH_CHECKPOINT_OPTION + " is required to checkpoint or resume");
+            }
+
+            try (BufferedReader input = Files.newBufferedReader(Path.of(args[1]));
+                 // Written straight to the output file descriptor, bypassing System.out's character encoding
+                 var channel = output == null ? new FileOutputStream(FileDescriptor.out).getChannel() : new FileOutputStream(output).getChannel())
+            {
+                BatchEvaluator.writeMatching(input, query, ResultEncoder.of(query.getFormat(), query.getFields(), channel));
+            }
+
+            return 0;
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println(ConsoleTextUtils.BATCH_USAGE);
+            return 2;
+        }
+        catch (IOException | UncheckedIOException e)
+        {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+    }
+
+    private static int runSharded(String[] args)
+    {
+        if (args.length < 2)
+        {
+            System.err.println(ConsoleTextUtils.SHARDED_USAGE);
+            return 2;
+        }
+
+        try (BufferedReader input = Files.newBufferedReader(Path.of(args[1])))
+        {
+            int workers = Runtime.getRuntime().availableProcessors();
+            int tiles = -1;
+            WorkerLauncher launcher = WorkerLauncher.processes();
+
+            for (int i = 2; i < args.length; i++)
+            {
+                switch (args[i])
+                {
+                    case ConsoleTextUtils.SHARDED_WORKERS_OPTION -> workers = parseCount(args, ++i);
+                    case ConsoleTextUtils.SHARDED_TILES_OPTION -> tiles = parseCount(args, ++i);
+                    case ConsoleTextUtils.SHARDED_THREADS_OPTION -> launcher = WorkerLauncher.threads();
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+
+            if (tiles < 0)
+            {
+                tiles = 2 * workers;
+            }
+
+            RectangleColumns rectangles = RectangleDataset.read(input);
+            var coordinator = new ShardCoordinator(launcher, workers, tiles, tiles, ShardCoordinator.DEFAULT_MAX_ATTEMPTS,
+                    ShardCoordinator.DEFAULT_TIMEOUT);
+            ShardedResult result = coordinator.run(rectangles);
+
+            writeRelatedPairs(result.getPairs());
+
+            for (ShardStats stats : result.getShardStats())
+            {
+                System.err.printf(ConsoleTextUtils.SHARD_STATS_TEMPLATE, stats.getTile(), stats.getRectangleCount(),
+                        stats.getPairCount(), stats.getAttempts(), stats.getElapsedNanos() / 1e6, stats.getRectanglesPerSecond());
+            }
+
+            return 0;
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println(ConsoleTextUtils.SHARDED_USAGE);
+            return 2;
+        }
+        catch (IOException | UncheckedIOException | ShardFailedException e)
+        {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+    }
+
+    private static int runEstimate(String[] args)
+    {
+        if (args.length < 2)
+        {
+            System.err.println(ConsoleTextUtils.ESTIMATE_USAGE);
+            return 2;
+        }
+
+        try (BufferedReader input = Files.newBufferedReader(Path.of(args[1])))
+        {
+            int sampleSize = 10_000;
+            int strata = 1;
+            long tileSize = -1;
+            double confidence = 0.95;
+            long seed = 1;
+
+            for (int i = 2; i < args.length; i++)
+            {
+                switch (args[i])
+                {
+                    case ConsoleTextUtils.ESTIMATE_SAMPLE_OPTION -> sampleSize = parseCount(args, ++i);
+                    case ConsoleTextUtils.ESTIMATE_STRATA_OPTION -> strata = parseCount(args, ++i);
+                    case ConsoleTextUtils.ESTIMATE_TILE_SIZE_OPTION -> tileSize = parseCount(args, ++i);
+                    case ConsoleTextUtils.ESTIMATE_CONFIDENCE_OPTION -> confidence = Double.parseDouble(optionValue(args, ++i));
+                    case ConsoleTextUtils.ESTIMATE_SEED_OPTION -> seed = Long.parseLong(optionValue(args, ++i));
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+
+            if ((strata > 1) != (tileSize > 0))
+            {
+                throw new IllegalArgumentException(ConsoleTextUtils.ESTIMATE_STRATA_OPTION + " and " + ConsoleTextUtils.ESTIMATE_TILE_SIZE_OPTION + " go together");
+            }
+
+            Estimate.zScore(confidence);
+
+            RelationSampler sampler = strata > 1 ? RelationSampler.stratified(sampleSize, strata, tileSize, seed) : RelationSampler.uniform(sampleSize, seed);
+
+            RectangleDataset.forEach(input, sampler);
+            writeEstimates(sampler.estimate(), confidence);
+
+            return 0;
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println(ConsoleTextUtils.ESTIMATE_USAGE);
+            return 2;
+        }
+        catch (IOException | UncheckedIOException e)
+        {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+    }
+
+    private static int runReorder(String[] args)
+    {
+        if (args.length < 2)
+        {
+            System.err.println(ConsoleTextUtils.REORDER_USAGE);
+            return 2;
+        }
+
+        try
+        {
+            var options = new ArrayList<>(Arrays.asList(args).subList(2, args.length));
+            String output = takeOption(options, ConsoleTextUtils.REORDER_OUTPUT_OPTION);
+
+            if (!options.isEmpty())
+            {
+                throw new IllegalArgumentException("Unknown option: " + options.get(0));
+            }
+
+            RectangleColumns rectangles;
+
+            try (BufferedReader input = Files.newBufferedReader(Path.of(args[1])))
+            {
+                rectangles = HilbertOrder.reorder(RectangleDataset.read(input));
+            }
+
+            try (Writer writer = output == null ? new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out)))
+                    : Files.newBufferedWriter(Path.of(output)))
+            {
+                RectangleDataset.write(rectangles, writer);
+            }
+
+            return 0;
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println(ConsoleTextUtils.REORDER_USAGE);
+            return 2;
+        }
+        catch (IOException | UncheckedIOException e)
+        {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+    }
+
+    private static void writeEstimates(RelationEstimates estimates, double confidence)
+    {
+        System.out.println(ConsoleTextUtils.ESTIMATES_HEADER);
+
+        for (Relation relation : Relation.values())
+        {
+            writeEstimate("RELATION", relation.name(), estimates.shareOf(relation, confidence));
+        }
+
+        for (Adjacency adjacency : Adjacency.values())
+        {
+            writeEstimate("ADJACENCY", adjacency.name(), estimates.shareOf(adjacency, confidence));
+        }
+
+        for (Adjacency adjacency : Adjacency.values())
+        {
+            if (adjacency != Adjacency.NONE)
+            {
+                writeEstimate("ADJACENT_SHARE", adjacency.name(), estimates.shareAmongAdjacent(adjacency, confidence));
+            }
+        }
+
+        System.err.printf(ConsoleTextUtils.ESTIMATE_SUMMARY_TEMPLATE, estimates.getRectangleCount(),
+                estimates.getPopulationPairCount(), estimates.getSampledPairCount());
+    }
+
+    private static void writeEstimate(String statistic, String value, Estimate estimate)
+    {
+        System.out.printf(ConsoleTextUtils.ESTIMATE_TEMPLATE, statistic, value, estimate.getValue(), estimate.getLower(),
+                estimate.getUpper(), estimate.getHits(), estimate.getTrials());
+    }
+
+    private static String optionValue(String[] args, int index)
+    {
+        if (index >= args.length)
+        {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+
+        return args[index];
+    }
+
+    private static int parseCount(String[] args, int index)
+    {
+        if (index >= args.length)
+        {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+
+        try
+        {
+            return parseCount(args[index]);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Invalid value for " + args[index - 1] + ": " + args[index]);
+        }
+    }
+
+    private static int parseCount(String value)
+    {
+        int count = Integer.parseInt(value);
+
+        if (count < 1)
+        {
+            throw new IllegalArgumentException("Expected a positive count; got " + value);
+        }
+
+        return count;
+    }
+
+    /**
+     * Removes {@code option} and the value following it from {@code options}
+     * @return the option's value, or null if the option is absent
+     */
+    private static String takeOption(List<String> options, String option)
     {
-        var rectanglesByLabel = new HashMap<String, Rectangle>(2);
-        long length, width, lowerLeftX, lowerLeftY;
+        int index = options.indexOf(option);
 
-        for (String label : ConsoleTextUtils.RECTANGLE_LABELS)
+        if (index < 0)
         {
-            length = getRectangleLength(label);
-            width = getRectangleWidth(label);
-            lowerLeftX = getRectangleLowerLeftX(label);
-            lowerLeftY = getRectangleLowerLeftY(label);
+            return null;
+        }
+
+        if (index + 1 == options.size())
+        {
+            throw new IllegalArgumentException("Missing value for option " + option);
+        }
+
+        options.remove(index);
+
+        return options.remove(index);
+    }
+
+    private static void writeRelatedPairs(RelatedPairs pairs)
+    {
+        var writer = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), false);
+
+        writer.println(ConsoleTextUtils.RELATED_PAIRS_HEADER);
+
+        for (int i = 0; i < pairs.size(); i++)
+        {
+            writer.print(pairs.getIdA(i));
+            writer.print('\t');
+            writer.print(pairs.getIdB(i));
+            writer.print('\t');
+            writer.print(RelationCodes.relationOf(pairs.getOutgoingCode(i)));
+            writer.print('\t');
+            writer.print(RelationCodes.adjacencyOf(pairs.getOutgoingCode(i)));
+            writer.print('\t');
+            writer.print(RelationCodes.relationOf(pairs.getIncomingCode(i)));
+            writer.print('\t');
+            writer.println(RelationCodes.adjacencyOf(pairs.getIncomingCode(i)));
+        }
 
-            rectanglesByLabel.put(label, new RectangleImpl(length, width, new PointImpl(lowerLeftX, lowerLeftY)));
+        writer.flush();
+    }
+
+    private static boolean executeMainLoop()
+    {
+        String label = getRectangleLabel();
+        long length = getRectangleLength(label);
+        long width = getRectangleWidth(label);
+        long lowerLeftX = getRectangleLowerLeftX(label);
+        long lowerLeftY = getRectangleLowerLeftY(label);
+
+        if (session.contains(label))
+        {
+            out.printf(ConsoleTextUtils.RECTANGLE_LABEL_REPLACED_TEMPLATE, label);
+            session.remove(label);
         }
 
-        out.println(ConsoleTextUtils.getRectangleComparisonResults(rectanglesByLabel));
+        session.add(label, new RectangleImpl(length, width, new PointImpl(lowerLeftX, lowerLeftY)));
+
+        out.println(ConsoleTextUtils.getSessionResults(session, label));
 
         return getShouldAppRunAgain();
     }
 
+    private static String getRectangleLabel()
+    {
+        out.print(ConsoleTextUtils.RECTANGLE_INPUT_LABEL_PROMPT);
+        String label = scanner.next().strip();
+
+        while (label.isEmpty())
+        {
+            out.println(ConsoleTextUtils.RECTANGLE_LABEL_INPUT_INVALID);
+            out.print(ConsoleTextUtils.RECTANGLE_INPUT_LABEL_PROMPT);
+            label = scanner.next().strip();
+        }
+
+        return label;
+    }
+
     private static long getRectangleLength(String rectangleLabel)
     {
         out.printf(ConsoleTextUtils.RECTANGLE_INPUT_LENGTH_PROMPT_TEMPLATE, rectangleLabel);
@@ -139,19 +555,29 @@ public class RectangleApplication
 
     private static OptionalLong tryParseNumericConsoleInput(String lengthOrWidth, boolean allowNegative)
     {
+        var event = new ParseEvent();
+        event.begin();
+
+        OptionalLong value;
+
         try
         {
-            if (allowNegative)
-            {
-                return OptionalLong.of(Long.parseLong(lengthOrWidth));
-            }
-
-            return OptionalLong.of(Long.parseUnsignedLong(lengthOrWidth));
+            value = OptionalLong.of(allowNegative ? Long.parseLong(lengthOrWidth) : Long.parseUnsignedLong(lengthOrWidth));
         }
         catch (NumberFormatException e)
         {
-            return OptionalLong.empty();
+            value = OptionalLong.empty();
         }
+
+        if (event.shouldCommit())
+        {
+            event.source = ParseEvent.CONSOLE;
+            event.valid = value.isPresent();
+            event.magnitude = value.isPresent() ? Magnitudes.of(value.getAsLong(), 0) : 0;
+            event.commit();
+        }
+
+        return value;
     }
 
     private static Optional<Boolean> tryParseYesNoInput(String input)
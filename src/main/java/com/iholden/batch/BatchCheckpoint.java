@@ -0,0 +1,153 @@
+package com.iholden.batch;
+
+import com.iholden.support.AtomicFiles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * <p>The progress of a checkpointed batch run: how far it has read its input and written its output, along with
+ *    its running counters.</p>
+ * <p>Every output byte before {@link #getOutputOffset()} was written for an input line before
+ *    {@link #getInputOffset()}, and vice versa, so a run resumed from a checkpoint neither repeats nor misses any
+ *    output record.</p>
+ * <p>Checkpoints are stored as a small binary file: the magic bytes {@code RCKP}, a version, the 5 counters as
+ *    big-endian longs, then a CRC-32 of everything before it. They are replaced atomically: written and synced to a
+ *    temporary file, which is then renamed over the previous checkpoint, so a crash at any point leaves either the
+ *    previous or the new checkpoint intact.</p>
+ * <p>Use the static builder to obtain an instance: {@link BatchCheckpoint#of(long, long, long, long, long)}</p>
+ */
+public class BatchCheckpoint
+{
+    public static final BatchCheckpoint START = new BatchCheckpoint(0, 0, 0, 0, 0);
+
+    private static final int MAGIC = 0x52434B50; // "RCKP"
+    private static final int VERSION = 1;
+    private static final int SIZE = 2 * Integer.BYTES + 5 * Long.BYTES + Long.BYTES;
+
+    private final long inputOffset;
+    private final long outputOffset;
+    private final long lineNumber;
+    private final long pairCount;
+    private final long matchedCount;
+
+    // Prevent external instantiation; prefer static access
+    private BatchCheckpoint(long inputOffset, long outputOffset, long lineNumber, long pairCount, long matchedCount)
+    {
+        this.inputOffset = inputOffset;
+        this.outputOffset = outputOffset;
+        this.lineNumber = lineNumber;
+        this.pairCount = pairCount;
+        this.matchedCount = matchedCount;
+    }
+
+    /**
+     * @param inputOffset byte offset of the first input line not yet read
+     * @param outputOffset byte offset just past the last output record written
+     * @param lineNumber number of input lines read, including blank lines and comments
+     * @param pairCount number of pairs read
+     * @param matchedCount number of pairs accepted by the query's filter
+     * @return a new checkpoint
+     */
+    public static BatchCheckpoint of(long inputOffset, long outputOffset, long lineNumber, long pairCount, long matchedCount)
+    {
+        if (inputOffset < 0 || outputOffset < 0 || lineNumber < 0 || pairCount < 0 || matchedCount < 0)
+        {
+            throw new IllegalArgumentException("Checkpoint counters must not be negative");
+        }
+
+        return new BatchCheckpoint(inputOffset, outputOffset, lineNumber, pairCount, matchedCount);
+    }
+
+    /**
+     * @param path checkpoint file
+     * @return the checkpoint stored in {@code path}
+     * @throws IOException if the file cannot be read, or is not a valid checkpoint
+     */
+    public static BatchCheckpoint read(Path path) throws IOException
+    {
+        byte[] bytes = Files.readAllBytes(path);
+
+        if (bytes.length != SIZE)
+        {
+            throw new IOException("Not a valid checkpoint: " + path);
+        }
+
+        var buffer = ByteBuffer.wrap(bytes);
+        var crc = new CRC32();
+
+        crc.update(bytes, 0, SIZE - Long.BYTES);
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong(SIZE - Long.BYTES) != crc.getValue())
+        {
+            throw new IOException("Not a valid checkpoint: " + path);
+        }
+
+        try
+        {
+            return of(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IOException("Not a valid checkpoint: " + path, e);
+        }
+    }
+
+    /**
+     * Atomically replaces the contents of {@code path} with this checkpoint, syncing it to the storage device
+     * @param path checkpoint file
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public void write(Path path) throws IOException
+    {
+        var buffer = ByteBuffer.allocate(SIZE);
+        var crc = new CRC32();
+
+        buffer.putInt(MAGIC).putInt(VERSION)
+                .putLong(inputOffset).putLong(outputOffset).putLong(lineNumber).putLong(pairCount).putLong(matchedCount);
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue()).flip();
+
+        AtomicFiles.replace(path, buffer);
+    }
+
+    public long getInputOffset()
+    {
+        return inputOffset;
+    }
+
+    public long getOutputOffset()
+    {
+        return outputOffset;
+    }
+
+    public long getLineNumber()
+    {
+        return lineNumber;
+    }
+
+    public long getPairCount()
+    {
+        return pairCount;
+    }
+
+    public long getMatchedCount()
+    {
+        return matchedCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BatchCheckpoint{" +
+                "inputOffset=" + inputOffset +
+                ", outputOffset=" + outputOffset +
+                ", lineNumber=" + lineNumber +
+                ", pairCount=" + pairCount +
+                ", matchedCount=" + matchedCount +
+                '}';
+    }
+}
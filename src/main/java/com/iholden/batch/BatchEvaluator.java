@@ -0,0 +1,165 @@
+package com.iholden.batch;
+
+import com.iholden.diagnostics.FormatEvent;
+import com.iholden.diagnostics.Magnitudes;
+import com.iholden.diagnostics.ParseEvent;
+import com.iholden.output.ResultEncoder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * <p>Utility class for evaluating a file of rectangle pairs against a {@link BatchQuery}.</p>
+ * <p>Each non-blank line that does not start with {@value #COMMENT_PREFIX} describes one pair, as 8 whitespace
+ *    separated whole numbers: {@code lengthA widthA lowerLeftXA lowerLeftYA lengthB widthB lowerLeftXB lowerLeftYB}.</p>
+ * <p>Repeated pairs are collapsed by {@link DuplicatePairs}, so each distinct pair is only evaluated once.</p>
+ */
+public class BatchEvaluator
+{
+    public static final String COMMENT_PREFIX = "#";
+
+    static final int PAIR_VALUES = 8;
+
+    /**
+     * Evaluates every pair read from {@code input}, passing those accepted by the query's filter to {@code consumer}
+     * @param input source of pair lines
+     * @param query query whose filter decides which pairs are accepted
+     * @param consumer receives each accepted pair
+     * @return the number of accepted pairs
+     * @throws IllegalArgumentException if a line does not describe a valid pair
+     * @throws UncheckedIOException if {@code input} cannot be read
+     */
+    public static long forEachMatching(BufferedReader input, BatchQuery query, Consumer<PairEvaluation> consumer)
+    {
+        var duplicatePairs = new DuplicatePairs();
+        var values = new long[PAIR_VALUES];
+        long index = 0;
+        long matched = 0;
+        long lineNumber = 0;
+        String line;
+
+        try
+        {
+            while ((line = input.readLine()) != null)
+            {
+                lineNumber++;
+                line = line.strip();
+
+                if (line.isEmpty() || line.startsWith(COMMENT_PREFIX))
+                {
+                    continue;
+                }
+
+                parsePair(line, lineNumber, values);
+
+                var evaluation = duplicatePairs.evaluate(index++, values);
+
+                if (query.getFilter().test(evaluation))
+                {
+                    consumer.accept(evaluation);
+                    matched++;
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return matched;
+    }
+
+    /**
+     * Writes the encoder's header, followed by the query's fields for each accepted pair, then flushes the encoder
+     * @param input source of pair lines
+     * @param query query to evaluate
+     * @param encoder encoder writing the results
+     * @return the number of accepted pairs
+     */
+    public static long writeMatching(BufferedReader input, BatchQuery query, ResultEncoder encoder)
+    {
+        encoder.writeHeader();
+
+        long matched = forEachMatching(input, query, evaluation -> write(encoder, query, evaluation));
+
+        encoder.flush();
+
+        return matched;
+    }
+
+    /**
+     * Parses the 8 values of a pair line into {@code values}
+     * @throws IllegalArgumentException if the line does not describe a valid pair
+     */
+    static void parsePair(String line, long lineNumber, long[] values)
+    {
+        var event = new ParseEvent();
+        event.begin();
+
+        boolean valid = false;
+
+        try
+        {
+            parseValues(line, lineNumber, values);
+            valid = true;
+        }
+        finally
+        {
+            if (event.shouldCommit())
+            {
+                event.source = ParseEvent.BATCH;
+                event.lineNumber = lineNumber;
+                event.valid = valid;
+                event.magnitude = valid ? Magnitudes.of(values, PAIR_VALUES) : 0;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Writes {@code evaluation} with {@code encoder}, timed by a {@link FormatEvent}
+     */
+    static void write(ResultEncoder encoder, BatchQuery query, PairEvaluation evaluation)
+    {
+        var event = new FormatEvent();
+        event.begin();
+
+        encoder.write(evaluation);
+
+        if (event.shouldCommit())
+        {
+            event.format = query.getFormat().name();
+            event.resultCount = query.getFields().size();
+            event.magnitude = Magnitudes.of(evaluation.getPair().getRectangleA(), evaluation.getPair().getRectangleB());
+            event.commit();
+        }
+    }
+
+    private static void parseValues(String line, long lineNumber, long[] values)
+    {
+        String[] tokens = line.split("\\s+");
+
+        if (tokens.length != PAIR_VALUES)
+        {
+            throw new IllegalArgumentException("Line " + lineNumber + ": expected 8 values; got " + tokens.length);
+        }
+
+        try
+        {
+            for (int i = 0; i < PAIR_VALUES; i++)
+            {
+                // Lengths and widths come first in each group of 4, and cannot be negative
+                values[i] = i % 4 < 2 ? Long.parseUnsignedLong(tokens[i]) : Long.parseLong(tokens[i]);
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage());
+        }
+    }
+
+    // Discourage Instantiation
+    private BatchEvaluator(){};
+}
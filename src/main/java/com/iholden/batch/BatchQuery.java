@@ -0,0 +1,131 @@
+package com.iholden.batch;
+
+import com.iholden.constants.Adjacency;
+import com.iholden.constants.OutputFormat;
+import com.iholden.constants.Relation;
+import com.iholden.constants.ResultField;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * <p>Declares what a batch run should report: which {@link ResultField}s to output, which pairs to output them
+ *    for, and in which {@link OutputFormat}.</p>
+ * <p>Use a static builder to obtain an instance: {@link BatchQuery#of(List, Predicate, OutputFormat)} or
+ *    {@link BatchQuery#parse(List)}</p>
+ */
+public class BatchQuery
+{
+    public static final String FIELDS_OPTION = "--fields";
+    public static final String RELATIONS_OPTION = "--relations";
+    public static final String ADJACENCY_OPTION = "--adjacency";
+    public static final String FORMAT_OPTION = "--format";
+
+    private final List<ResultField> fields;
+    private final Predicate<PairEvaluation> filter;
+    private final OutputFormat format;
+
+    // Prevent external instantiation; prefer static access
+    private BatchQuery(List<ResultField> fields, Predicate<PairEvaluation> filter, OutputFormat format)
+    {
+        this.fields = fields;
+        this.filter = filter;
+        this.format = format;
+    }
+
+    /**
+     * @param fields fields to output for each accepted pair, in order
+     * @param filter filter deciding which pairs are output
+     * @param format format to output the fields in
+     * @return a new query
+     */
+    public static BatchQuery of(List<ResultField> fields, Predicate<PairEvaluation> filter, OutputFormat format)
+    {
+        return new BatchQuery(List.copyOf(fields), Objects.requireNonNull(filter), Objects.requireNonNull(format));
+    }
+
+    /**
+     * <p>Builds a query from command-line options, each followed by a comma-separated list of values:</p>
+     * <ul>
+     *     <li>{@value #FIELDS_OPTION} - fields to output; all of them if omitted</li>
+     *     <li>{@value #RELATIONS_OPTION} - only output pairs having one of these relations</li>
+     *     <li>{@value #ADJACENCY_OPTION} - only output pairs having one of these adjacency types</li>
+     *     <li>{@value #FORMAT_OPTION} - a single {@link OutputFormat}; {@link OutputFormat#TSV} if omitted</li>
+     * </ul>
+     * @param options command-line options
+     * @return a new query
+     * @throws IllegalArgumentException if an option or value is not recognized
+     */
+    public static BatchQuery parse(List<String> options)
+    {
+        List<ResultField> fields = List.of(ResultField.values());
+        Predicate<PairEvaluation> filter = PairFilters.all();
+        OutputFormat format = OutputFormat.TSV;
+
+        for (int i = 0; i < options.size(); i += 2)
+        {
+            String option = options.get(i);
+
+            if (i + 1 == options.size())
+            {
+                throw new IllegalArgumentException("Missing value for option " + option);
+            }
+
+            String values = options.get(i + 1);
+
+            switch (option)
+            {
+                case FIELDS_OPTION -> fields = parseValues(values, ResultField::valueOf);
+                case RELATIONS_OPTION -> filter = filter.and(PairFilters.relationIn(parseValues(values, Relation::valueOf)));
+                case ADJACENCY_OPTION -> filter = filter.and(PairFilters.adjacencyIn(parseValues(values, Adjacency::valueOf)));
+                case FORMAT_OPTION -> format = parseValue(values, OutputFormat::valueOf);
+                default -> throw new IllegalArgumentException("Unrecognized option " + option);
+            }
+        }
+
+        return of(fields, filter, format);
+    }
+
+    public List<ResultField> getFields()
+    {
+        return fields;
+    }
+
+    public Predicate<PairEvaluation> getFilter()
+    {
+        return filter;
+    }
+
+    public OutputFormat getFormat()
+    {
+        return format;
+    }
+
+    private static <E> List<E> parseValues(String values, Function<String, E> parser)
+    {
+        var parsed = new ArrayList<E>();
+
+        for (String value : values.split(","))
+        {
+            parsed.add(parseValue(value, parser));
+        }
+
+        return parsed;
+    }
+
+    private static <E> E parseValue(String value, Function<String, E> parser)
+    {
+        try
+        {
+            return parser.apply(value.strip().toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Unrecognized value " + value);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.iholden.batch;
+
+import com.iholden.output.ResultEncoder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+/**
+ * <p>Utility class for batch runs that can be resumed after the process dies, from the last {@link BatchCheckpoint}.</p>
+ * <p>Pair files are read and evaluated as by {@link BatchEvaluator}, but from a file rather than a reader, and into
+ *    a file rather than any channel, so that both can be repositioned. At every interval, the output is flushed and
+ *    synced, then a checkpoint is written recording where the input and output stand; a final checkpoint is written
+ *    once the input is exhausted.</p>
+ * <p>{@link #resume(Path, Path, Path, BatchQuery, Duration)} truncates the output to the checkpoint's offset,
+ *    discarding any records written after it, and continues reading the input from the checkpoint's offset, so the
+ *    output ends up identical to that of an uninterrupted run. It must be given the same input and query as the
+ *    original run.</p>
+ * <p>The clock is only consulted every {@value #CLOCK_CHECK_LINES} lines, and each checkpoint costs two syncs, so
+ *    with the default interval of {@link #DEFAULT_INTERVAL} the overhead is well below 1% of throughput.</p>
+ */
+public class CheckpointedBatch
+{
+    public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(10);
+
+    private static final int CLOCK_CHECK_LINES = 1024;
+
+    /**
+     * Evaluates every pair of {@code input} from the start, replacing any existing {@code output}
+     * @param input pair file
+     * @param output file the query's encoder writes to
+     * @param checkpoint file the checkpoints are written to
+     * @param query query to evaluate
+     * @param interval minimum time between checkpoints
+     * @return the number of accepted pairs
+     * @throws IOException if a file cannot be read or written
+     * @throws IllegalArgumentException if a line does not describe a valid pair
+     */
+    public static long run(Path input, Path output, Path checkpoint, BatchQuery query, Duration interval) throws IOException
+    {
+        try (var outputChannel = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            return evaluate(input, outputChannel, checkpoint, query, interval, BatchCheckpoint.START);
+        }
+    }
+
+    /**
+     * Continues an interrupted run of {@code query} over {@code input} from the checkpoint stored in {@code checkpoint}
+     * @param input pair file of the interrupted run
+     * @param output output file of the interrupted run
+     * @param checkpoint checkpoint file of the interrupted run, which further checkpoints replace
+     * @param query query of the interrupted run
+     * @param interval minimum time between checkpoints
+     * @return the number of accepted pairs, including those accepted before the checkpoint
+     * @throws IOException if a file cannot be read or written, or the files do not reach the checkpoint's offsets
+     * @throws IllegalArgumentException if a line does not describe a valid pair
+     */
+    public static long resume(Path input, Path output, Path checkpoint, BatchQuery query, Duration interval) throws IOException
+    {
+        BatchCheckpoint from = BatchCheckpoint.read(checkpoint);
+
+        try (var outputChannel = FileChannel.open(output, StandardOpenOption.WRITE))
+        {
+            if (outputChannel.size() < from.getOutputOffset())
+            {
+                throw new IOException("Output " + output + " is shorter than its checkpoint; was it replaced?");
+            }
+
+            outputChannel.truncate(from.getOutputOffset());
+            outputChannel.position(from.getOutputOffset());
+
+            return evaluate(input, outputChannel, checkpoint, query, interval, from);
+        }
+    }
+
+    private static long evaluate(Path input, FileChannel output, Path checkpoint, BatchQuery query, Duration interval,
+                                 BatchCheckpoint from) throws IOException
+    {
+        try (var inputChannel = FileChannel.open(input, StandardOpenOption.READ))
+        {
+            if (inputChannel.size() < from.getInputOffset())
+            {
+                throw new IOException("Input " + input + " is shorter than its checkpoint; was it replaced?");
+            }
+
+            var reader = new OffsetLineReader(inputChannel, from.getInputOffset());
+            var encoder = ResultEncoder.of(query.getFormat(), query.getFields(), output);
+            var progress = new Progress(from);
+            var duplicatePairs = new DuplicatePairs();
+            var values = new long[BatchEvaluator.PAIR_VALUES];
+            long intervalNanos = interval.toNanos();
+            long lastCheckpoint = System.nanoTime();
+            String line;
+
+            if (from == BatchCheckpoint.START)
+            {
+                encoder.writeHeader();
+                progress.checkpoint(encoder, output, reader, checkpoint);
+            }
+
+            while ((line = reader.readLine()) != null)
+            {
+                progress.lineNumber++;
+                line = line.strip();
+
+                if (!line.isEmpty() && !line.startsWith(BatchEvaluator.COMMENT_PREFIX))
+                {
+                    BatchEvaluator.parsePair(line, progress.lineNumber, values);
+
+                    var evaluation = duplicatePairs.evaluate(progress.pairCount++, values);
+
+                    if (query.getFilter().test(evaluation))
+                    {
+                        BatchEvaluator.write(encoder, query, evaluation);
+                        progress.matchedCount++;
+                    }
+                }
+
+                if (progress.lineNumber % CLOCK_CHECK_LINES == 0 && System.nanoTime() - lastCheckpoint >= intervalNanos)
+                {
+                    progress.checkpoint(encoder, output, reader, checkpoint);
+                    lastCheckpoint = System.nanoTime();
+                }
+            }
+
+            progress.checkpoint(encoder, output, reader, checkpoint);
+
+            return progress.matchedCount;
+        }
+    }
+
+    /**
+     * Running counters of a checkpointed run
+     */
+    private static class Progress
+    {
+        private long lineNumber;
+        private long pairCount;
+        private long matchedCount;
+
+        private Progress(BatchCheckpoint from)
+        {
+            this.lineNumber = from.getLineNumber();
+            this.pairCount = from.getPairCount();
+            this.matchedCount = from.getMatchedCount();
+        }
+
+        /**
+         * Makes everything written so far durable, then records it; the output must be synced first, or a crash
+         * could leave a checkpoint pointing past the end of the output
+         */
+        private void checkpoint(ResultEncoder encoder, FileChannel output, OffsetLineReader reader, Path checkpoint) throws IOException
+        {
+            encoder.flush();
+            output.force(false);
+
+            BatchCheckpoint.of(reader.getOffset(), output.position(), lineNumber, pairCount, matchedCount).write(checkpoint);
+        }
+    }
+
+    // Discourage Instantiation
+    private CheckpointedBatch(){};
+}
@@ -0,0 +1,144 @@
+package com.iholden.batch;
+
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.RectanglePair;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.entities.impl.RectangleImpl;
+import com.iholden.support.LongIntHashMap;
+import com.iholden.support.RectangleKeyTable;
+
+import java.util.Arrays;
+
+/**
+ * <p>Hands out the {@link PairEvaluation}s of a batch, collapsing exact duplicates so each distinct pair is only
+ *    evaluated once.</p>
+ * <p>Rectangles are interned on their packed {@code (x, y, length, width)} in a {@link RectangleKeyTable}, so every
+ *    copy of a rectangle shares one {@link Rectangle}, and pairs are keyed on the ids of their two rectangles. A
+ *    repeated pair is given an evaluation that starts out with every answer already found for its first copy, so
+ *    its results are identical to evaluating it afresh, without repeating any check.</p>
+ * <p>To bound memory, at most {@value #MAX_RECTANGLES} rectangles and {@value #MAX_PAIRS} pairs are remembered;
+ *    any others are simply evaluated from scratch. Remembering pairs costs more than it saves when few of them
+ *    repeat, so if fewer than 1 in {@value #MIN_HIT_RATIO} of the first {@value #SAMPLE_PAIRS} pairs are
+ *    duplicates, collapsing is switched off for the rest of the batch.</p>
+ */
+class DuplicatePairs
+{
+    static final int MAX_RECTANGLES = 1 << 20;
+    static final int MAX_PAIRS = 1 << 20;
+
+    static final int SAMPLE_PAIRS = 1 << 16;
+    static final int MIN_HIT_RATIO = 4;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MISSING = -1;
+
+    private RectangleKeyTable rectangleIds = new RectangleKeyTable(INITIAL_CAPACITY);
+    private Rectangle[] rectangles = new Rectangle[INITIAL_CAPACITY];
+
+    private LongIntHashMap pairIds = new LongIntHashMap(INITIAL_CAPACITY);
+    private PairEvaluation[] evaluations = new PairEvaluation[INITIAL_CAPACITY];
+
+    private boolean collapsing = true;
+    private long lookups;
+    private long hits;
+
+    /**
+     * @param index position of the pair within its batch
+     * @param values the pair, as {@code lengthA widthA lowerLeftXA lowerLeftYA lengthB widthB lowerLeftXB lowerLeftYB}
+     * @return an evaluation of the pair
+     */
+    PairEvaluation evaluate(long index, long[] values)
+    {
+        if (collapsing && ++lookups == SAMPLE_PAIRS && hits * MIN_HIT_RATIO < lookups)
+        {
+            stopCollapsing();
+        }
+
+        if (!collapsing)
+        {
+            return PairEvaluation.of(index, RectanglePair.of(newRectangle(values, 0), newRectangle(values, 4)));
+        }
+
+        int idA = idOf(values, 0);
+        int idB = idOf(values, 4);
+
+        if (idA == MISSING || idB == MISSING)
+        {
+            return PairEvaluation.of(index, RectanglePair.of(rectangleOf(idA, values, 0), rectangleOf(idB, values, 4)));
+        }
+
+        long pairKey = (long) idA << 32 | idB;
+        int pairId = pairIds.get(pairKey, MISSING);
+
+        if (pairId != MISSING)
+        {
+            hits++;
+            return evaluations[pairId].reindexed(index);
+        }
+
+        var evaluation = PairEvaluation.of(index, RectanglePair.of(rectangles[idA], rectangles[idB]));
+
+        if (pairIds.size() < MAX_PAIRS)
+        {
+            pairId = pairIds.size();
+
+            if (pairId == evaluations.length)
+            {
+                evaluations = Arrays.copyOf(evaluations, pairId * 2);
+            }
+
+            pairIds.put(pairKey, pairId);
+            evaluations[pairId] = evaluation;
+        }
+
+        return evaluation;
+    }
+
+    /**
+     * Drops every table and array remembered so far, so the batch continues without the cost of hashing or
+     * retaining pairs, and the memory they held can be reclaimed
+     */
+    private void stopCollapsing()
+    {
+        collapsing = false;
+        rectangleIds = null;
+        rectangles = null;
+        pairIds = null;
+        evaluations = null;
+    }
+
+    /**
+     * @return the id of the rectangle starting at {@code values[offset]}, or -1 if the table is full and it is new
+     */
+    private int idOf(long[] values, int offset)
+    {
+        long length = values[offset], width = values[offset + 1], x = values[offset + 2], y = values[offset + 3];
+        int id = rectangleIds.find(x, y, length, width);
+
+        if (id != MISSING || rectangleIds.size() == MAX_RECTANGLES)
+        {
+            return id;
+        }
+
+        id = rectangleIds.intern(x, y, length, width);
+
+        if (id == rectangles.length)
+        {
+            rectangles = Arrays.copyOf(rectangles, id * 2);
+        }
+
+        rectangles[id] = newRectangle(values, offset);
+
+        return id;
+    }
+
+    private Rectangle rectangleOf(int id, long[] values, int offset)
+    {
+        return id == MISSING ? newRectangle(values, offset) : rectangles[id];
+    }
+
+    private static Rectangle newRectangle(long[] values, int offset)
+    {
+        return new RectangleImpl(values[offset], values[offset + 1], new PointImpl(values[offset + 2], values[offset + 3]));
+    }
+}
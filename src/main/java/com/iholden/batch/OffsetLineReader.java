@@ -0,0 +1,90 @@
+package com.iholden.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>Reads lines from a {@link FileChannel}, keeping track of the byte offset of the next line.</p>
+ * <p>Unlike a {@link java.io.BufferedReader}, whose read-ahead hides how much of the file has been consumed, this
+ *    knows exactly where each line ends, so a run can later be resumed from that offset. Lines end at {@code \n};
+ *    any {@code \r} before it is left in the line, to be stripped along with other whitespace.</p>
+ */
+class OffsetLineReader
+{
+    private static final int BUFFER_CAPACITY = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_CAPACITY);
+    private byte[] line = new byte[256];
+    private long offset;
+
+    /**
+     * @param channel channel to read; its position is moved to {@code offset}
+     * @param offset byte offset of the first line to read
+     */
+    OffsetLineReader(FileChannel channel, long offset) throws IOException
+    {
+        this.channel = channel;
+        this.offset = offset;
+
+        channel.position(offset);
+        buffer.flip();
+    }
+
+    /**
+     * @return the next line, without its terminator, or null at the end of the file
+     */
+    String readLine() throws IOException
+    {
+        int length = 0;
+
+        while (true)
+        {
+            if (!buffer.hasRemaining())
+            {
+                buffer.clear();
+                int read = channel.read(buffer);
+                buffer.flip();
+
+                if (read < 0)
+                {
+                    if (length == 0)
+                    {
+                        return null;
+                    }
+
+                    offset += length;
+                    return new String(line, 0, length, StandardCharsets.ISO_8859_1);
+                }
+
+                continue;
+            }
+
+            byte value = buffer.get();
+
+            if (value == '\n')
+            {
+                offset += length + 1;
+                return new String(line, 0, length, StandardCharsets.ISO_8859_1);
+            }
+
+            if (length == line.length)
+            {
+                line = Arrays.copyOf(line, length * 2);
+            }
+
+            line[length++] = value;
+        }
+    }
+
+    /**
+     * @return the byte offset just past the last line returned by {@link #readLine()}
+     */
+    long getOffset()
+    {
+        return offset;
+    }
+}
@@ -0,0 +1,249 @@
+package com.iholden.batch;
+
+import com.iholden.constants.Adjacency;
+import com.iholden.constants.Relation;
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.RectanglePair;
+import com.iholden.support.Range;
+
+/**
+ * <p>Lazily evaluated relationship data for a single {@link RectanglePair}.</p>
+ * <p>Nothing is computed when an evaluation is created. Each check is performed the first time it is asked for,
+ *    and remembered, and checks reuse the answers of the cheaper checks they depend on. Filters and output fields
+ *    therefore only ever pay for the checks they actually use.</p>
+ * <p>Use the static builder to obtain an instance: {@link PairEvaluation#of(long, RectanglePair)}</p>
+ */
+public class PairEvaluation
+{
+    /**
+     * Maximum number of points at which two rectangles can intersect. Points come from sides of one rectangle lying
+     * strictly within the other's extent; two sides of A within B's X extent leave no side of B within A's, so
+     * along each axis the two rectangles have at most two such sides between them, and at most 2 x 2 crossings.
+     */
+    public static final int MAX_INTERSECTION_POINTS = 4;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+
+    private final long index;
+    private final RectanglePair pair;
+
+    private byte identical = UNKNOWN;
+    private byte containment = UNKNOWN;
+    private byte intersection = UNKNOWN;
+    private Adjacency adjacency;
+
+    // Prevent external instantiation; prefer static access
+    private PairEvaluation(long index, RectanglePair pair)
+    {
+        this.index = index;
+        this.pair = pair;
+    }
+
+    /**
+     * @param index position of the pair within its batch
+     * @param pair pair of rectangles to evaluate
+     * @return a new, unevaluated evaluation of the pair
+     */
+    public static PairEvaluation of(long index, RectanglePair pair)
+    {
+        return new PairEvaluation(index, pair);
+    }
+
+    /**
+     * @param index position of another copy of the same pair within the batch
+     * @return a new evaluation of the same pair, which starts out with every answer this one has already found
+     */
+    PairEvaluation reindexed(long index)
+    {
+        var evaluation = new PairEvaluation(index, pair);
+
+        evaluation.identical = identical;
+        evaluation.containment = containment;
+        evaluation.intersection = intersection;
+        evaluation.adjacency = adjacency;
+
+        return evaluation;
+    }
+
+    public long getIndex()
+    {
+        return index;
+    }
+
+    public RectanglePair getPair()
+    {
+        return pair;
+    }
+
+    public boolean isIdentical()
+    {
+        if (identical == UNKNOWN)
+        {
+            identical = pair.getRectangleA().equals(pair.getRectangleB()) ? TRUE : FALSE;
+        }
+
+        return identical == TRUE;
+    }
+
+    /**
+     * @return true if Rectangle A contains Rectangle B
+     * @see Rectangle#contains(Rectangle)
+     */
+    public boolean isContainment()
+    {
+        if (containment == UNKNOWN)
+        {
+            containment = !isIdentical() && pair.getRectangleA().contains(pair.getRectangleB()) ? TRUE : FALSE;
+        }
+
+        return containment == TRUE;
+    }
+
+    /**
+     * @return true if the rectangles intersect
+     * @see Rectangle#intersects(Rectangle)
+     */
+    public boolean isIntersection()
+    {
+        if (intersection == UNKNOWN)
+        {
+            intersection = !isIdentical() && !isContainment() && pair.getRectangleA().intersects(pair.getRectangleB()) ? TRUE : FALSE;
+        }
+
+        return intersection == TRUE;
+    }
+
+    /**
+     * <p>Copies the points at which the rectangles intersect into {@code coordinates}, as consecutive x and y
+     *    values, ordered by x and then by y.</p>
+     * <p>Unlike {@link Rectangle#findIntersectionPointsWith(Rectangle)}, no objects are created.</p>
+     * @param coordinates destination of the coordinates; must hold at least {@code 2 * MAX_INTERSECTION_POINTS} values
+     * @return the number of points copied
+     */
+    public int copyIntersectionPointsTo(long[] coordinates)
+    {
+        if (!isIntersection())
+        {
+            return 0;
+        }
+
+        int count = appendCrossingPoints(pair.getRectangleA(), pair.getRectangleB(), coordinates, 0);
+        count = appendCrossingPoints(pair.getRectangleB(), pair.getRectangleA(), coordinates, count);
+
+        // Insertion sort; there are never more than 4 points
+        for (int i = 1; i < count; i++)
+        {
+            long x = coordinates[2 * i], y = coordinates[2 * i + 1];
+            int j = i - 1;
+
+            while (j >= 0 && (coordinates[2 * j] > x || (coordinates[2 * j] == x && coordinates[2 * j + 1] > y)))
+            {
+                coordinates[2 * j + 2] = coordinates[2 * j];
+                coordinates[2 * j + 3] = coordinates[2 * j + 1];
+                j--;
+            }
+
+            coordinates[2 * j + 2] = x;
+            coordinates[2 * j + 3] = y;
+        }
+
+        return count;
+    }
+
+    public Adjacency getAdjacency()
+    {
+        if (adjacency == null)
+        {
+            // Rectangles whose closed bounds do not touch share no points, so the line comparisons can be skipped
+            adjacency = isIdentical() || isContainment() || isIntersection() || !areBoundsTouching()
+                    ? Adjacency.NONE
+                    : pair.getRectangleA().determineAdjacencyWith(pair.getRectangleB());
+        }
+
+        return adjacency;
+    }
+
+    /**
+     * Checks are performed from cheapest to most expensive, and stop at the first one that applies
+     * @return the relation of Rectangle A to Rectangle B
+     */
+    public Relation getRelation()
+    {
+        if (isIdentical())
+        {
+            return Relation.IDENTICAL;
+        }
+
+        if (isContainment())
+        {
+            return Relation.CONTAINMENT;
+        }
+
+        if (isIntersection())
+        {
+            return Relation.INTERSECTION;
+        }
+
+        return getAdjacency() == Adjacency.NONE ? Relation.NONE : Relation.ADJACENCY;
+    }
+
+    /**
+     * Appends the points at which the vertical sides of {@code rectangleA} cross the horizontal sides of
+     * {@code rectangleB}, skipping points that were already appended
+     */
+    private static int appendCrossingPoints(Rectangle rectangleA, Rectangle rectangleB, long[] coordinates, int count)
+    {
+        Range rangeAX = rectangleA.getRangeX(), rangeAY = rectangleA.getRangeY();
+        Range rangeBX = rectangleB.getRangeX(), rangeBY = rectangleB.getRangeY();
+
+        for (int i = 0; i < 2; i++)
+        {
+            long x = i == 0 ? rangeAX.getMin() : rangeAX.getMax();
+
+            if ((i == 1 && x == rangeAX.getMin()) || !rangeBX.containsExclusive(x))
+            {
+                continue;
+            }
+
+            for (int j = 0; j < 2; j++)
+            {
+                long y = j == 0 ? rangeBY.getMin() : rangeBY.getMax();
+
+                if ((j == 1 && y == rangeBY.getMin()) || !rangeAY.containsExclusive(y) || containsPoint(coordinates, count, x, y))
+                {
+                    continue;
+                }
+
+                coordinates[2 * count] = x;
+                coordinates[2 * count + 1] = y;
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static boolean containsPoint(long[] coordinates, int count, long x, long y)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            if (coordinates[2 * i] == x && coordinates[2 * i + 1] == y)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean areBoundsTouching()
+    {
+        Range rangeAX = pair.getRectangleA().getRangeX(), rangeAY = pair.getRectangleA().getRangeY();
+        Range rangeBX = pair.getRectangleB().getRangeX(), rangeBY = pair.getRectangleB().getRangeY();
+
+        return rangeAX.getMin() <= rangeBX.getMax() && rangeBX.getMin() <= rangeAX.getMax()
+                && rangeAY.getMin() <= rangeBY.getMax() && rangeBY.getMin() <= rangeAY.getMax();
+    }
+}
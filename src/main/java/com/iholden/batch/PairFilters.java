@@ -0,0 +1,69 @@
+package com.iholden.batch;
+
+import com.iholden.constants.Adjacency;
+import com.iholden.constants.Relation;
+
+import java.util.EnumSet;
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * <p>Utility class providing {@link PairEvaluation} filters that evaluate no more than they need to.</p>
+ * <p>Filters can be combined with {@link Predicate#and(Predicate)}, which stops at the first filter that rejects
+ *    a pair, so cheaper filters should come first.</p>
+ */
+public class PairFilters
+{
+    public static Predicate<PairEvaluation> all()
+    {
+        return evaluation -> true;
+    }
+
+    /**
+     * <p>Accepts pairs whose {@link Relation} is one of {@code relations}.</p>
+     * <p>Adjacency, the most expensive check, is only performed when {@code relations} includes
+     *    {@link Relation#ADJACENCY} or {@link Relation#NONE}; e.g. a filter for intersecting pairs never compares
+     *    lines.</p>
+     * @param relations accepted relations
+     * @return a filter on the relation of each pair
+     */
+    public static Predicate<PairEvaluation> relationIn(Collection<Relation> relations)
+    {
+        EnumSet<Relation> accepted = relations.isEmpty() ? EnumSet.noneOf(Relation.class) : EnumSet.copyOf(relations);
+        boolean needsAdjacency = accepted.contains(Relation.ADJACENCY) || accepted.contains(Relation.NONE);
+
+        return evaluation ->
+        {
+            if (evaluation.isIdentical())
+            {
+                return accepted.contains(Relation.IDENTICAL);
+            }
+
+            if (evaluation.isContainment())
+            {
+                return accepted.contains(Relation.CONTAINMENT);
+            }
+
+            if (evaluation.isIntersection())
+            {
+                return accepted.contains(Relation.INTERSECTION);
+            }
+
+            return needsAdjacency && accepted.contains(evaluation.getRelation());
+        };
+    }
+
+    /**
+     * @param adjacencies accepted adjacency types
+     * @return a filter on the {@link Adjacency} of each pair
+     */
+    public static Predicate<PairEvaluation> adjacencyIn(Collection<Adjacency> adjacencies)
+    {
+        EnumSet<Adjacency> accepted = adjacencies.isEmpty() ? EnumSet.noneOf(Adjacency.class) : EnumSet.copyOf(adjacencies);
+
+        return evaluation -> accepted.contains(evaluation.getAdjacency());
+    }
+
+    // Discourage Instantiation
+    private PairFilters(){};
+}
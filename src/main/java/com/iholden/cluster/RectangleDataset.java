@@ -0,0 +1,212 @@
+package com.iholden.cluster;
+
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.entities.impl.RectangleImpl;
+import com.iholden.support.RectangleColumns;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * <p>Utility class for reading a dataset of rectangles to be sharded.</p>
+ * <p>Each non-blank line that does not start with {@value #COMMENT_PREFIX} describes one rectangle, as 4 whitespace
+ *    separated whole numbers: {@code length width lowerLeftX lowerLeftY}. Rectangles are given ids in the order they
+ *    are read, starting at 0, unless the line holds a fifth number, which is then the rectangle's id. Datasets
+ *    written by {@link #write(RectangleColumns, Writer)} always hold ids, so reordering a dataset does not change the
+ *    ids its results are reported in.</p>
+ */
+public class RectangleDataset
+{
+    public static final String COMMENT_PREFIX = "#";
+
+    private static final String HEADER = COMMENT_PREFIX + " length width x y id";
+
+    /**
+     * @param input source of rectangle lines
+     * @return the rectangles read
+     * @throws IllegalArgumentException if a line does not describe a valid rectangle
+     * @throws UncheckedIOException if {@code input} cannot be read
+     */
+    public static RectangleColumns read(BufferedReader input)
+    {
+        var minX = new long[16];
+        var minY = new long[16];
+        var maxX = new long[16];
+        var maxY = new long[16];
+        var ids = new int[16];
+        var values = new long[5];
+        int size = 0;
+        long lineNumber = 0;
+        String line;
+
+        try
+        {
+            while ((line = input.readLine()) != null)
+            {
+                lineNumber++;
+                line = line.strip();
+
+                if (line.isEmpty() || line.startsWith(COMMENT_PREFIX))
+                {
+                    continue;
+                }
+
+                if (size == minX.length)
+                {
+                    minX = Arrays.copyOf(minX, size * 2);
+                    minY = Arrays.copyOf(minY, size * 2);
+                    maxX = Arrays.copyOf(maxX, size * 2);
+                    maxY = Arrays.copyOf(maxY, size * 2);
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+
+                int count = parseValues(line, lineNumber, values);
+                Rectangle rectangle = toRectangle(values);
+
+                minX[size] = rectangle.getRangeX().getMin();
+                minY[size] = rectangle.getRangeY().getMin();
+                maxX[size] = rectangle.getRangeX().getMax();
+                maxY[size] = rectangle.getRangeY().getMax();
+                ids[size] = count == 5 ? (int) values[4] : size;
+                size++;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return RectangleColumns.of(Arrays.copyOf(ids, size), Arrays.copyOf(minX, size), Arrays.copyOf(minY, size),
+                Arrays.copyOf(maxX, size), Arrays.copyOf(maxY, size));
+    }
+
+    /**
+     * Writes the rectangles as a dataset, in their current order and with their ids, after a comment naming the values
+     * @param rectangles rectangles to write
+     * @param output destination of the rectangle lines; flushed, but not closed
+     * @throws UncheckedIOException if {@code output} cannot be written
+     */
+    public static void write(RectangleColumns rectangles, Writer output)
+    {
+        try
+        {
+            output.write(HEADER);
+            output.write(System.lineSeparator());
+
+            for (int i = 0; i < rectangles.size(); i++)
+            {
+                // Lengths and widths can exceed Long.MAX_VALUE, as they are parsed unsigned
+                output.write(Long.toUnsignedString(rectangles.getMaxX(i) - rectangles.getMinX(i)));
+                output.write(' ');
+                output.write(Long.toUnsignedString(rectangles.getMaxY(i) - rectangles.getMinY(i)));
+                output.write(' ');
+                output.write(Long.toString(rectangles.getMinX(i)));
+                output.write(' ');
+                output.write(Long.toString(rectangles.getMinY(i)));
+                output.write(' ');
+                output.write(Integer.toString(rectangles.getId(i)));
+                output.write(System.lineSeparator());
+            }
+
+            output.flush();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the rectangles one at a time, without holding on to them, so that datasets of any size can be streamed
+     * @param input source of rectangle lines
+     * @param consumer receives each rectangle, in the order read
+     * @return the number of rectangles read
+     * @throws IllegalArgumentException if a line does not describe a valid rectangle
+     * @throws UncheckedIOException if {@code input} cannot be read
+     */
+    public static long forEach(BufferedReader input, Consumer<Rectangle> consumer)
+    {
+        long count = 0;
+        long lineNumber = 0;
+        String line;
+
+        try
+        {
+            while ((line = input.readLine()) != null)
+            {
+                lineNumber++;
+                line = line.strip();
+
+                if (line.isEmpty() || line.startsWith(COMMENT_PREFIX))
+                {
+                    continue;
+                }
+
+                consumer.accept(parseRectangle(line, lineNumber));
+                count++;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        return count;
+    }
+
+    static Rectangle parseRectangle(String line, long lineNumber)
+    {
+        var values = new long[5];
+
+        parseValues(line, lineNumber, values);
+
+        return toRectangle(values);
+    }
+
+    /**
+     * Parses the length, width, lower left corner and optional id of a rectangle line into {@code values}
+     * @return the number of values on the line, 4 or 5
+     * @throws IllegalArgumentException if the line does not describe a valid rectangle
+     */
+    private static int parseValues(String line, long lineNumber, long[] values)
+    {
+        String[] tokens = line.split("\\s+");
+
+        if (tokens.length != 4 && tokens.length != 5)
+        {
+            throw new IllegalArgumentException("Line " + lineNumber + ": expected 4 values, or 5 with an id; got " + tokens.length);
+        }
+
+        try
+        {
+            values[0] = Long.parseUnsignedLong(tokens[0]);
+            values[1] = Long.parseUnsignedLong(tokens[1]);
+            values[2] = Long.parseLong(tokens[2]);
+            values[3] = Long.parseLong(tokens[3]);
+
+            if (tokens.length == 5)
+            {
+                values[4] = Integer.parseInt(tokens[4]);
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage());
+        }
+
+        return tokens.length;
+    }
+
+    private static Rectangle toRectangle(long[] values)
+    {
+        return new RectangleImpl(values[0], values[1], new PointImpl(values[2], values[3]));
+    }
+
+    // Discourage Instantiation
+    private RectangleDataset(){};
+}
@@ -0,0 +1,116 @@
+package com.iholden.cluster;
+
+import com.iholden.support.PrimitiveSorts;
+
+import java.util.Arrays;
+
+/**
+ * <p>Growable, primitive list of related rectangle pairs, each stored as the ids of its rectangles and the
+ *    {@link com.iholden.session.RelationCodes} in both directions.</p>
+ * <p>The lower id is always stored first, as Rectangle A.</p>
+ */
+public class RelatedPairs
+{
+    private int[] idsA = new int[16];
+    private int[] idsB = new int[16];
+    private byte[] outgoingCodes = new byte[16];
+    private byte[] incomingCodes = new byte[16];
+    private int size;
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int getIdA(int index)
+    {
+        return idsA[index];
+    }
+
+    public int getIdB(int index)
+    {
+        return idsB[index];
+    }
+
+    /**
+     * @return the code of Rectangle A classified against Rectangle B
+     */
+    public int getOutgoingCode(int index)
+    {
+        return outgoingCodes[index];
+    }
+
+    /**
+     * @return the code of Rectangle B classified against Rectangle A
+     */
+    public int getIncomingCode(int index)
+    {
+        return incomingCodes[index];
+    }
+
+    /**
+     * Adds a pair, swapping the rectangles (and codes) if needed so the lower id comes first
+     */
+    public void add(int idA, int idB, int outgoingCode, int incomingCode)
+    {
+        if (size == idsA.length)
+        {
+            int capacity = size * 2;
+
+            idsA = Arrays.copyOf(idsA, capacity);
+            idsB = Arrays.copyOf(idsB, capacity);
+            outgoingCodes = Arrays.copyOf(outgoingCodes, capacity);
+            incomingCodes = Arrays.copyOf(incomingCodes, capacity);
+        }
+
+        boolean swap = idB < idA;
+
+        idsA[size] = swap ? idB : idA;
+        idsB[size] = swap ? idA : idB;
+        outgoingCodes[size] = (byte) (swap ? incomingCode : outgoingCode);
+        incomingCodes[size] = (byte) (swap ? outgoingCode : incomingCode);
+        size++;
+    }
+
+    public void addAll(RelatedPairs other)
+    {
+        for (int i = 0; i < other.size; i++)
+        {
+            add(other.idsA[i], other.idsB[i], other.outgoingCodes[i], other.incomingCodes[i]);
+        }
+    }
+
+    /**
+     * Sorts the pairs by id of Rectangle A, then by id of Rectangle B
+     */
+    public void sort()
+    {
+        var keys = new long[size];
+        var order = new int[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            // Flipping the sign bit of id B keeps negative ids ordered before positive ones in the low half
+            keys[i] = (long) idsA[i] << 32 | ((idsB[i] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+            order[i] = i;
+        }
+
+        PrimitiveSorts.sortParallel(keys, order, 0, size);
+
+        int[] sortedA = new int[idsA.length], sortedB = new int[idsB.length];
+        byte[] sortedOutgoing = new byte[outgoingCodes.length], sortedIncoming = new byte[incomingCodes.length];
+
+        for (int i = 0; i < size; i++)
+        {
+            sortedA[i] = idsA[order[i]];
+            sortedB[i] = idsB[order[i]];
+            sortedOutgoing[i] = outgoingCodes[order[i]];
+            sortedIncoming[i] = incomingCodes[order[i]];
+        }
+
+        idsA = sortedA;
+        idsB = sortedB;
+        outgoingCodes = sortedOutgoing;
+        incomingCodes = sortedIncoming;
+    }
+}
@@ -0,0 +1,417 @@
+package com.iholden.cluster;
+
+import com.iholden.exceptions.ShardFailedException;
+import com.iholden.session.RelationCodes;
+import com.iholden.support.RectangleColumns;
+import com.iholden.support.UniqueRectangles;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>Finds every related pair of rectangles in a dataset by sharding it across several {@link TileWorker}s.</p>
+ * <p>Exact duplicates are first collapsed into {@link UniqueRectangles}, so that each distinct rectangle is only
+ *    sent and classified once; the results are expanded back to every copy afterwards, along with the
+ *    {@link com.iholden.constants.Relation#IDENTICAL} pairs between copies.</p>
+ * <p>The distinct rectangles are split into the tiles of a {@link TileGrid}, and each non-empty tile becomes a task. The
+ *    coordinator listens on a loopback socket and launches {@code workerCount} workers via its {@link WorkerLauncher};
+ *    each worker connects back and is fed one tile at a time, so faster workers take on more tiles. Pairs reaching
+ *    several tiles are only reported by the tile owning their reference point, so merging the results needs no
+ *    further deduplication.</p>
+ * <p>A tile whose worker fails, disconnects or exceeds the timeout is sent to a freshly launched worker, up to
+ *    {@code maxAttempts} times; after that, the whole run fails with a {@link ShardFailedException}.</p>
+ */
+public class ShardCoordinator
+{
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(5);
+
+    private static final long POLL_MILLIS = 50;
+
+    private final WorkerLauncher launcher;
+    private final int workerCount;
+    private final int tileColumns;
+    private final int tileRows;
+    private final int maxAttempts;
+    private final int timeoutMillis;
+
+    /**
+     * @param launcher launcher used to start each worker
+     * @param workerCount number of workers to run concurrently
+     * @param tileColumns number of tiles along the X axis
+     * @param tileRows number of tiles along the Y axis
+     * @param maxAttempts number of times a tile is attempted before the run fails
+     * @param timeout how long to wait for a worker to connect, or for any single read from it
+     */
+    public ShardCoordinator(WorkerLauncher launcher, int workerCount, int tileColumns, int tileRows, int maxAttempts, Duration timeout)
+    {
+        if (workerCount < 1 || tileColumns < 1 || tileRows < 1 || maxAttempts < 1)
+        {
+            throw new IllegalArgumentException("workerCount, tileColumns, tileRows and maxAttempts must all be positive");
+        }
+
+        this.launcher = launcher;
+        this.workerCount = workerCount;
+        this.tileColumns = tileColumns;
+        this.tileRows = tileRows;
+        this.maxAttempts = maxAttempts;
+        this.timeoutMillis = (int) Math.min(Integer.MAX_VALUE, timeout.toMillis());
+    }
+
+    /**
+     * Finds every related pair of {@code rectangles}
+     * @param rectangles dataset to classify
+     * @return the related pairs, sorted by id, along with the statistics of each tile
+     * @throws IOException if the coordinator cannot listen for workers
+     * @throws ShardFailedException if a tile fails on every attempt
+     */
+    public ShardedResult run(RectangleColumns rectangles) throws IOException
+    {
+        UniqueRectangles collapsed = UniqueRectangles.of(rectangles);
+        RectangleColumns unique = collapsed.getUnique();
+        TileGrid grid = TileGrid.of(unique, tileColumns, tileRows);
+        BlockingQueue<ShardTask> tasks = new LinkedBlockingQueue<>(createTasks(grid, unique));
+        var run = new Run(grid, unique, tasks.size());
+
+        try (var server = new ServerSocket(0, workerCount, InetAddress.getLoopbackAddress()))
+        {
+            server.setSoTimeout(timeoutMillis);
+
+            var slots = new ArrayList<Thread>();
+
+            for (int i = 0; i < workerCount; i++)
+            {
+                var slot = new Thread(() -> runSlot(server, tasks, run), "shard-coordinator-" + i);
+
+                slot.start();
+                slots.add(slot);
+            }
+
+            run.remaining.await();
+
+            for (Thread slot : slots)
+            {
+                slot.join();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for workers", e);
+        }
+        finally
+        {
+            run.stopWorkers();
+        }
+
+        if (run.failure.get() != null)
+        {
+            throw run.failure.get();
+        }
+
+        RelatedPairs pairs = expand(run.pairs, collapsed, rectangles);
+
+        pairs.sort();
+        run.stats.sort(Comparator.comparingInt(ShardStats::getTile));
+
+        return new ShardedResult(pairs, List.copyOf(run.stats));
+    }
+
+    /**
+     * Expands the pairs of distinct rectangles into pairs of the original rectangles, adding the identical pairs
+     * between copies of the same rectangle
+     */
+    private static RelatedPairs expand(RelatedPairs uniquePairs, UniqueRectangles collapsed, RectangleColumns rectangles)
+    {
+        var pairs = new RelatedPairs();
+
+        for (int unique = 0; unique < collapsed.uniqueCount(); unique++)
+        {
+            int multiplicity = collapsed.multiplicity(unique);
+
+            for (int i = 0; i < multiplicity; i++)
+            {
+                for (int j = i + 1; j < multiplicity; j++)
+                {
+                    pairs.add(rectangles.getId(collapsed.getMember(unique, i)), rectangles.getId(collapsed.getMember(unique, j)),
+                            RelationCodes.IDENTICAL, RelationCodes.IDENTICAL);
+                }
+            }
+        }
+
+        for (int p = 0; p < uniquePairs.size(); p++)
+        {
+            int uniqueA = uniquePairs.getIdA(p);
+            int uniqueB = uniquePairs.getIdB(p);
+
+            for (int i = 0; i < collapsed.multiplicity(uniqueA); i++)
+            {
+                for (int j = 0; j < collapsed.multiplicity(uniqueB); j++)
+                {
+                    pairs.add(rectangles.getId(collapsed.getMember(uniqueA, i)), rectangles.getId(collapsed.getMember(uniqueB, j)),
+                            uniquePairs.getOutgoingCode(p), uniquePairs.getIncomingCode(p));
+                }
+            }
+        }
+
+        return pairs;
+    }
+
+    private static List<ShardTask> createTasks(TileGrid grid, RectangleColumns rectangles)
+    {
+        var counts = new int[grid.tileCount()];
+
+        for (int i = 0; i < rectangles.size(); i++)
+        {
+            forEachTile(grid, rectangles, i, tile -> counts[tile]++);
+        }
+
+        var members = new int[grid.tileCount()][];
+
+        for (int tile = 0; tile < members.length; tile++)
+        {
+            members[tile] = new int[counts[tile]];
+            counts[tile] = 0;
+        }
+
+        for (int i = 0; i < rectangles.size(); i++)
+        {
+            int rectangle = i;
+
+            forEachTile(grid, rectangles, i, tile -> members[tile][counts[tile]++] = rectangle);
+        }
+
+        var tasks = new ArrayList<ShardTask>();
+
+        for (int tile = 0; tile < members.length; tile++)
+        {
+            if (members[tile].length > 0)
+            {
+                tasks.add(new ShardTask(tile, members[tile]));
+            }
+        }
+
+        return tasks;
+    }
+
+    private static void forEachTile(TileGrid grid, RectangleColumns rectangles, int index, IntConsumer consumer)
+    {
+        for (int row = grid.rowOf(rectangles.getMinY(index)); row <= grid.rowOf(rectangles.getMaxY(index)); row++)
+        {
+            for (int column = grid.columnOf(rectangles.getMinX(index)); column <= grid.columnOf(rectangles.getMaxX(index)); column++)
+            {
+                consumer.accept(grid.tileOf(column, row));
+            }
+        }
+    }
+
+    /**
+     * Feeds tasks to one worker at a time, replacing the worker whenever it fails
+     */
+    private void runSlot(ServerSocket server, BlockingQueue<ShardTask> tasks, Run run)
+    {
+        WorkerConnection connection = null;
+
+        try
+        {
+            while (run.remaining.getCount() > 0)
+            {
+                ShardTask task = tasks.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (task == null)
+                {
+                    continue;
+                }
+
+                long start = System.nanoTime();
+
+                try
+                {
+                    if (connection == null)
+                    {
+                        connection = connect(server, run);
+                    }
+
+                    RelatedPairs pairs = connection.execute(task, run);
+
+                    task.attempts++;
+                    run.complete(new ShardStats(task.tile, task.members.length, pairs.size(), task.attempts, System.nanoTime() - start), pairs);
+                }
+                catch (IOException e)
+                {
+                    closeQuietly(connection);
+                    connection = null;
+
+                    if (++task.attempts >= maxAttempts)
+                    {
+                        run.fail(new ShardFailedException(task.tile, task.attempts, e));
+                    }
+                    else
+                    {
+                        tasks.add(task);
+                    }
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            if (connection != null)
+            {
+                connection.shutdown();
+            }
+        }
+    }
+
+    private WorkerConnection connect(ServerSocket server, Run run) throws IOException
+    {
+        run.addWorker(launcher.launch((InetSocketAddress) server.getLocalSocketAddress()));
+
+        Socket socket = server.accept();
+
+        socket.setSoTimeout(timeoutMillis);
+        socket.setTcpNoDelay(true);
+
+        return new WorkerConnection(socket);
+    }
+
+    private static void closeQuietly(WorkerConnection connection)
+    {
+        if (connection != null)
+        {
+            try
+            {
+                connection.socket.close();
+            }
+            catch (IOException e)
+            {
+                // The connection is being discarded either way
+            }
+        }
+    }
+
+    /**
+     * State shared by the slots of a single run
+     */
+    private static class Run
+    {
+        private final TileGrid grid;
+        private final RectangleColumns rectangles;
+        private final CountDownLatch remaining;
+        private final RelatedPairs pairs = new RelatedPairs();
+        private final List<ShardStats> stats = new ArrayList<>();
+        private final List<AutoCloseable> workers = new ArrayList<>();
+        private final AtomicReference<ShardFailedException> failure = new AtomicReference<>();
+
+        private Run(TileGrid grid, RectangleColumns rectangles, int taskCount)
+        {
+            this.grid = grid;
+            this.rectangles = rectangles;
+            this.remaining = new CountDownLatch(taskCount);
+        }
+
+        private synchronized void complete(ShardStats shardStats, RelatedPairs shardPairs)
+        {
+            stats.add(shardStats);
+            pairs.addAll(shardPairs);
+            remaining.countDown();
+        }
+
+        private void fail(ShardFailedException exception)
+        {
+            failure.compareAndSet(null, exception);
+
+            while (remaining.getCount() > 0)
+            {
+                remaining.countDown();
+            }
+        }
+
+        private synchronized void addWorker(AutoCloseable worker)
+        {
+            workers.add(worker);
+        }
+
+        private synchronized void stopWorkers()
+        {
+            for (AutoCloseable worker : workers)
+            {
+                try
+                {
+                    worker.close();
+                }
+                catch (Exception e)
+                {
+                    // Best effort; the worker exits on its own once its connection is closed
+                }
+            }
+        }
+    }
+
+    private static class ShardTask
+    {
+        private final int tile;
+        private final int[] members;
+        private int attempts;
+
+        private ShardTask(int tile, int[] members)
+        {
+            this.tile = tile;
+            this.members = members;
+        }
+    }
+
+    private static class WorkerConnection
+    {
+        private final Socket socket;
+        private final DataInputStream input;
+        private final DataOutputStream output;
+
+        private WorkerConnection(Socket socket) throws IOException
+        {
+            this.socket = socket;
+            this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private RelatedPairs execute(ShardTask task, Run run) throws IOException
+        {
+            ShardProtocol.writeTask(output, task.tile, run.grid, run.rectangles, task.members);
+
+            return ShardProtocol.readResult(input, task.tile);
+        }
+
+        private void shutdown()
+        {
+            try (socket)
+            {
+                output.writeInt(ShardProtocol.SHUTDOWN);
+                output.flush();
+            }
+            catch (IOException e)
+            {
+                // The worker exits on its own once its connection is closed
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.iholden.cluster;
+
+import com.iholden.support.RectangleColumns;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * <p>Wire format spoken between the {@link ShardCoordinator} and its {@link TileWorker}s, over a single connection
+ *    per worker. All values are big-endian.</p>
+ * <ul>
+ *     <li>Task (coordinator to worker): {@link #TASK}, the tile index, the grid (origin, tile dimensions, columns,
+ *         rows), the rectangle count, then each rectangle's id and closed bounds</li>
+ *     <li>Result (worker to coordinator): {@link #RESULT}, the tile index, the pair count, then each pair's ids and
+ *         relation codes</li>
+ *     <li>Shutdown (coordinator to worker): {@link #SHUTDOWN}; the worker closes the connection</li>
+ * </ul>
+ */
+final class ShardProtocol
+{
+    static final int SHUTDOWN = 0;
+    static final int TASK = 1;
+    static final int RESULT = 2;
+
+    static void writeTask(DataOutputStream output, int tile, TileGrid grid, RectangleColumns rectangles, int[] members)
+            throws IOException
+    {
+        output.writeInt(TASK);
+        output.writeInt(tile);
+        output.writeLong(grid.getOriginX());
+        output.writeLong(grid.getOriginY());
+        output.writeLong(grid.getTileLength());
+        output.writeLong(grid.getTileWidth());
+        output.writeInt(grid.getColumns());
+        output.writeInt(grid.getRows());
+        output.writeInt(members.length);
+
+        for (int member : members)
+        {
+            output.writeInt(rectangles.getId(member));
+            output.writeLong(rectangles.getMinX(member));
+            output.writeLong(rectangles.getMinY(member));
+            output.writeLong(rectangles.getMaxX(member));
+            output.writeLong(rectangles.getMaxY(member));
+        }
+
+        output.flush();
+    }
+
+    /**
+     * Reads the grid and rectangles of a task, after its {@link #TASK} marker and tile index have been read
+     */
+    static TileGrid readGrid(DataInputStream input) throws IOException
+    {
+        return TileGrid.of(input.readLong(), input.readLong(), input.readLong(), input.readLong(), input.readInt(), input.readInt());
+    }
+
+    static RectangleColumns readRectangles(DataInputStream input) throws IOException
+    {
+        int count = input.readInt();
+        var ids = new int[count];
+        var minX = new long[count];
+        var minY = new long[count];
+        var maxX = new long[count];
+        var maxY = new long[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            ids[i] = input.readInt();
+            minX[i] = input.readLong();
+            minY[i] = input.readLong();
+            maxX[i] = input.readLong();
+            maxY[i] = input.readLong();
+        }
+
+        return RectangleColumns.of(ids, minX, minY, maxX, maxY);
+    }
+
+    static void writeResult(DataOutputStream output, int tile, RelatedPairs pairs) throws IOException
+    {
+        output.writeInt(RESULT);
+        output.writeInt(tile);
+        output.writeInt(pairs.size());
+
+        for (int i = 0; i < pairs.size(); i++)
+        {
+            output.writeInt(pairs.getIdA(i));
+            output.writeInt(pairs.getIdB(i));
+            output.writeByte(pairs.getOutgoingCode(i));
+            output.writeByte(pairs.getIncomingCode(i));
+        }
+
+        output.flush();
+    }
+
+    /**
+     * @throws IOException if the result is malformed, or is not for {@code expectedTile}
+     */
+    static RelatedPairs readResult(DataInputStream input, int expectedTile) throws IOException
+    {
+        int marker = input.readInt();
+        int tile = input.readInt();
+
+        if (marker != RESULT || tile != expectedTile)
+        {
+            throw new IOException("Expected result for tile %d; got marker %d for tile %d".formatted(expectedTile, marker, tile));
+        }
+
+        int count = input.readInt();
+        var pairs = new RelatedPairs();
+
+        for (int i = 0; i < count; i++)
+        {
+            pairs.add(input.readInt(), input.readInt(), input.readByte(), input.readByte());
+        }
+
+        return pairs;
+    }
+
+    // Discourage Instantiation
+    private ShardProtocol(){};
+}
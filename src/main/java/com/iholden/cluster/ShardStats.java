@@ -0,0 +1,76 @@
+package com.iholden.cluster;
+
+/**
+ * <p>Statistics of one completed tile of a sharded run.</p>
+ */
+public class ShardStats
+{
+    private final int tile;
+    private final int rectangleCount;
+    private final int pairCount;
+    private final int attempts;
+    private final long elapsedNanos;
+
+    ShardStats(int tile, int rectangleCount, int pairCount, int attempts, long elapsedNanos)
+    {
+        this.tile = tile;
+        this.rectangleCount = rectangleCount;
+        this.pairCount = pairCount;
+        this.attempts = attempts;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getTile()
+    {
+        return tile;
+    }
+
+    /**
+     * @return the number of distinct rectangles sent to the tile, including those also sent to neighbouring tiles
+     */
+    public int getRectangleCount()
+    {
+        return rectangleCount;
+    }
+
+    /**
+     * @return the number of related pairs of distinct rectangles owned by the tile, before expanding duplicates
+     */
+    public int getPairCount()
+    {
+        return pairCount;
+    }
+
+    /**
+     * @return the number of times the tile was sent to a worker, including the successful attempt
+     */
+    public int getAttempts()
+    {
+        return attempts;
+    }
+
+    /**
+     * @return the time taken by the successful attempt, including sending the tile and receiving its result
+     */
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    public double getRectanglesPerSecond()
+    {
+        return elapsedNanos == 0 ? 0 : rectangleCount * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ShardStats{" +
+                "tile=" + tile +
+                ", rectangleCount=" + rectangleCount +
+                ", pairCount=" + pairCount +
+                ", attempts=" + attempts +
+                ", elapsedNanos=" + elapsedNanos +
+                '}';
+    }
+}
@@ -0,0 +1,34 @@
+package com.iholden.cluster;
+
+import java.util.List;
+
+/**
+ * <p>The merged result of a {@link ShardCoordinator} run.</p>
+ */
+public class ShardedResult
+{
+    private final RelatedPairs pairs;
+    private final List<ShardStats> shardStats;
+
+    ShardedResult(RelatedPairs pairs, List<ShardStats> shardStats)
+    {
+        this.pairs = pairs;
+        this.shardStats = shardStats;
+    }
+
+    /**
+     * @return every related pair of the dataset, each reported once and sorted by id
+     */
+    public RelatedPairs getPairs()
+    {
+        return pairs;
+    }
+
+    /**
+     * @return the statistics of each non-empty tile, sorted by tile
+     */
+    public List<ShardStats> getShardStats()
+    {
+        return shardStats;
+    }
+}
@@ -0,0 +1,136 @@
+package com.iholden.cluster;
+
+import com.iholden.support.RectangleColumns;
+
+/**
+ * <p>Partitions the plane into a grid of equally sized, rectangular tiles, used to shard a dataset spatially.</p>
+ * <p>Tiles are half-open, {@code [minX, minX + tileLength)} by {@code [minY, minY + tileWidth)}, so every point
+ *    belongs to exactly one tile; points beyond the edges of the grid belong to the nearest edge tile. A rectangle
+ *    is sent to every tile that its closed bounds reach.</p>
+ * <p>A pair of touching rectangles usually reaches several tiles in common, so each pair is only reported by the
+ *    tile that owns its reference point: the lower-left corner of the intersection of the pair's closed bounds.
+ *    Both rectangles cover that point, so the owning tile always holds both of them.</p>
+ * <p>Use static builders to obtain an instance: {@link TileGrid#of(RectangleColumns, int, int)} or
+ *    {@link TileGrid#of(long, long, long, long, int, int)}</p>
+ */
+public class TileGrid
+{
+    private final long originX;
+    private final long originY;
+    private final long tileLength;
+    private final long tileWidth;
+    private final int columns;
+    private final int rows;
+
+    // Prevent external instantiation; prefer static access
+    private TileGrid(long originX, long originY, long tileLength, long tileWidth, int columns, int rows)
+    {
+        this.originX = originX;
+        this.originY = originY;
+        this.tileLength = tileLength;
+        this.tileWidth = tileWidth;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    public static TileGrid of(long originX, long originY, long tileLength, long tileWidth, int columns, int rows)
+    {
+        if (tileLength < 1 || tileWidth < 1 || columns < 1 || rows < 1)
+        {
+            throw new IllegalArgumentException("Tile dimensions and counts must all be positive");
+        }
+
+        return new TileGrid(originX, originY, tileLength, tileWidth, columns, rows);
+    }
+
+    /**
+     * Creates a grid of {@code columns} by {@code rows} tiles covering the bounding box of {@code rectangles}
+     * @param rectangles rectangles the grid should cover
+     * @param columns number of tiles along the X axis
+     * @param rows number of tiles along the Y axis
+     * @return a new grid
+     */
+    public static TileGrid of(RectangleColumns rectangles, int columns, int rows)
+    {
+        long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE, maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+
+        for (int i = 0; i < rectangles.size(); i++)
+        {
+            minX = Math.min(minX, rectangles.getMinX(i));
+            minY = Math.min(minY, rectangles.getMinY(i));
+            maxX = Math.max(maxX, rectangles.getMaxX(i));
+            maxY = Math.max(maxY, rectangles.getMaxY(i));
+        }
+
+        if (rectangles.size() == 0)
+        {
+            return of(0, 0, 1, 1, columns, rows);
+        }
+
+        return of(minX, minY, (maxX - minX) / columns + 1, (maxY - minY) / rows + 1, columns, rows);
+    }
+
+    public int getColumns()
+    {
+        return columns;
+    }
+
+    public int getRows()
+    {
+        return rows;
+    }
+
+    public int tileCount()
+    {
+        return columns * rows;
+    }
+
+    public int columnOf(long x)
+    {
+        return (int) Math.max(0, Math.min(columns - 1, Math.floorDiv(x - originX, tileLength)));
+    }
+
+    public int rowOf(long y)
+    {
+        return (int) Math.max(0, Math.min(rows - 1, Math.floorDiv(y - originY, tileWidth)));
+    }
+
+    public int tileOf(int column, int row)
+    {
+        return row * columns + column;
+    }
+
+    /**
+     * @param rectangles rectangles holding both members of the pair
+     * @param first index of the first rectangle of the pair
+     * @param second index of the second rectangle of the pair
+     * @return the tile that owns the pair's reference point, and therefore reports the pair
+     */
+    public int ownerOf(RectangleColumns rectangles, int first, int second)
+    {
+        long referenceX = Math.max(rectangles.getMinX(first), rectangles.getMinX(second));
+        long referenceY = Math.max(rectangles.getMinY(first), rectangles.getMinY(second));
+
+        return tileOf(columnOf(referenceX), rowOf(referenceY));
+    }
+
+    long getOriginX()
+    {
+        return originX;
+    }
+
+    long getOriginY()
+    {
+        return originY;
+    }
+
+    long getTileLength()
+    {
+        return tileLength;
+    }
+
+    long getTileWidth()
+    {
+        return tileWidth;
+    }
+}
@@ -0,0 +1,110 @@
+package com.iholden.cluster;
+
+import com.iholden.entities.Rectangle;
+import com.iholden.index.TouchingPairs;
+import com.iholden.session.RelationCodes;
+import com.iholden.support.RectangleColumns;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * <p>Worker side of a sharded run: connects to a {@link ShardCoordinator}, then classifies each tile it is sent,
+ *    until it is told to shut down or the connection is lost.</p>
+ * <p>Workers normally run in their own JVM, via {@link #main(String[])}, but can also run on a thread of the
+ *    coordinator's JVM; see {@link WorkerLauncher}.</p>
+ */
+public class TileWorker
+{
+    /**
+     * @param args host and port of the coordinator
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 2)
+        {
+            System.err.println("Usage: TileWorker <coordinator host> <coordinator port>");
+            System.exit(2);
+        }
+
+        serve(new InetSocketAddress(args[0], Integer.parseInt(args[1])));
+    }
+
+    /**
+     * Connects to the coordinator at {@code address}, and serves tasks until told to shut down
+     * @param address address of the coordinator
+     * @throws IOException if the connection fails
+     */
+    public static void serve(InetSocketAddress address) throws IOException
+    {
+        try (var socket = new Socket())
+        {
+            socket.setTcpNoDelay(true);
+            socket.connect(address);
+
+            var input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            var output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            while (input.readInt() == ShardProtocol.TASK)
+            {
+                int tile = input.readInt();
+                TileGrid grid = ShardProtocol.readGrid(input);
+                RectangleColumns rectangles = ShardProtocol.readRectangles(input);
+
+                ShardProtocol.writeResult(output, tile, classifyTile(tile, grid, rectangles));
+            }
+        }
+    }
+
+    /**
+     * <p>Classifies every pair of touching rectangles in a tile whose reference point the tile owns, in both
+     *    directions, using the {@link Rectangle} relation methods.</p>
+     * @param tile index of the tile
+     * @param grid grid the tile belongs to
+     * @param rectangles rectangles reaching the tile
+     * @return the related pairs owned by the tile
+     */
+    static RelatedPairs classifyTile(int tile, TileGrid grid, RectangleColumns rectangles)
+    {
+        var pairs = new RelatedPairs();
+        var materialized = new Rectangle[rectangles.size()];
+
+        TouchingPairs.forEach(rectangles, (first, second) ->
+        {
+            if (grid.ownerOf(rectangles, first, second) != tile)
+            {
+                return;
+            }
+
+            Rectangle rectangleA = materialize(rectangles, materialized, first);
+            Rectangle rectangleB = materialize(rectangles, materialized, second);
+            int outgoing = RelationCodes.classify(rectangleA, rectangleB);
+            int incoming = RelationCodes.classify(rectangleB, rectangleA);
+
+            if (outgoing != RelationCodes.NONE || incoming != RelationCodes.NONE)
+            {
+                pairs.add(rectangles.getId(first), rectangles.getId(second), outgoing, incoming);
+            }
+        });
+
+        return pairs;
+    }
+
+    private static Rectangle materialize(RectangleColumns rectangles, Rectangle[] materialized, int index)
+    {
+        if (materialized[index] == null)
+        {
+            materialized[index] = rectangles.toRectangle(index);
+        }
+
+        return materialized[index];
+    }
+
+    // Discourage Instantiation
+    private TileWorker(){};
+}
@@ -0,0 +1,68 @@
+package com.iholden.cluster;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+
+/**
+ * <p>Starts a {@link TileWorker} that will connect back to a coordinator.</p>
+ * <p>Use the static factories for the standard launchers: {@link #processes()} or {@link #threads()}</p>
+ */
+@FunctionalInterface
+public interface WorkerLauncher
+{
+    /**
+     * Starts a worker that connects to {@code coordinator}
+     * @param coordinator address the coordinator is listening on
+     * @return a handle that stops the worker when closed, if it is still running
+     * @throws IOException if the worker cannot be started
+     */
+    AutoCloseable launch(InetSocketAddress coordinator) throws IOException;
+
+    /**
+     * Launches each worker in its own JVM, using the same Java installation and class path as this one
+     */
+    static WorkerLauncher processes()
+    {
+        return coordinator ->
+        {
+            Process process = new ProcessBuilder(
+                    Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-cp", System.getProperty("java.class.path"),
+                    TileWorker.class.getName(),
+                    coordinator.getHostString(),
+                    Integer.toString(coordinator.getPort()))
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+
+            return process::destroyForcibly;
+        };
+    }
+
+    /**
+     * Launches each worker on a daemon thread of this JVM, still connected over a loopback socket; mainly for tests
+     */
+    static WorkerLauncher threads()
+    {
+        return coordinator ->
+        {
+            var thread = new Thread(() ->
+            {
+                try
+                {
+                    TileWorker.serve(coordinator);
+                }
+                catch (IOException e)
+                {
+                    // The coordinator sees the lost connection, and retries the tile elsewhere
+                }
+            }, "tile-worker");
+
+            thread.setDaemon(true);
+            thread.start();
+
+            return () -> { };
+        };
+    }
+}
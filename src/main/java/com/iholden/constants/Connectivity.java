@@ -0,0 +1,23 @@
+package com.iholden.constants;
+
+/**
+ * <p>Representation of the ways in which two rectangles can be considered connected, from strictest to loosest.</p>
+ * <p>Each level includes the levels before it. Consult project README for definitions and rationale.</p>
+ */
+public enum Connectivity
+{
+    /**
+     * The rectangles share area: their interiors overlap, including identical and contained rectangles
+     */
+    OVERLAP,
+
+    /**
+     * The rectangles share area, or share a line segment of positive length along their edges
+     */
+    EDGE,
+
+    /**
+     * The rectangles share at least one point, including a single, corner point
+     */
+    CORNER
+}
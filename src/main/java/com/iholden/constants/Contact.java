@@ -0,0 +1,24 @@
+package com.iholden.constants;
+
+/**
+ * <p>Representation of how the bounds of two rectangles touch, as tracked between the ticks of a simulation.</p>
+ * <p>These mirror the {@link Connectivity} levels: {@link #OVERLAP} is {@link Connectivity#OVERLAP}, and
+ *    {@link #ADJACENCY} is the rest of {@link Connectivity#CORNER}.</p>
+ */
+public enum Contact
+{
+    /**
+     * The rectangles' closed bounds share no point
+     */
+    NONE,
+
+    /**
+     * The rectangles share an edge or a corner, but no area
+     */
+    ADJACENCY,
+
+    /**
+     * The rectangles' interiors overlap, including identical and contained rectangles
+     */
+    OVERLAP
+}
@@ -0,0 +1,35 @@
+package com.iholden.constants;
+
+/**
+ * <p>Representation of a change in the {@link Contact} between two rectangles from one tick of a simulation to the
+ *    next.</p>
+ * <p>A pair going straight from one kind of contact to another reports the end of the old contact, followed by the
+ *    beginning of the new one.</p>
+ */
+public enum ContactEvent
+{
+    ADJACENCY_BEGIN,
+    ADJACENCY_END,
+    OVERLAP_BEGIN,
+    OVERLAP_END;
+
+    public static ContactEvent beginningOf(Contact contact)
+    {
+        return switch (contact)
+        {
+            case ADJACENCY -> ADJACENCY_BEGIN;
+            case OVERLAP -> OVERLAP_BEGIN;
+            case NONE -> throw new IllegalArgumentException("NONE is not a contact that can begin");
+        };
+    }
+
+    public static ContactEvent endOf(Contact contact)
+    {
+        return switch (contact)
+        {
+            case ADJACENCY -> ADJACENCY_END;
+            case OVERLAP -> OVERLAP_END;
+            case NONE -> throw new IllegalArgumentException("NONE is not a contact that can end");
+        };
+    }
+}
@@ -0,0 +1,24 @@
+package com.iholden.constants;
+
+/**
+ * <p>Representation of where a second rectangle lies relative to a first, as seen from the first: the side, or the
+ *    corner, of the first rectangle that faces the second. The second rectangle's facing side is the opposite one.</p>
+ * <p>Along each axis, the second rectangle lies beyond a side of the first when it starts at or after the first ends,
+ *    and also ends after it, so rectangles sharing an edge face each other across it with a gap of 0. A rectangle
+ *    lying within the other's closed extent on both axes faces no side.</p>
+ */
+public enum Facing
+{
+    /**
+     * The rectangles' extents meet on both axes: their closed bounds share area, or one lies on the other's edge
+     */
+    OVERLAP,
+    LEFT,
+    RIGHT,
+    BOTTOM,
+    TOP,
+    BOTTOM_LEFT,
+    BOTTOM_RIGHT,
+    TOP_LEFT,
+    TOP_RIGHT
+}
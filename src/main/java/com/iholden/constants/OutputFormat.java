@@ -0,0 +1,13 @@
+package com.iholden.constants;
+
+/**
+ * <p>Representation of the formats in which batch results can be written.</p>
+ * <p>See README for details of each format.</p>
+ */
+public enum OutputFormat
+{
+    TSV,
+    CSV,
+    JSONL,
+    BINARY
+}
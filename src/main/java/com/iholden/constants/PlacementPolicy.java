@@ -0,0 +1,27 @@
+package com.iholden.constants;
+
+/**
+ * <p>Representation of the ways in which a position can be chosen for a new rectangle among the free positions that
+ *    fit it.</p>
+ * <p>Every policy places the new rectangle at the lower left corner of a maximal empty rectangle that is at least as
+ *    long and as wide as it.</p>
+ */
+public enum PlacementPolicy
+{
+    /**
+     * The first free rectangle found that fits, with no preference among positions; the cheapest query
+     */
+    FIRST_FIT,
+
+    /**
+     * The free rectangle of least area that fits, leaving the larger free rectangles for later, larger requests.
+     * Ties are broken as by {@link #BOTTOM_LEFT}
+     */
+    BEST_FIT,
+
+    /**
+     * The lowest position that fits, and of those the leftmost, keeping the placed rectangles packed against the
+     * bottom of the region
+     */
+    BOTTOM_LEFT
+}
@@ -0,0 +1,14 @@
+package com.iholden.constants;
+
+/**
+ * <p>Representation of the mutually exclusive classifications that can apply to an ordered pair of rectangles.</p>
+ * <p>Consult project README for definitions and rationale.</p>
+ */
+public enum Relation
+{
+    IDENTICAL,
+    CONTAINMENT,
+    INTERSECTION,
+    ADJACENCY,
+    NONE
+}
@@ -0,0 +1,19 @@
+package com.iholden.constants;
+
+/**
+ * <p>Representation of the values that can be reported for a pair of rectangles in a batch run.</p>
+ * <p>Fields are only computed when they are requested, so the cost of a run depends on which fields it asks for;
+ *    {@link #INTERSECTION_POINTS} is the most expensive, since it finds where the sides of the rectangles cross,
+ *    though batch output copies the points into a reused buffer rather than creating objects for them.</p>
+ */
+public enum ResultField
+{
+    AREA_A,
+    AREA_B,
+    RELATION,
+    IDENTICAL,
+    CONTAINMENT,
+    INTERSECTION,
+    INTERSECTION_POINTS,
+    ADJACENCY
+}
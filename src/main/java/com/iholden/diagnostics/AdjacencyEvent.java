@@ -0,0 +1,34 @@
+package com.iholden.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * <p>Flight Recorder event timing
+ *    {@link com.iholden.entities.Rectangle#determineAdjacencyWith(com.iholden.entities.Rectangle)}, including the
+ *    scans of the rectangles' lines, which are also timed individually by {@link LineAdjacencyEvent}.</p>
+ */
+@Name(AdjacencyEvent.NAME)
+@Label("Rectangle Adjacency")
+@Category({ "Rectangles", "Classification" })
+@Description("Classifying the adjacency of two rectangles")
+@Enabled(false)
+@Threshold("50 us")
+@StackTrace(false)
+public class AdjacencyEvent extends Event
+{
+    public static final String NAME = "com.iholden.Adjacency";
+
+    @Label("Adjacency")
+    public String adjacency;
+
+    @Label("Magnitude")
+    @Description("Largest absolute coordinate of either rectangle")
+    public long magnitude;
+}
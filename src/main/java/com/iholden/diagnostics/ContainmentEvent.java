@@ -0,0 +1,32 @@
+package com.iholden.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * <p>Flight Recorder event timing {@link com.iholden.entities.Rectangle#contains(com.iholden.entities.Rectangle)}.</p>
+ */
+@Name(ContainmentEvent.NAME)
+@Label("Containment Check")
+@Category({ "Rectangles", "Classification" })
+@Description("Whether one rectangle contains another")
+@Enabled(false)
+@Threshold("20 us")
+@StackTrace(false)
+public class ContainmentEvent extends Event
+{
+    public static final String NAME = "com.iholden.Containment";
+
+    @Label("Contained")
+    public boolean contained;
+
+    @Label("Magnitude")
+    @Description("Largest absolute coordinate of either rectangle")
+    public long magnitude;
+}
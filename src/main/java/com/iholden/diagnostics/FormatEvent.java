@@ -0,0 +1,38 @@
+package com.iholden.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * <p>Flight Recorder event timing the formatting of results, either a batch record or a console summary.</p>
+ */
+@Name(FormatEvent.NAME)
+@Label("Format Output")
+@Category({ "Rectangles", "Output" })
+@Description("Formatting a batch record or the console results of a rectangle")
+@Enabled(false)
+@Threshold("50 us")
+@StackTrace(false)
+public class FormatEvent extends Event
+{
+    public static final String NAME = "com.iholden.Format";
+    public static final String CONSOLE = "CONSOLE";
+
+    @Label("Format")
+    @Description("Output format of a batch record, or " + CONSOLE)
+    public String format;
+
+    @Label("Results")
+    @Description("Number of fields in a batch record, or of related rectangles in a console summary")
+    public int resultCount;
+
+    @Label("Magnitude")
+    @Description("Largest absolute coordinate of the rectangles described")
+    public long magnitude;
+}
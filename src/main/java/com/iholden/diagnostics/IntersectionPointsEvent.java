@@ -0,0 +1,33 @@
+package com.iholden.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * <p>Flight Recorder event timing
+ *    {@link com.iholden.entities.Rectangle#findIntersectionPointsWith(com.iholden.entities.Rectangle)}.</p>
+ */
+@Name(IntersectionPointsEvent.NAME)
+@Label("Intersection Points")
+@Category({ "Rectangles", "Classification" })
+@Description("Building the set of points at which two rectangles intersect")
+@Enabled(false)
+@Threshold("20 us")
+@StackTrace(false)
+public class IntersectionPointsEvent extends Event
+{
+    public static final String NAME = "com.iholden.IntersectionPoints";
+
+    @Label("Point Count")
+    public int pointCount;
+
+    @Label("Magnitude")
+    @Description("Largest absolute coordinate of either rectangle")
+    public long magnitude;
+}
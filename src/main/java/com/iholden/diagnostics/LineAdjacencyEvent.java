@@ -0,0 +1,34 @@
+package com.iholden.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * <p>Flight Recorder event timing {@link com.iholden.entities.Line#determineAdjacencyWith(com.iholden.entities.Line)}.</p>
+ * <p>Up to 8 line pairs are compared per rectangle pair, so this is by far the most frequent event; its threshold
+ *    is set accordingly.</p>
+ */
+@Name(LineAdjacencyEvent.NAME)
+@Label("Line Adjacency")
+@Category({ "Rectangles", "Classification" })
+@Description("Classifying the adjacency of two lines, while scanning the sides of two rectangles")
+@Enabled(false)
+@Threshold("100 us")
+@StackTrace(false)
+public class LineAdjacencyEvent extends Event
+{
+    public static final String NAME = "com.iholden.LineAdjacency";
+
+    @Label("Adjacency")
+    public String adjacency;
+
+    @Label("Magnitude")
+    @Description("Largest absolute coordinate of either line")
+    public long magnitude;
+}
@@ -0,0 +1,64 @@
+package com.iholden.diagnostics;
+
+import com.iholden.entities.Line;
+import com.iholden.entities.Rectangle;
+
+/**
+ * <p>Utility class for summarising the coordinates involved in an event as a single magnitude: the largest absolute
+ *    value among them.</p>
+ * <p>Magnitudes show whether slow operations correlate with large coordinates, e.g. values near the limits of
+ *    {@code long} that push work onto slower paths. They are only computed once an event is known to be committed.</p>
+ */
+public class Magnitudes
+{
+    public static long of(Rectangle rectangleA, Rectangle rectangleB)
+    {
+        return Math.max(
+                Math.max(of(rectangleA.getRangeX().getMin(), rectangleA.getRangeX().getMax()),
+                        of(rectangleA.getRangeY().getMin(), rectangleA.getRangeY().getMax())),
+                Math.max(of(rectangleB.getRangeX().getMin(), rectangleB.getRangeX().getMax()),
+                        of(rectangleB.getRangeY().getMin(), rectangleB.getRangeY().getMax())));
+    }
+
+    public static long of(Line lineA, Line lineB)
+    {
+        return Math.max(
+                Math.max(of(lineA.getPointA().getXCoordinate(), lineA.getPointA().getYCoordinate()),
+                        of(lineA.getPointB().getXCoordinate(), lineA.getPointB().getYCoordinate())),
+                Math.max(of(lineB.getPointA().getXCoordinate(), lineB.getPointA().getYCoordinate()),
+                        of(lineB.getPointB().getXCoordinate(), lineB.getPointB().getYCoordinate())));
+    }
+
+    /**
+     * @param values values to summarise
+     * @param count number of leading values to consider
+     * @return the largest absolute value among the first {@code count} values, or 0 if there are none
+     */
+    public static long of(long[] values, int count)
+    {
+        long magnitude = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            magnitude = Math.max(magnitude, absolute(values[i]));
+        }
+
+        return magnitude;
+    }
+
+    public static long of(long valueA, long valueB)
+    {
+        return Math.max(absolute(valueA), absolute(valueB));
+    }
+
+    /**
+     * Absolute value, saturated at {@link Long#MAX_VALUE} rather than overflowing for {@link Long#MIN_VALUE}
+     */
+    private static long absolute(long value)
+    {
+        return value == Long.MIN_VALUE ? Long.MAX_VALUE : Math.abs(value);
+    }
+
+    // Discourage Instantiation
+    private Magnitudes(){};
+}
@@ -0,0 +1,42 @@
+package com.iholden.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * <p>Flight Recorder event timing the parsing of input, either a value typed at the console or a line of a batch.</p>
+ */
+@Name(ParseEvent.NAME)
+@Label("Parse Input")
+@Category({ "Rectangles", "Input" })
+@Description("Parsing a console value or a batch line")
+@Enabled(false)
+@Threshold("20 us")
+@StackTrace(false)
+public class ParseEvent extends Event
+{
+    public static final String NAME = "com.iholden.Parse";
+    public static final String CONSOLE = "console";
+    public static final String BATCH = "batch";
+
+    @Label("Source")
+    @Description("Where the input came from: " + CONSOLE + " or " + BATCH)
+    public String source;
+
+    @Label("Line Number")
+    @Description("Line number of a batch line; 0 for console input")
+    public long lineNumber;
+
+    @Label("Valid")
+    public boolean valid;
+
+    @Label("Magnitude")
+    @Description("Largest absolute value parsed")
+    public long magnitude;
+}
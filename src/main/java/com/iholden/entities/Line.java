@@ -4,6 +4,8 @@ import static java.util.stream.Collectors.toSet;
 
 import com.iholden.constants.Adjacency;
 import com.iholden.constants.Orientation;
+import com.iholden.diagnostics.LineAdjacencyEvent;
+import com.iholden.diagnostics.Magnitudes;
 import com.iholden.exceptions.DiagonalLineException;
 import com.iholden.support.Range;
 
@@ -69,23 +71,19 @@ public interface Line
      */
     default Adjacency determineAdjacencyWith(Line otherLine)
     {
-        // Identical lines always indicate PROPER adjacency
-        if (this.equals(otherLine))
-        {
-            return Adjacency.PROPER;
-        }
+        var event = new LineAdjacencyEvent();
+        event.begin();
 
-        // Lines of different orientations cannot be adjacent
-        if (!this.getOrientation().equals(otherLine.getOrientation()))
+        Adjacency adjacency = classifyAdjacency(this, otherLine);
+
+        if (event.shouldCommit())
         {
-            return Adjacency.NONE;
+            event.adjacency = adjacency.name();
+            event.magnitude = Magnitudes.of(this, otherLine);
+            event.commit();
         }
 
-        return switch (this.getOrientation())
-        {
-            case VERTICAL -> determineVerticalAdjacencyWith(otherLine);
-            case HORIZONTAL -> determineHorizontalAdjacencyWith(otherLine);
-        };
+        return adjacency;
     }
 
     default Adjacency determineVerticalAdjacencyWith(Line otherLine)
@@ -124,6 +122,30 @@ public interface Line
         throw new DiagonalLineException(this);
     }
 
+    /**
+     * Body of {@link #determineAdjacencyWith(Line)}, apart from its Flight Recorder event
+     */
+    private static Adjacency classifyAdjacency(Line lineA, Line lineB)
+    {
+        // Identical lines always indicate PROPER adjacency
+        if (lineA.equals(lineB))
+        {
+            return Adjacency.PROPER;
+        }
+
+        // Lines of different orientations cannot be adjacent
+        if (!lineA.getOrientation().equals(lineB.getOrientation()))
+        {
+            return Adjacency.NONE;
+        }
+
+        return switch (lineA.getOrientation())
+        {
+            case VERTICAL -> lineA.determineVerticalAdjacencyWith(lineB);
+            case HORIZONTAL -> lineA.determineHorizontalAdjacencyWith(lineB);
+        };
+    }
+
     private static Adjacency internalDetermineAdjacency(Line lineA, Line lineB)
     {
         Range thisCoordinateRange = Range.of(lineA);
@@ -5,8 +5,13 @@ import static java.util.stream.Collectors.toSet;
 
 import com.iholden.constants.Adjacency;
 import com.iholden.constants.Orientation;
+import com.iholden.diagnostics.AdjacencyEvent;
+import com.iholden.diagnostics.ContainmentEvent;
+import com.iholden.diagnostics.IntersectionPointsEvent;
+import com.iholden.diagnostics.Magnitudes;
 import com.iholden.entities.impl.PointImpl;
 import com.iholden.support.Range;
+import com.iholden.support.RectangleBuffer;
 
 import java.util.HashSet;
 import java.util.List;
@@ -43,21 +48,259 @@ public interface Rectangle
      */
     default Adjacency determineAdjacencyWith(Rectangle otherRectangle)
     {
-        if (this.equals(otherRectangle) || this.contains(otherRectangle) || !this.findIntersectionPointsWith(otherRectangle).isEmpty())
+        var event = new AdjacencyEvent();
+        event.begin();
+
+        Adjacency adjacency = internalDetermineAdjacency(this, otherRectangle);
+
+        if (event.shouldCommit())
+        {
+            event.adjacency = adjacency.name();
+            event.magnitude = Magnitudes.of(this, otherRectangle);
+            event.commit();
+        }
+
+        return adjacency;
+    }
+
+    /**
+     * <p>Determines if this Rectangle contains {@code otherRectangle}</p>
+     * <p>This method considers a rectangle as being contained within another
+     *    rectangle when all if its corner points exist entirely within the confines
+     *    of the other rectangle.</p>
+     * @param otherRectangle other Rectangle to compare with this one
+     * @return true if this Rectangle contains {@code otherRectangle}; otherwise false
+     */
+    default boolean contains(Rectangle otherRectangle)
+    {
+        var event = new ContainmentEvent();
+        event.begin();
+
+        boolean contained = internalContains(this, otherRectangle);
+
+        if (event.shouldCommit())
+        {
+            event.contained = contained;
+            event.magnitude = Magnitudes.of(this, otherRectangle);
+            event.commit();
+        }
+
+        return contained;
+    }
+
+    /**
+     * <p>Finds and returns any Points at which the Rectangles intersect.</p>
+     * <p>The returned Set is <b>immutable</b></p>
+     * @param otherRectangle other rectangle to compare with this one
+     * @return a Set of all Points where this Rectangle intersects with {@code otherRectangle}, or an empty set if no intersections
+     */
+    default Set<Point> findIntersectionPointsWith(Rectangle otherRectangle)
+    {
+        var event = new IntersectionPointsEvent();
+        event.begin();
+
+        Set<Point> intersectingPoints = collectIntersectionPoints(this, otherRectangle);
+
+        if (event.shouldCommit())
+        {
+            event.pointCount = intersectingPoints.size();
+            event.magnitude = Magnitudes.of(this, otherRectangle);
+            event.commit();
+        }
+
+        return intersectingPoints;
+    }
+
+    /**
+     * <p>Determines whether the Rectangles intersect at any point.</p>
+     * <p>Equivalent to {@code !findIntersectionPointsWith(otherRectangle).isEmpty()}, but compares the rectangles'
+     *    bounds directly, rather than materializing the intersection points.</p>
+     * @param otherRectangle other rectangle to compare with this one
+     * @return true if this Rectangle intersects with {@code otherRectangle}; otherwise false
+     */
+    default boolean intersects(Rectangle otherRectangle)
+    {
+        if (this.equals(otherRectangle) || this.contains(otherRectangle))
+        {
+            return false;
+        }
+
+        return areRectanglesCrossing(this, otherRectangle) || areRectanglesCrossing(otherRectangle, this);
+    }
+
+    /**
+     * <p>Appends the region shared by the interiors of this Rectangle and {@code otherRectangle} to {@code output}.</p>
+     * <p>Rectangles that only share an edge or a corner are adjacent rather than overlapping, and have no
+     *    intersection region, in line with {@link Range#containsExclusive(long)}.</p>
+     * @param otherRectangle other Rectangle to intersect with this one
+     * @param output buffer the intersection region is appended to, if there is one
+     * @return true if a region was appended; otherwise false
+     */
+    default boolean intersection(Rectangle otherRectangle, RectangleBuffer output)
+    {
+        long minX = Math.max(this.getRangeX().getMin(), otherRectangle.getRangeX().getMin());
+        long maxX = Math.min(this.getRangeX().getMax(), otherRectangle.getRangeX().getMax());
+        long minY = Math.max(this.getRangeY().getMin(), otherRectangle.getRangeY().getMin());
+        long maxY = Math.min(this.getRangeY().getMax(), otherRectangle.getRangeY().getMax());
+
+        if (minX >= maxX || minY >= maxY)
+        {
+            return false;
+        }
+
+        output.add(minX, minY, maxX, maxY);
+
+        return true;
+    }
+
+    /**
+     * <p>Appends the parts of this Rectangle that are not covered by the interior of {@code otherRectangle} to
+     *    {@code output}, as up to four interior-disjoint rectangles.</p>
+     * <p>The full-width bands below and above {@code otherRectangle} are appended first, followed by the pieces to
+     *    its left and right. Pieces share edges with {@code otherRectangle} and with each other, but never overlap
+     *    them.</p>
+     * @param otherRectangle Rectangle to subtract from this one
+     * @param output buffer the remaining pieces are appended to
+     * @return the number of pieces appended; 1 if the interiors do not overlap, 0 if this Rectangle is entirely covered
+     */
+    default int subtract(Rectangle otherRectangle, RectangleBuffer output)
+    {
+        long minX = this.getRangeX().getMin(), maxX = this.getRangeX().getMax();
+        long minY = this.getRangeY().getMin(), maxY = this.getRangeY().getMax();
+        long otherMinX = otherRectangle.getRangeX().getMin(), otherMaxX = otherRectangle.getRangeX().getMax();
+        long otherMinY = otherRectangle.getRangeY().getMin(), otherMaxY = otherRectangle.getRangeY().getMax();
+
+        // Interiors do not overlap - nothing is removed
+        if (Math.max(minX, otherMinX) >= Math.min(maxX, otherMaxX) || Math.max(minY, otherMinY) >= Math.min(maxY, otherMaxY))
+        {
+            output.add(minX, minY, maxX, maxY);
+
+            return 1;
+        }
+
+        int pieces = 0;
+        long middleMinY = Math.max(minY, otherMinY);
+        long middleMaxY = Math.min(maxY, otherMaxY);
+
+        if (otherMinY > minY)
+        {
+            output.add(minX, minY, maxX, otherMinY);
+            pieces++;
+        }
+
+        if (otherMaxY < maxY)
+        {
+            output.add(minX, otherMaxY, maxX, maxY);
+            pieces++;
+        }
+
+        if (otherMinX > minX)
+        {
+            output.add(minX, middleMinY, otherMinX, middleMaxY);
+            pieces++;
+        }
+
+        if (otherMaxX < maxX)
+        {
+            output.add(otherMaxX, middleMinY, maxX, middleMaxY);
+            pieces++;
+        }
+
+        return pieces;
+    }
+
+    /**
+     * <p>Appends the part of this Rectangle that lies within the closed window {@code rangeX} x {@code rangeY} to
+     *    {@code output}.</p>
+     * <p>Window bounds are inclusive, in line with {@link Range#containsInclusive(long)}: a Rectangle that only
+     *    touches the window yields the shared edge or corner, as a rectangle with zero length and/or width.</p>
+     * @param rangeX horizontal extent of the window
+     * @param rangeY vertical extent of the window
+     * @param output buffer the clipped rectangle is appended to, if there is one
+     * @return true if a clipped rectangle was appended; otherwise false
+     */
+    default boolean clip(Range rangeX, Range rangeY, RectangleBuffer output)
+    {
+        long minX = Math.max(this.getRangeX().getMin(), rangeX.getMin());
+        long maxX = Math.min(this.getRangeX().getMax(), rangeX.getMax());
+        long minY = Math.max(this.getRangeY().getMin(), rangeY.getMin());
+        long maxY = Math.min(this.getRangeY().getMax(), rangeY.getMax());
+
+        if (minX > maxX || minY > maxY)
+        {
+            return false;
+        }
+
+        output.add(minX, minY, maxX, maxY);
+
+        return true;
+    }
+
+    /**
+     * Convenience method for querying the rectangle lines matching the provided Orientation
+     * @param orientation line orientation type to query
+     * @return a list of the Rectangle's lines that match the provided orientation type
+     */
+    default List<Line> getLinesHavingOrientationOf(Orientation orientation)
+    {
+        return getLines().stream()
+                .filter(line -> orientation.equals(line.getOrientation()))
+                .collect(toList());
+    }
+
+    /**
+     * <p>Finds any intersecting points between the provided rectangles.</p>
+     * <p>In order to locate all intersecting points, the method must be called twice, reversing the order of the
+     *    provided Rectangle arguments for the second call.</p>
+     * <p>The returned Set is mutable.</p>
+     * @param rectangleA first Rectangle to compare
+     * @param rectangleB second Rectangle to compare
+     * @return a Set of Points at which the two rectangles intersect, or an empty Set if there are no intersections
+     */
+    private static Set<Point> internalFindIntersectionPoints(Rectangle rectangleA, Rectangle rectangleB)
+    {
+        var intersectingPoints = new HashSet<Point>();
+
+        Set<Long> overlappingXCoordinates = Stream.of(rectangleA.getRangeX().getMin(), rectangleA.getRangeX().getMax())
+                .filter(x -> rectangleB.getRangeX().containsExclusive(x))
+                .collect(toSet());
+
+        Set<Long> overlappingYCoordinates = Stream.of(rectangleB.getRangeY().getMin(), rectangleB.getRangeY().getMax())
+                .filter(y -> rectangleA.getRangeY().containsExclusive(y))
+                .collect(toSet());
+
+        if (overlappingXCoordinates.isEmpty() || overlappingYCoordinates.isEmpty())
+        {
+            return intersectingPoints;
+        }
+
+        overlappingXCoordinates.forEach(x -> overlappingYCoordinates.stream()
+                .map(y -> new PointImpl(x, y))
+                .forEach(intersectingPoints::add));
+
+        return intersectingPoints;
+    }
+
+    /**
+     * Body of {@link #determineAdjacencyWith(Rectangle)}, apart from its Flight Recorder event
+     */
+    private static Adjacency internalDetermineAdjacency(Rectangle rectangleA, Rectangle rectangleB)
+    {
+        if (rectangleA.equals(rectangleB) || rectangleA.contains(rectangleB) || rectangleA.intersects(rectangleB))
         {
             return Adjacency.NONE;
         }
 
-        if (areRectanglesCornerAdjacent(this, otherRectangle))
+        if (areRectanglesCornerAdjacent(rectangleA, rectangleB))
         {
             return Adjacency.SINGLE_POINT;
         }
 
         Adjacency adjacency = Adjacency.NONE;
 
-        for (Line thisLine : this.getHorizontalLines())
+        for (Line thisLine : rectangleA.getHorizontalLines())
         {
-            for (Line otherLine : otherRectangle.getHorizontalLines())
+            for (Line otherLine : rectangleB.getHorizontalLines())
             {
                 adjacency = thisLine.determineAdjacencyWith(otherLine);
 
@@ -78,9 +321,9 @@ public interface Rectangle
             return adjacency;
         }
 
-        for (Line thisLine : this.getVerticalLines())
+        for (Line thisLine : rectangleA.getVerticalLines())
         {
-            for (Line otherLine : otherRectangle.getVerticalLines())
+            for (Line otherLine : rectangleB.getVerticalLines())
             {
                 adjacency = thisLine.determineAdjacencyWith(otherLine);
 
@@ -100,103 +343,66 @@ public interface Rectangle
     }
 
     /**
-     * <p>Determines if this Rectangle contains {@code otherRectangle}</p>
-     * <p>This method considers a rectangle as being contained within another
-     *    rectangle when all if its corner points exist entirely within the confines
-     *    of the other rectangle.</p>
-     * @param otherRectangle other Rectangle to compare with this one
-     * @return true if this Rectangle contains {@code otherRectangle}; otherwise false
+     * Body of {@link #contains(Rectangle)}, apart from its Flight Recorder event
      */
-    default boolean contains(Rectangle otherRectangle)
+    private static boolean internalContains(Rectangle rectangleA, Rectangle rectangleB)
     {
         // The rectangles are identical - no containment
-        if (this.equals(otherRectangle))
+        if (rectangleA.equals(rectangleB))
         {
             return false;
         }
 
         // Rule out obvious case of the other rectangle being larger than this one
-        if (otherRectangle.getArea() > this.getArea())
+        if (rectangleB.getArea() > rectangleA.getArea())
         {
             return false;
         }
 
-        return otherRectangle.getCornerPoints().stream().allMatch(otherPoint ->
-                otherPoint.getXCoordinate() >= this.getLowerLeft().getXCoordinate() &&
-                otherPoint.getXCoordinate() <= this.getLowerRight().getXCoordinate() &&
-                otherPoint.getYCoordinate() >= this.getLowerLeft().getYCoordinate() &&
-                otherPoint.getYCoordinate() <= this.getTopRight().getYCoordinate());
+        return rectangleB.getCornerPoints().stream().allMatch(otherPoint ->
+                otherPoint.getXCoordinate() >= rectangleA.getLowerLeft().getXCoordinate() &&
+                otherPoint.getXCoordinate() <= rectangleA.getLowerRight().getXCoordinate() &&
+                otherPoint.getYCoordinate() >= rectangleA.getLowerLeft().getYCoordinate() &&
+                otherPoint.getYCoordinate() <= rectangleA.getTopRight().getYCoordinate());
     }
 
     /**
-     * <p>Finds and returns any Points at which the Rectangles intersect.</p>
-     * <p>The returned Set is <b>immutable</b></p>
-     * @param otherRectangle other rectangle to compare with this one
-     * @return a Set of all Points where this Rectangle intersects with {@code otherRectangle}, or an empty set if no intersections
+     * Body of {@link #findIntersectionPointsWith(Rectangle)}, apart from its Flight Recorder event
      */
-    default Set<Point> findIntersectionPointsWith(Rectangle otherRectangle)
+    private static Set<Point> collectIntersectionPoints(Rectangle rectangleA, Rectangle rectangleB)
     {
         // The rectangles are identical - no intersection
-        if (this.equals(otherRectangle))
+        if (rectangleA.equals(rectangleB))
         {
             return Set.of();
         }
 
         // If other rectangle is contained entirely within this one, intersection is impossible
-        if (this.contains(otherRectangle))
+        if (rectangleA.contains(rectangleB))
         {
             return Set.of();
         }
 
-        Set<Point> intersectingPoints = internalFindIntersectionPoints(this, otherRectangle);
-        intersectingPoints.addAll(internalFindIntersectionPoints(otherRectangle, this));
+        Set<Point> intersectingPoints = internalFindIntersectionPoints(rectangleA, rectangleB);
+        intersectingPoints.addAll(internalFindIntersectionPoints(rectangleB, rectangleA));
 
         return intersectingPoints;
     }
 
     /**
-     * Convenience method for querying the rectangle lines matching the provided Orientation
-     * @param orientation line orientation type to query
-     * @return a list of the Rectangle's lines that match the provided orientation type
-     */
-    default List<Line> getLinesHavingOrientationOf(Orientation orientation)
-    {
-        return getLines().stream()
-                .filter(line -> orientation.equals(line.getOrientation()))
-                .collect(toList());
-    }
-
-    /**
-     * <p>Finds any intersecting points between the provided rectangles.</p>
-     * <p>In order to locate all intersecting points, the method must be called twice, reversing the order of the
-     *    provided Rectangle arguments for the second call.</p>
-     * <p>The returned Set is mutable.</p>
+     * <p>Determines whether {@link #internalFindIntersectionPoints(Rectangle, Rectangle)} would find any points,
+     *    without creating them.</p>
      * @param rectangleA first Rectangle to compare
      * @param rectangleB second Rectangle to compare
-     * @return a Set of Points at which the two rectangles intersect, or an empty Set if there are no intersections
+     * @return true if a vertical side of {@code rectangleA} crosses a horizontal side of {@code rectangleB}
      */
-    private static Set<Point> internalFindIntersectionPoints(Rectangle rectangleA, Rectangle rectangleB)
+    private static boolean areRectanglesCrossing(Rectangle rectangleA, Rectangle rectangleB)
     {
-        var intersectingPoints = new HashSet<Point>();
-
-        Set<Long> overlappingXCoordinates = Stream.of(rectangleA.getRangeX().getMin(), rectangleA.getRangeX().getMax())
-                .filter(x -> rectangleB.getRangeX().containsExclusive(x))
-                .collect(toSet());
-
-        Set<Long> overlappingYCoordinates = Stream.of(rectangleB.getRangeY().getMin(), rectangleB.getRangeY().getMax())
-                .filter(y -> rectangleA.getRangeY().containsExclusive(y))
-                .collect(toSet());
-
-        if (overlappingXCoordinates.isEmpty() || overlappingYCoordinates.isEmpty())
-        {
-            return intersectingPoints;
-        }
-
-        overlappingXCoordinates.forEach(x -> overlappingYCoordinates.stream()
-                .map(y -> new PointImpl(x, y))
-                .forEach(intersectingPoints::add));
+        Range rangeAX = rectangleA.getRangeX(), rangeAY = rectangleA.getRangeY();
+        Range rangeBX = rectangleB.getRangeX(), rangeBY = rectangleB.getRangeY();
 
-        return intersectingPoints;
+        return (rangeBX.containsExclusive(rangeAX.getMin()) || rangeBX.containsExclusive(rangeAX.getMax()))
+                && (rangeAY.containsExclusive(rangeBY.getMin()) || rangeAY.containsExclusive(rangeBY.getMax()));
     }
 
     /**
@@ -0,0 +1,20 @@
+package com.iholden.entities;
+
+import com.iholden.entities.impl.RectanglePairImpl;
+
+/**
+ * <p>Interface representing an ordered pair of {@link Rectangle}s, e.g. the unit of work of a single comparison.</p>
+ * <p>The pair is ordered: relations such as containment are evaluated as "Rectangle A contains Rectangle B".</p>
+ * <p><b>All implementations are REQUIRED to provide valid {@link #equals(Object)} and {@link #hashCode()} implementations.</b></p>
+ * @see com.iholden.entities.impl.RectanglePairImpl
+ */
+public interface RectanglePair
+{
+    static RectanglePair of(Rectangle rectangleA, Rectangle rectangleB)
+    {
+        return new RectanglePairImpl(rectangleA, rectangleB);
+    }
+
+    Rectangle getRectangleA();
+    Rectangle getRectangleB();
+}
@@ -0,0 +1,63 @@
+package com.iholden.entities.impl;
+
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.RectanglePair;
+
+import java.util.Objects;
+
+public class RectanglePairImpl implements RectanglePair
+{
+    private final Rectangle rectangleA;
+    private final Rectangle rectangleB;
+
+    public RectanglePairImpl(Rectangle rectangleA, Rectangle rectangleB)
+    {
+        this.rectangleA = Objects.requireNonNull(rectangleA);
+        this.rectangleB = Objects.requireNonNull(rectangleB);
+    }
+
+    @Override
+    public Rectangle getRectangleA()
+    {
+        return rectangleA;
+    }
+
+    @Override
+    public Rectangle getRectangleB()
+    {
+        return rectangleB;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RectanglePairImpl{" +
+                "rectangleA=" + rectangleA +
+                ", rectangleB=" + rectangleB +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass())
+        {
+            return false;
+        }
+
+        RectanglePairImpl pair = (RectanglePairImpl) o;
+
+        return rectangleA.equals(pair.rectangleA) && rectangleB.equals(pair.rectangleB);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(rectangleA, rectangleB);
+    }
+}
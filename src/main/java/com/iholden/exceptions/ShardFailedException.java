@@ -0,0 +1,24 @@
+package com.iholden.exceptions;
+
+public class ShardFailedException extends RuntimeException
+{
+    static final String DETAIL_MESSAGE_TEMPLATE = "Tile %d failed after %d attempts";
+
+    private final int tile;
+
+    public ShardFailedException(int tile, int attempts, Throwable cause)
+    {
+        super(buildDetailMessage(tile, attempts), cause);
+        this.tile = tile;
+    }
+
+    private static String buildDetailMessage(int tile, int attempts)
+    {
+        return DETAIL_MESSAGE_TEMPLATE.formatted(tile, attempts);
+    }
+
+    public int getTile()
+    {
+        return tile;
+    }
+}
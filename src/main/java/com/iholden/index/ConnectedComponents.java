@@ -0,0 +1,149 @@
+package com.iholden.index;
+
+import com.iholden.constants.Connectivity;
+import com.iholden.support.RectangleColumns;
+import com.iholden.support.UnionFind;
+
+import java.util.Arrays;
+
+/**
+ * <p>Labels the connected components of a set of rectangles: the clusters in which every rectangle is connected to
+ *    another member, directly or through other members, under the given {@link Connectivity}.</p>
+ * <p>Candidate pairs are found with the plane sweep of {@link TouchingPairs}, and connected rectangles are joined in
+ *    a {@link UnionFind}, so building costs O(N log N) for the sweep's sorts and Y lookups, plus near-constant time
+ *    work per touching pair.</p>
+ * <p>Connectivity is decided on the rectangles' bounds, with the same edge semantics as
+ *    {@link com.iholden.support.Range}: sharing area compares bounds exclusively, and sharing an edge or corner
+ *    compares them inclusively. A rectangle with zero length or width has no area, so it only joins other
+ *    rectangles through {@link Connectivity#EDGE} or {@link Connectivity#CORNER} contact.</p>
+ * <p>Component ids are dense, from 0 to {@code componentCount() - 1}, and are numbered in order of each component's
+ *    first rectangle.</p>
+ * <p>Use the static builder to obtain an instance: {@link ConnectedComponents#of(RectangleColumns, Connectivity)}</p>
+ */
+public class ConnectedComponents
+{
+    private final int[] componentIds;
+    private final int[] componentSizes;
+    private final RectangleColumns componentBounds;
+
+    // Prevent external instantiation; prefer static access
+    private ConnectedComponents(int[] componentIds, int[] componentSizes, RectangleColumns componentBounds)
+    {
+        this.componentIds = componentIds;
+        this.componentSizes = componentSizes;
+        this.componentBounds = componentBounds;
+    }
+
+    /**
+     * @param rectangles rectangles to label
+     * @param connectivity when two rectangles are considered connected
+     * @return the connected components of {@code rectangles}
+     */
+    public static ConnectedComponents of(RectangleColumns rectangles, Connectivity connectivity)
+    {
+        int size = rectangles.size();
+        var unionFind = new UnionFind(size);
+
+        TouchingPairs.forEach(rectangles, (first, second) ->
+        {
+            if (areConnected(rectangles, first, second, connectivity))
+            {
+                unionFind.union(first, second);
+            }
+        });
+
+        int componentCount = unionFind.setCount();
+        var componentIds = new int[size];
+        var componentOfRoot = new int[size];
+        var componentSizes = new int[componentCount];
+        var minX = new long[componentCount];
+        var minY = new long[componentCount];
+        var maxX = new long[componentCount];
+        var maxY = new long[componentCount];
+        int nextComponent = 0;
+
+        Arrays.fill(componentOfRoot, -1);
+
+        for (int i = 0; i < size; i++)
+        {
+            int root = unionFind.find(i);
+            int component = componentOfRoot[root];
+
+            if (component < 0)
+            {
+                component = nextComponent++;
+                componentOfRoot[root] = component;
+                minX[component] = rectangles.getMinX(i);
+                minY[component] = rectangles.getMinY(i);
+                maxX[component] = rectangles.getMaxX(i);
+                maxY[component] = rectangles.getMaxY(i);
+            }
+            else
+            {
+                minX[component] = Math.min(minX[component], rectangles.getMinX(i));
+                minY[component] = Math.min(minY[component], rectangles.getMinY(i));
+                maxX[component] = Math.max(maxX[component], rectangles.getMaxX(i));
+                maxY[component] = Math.max(maxY[component], rectangles.getMaxY(i));
+            }
+
+            componentIds[i] = component;
+            componentSizes[component]++;
+        }
+
+        return new ConnectedComponents(componentIds, componentSizes, RectangleColumns.of(minX, minY, maxX, maxY));
+    }
+
+    /**
+     * @return the number of labelled rectangles
+     */
+    public int size()
+    {
+        return componentIds.length;
+    }
+
+    public int componentCount()
+    {
+        return componentSizes.length;
+    }
+
+    /**
+     * @param index index of a rectangle in the labelled {@link RectangleColumns}
+     * @return the id of the component holding the rectangle
+     */
+    public int componentOf(int index)
+    {
+        return componentIds[index];
+    }
+
+    /**
+     * @param component id of a component
+     * @return the number of rectangles in the component
+     */
+    public int componentSize(int component)
+    {
+        return componentSizes[component];
+    }
+
+    /**
+     * @return the bounding box of every component, indexed by component id
+     */
+    public RectangleColumns getComponentBounds()
+    {
+        return componentBounds;
+    }
+
+    private static boolean areConnected(RectangleColumns rectangles, int first, int second, Connectivity connectivity)
+    {
+        long lowX = Math.max(rectangles.getMinX(first), rectangles.getMinX(second));
+        long highX = Math.min(rectangles.getMaxX(first), rectangles.getMaxX(second));
+        long lowY = Math.max(rectangles.getMinY(first), rectangles.getMinY(second));
+        long highY = Math.min(rectangles.getMaxY(first), rectangles.getMaxY(second));
+
+        return switch (connectivity)
+        {
+            case OVERLAP -> lowX < highX && lowY < highY;
+            case EDGE -> lowX <= highX && lowY <= highY && (lowX < highX || lowY < highY);
+            case CORNER -> lowX <= highX && lowY <= highY;
+        };
+    }
+}
@@ -0,0 +1,17 @@
+package com.iholden.index;
+
+import com.iholden.constants.ContactEvent;
+
+/**
+ * Receives the changes in {@link com.iholden.constants.Contact} reported by {@link SweepAndPrune#tick(ContactListener)}
+ */
+@FunctionalInterface
+public interface ContactListener
+{
+    /**
+     * @param first index of the rectangle with the lower index
+     * @param second index of the rectangle with the higher index
+     * @param event how the contact between the two rectangles changed
+     */
+    void onContactEvent(int first, int second, ContactEvent event);
+}
@@ -0,0 +1,494 @@
+package com.iholden.index;
+
+import com.iholden.support.PrimitiveSorts;
+import com.iholden.support.RankBitmap;
+import com.iholden.support.RectangleColumns;
+import com.iholden.support.UniqueRectangles;
+
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+
+/**
+ * <p>Arranges a set of rectangles into a forest by containment: each rectangle's parent is the smallest other
+ *    rectangle that contains it, in the sense of {@link com.iholden.entities.Rectangle#contains}, or none if nothing
+ *    does. Smallest means of least area, then of least length plus width, then of lowest index, so copies of a
+ *    container are never each other's parent, and copies of a rectangle are siblings.</p>
+ * <p>In nested layouts, where any two rectangles of positive area are nested, identical, or share no interior, such
+ *    as rooms within floors within buildings, parents are assigned by a sweep over X that keeps the open containers
+ *    stacked along Y, in O(N log N). Rectangles of no area, and every rectangle of a layout the sweep finds not to
+ *    be nested, are searched for in a {@link ContainmentIndex} instead, which descends only into subtrees whose
+ *    rectangles reach far enough to enclose the rectangle, and hold a smaller one than the best found so far. That
+ *    search is usually about as fast, but is not bounded by O(N log N): many large, partially overlapping containers
+ *    around every rectangle make it longer.</p>
+ * <p>In nested layouts, a rectangle's ancestors are the rectangles containing it, save for the copies of each
+ *    container other than the one of lowest index: those are siblings of that copy, not ancestors of what it
+ *    contains. Where containers partially overlap each other, only those on the chain of smallest containers are
+ *    ancestors, so every ancestor contains the rectangle, but not every container is an ancestor.</p>
+ * <p>The forest is numbered in preorder, so the descendants of a rectangle occupy the preorder indexes right after
+ *    its own, and ancestor tests take constant time.</p>
+ * <p>Use the static builder to obtain an instance: {@link ContainmentForest#of(RectangleColumns)}</p>
+ */
+public class ContainmentForest
+{
+    public static final int NO_PARENT = -1;
+
+    // Parent still to be searched for, of a rectangle the nested sweep leaves out
+    private static final int UNRESOLVED = -2;
+
+    private final int[] parents;
+    private final int[] depths;
+    private final int[] subtreeSizes;
+    private final int[] preorderIndexes;
+    private final int[] preorder;
+    private final int rootCount;
+
+    // Prevent external instantiation; prefer static access
+    private ContainmentForest(int[] parents)
+    {
+        int size = parents.length;
+        var childStarts = new int[size + 1];
+        var children = new int[size];
+        int roots = 0;
+
+        for (int parent : parents)
+        {
+            if (parent != NO_PARENT)
+            {
+                childStarts[parent + 1]++;
+            }
+            else
+            {
+                roots++;
+            }
+        }
+
+        for (int i = 0; i < size; i++)
+        {
+            childStarts[i + 1] += childStarts[i];
+        }
+
+        var filled = Arrays.copyOf(childStarts, size);
+
+        for (int i = 0; i < size; i++)
+        {
+            if (parents[i] != NO_PARENT)
+            {
+                children[filled[parents[i]]++] = i;
+            }
+        }
+
+        this.parents = parents;
+        this.depths = new int[size];
+        this.subtreeSizes = new int[size];
+        this.preorderIndexes = new int[size];
+        this.preorder = new int[size];
+        this.rootCount = roots;
+
+        // Depth-first walk from each root, with an explicit stack so deep nesting cannot overflow the call stack
+        var stack = new int[size];
+        int next = 0;
+
+        for (int root = 0; root < size; root++)
+        {
+            if (parents[root] != NO_PARENT)
+            {
+                continue;
+            }
+
+            int top = 0;
+            stack[top++] = root;
+
+            while (top > 0)
+            {
+                int rectangle = stack[--top];
+
+                preorderIndexes[rectangle] = next;
+                preorder[next++] = rectangle;
+                depths[rectangle] = parents[rectangle] == NO_PARENT ? 0 : depths[parents[rectangle]] + 1;
+
+                // Pushed in reverse, so that children are visited in index order
+                for (int child = childStarts[rectangle + 1] - 1; child >= childStarts[rectangle]; child--)
+                {
+                    stack[top++] = children[child];
+                }
+            }
+        }
+
+        // In reverse preorder, every rectangle comes after all of its descendants
+        for (int position = size - 1; position >= 0; position--)
+        {
+            int rectangle = preorder[position];
+
+            subtreeSizes[rectangle]++;
+
+            if (parents[rectangle] != NO_PARENT)
+            {
+                subtreeSizes[parents[rectangle]] += subtreeSizes[rectangle];
+            }
+        }
+    }
+
+    /**
+     * @param rectangles rectangles to arrange
+     * @return the containment forest of {@code rectangles}, indexed as they are
+     */
+    public static ContainmentForest of(RectangleColumns rectangles)
+    {
+        int size = rectangles.size();
+        var distinct = UniqueRectangles.of(rectangles);
+        int[] distinctParents = nestedParents(distinct.getUnique());
+        var parents = new int[size];
+        ContainmentIndex index = null;
+
+        for (int i = 0; i < size; i++)
+        {
+            int parent = distinctParents == null ? UNRESOLVED : distinctParents[distinct.uniqueOf(i)];
+
+            if (parent != UNRESOLVED)
+            {
+                // Of the copies of the smallest container, the one of lowest index is the parent
+                parents[i] = parent == NO_PARENT ? NO_PARENT : distinct.getMember(parent, 0);
+                continue;
+            }
+
+            if (index == null)
+            {
+                index = positionIndexOf(rectangles);
+            }
+
+            parents[i] = index.findSmallestEnclosing(rectangles.getMinX(i), rectangles.getMinY(i), rectangles.getMaxX(i), rectangles.getMaxY(i));
+        }
+
+        return new ContainmentForest(parents);
+    }
+
+    public int size()
+    {
+        return parents.length;
+    }
+
+    public int rootCount()
+    {
+        return rootCount;
+    }
+
+    /**
+     * @param index index of a rectangle
+     * @return the index of the rectangle's smallest container, as ordered in the class description, or
+     *         {@link #NO_PARENT} if it has none
+     */
+    public int getParent(int index)
+    {
+        return parents[index];
+    }
+
+    /**
+     * @return a copy of the parent of every rectangle, indexed by rectangle, with {@link #NO_PARENT} for roots
+     */
+    public int[] getParents()
+    {
+        return parents.clone();
+    }
+
+    /**
+     * @return the number of ancestors of the rectangle; 0 for a root
+     */
+    public int getDepth(int index)
+    {
+        return depths[index];
+    }
+
+    /**
+     * @return the number of rectangles in the subtree of the rectangle, including itself
+     */
+    public int getSubtreeSize(int index)
+    {
+        return subtreeSizes[index];
+    }
+
+    /**
+     * @return the position of the rectangle in preorder; its descendants take the next
+     *         {@code getSubtreeSize(index) - 1} positions
+     */
+    public int getPreorderIndex(int index)
+    {
+        return preorderIndexes[index];
+    }
+
+    /**
+     * @param preorderIndex position in preorder
+     * @return the index of the rectangle at that position
+     */
+    public int getRectangleAtPreorder(int preorderIndex)
+    {
+        return preorder[preorderIndex];
+    }
+
+    /**
+     * @return true if {@code ancestor} is a proper ancestor of {@code descendant} in the forest
+     */
+    public boolean isAncestor(int ancestor, int descendant)
+    {
+        int offset = preorderIndexes[descendant] - preorderIndexes[ancestor];
+
+        return offset > 0 && offset < subtreeSizes[ancestor];
+    }
+
+    /**
+     * <p>Sweeps the distinct rectangles of positive area over X, containers before the rectangles they contain, and
+     *    takes each one's parent from the active rectangles whose Y extent holds its lower edge: while the layout is
+     *    nested, those form a chain, and the last one to start is the innermost.</p>
+     * <p>Each rectangle is checked against every earlier one whose interior meets its own: those starting strictly
+     *    within its Y extent, which cannot contain it, and the chain, which must. The first check that fails shows
+     *    the layout is not nested, and the sweep gives up.</p>
+     * @param rectangles distinct rectangles
+     * @return the parent of every rectangle, {@link #NO_PARENT}, or {@link #UNRESOLVED} for rectangles with no
+     *         area; or null if the rectangles of positive area are not nested
+     */
+    private static int[] nestedParents(RectangleColumns rectangles)
+    {
+        int size = rectangles.size();
+        var parents = new int[size];
+        var order = new int[size];
+        int count = 0;
+
+        for (int i = 0; i < size; i++)
+        {
+            if (rectangles.getMinX(i) < rectangles.getMaxX(i) && rectangles.getMinY(i) < rectangles.getMaxY(i))
+            {
+                order[count++] = i;
+            }
+            else
+            {
+                // Rectangles with no area can be contained by siblings sharing an edge, so need not form chains
+                parents[i] = UNRESOLVED;
+            }
+        }
+
+        order = Arrays.copyOf(order, count);
+
+        // Stable passes from the last key to the first: minimum X, then maximum X descending, minimum Y, and maximum Y
+        // descending, so a container always precedes the rectangles it contains; ~ reverses order without overflow
+        var visitKeys = new long[count];
+
+        sortBy(order, visitKeys, i -> ~rectangles.getMaxY(i));
+        sortBy(order, visitKeys, rectangles::getMinY);
+        sortBy(order, visitKeys, i -> ~rectangles.getMaxX(i));
+        sortBy(order, visitKeys, rectangles::getMinX);
+
+        var retireOrder = Arrays.copyOf(order, count);
+        var retireKeys = new long[count];
+        var startOrder = Arrays.copyOf(order, count);
+        var starts = new long[count];
+        var rankOf = new int[size];
+
+        sortBy(retireOrder, retireKeys, rectangles::getMaxX);
+        sortBy(startOrder, starts, rectangles::getMinY);
+
+        for (int rank = 0; rank < count; rank++)
+        {
+            rankOf[startOrder[rank]] = rank;
+        }
+
+        long[] ys = distinctYs(rectangles, order);
+        var activeStarts = new RankBitmap(count);
+        var chains = new ChainTree(ys.length);
+        var active = new boolean[size];
+        var visitedAt = new int[size];
+
+        for (int k = 0, retired = 0; k < count; k++)
+        {
+            int rectangle = order[k];
+
+            // Rectangles ending at or before this one's left edge share no interior with it, or with any later one
+            for (; retired < count && retireKeys[retired] <= visitKeys[k]; retired++)
+            {
+                int ended = retireOrder[retired];
+
+                active[ended] = false;
+                activeStarts.clear(rankOf[ended]);
+            }
+
+            long minY = rectangles.getMinY(rectangle), maxY = rectangles.getMaxY(rectangle);
+            int inside = activeStarts.nextSet(PrimitiveSorts.upperBound(starts, 0, count, minY));
+
+            if (inside >= 0 && inside < PrimitiveSorts.lowerBound(starts, 0, count, maxY))
+            {
+                return null;
+            }
+
+            int lowerSlot = Arrays.binarySearch(ys, minY);
+            int innermost = chains.top(lowerSlot, active, visitedAt);
+
+            if (innermost >= 0 && (rectangles.getMaxX(innermost) < rectangles.getMaxX(rectangle) || rectangles.getMaxY(innermost) < maxY))
+            {
+                return null;
+            }
+
+            parents[rectangle] = innermost >= 0 ? innermost : NO_PARENT;
+            active[rectangle] = true;
+            visitedAt[rectangle] = k;
+            activeStarts.set(rankOf[rectangle]);
+            chains.add(lowerSlot, Arrays.binarySearch(ys, maxY), rectangle);
+        }
+
+        return parents;
+    }
+
+    /**
+     * Sorts {@code order} stably by the key of each rectangle, leaving the sorted keys in {@code keys}
+     */
+    private static void sortBy(int[] order, long[] keys, IntToLongFunction key)
+    {
+        for (int i = 0; i < order.length; i++)
+        {
+            keys[i] = key.applyAsLong(order[i]);
+        }
+
+        PrimitiveSorts.sortParallel(keys, order, 0, order.length);
+    }
+
+    private static long[] distinctYs(RectangleColumns rectangles, int[] order)
+    {
+        var ys = new long[2 * order.length];
+
+        for (int i = 0; i < order.length; i++)
+        {
+            ys[2 * i] = rectangles.getMinY(order[i]);
+            ys[2 * i + 1] = rectangles.getMaxY(order[i]);
+        }
+
+        Arrays.sort(ys);
+
+        int distinct = 0;
+
+        for (int i = 0; i < ys.length; i++)
+        {
+            if (i == 0 || ys[i] != ys[i - 1])
+            {
+                ys[distinct++] = ys[i];
+            }
+        }
+
+        return Arrays.copyOf(ys, distinct);
+    }
+
+    /**
+     * Index of the rectangles by position, so that searches report the indexes the forest is built on
+     */
+    private static ContainmentIndex positionIndexOf(RectangleColumns rectangles)
+    {
+        int size = rectangles.size();
+        var positions = new int[size];
+        var minX = new long[size];
+        var minY = new long[size];
+        var maxX = new long[size];
+        var maxY = new long[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            positions[i] = i;
+            minX[i] = rectangles.getMinX(i);
+            minY[i] = rectangles.getMinY(i);
+            maxX[i] = rectangles.getMaxX(i);
+            maxY[i] = rectangles.getMaxY(i);
+        }
+
+        return ContainmentIndex.ofRankedBySize(RectangleColumns.of(positions, minX, minY, maxX, maxY));
+    }
+
+    /**
+     * <p>Segment tree over the slots between consecutive Y coordinates, each node holding a stack of the rectangles
+     *    whose Y extent covers the node's canonical range, most recently visited on top.</p>
+     * <p>Retired rectangles are popped lazily, when they reach the top of a stack a query looks at, so each is popped
+     *    from each of its O(log N) nodes at most once.</p>
+     */
+    private static class ChainTree
+    {
+        private final int leafCount;
+        private final int[] heads;
+        private int[] rectangles = new int[16];
+        private int[] next = new int[16];
+        private int entryCount;
+        private int freeEntry = -1;
+
+        private ChainTree(int leafCount)
+        {
+            this.leafCount = leafCount;
+            this.heads = new int[2 * Math.max(1, leafCount)];
+
+            Arrays.fill(heads, -1);
+        }
+
+        /**
+         * Pushes {@code rectangle} onto the canonical nodes of the slots {@code [from, to)}
+         */
+        private void add(int from, int to, int rectangle)
+        {
+            for (int low = from + leafCount, high = to + leafCount; low < high; low >>>= 1, high >>>= 1)
+            {
+                if ((low & 1) == 1)
+                {
+                    push(low++, rectangle);
+                }
+
+                if ((high & 1) == 1)
+                {
+                    push(--high, rectangle);
+                }
+            }
+        }
+
+        /**
+         * @return the most recently visited active rectangle covering {@code slot}, or -1 if there is none
+         */
+        private int top(int slot, boolean[] active, int[] visitedAt)
+        {
+            int best = -1;
+
+            for (int node = slot + leafCount; node >= 1; node >>>= 1)
+            {
+                int entry = heads[node];
+
+                while (entry >= 0 && !active[rectangles[entry]])
+                {
+                    heads[node] = next[entry];
+                    next[entry] = freeEntry;
+                    freeEntry = entry;
+                    entry = heads[node];
+                }
+
+                if (entry >= 0 && (best < 0 || visitedAt[rectangles[entry]] > visitedAt[best]))
+                {
+                    best = rectangles[entry];
+                }
+            }
+
+            return best;
+        }
+
+        private void push(int node, int rectangle)
+        {
+            int entry = freeEntry;
+
+            if (entry >= 0)
+            {
+                freeEntry = next[entry];
+            }
+            else
+            {
+                if (entryCount == rectangles.length)
+                {
+                    rectangles = Arrays.copyOf(rectangles, 2 * entryCount);
+                    next = Arrays.copyOf(next, 2 * entryCount);
+                }
+
+                entry = entryCount++;
+            }
+
+            rectangles[entry] = rectangle;
+            next[entry] = heads[node];
+            heads[node] = entry;
+        }
+    }
+}
@@ -0,0 +1,688 @@
+package com.iholden.index;
+
+import com.iholden.support.PrimitiveSorts;
+import com.iholden.support.RectangleColumns;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>Static index answering containment queries: which rectangles does the query rectangle contain, and which
+ *    rectangles contain it? Both follow {@link com.iholden.entities.Rectangle#contains} exactly: bounds are closed,
+ *    and identical rectangles never contain each other.</p>
+ * <p>Each rectangle is a point {@code (minX, minY, maxX, maxY)} in 4 dimensions, and both queries are dominance
+ *    queries on those points; a rectangle is contained in {@code Q} when its minima are at least, and its maxima at
+ *    most, those of {@code Q}. The points are held in an implicit k-d tree: the points of a subtree occupy a
+ *    contiguous run of the arrays, with the splitting point in its middle, the points no greater in the splitting
+ *    dimension before it, and those no less after it. Dimensions are split in turn. No nodes or pointers are stored,
+ *    only the reordered points.</p>
+ * <p>A query descends only into the halves its range reaches, tracking the cell of coordinates each subtree can
+ *    hold. A subtree whose whole cell lies inside the query range matches as a run, so counting adds its size at once
+ *    and reporting walks it without further tests.</p>
+ * <p>Use the static builder to obtain an instance: {@link ContainmentIndex#of(RectangleColumns)}</p>
+ */
+public class ContainmentIndex
+{
+    private static final int DIMENSIONS = 4;
+
+    // Runs this short are scanned rather than split
+    private static final int LEAF_SIZE = 8;
+
+    // Point i occupies points[4i .. 4i + 3], as minX, minY, maxX, maxY
+    private final long[] points;
+    private final int[] ids;
+
+    // Only built for searches by size: the size rank of each point, and the least size rank of each subtree, held at
+    // the subtree's middle, or at the start of a run that is scanned rather than split
+    private final int[] sizeRanks;
+    private final int[] minSizeRanks;
+
+    // Also only for searches by size, held at the same positions: the least minima and greatest maxima of each
+    // subtree's points, as minX, minY, maxX, maxY. A subtree can only hold a container if these enclose the query.
+    private final long[] subtreeExtremes;
+
+    // Prevent external instantiation; prefer static access
+    private ContainmentIndex(RectangleColumns rectangles, boolean rankedBySize)
+    {
+        int size = rectangles.size();
+
+        this.points = new long[DIMENSIONS * size];
+        this.ids = new int[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            points[DIMENSIONS * i] = rectangles.getMinX(i);
+            points[DIMENSIONS * i + 1] = rectangles.getMinY(i);
+            points[DIMENSIONS * i + 2] = rectangles.getMaxX(i);
+            points[DIMENSIONS * i + 3] = rectangles.getMaxY(i);
+            ids[i] = rectangles.getId(i);
+        }
+
+        build(0, size, 0);
+
+        this.sizeRanks = rankedBySize ? rankBySize() : null;
+        this.minSizeRanks = rankedBySize ? new int[size] : null;
+        this.subtreeExtremes = rankedBySize ? new long[DIMENSIONS * size] : null;
+
+        if (rankedBySize)
+        {
+            aggregateSizeRanks(0, size);
+        }
+    }
+
+    /**
+     * Builds the index in O(N log N), reordering copies of the columns
+     */
+    public static ContainmentIndex of(RectangleColumns rectangles)
+    {
+        return new ContainmentIndex(rectangles, false);
+    }
+
+    /**
+     * Builds the index along with what {@link #findSmallestEnclosing(long, long, long, long)} needs, at the cost of
+     * one more sort
+     */
+    static ContainmentIndex ofRankedBySize(RectangleColumns rectangles)
+    {
+        return new ContainmentIndex(rectangles, true);
+    }
+
+    public int size()
+    {
+        return ids.length;
+    }
+
+    /**
+     * Reports the id of every rectangle contained in the query rectangle
+     * @param consumer receives the id of each contained rectangle
+     */
+    public void forEachContainedIn(long minX, long minY, long maxX, long maxY, IntConsumer consumer)
+    {
+        report(new Query(minX, minY, maxX, maxY, true), consumer);
+    }
+
+    /**
+     * Counts the rectangles contained in the query rectangle, without enumerating them
+     * @return the number of contained rectangles
+     */
+    public int countContainedIn(long minX, long minY, long maxX, long maxY)
+    {
+        return count(new Query(minX, minY, maxX, maxY, true));
+    }
+
+    /**
+     * Reports the id of every rectangle that contains the query rectangle
+     * @param consumer receives the id of each containing rectangle
+     */
+    public void forEachEnclosing(long minX, long minY, long maxX, long maxY, IntConsumer consumer)
+    {
+        report(new Query(minX, minY, maxX, maxY, false), consumer);
+    }
+
+    /**
+     * Counts the rectangles that contain the query rectangle, without enumerating them
+     * @return the number of containing rectangles
+     */
+    public int countEnclosing(long minX, long minY, long maxX, long maxY)
+    {
+        return count(new Query(minX, minY, maxX, maxY, false));
+    }
+
+    /**
+     * <p>Finds the smallest rectangle that contains the query rectangle: the one of least area, then of least length
+     *    plus width, then of lowest id. Areas and sums too large for a long compare as equal.</p>
+     * <p>Searches only subtrees whose extremes enclose the query rectangle and that hold a smaller rectangle than the
+     *    best found so far, visiting the subtree with the smaller rectangles first.</p>
+     * @return the id of the smallest containing rectangle, or -1 if none contains it
+     * @throws IllegalStateException if the index was not built by {@link #ofRankedBySize(RectangleColumns)}
+     */
+    int findSmallestEnclosing(long minX, long minY, long maxX, long maxY)
+    {
+        if (sizeRanks == null)
+        {
+            throw new IllegalStateException("Index was not built for searches by size");
+        }
+
+        var best = new int[] { -1, Integer.MAX_VALUE };
+
+        searchSmallest(0, ids.length, 0, new Query(minX, minY, maxX, maxY, false), best);
+
+        return best[0] < 0 ? -1 : ids[best[0]];
+    }
+
+    private void report(Query query, IntConsumer consumer)
+    {
+        report(0, ids.length, 0, query, consumer);
+    }
+
+    /**
+     * Counts the points in the query range, less those identical to the query rectangle, which always lie in it
+     */
+    private int count(Query query)
+    {
+        int inRange = count(0, ids.length, 0, query);
+
+        return inRange == 0 ? 0 : inRange - count(0, ids.length, 0, Query.identicalTo(query));
+    }
+
+    private void report(int from, int to, int depth, Query query, IntConsumer consumer)
+    {
+        boolean whole = query.holdsCell();
+
+        if (whole || to - from <= LEAF_SIZE)
+        {
+            for (int i = from; i < to; i++)
+            {
+                if ((whole || query.holds(points, i)) && !query.isIdentical(points, i))
+                {
+                    consumer.accept(ids[i]);
+                }
+            }
+
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        int dimension = depth % DIMENSIONS;
+        long split = points[DIMENSIONS * middle + dimension];
+
+        if (query.holds(points, middle) && !query.isIdentical(points, middle))
+        {
+            consumer.accept(ids[middle]);
+        }
+
+        if (query.getLower(dimension) <= split)
+        {
+            long saved = query.narrowCellMax(dimension, split);
+            report(from, middle, depth + 1, query, consumer);
+            query.restoreCellMax(dimension, saved);
+        }
+
+        if (query.getUpper(dimension) >= split)
+        {
+            long saved = query.narrowCellMin(dimension, split);
+            report(middle + 1, to, depth + 1, query, consumer);
+            query.restoreCellMin(dimension, saved);
+        }
+    }
+
+    private int count(int from, int to, int depth, Query query)
+    {
+        if (query.holdsCell())
+        {
+            return to - from;
+        }
+
+        if (to - from <= LEAF_SIZE)
+        {
+            int count = 0;
+
+            for (int i = from; i < to; i++)
+            {
+                count += query.holds(points, i) ? 1 : 0;
+            }
+
+            return count;
+        }
+
+        int middle = (from + to) >>> 1;
+        int dimension = depth % DIMENSIONS;
+        long split = points[DIMENSIONS * middle + dimension];
+        int count = query.holds(points, middle) ? 1 : 0;
+
+        if (query.getLower(dimension) <= split)
+        {
+            long saved = query.narrowCellMax(dimension, split);
+            count += count(from, middle, depth + 1, query);
+            query.restoreCellMax(dimension, saved);
+        }
+
+        if (query.getUpper(dimension) >= split)
+        {
+            long saved = query.narrowCellMin(dimension, split);
+            count += count(middle + 1, to, depth + 1, query);
+            query.restoreCellMin(dimension, saved);
+        }
+
+        return count;
+    }
+
+    /**
+     * @param best position of the best match so far, or -1, followed by its size rank; updated by the search
+     */
+    private void searchSmallest(int from, int to, int depth, Query query, int[] best)
+    {
+        if (minSizeRankOf(from, to) >= best[1] || !query.holdsExtremes(subtreeExtremes, extremesPosition(from, to)))
+        {
+            return;
+        }
+
+        if (to - from <= LEAF_SIZE)
+        {
+            for (int i = from; i < to; i++)
+            {
+                considerSmallest(i, query, best);
+            }
+
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+
+        considerSmallest(middle, query, best);
+
+        boolean lowerFirst = minSizeRankOf(from, middle) <= minSizeRankOf(middle + 1, to);
+
+        searchSmallestHalf(from, to, depth, lowerFirst, query, best);
+        searchSmallestHalf(from, to, depth, !lowerFirst, query, best);
+    }
+
+    private void searchSmallestHalf(int from, int to, int depth, boolean lower, Query query, int[] best)
+    {
+        int middle = (from + to) >>> 1;
+        int dimension = depth % DIMENSIONS;
+        long split = points[DIMENSIONS * middle + dimension];
+
+        // Pruning relies on the extremes rather than on the cell, which is left as it is
+        if (lower && query.getLower(dimension) <= split)
+        {
+            searchSmallest(from, middle, depth + 1, query, best);
+        }
+        else if (!lower && query.getUpper(dimension) >= split)
+        {
+            searchSmallest(middle + 1, to, depth + 1, query, best);
+        }
+    }
+
+    private void considerSmallest(int index, Query query, int[] best)
+    {
+        int rank = sizeRanks[index];
+
+        if (rank < best[1] && query.holds(points, index) && !query.isIdentical(points, index))
+        {
+            best[0] = index;
+            best[1] = rank;
+        }
+    }
+
+    /**
+     * Places the median of the run in the splitting dimension in its middle, with no greater points before it and no
+     * lesser ones after, then does the same for each half in the next dimension
+     */
+    private void build(int from, int to, int depth)
+    {
+        if (to - from <= LEAF_SIZE)
+        {
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+
+        select(from, to, middle, depth % DIMENSIONS);
+        build(from, middle, depth + 1);
+        build(middle + 1, to, depth + 1);
+    }
+
+    /**
+     * Quickselect with a three-way partition, so that runs of equal coordinates cannot degrade it
+     */
+    private void select(int from, int to, int target, int dimension)
+    {
+        int low = from, high = to - 1;
+
+        while (low < high)
+        {
+            // Median of three, which also keeps sorted input from degrading
+            int middle = (low + high) >>> 1;
+            long a = valueAt(low, dimension), b = valueAt(middle, dimension), c = valueAt(high, dimension);
+            long pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+
+            int less = low, i = low, greater = high;
+
+            while (i <= greater)
+            {
+                long value = valueAt(i, dimension);
+
+                if (value < pivot)
+                {
+                    swap(less++, i++);
+                }
+                else if (value > pivot)
+                {
+                    swap(i, greater--);
+                }
+                else
+                {
+                    i++;
+                }
+            }
+
+            if (target < less)
+            {
+                high = less - 1;
+            }
+            else if (target > greater)
+            {
+                low = greater + 1;
+            }
+            else
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the rank of each position when ordered by area, then length plus width, then id
+     */
+    private int[] rankBySize()
+    {
+        int size = ids.length;
+        var order = new int[size];
+        var keys = new long[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            order[i] = i;
+        }
+
+        // Stable sorts from the least significant key to the most
+        for (int key = 2; key >= 0; key--)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                long length = valueAt(order[i], 2) - valueAt(order[i], 0);
+                long width = valueAt(order[i], 3) - valueAt(order[i], 1);
+
+                keys[i] = switch (key)
+                {
+                    case 0 -> saturatedProduct(length, width);
+                    case 1 -> saturatedSum(length, width);
+                    default -> ids[order[i]];
+                };
+            }
+
+            PrimitiveSorts.sortParallel(keys, order, 0, size);
+        }
+
+        var ranks = new int[size];
+
+        for (int rank = 0; rank < size; rank++)
+        {
+            ranks[order[rank]] = rank;
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Fills in the least size rank of the run and of every subtree within it
+     * @return the least size rank in the run
+     */
+    private int aggregateSizeRanks(int from, int to)
+    {
+        if (from >= to)
+        {
+            return Integer.MAX_VALUE;
+        }
+
+        int position = extremesPosition(from, to);
+        int least = Integer.MAX_VALUE;
+
+        if (to - from <= LEAF_SIZE)
+        {
+            resetExtremes(position);
+
+            for (int i = from; i < to; i++)
+            {
+                least = Math.min(least, sizeRanks[i]);
+                widenExtremes(position, points, i);
+            }
+        }
+        else
+        {
+            int middle = (from + to) >>> 1;
+            int lower = aggregateSizeRanks(from, middle), upper = aggregateSizeRanks(middle + 1, to);
+
+            least = Math.min(sizeRanks[middle], Math.min(lower, upper));
+            resetExtremes(position);
+            widenExtremes(position, points, middle);
+
+            if (from < middle)
+            {
+                widenExtremes(position, subtreeExtremes, extremesPosition(from, middle));
+            }
+
+            if (middle + 1 < to)
+            {
+                widenExtremes(position, subtreeExtremes, extremesPosition(middle + 1, to));
+            }
+        }
+
+        minSizeRanks[position] = least;
+
+        return least;
+    }
+
+    /**
+     * @return the position holding the aggregates of a non-empty run: its middle if it is split, else its start
+     */
+    private static int extremesPosition(int from, int to)
+    {
+        return to - from <= LEAF_SIZE ? from : (from + to) >>> 1;
+    }
+
+    private void resetExtremes(int position)
+    {
+        subtreeExtremes[DIMENSIONS * position] = Long.MAX_VALUE;
+        subtreeExtremes[DIMENSIONS * position + 1] = Long.MAX_VALUE;
+        subtreeExtremes[DIMENSIONS * position + 2] = Long.MIN_VALUE;
+        subtreeExtremes[DIMENSIONS * position + 3] = Long.MIN_VALUE;
+    }
+
+    private void widenExtremes(int position, long[] source, int sourcePosition)
+    {
+        int target = DIMENSIONS * position, from = DIMENSIONS * sourcePosition;
+
+        subtreeExtremes[target] = Math.min(subtreeExtremes[target], source[from]);
+        subtreeExtremes[target + 1] = Math.min(subtreeExtremes[target + 1], source[from + 1]);
+        subtreeExtremes[target + 2] = Math.max(subtreeExtremes[target + 2], source[from + 2]);
+        subtreeExtremes[target + 3] = Math.max(subtreeExtremes[target + 3], source[from + 3]);
+    }
+
+    private int minSizeRankOf(int from, int to)
+    {
+        if (from >= to)
+        {
+            return Integer.MAX_VALUE;
+        }
+
+        return minSizeRanks[extremesPosition(from, to)];
+    }
+
+    private static long saturatedProduct(long first, long second)
+    {
+        long product = first * second;
+
+        return Math.multiplyHigh(first, second) != 0 || product < 0 ? Long.MAX_VALUE : product;
+    }
+
+    private static long saturatedSum(long first, long second)
+    {
+        long sum = first + second;
+
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private long valueAt(int index, int dimension)
+    {
+        return points[DIMENSIONS * index + dimension];
+    }
+
+    private void swap(int first, int second)
+    {
+        for (int dimension = 0; dimension < DIMENSIONS; dimension++)
+        {
+            long swapped = points[DIMENSIONS * first + dimension];
+            points[DIMENSIONS * first + dimension] = points[DIMENSIONS * second + dimension];
+            points[DIMENSIONS * second + dimension] = swapped;
+        }
+
+        int swapped = ids[first];
+        ids[first] = ids[second];
+        ids[second] = swapped;
+    }
+
+    /**
+     * A 4-dimensional closed range of points, and the cell of the subtree currently being searched
+     */
+    private static class Query
+    {
+        private final long[] bounds;
+        private final long[] lower = new long[DIMENSIONS];
+        private final long[] upper = new long[DIMENSIONS];
+        private final long[] cellMin = new long[DIMENSIONS];
+        private final long[] cellMax = new long[DIMENSIONS];
+
+        /**
+         * @param contained true for the rectangles contained in the query rectangle, false for those containing it
+         */
+        private Query(long minX, long minY, long maxX, long maxY, boolean contained)
+        {
+            this.bounds = new long[] { minX, minY, maxX, maxY };
+
+            if (contained)
+            {
+                // Every coordinate lies within the query's extent on its axis
+                setRange(0, minX, maxX);
+                setRange(1, minY, maxY);
+                setRange(2, minX, maxX);
+                setRange(3, minY, maxY);
+            }
+            else
+            {
+                setRange(0, Long.MIN_VALUE, minX);
+                setRange(1, Long.MIN_VALUE, minY);
+                setRange(2, maxX, Long.MAX_VALUE);
+                setRange(3, maxY, Long.MAX_VALUE);
+            }
+
+            Arrays.fill(cellMin, Long.MIN_VALUE);
+            Arrays.fill(cellMax, Long.MAX_VALUE);
+        }
+
+        /**
+         * @return a query holding only the points identical to the rectangle of {@code query}
+         */
+        private static Query identicalTo(Query query)
+        {
+            var identical = new Query(query.bounds[0], query.bounds[1], query.bounds[2], query.bounds[3], true);
+
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++)
+            {
+                identical.setRange(dimension, query.bounds[dimension], query.bounds[dimension]);
+            }
+
+            return identical;
+        }
+
+        private void setRange(int dimension, long from, long to)
+        {
+            lower[dimension] = from;
+            upper[dimension] = to;
+        }
+
+        private long getLower(int dimension)
+        {
+            return lower[dimension];
+        }
+
+        private long getUpper(int dimension)
+        {
+            return upper[dimension];
+        }
+
+        private boolean holds(long[] points, int index)
+        {
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++)
+            {
+                long value = points[DIMENSIONS * index + dimension];
+
+                if (value < lower[dimension] || value > upper[dimension])
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private boolean isIdentical(long[] points, int index)
+        {
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++)
+            {
+                if (points[DIMENSIONS * index + dimension] != bounds[dimension])
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * For ranges of rectangles containing the query only
+         * @return true if the extremes of a subtree, as least minima and greatest maxima, enclose the query
+         *         rectangle, so that the subtree can hold a rectangle containing it
+         */
+        private boolean holdsExtremes(long[] extremes, int position)
+        {
+            int offset = DIMENSIONS * position;
+
+            return extremes[offset] <= upper[0] && extremes[offset + 1] <= upper[1]
+                    && extremes[offset + 2] >= lower[2] && extremes[offset + 3] >= lower[3];
+        }
+
+        /**
+         * @return true if every point the current cell can hold lies in the range
+         */
+        private boolean holdsCell()
+        {
+            for (int dimension = 0; dimension < DIMENSIONS; dimension++)
+            {
+                if (cellMin[dimension] < lower[dimension] || cellMax[dimension] > upper[dimension])
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private long narrowCellMax(int dimension, long split)
+        {
+            long saved = cellMax[dimension];
+            cellMax[dimension] = Math.min(saved, split);
+
+            return saved;
+        }
+
+        private void restoreCellMax(int dimension, long saved)
+        {
+            cellMax[dimension] = saved;
+        }
+
+        private long narrowCellMin(int dimension, long split)
+        {
+            long saved = cellMin[dimension];
+            cellMin[dimension] = Math.max(saved, split);
+
+            return saved;
+        }
+
+        private void restoreCellMin(int dimension, long saved)
+        {
+            cellMin[dimension] = saved;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.iholden.index;
+
+import com.iholden.entities.Line;
+
+import java.util.List;
+
+/**
+ * Receives the closed loops of a contour traced by {@link UnionContour}, one loop at a time
+ */
+@FunctionalInterface
+public interface ContourConsumer
+{
+    /**
+     * @param lines sides of the loop, in order around it, alternating between vertical and horizontal; the last line
+     *              ends where the first one starts
+     * @param hole whether the loop bounds a hole in the union, rather than its outside
+     */
+    void acceptLoop(List<Line> lines, boolean hole);
+}
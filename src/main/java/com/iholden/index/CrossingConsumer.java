@@ -0,0 +1,16 @@
+package com.iholden.index;
+
+/**
+ * Receives the crossings of a horizontal and a vertical line found by {@link SegmentCrossings}
+ */
+@FunctionalInterface
+public interface CrossingConsumer
+{
+    /**
+     * @param horizontal index of the horizontal line
+     * @param vertical index of the vertical line
+     * @param x x-coordinate of the crossing point, e.g. that of the vertical line
+     * @param y y-coordinate of the crossing point, e.g. that of the horizontal line
+     */
+    void acceptCrossing(int horizontal, int vertical, long x, long y);
+}
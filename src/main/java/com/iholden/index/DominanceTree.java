@@ -0,0 +1,218 @@
+package com.iholden.index;
+
+import com.iholden.support.PrimitiveSorts;
+
+import java.util.Arrays;
+
+/**
+ * <p>Static merge-sort tree answering 2-dimensional dominance aggregates over weighted points: how many points have
+ *    {@code u <= U} and {@code v <= V}, and what do their weights sum to?</p>
+ * <p>Points are sorted by {@code u}. Level {@code l} of the tree holds the points' compressed {@code v} ranks sorted
+ *    within consecutive runs of {@code 2^l} points, along with running weight sums within each run. The points with
+ *    {@code u <= U} form a prefix of the {@code u} order, which splits into at most one full run per level, and each
+ *    run is searched with a single binary search; a query therefore costs O(log^2 N) and enumerates nothing.</p>
+ * <p>Memory use is O(N log N): one int and one long per point per level.</p>
+ */
+final class DominanceTree
+{
+    private final long[] sortedU;
+    private final long[] distinctV;
+    private final int[][] levelRanks;
+    private final long[][] levelWeightSums;
+
+    /**
+     * @param u first coordinate of each point
+     * @param v second coordinate of each point
+     * @param weights weight of each point
+     */
+    DominanceTree(long[] u, long[] v, long[] weights)
+    {
+        int size = u.length;
+        var order = new int[size];
+        var uKeys = u.clone();
+
+        for (int i = 0; i < size; i++)
+        {
+            order[i] = i;
+        }
+
+        PrimitiveSorts.sortParallel(uKeys, order, 0, size);
+
+        this.sortedU = uKeys;
+        this.distinctV = distinct(v);
+
+        int levels = 1;
+
+        while ((1 << (levels - 1)) < size)
+        {
+            levels++;
+        }
+
+        this.levelRanks = new int[levels][];
+        this.levelWeightSums = new long[levels][];
+
+        var ranks = new int[size];
+        var levelWeights = new long[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            ranks[i] = Arrays.binarySearch(distinctV, v[order[i]]);
+            levelWeights[i] = weights[order[i]];
+        }
+
+        for (int level = 0; level < levels; level++)
+        {
+            if (level > 0)
+            {
+                int[] mergedRanks = new int[size];
+                long[] mergedWeights = new long[size];
+
+                mergeRuns(ranks, levelWeights, mergedRanks, mergedWeights, 1 << (level - 1));
+                ranks = mergedRanks;
+                levelWeights = mergedWeights;
+            }
+
+            levelRanks[level] = ranks;
+            levelWeightSums[level] = runningSums(levelWeights, 1 << level);
+        }
+    }
+
+    /**
+     * Aggregates the points with {@code u} below {@code uLimit} and {@code v} below {@code vLimit}, where each limit
+     * is either inclusive or exclusive
+     * @param result receives the count at index 0 and the weight sum at index 1
+     */
+    void aggregate(long uLimit, boolean uInclusive, long vLimit, boolean vInclusive, long[] result)
+    {
+        int prefix = countBelow(sortedU, uLimit, uInclusive);
+        int rankLimit = countBelow(distinctV, vLimit, vInclusive);
+        long count = 0;
+        long weight = 0;
+        int position = 0;
+
+        for (int level = levelRanks.length - 1; level >= 0; level--)
+        {
+            int runLength = 1 << level;
+
+            if (position + runLength <= prefix)
+            {
+                int matches = countRanksBelow(levelRanks[level], position, position + runLength, rankLimit);
+
+                if (matches > 0)
+                {
+                    count += matches;
+                    weight += levelWeightSums[level][position + matches - 1];
+                }
+
+                position += runLength;
+            }
+        }
+
+        result[0] = count;
+        result[1] = weight;
+    }
+
+    int size()
+    {
+        return sortedU.length;
+    }
+
+    private static void mergeRuns(int[] ranks, long[] weights, int[] mergedRanks, long[] mergedWeights, int runLength)
+    {
+        int size = ranks.length;
+
+        for (int start = 0; start < size; start += 2 * runLength)
+        {
+            int left = start, leftEnd = Math.min(start + runLength, size);
+            int right = leftEnd, rightEnd = Math.min(start + 2 * runLength, size);
+            int target = start;
+
+            while (left < leftEnd || right < rightEnd)
+            {
+                if (right >= rightEnd || (left < leftEnd && ranks[left] <= ranks[right]))
+                {
+                    mergedRanks[target] = ranks[left];
+                    mergedWeights[target++] = weights[left++];
+                }
+                else
+                {
+                    mergedRanks[target] = ranks[right];
+                    mergedWeights[target++] = weights[right++];
+                }
+            }
+        }
+    }
+
+    private static long[] runningSums(long[] weights, int runLength)
+    {
+        var sums = new long[weights.length];
+
+        for (int i = 0; i < weights.length; i++)
+        {
+            sums[i] = i % runLength == 0 ? weights[i] : sums[i - 1] + weights[i];
+        }
+
+        return sums;
+    }
+
+    private static long[] distinct(long[] values)
+    {
+        long[] sorted = values.clone();
+
+        Arrays.sort(sorted);
+
+        int distinct = 0;
+
+        for (int i = 0; i < sorted.length; i++)
+        {
+            if (i == 0 || sorted[i] != sorted[distinct - 1])
+            {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+
+        return Arrays.copyOf(sorted, distinct);
+    }
+
+    private static int countBelow(long[] sorted, long limit, boolean inclusive)
+    {
+        int low = 0, high = sorted.length;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (sorted[middle] < limit || (inclusive && sorted[middle] == limit))
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private static int countRanksBelow(int[] ranks, int start, int end, int rankLimit)
+    {
+        int low = start, high = end;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (ranks[middle] < rankLimit)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low - start;
+    }
+}
@@ -0,0 +1,207 @@
+package com.iholden.index;
+
+import com.iholden.support.PrimitiveSorts;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>A forest of static, centered interval trees over closed 1-dimensional intervals, stored in flat primitive arrays
+ *    so that thousands of small trees do not each carry their own object overhead.</p>
+ * <p>Each tree node holds the intervals that contain its center, sorted once by lower bound (ascending) and once by
+ *    upper bound (descending). A stabbing query descends a single root-to-leaf path, and at each node scans only as
+ *    far as intervals keep matching, so it costs O(log n + k).</p>
+ */
+final class IntervalForest
+{
+    private static final int NO_NODE = -1;
+
+    // Per node
+    private long[] centers = new long[16];
+    private int[] leftChildren = new int[16];
+    private int[] rightChildren = new int[16];
+    private int[] entryStarts = new int[16];
+    private int[] entryCounts = new int[16];
+    private int nodeCount;
+
+    // Per stored entry, in node order
+    private int[] byLowerPayloads = new int[16];
+    private long[] byLowerKeys = new long[16];
+    private int[] byUpperPayloads = new int[16];
+    private long[] byUpperKeys = new long[16];
+    private int entryCount;
+
+    /**
+     * Builds a tree over {@code count} intervals, and returns its root
+     * @param payloads payload reported for each interval
+     * @param lowers lower bound of each interval
+     * @param uppers upper bound of each interval
+     * @param count number of intervals, starting at position 0 of each array
+     * @return the root node of the new tree, or -1 if there were no intervals
+     */
+    int build(int[] payloads, long[] lowers, long[] uppers, int count)
+    {
+        var positions = new int[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            positions[i] = i;
+        }
+
+        return buildNode(positions, count, payloads, lowers, uppers, new long[2 * count]);
+    }
+
+    /**
+     * Reports the payload of every interval in the tree rooted at {@code root} that contains {@code value}
+     */
+    void stab(int root, long value, IntConsumer consumer)
+    {
+        int node = root;
+
+        while (node != NO_NODE)
+        {
+            int start = entryStarts[node];
+            int end = start + entryCounts[node];
+
+            if (value < centers[node])
+            {
+                for (int i = start; i < end && byLowerKeys[i] <= value; i++)
+                {
+                    consumer.accept(byLowerPayloads[i]);
+                }
+
+                node = leftChildren[node];
+            }
+            else if (value > centers[node])
+            {
+                for (int i = start; i < end && byUpperKeys[i] >= value; i++)
+                {
+                    consumer.accept(byUpperPayloads[i]);
+                }
+
+                node = rightChildren[node];
+            }
+            else
+            {
+                for (int i = start; i < end; i++)
+                {
+                    consumer.accept(byLowerPayloads[i]);
+                }
+
+                return;
+            }
+        }
+    }
+
+    private int buildNode(int[] positions, int count, int[] payloads, long[] lowers, long[] uppers, long[] endpointScratch)
+    {
+        if (count == 0)
+        {
+            return NO_NODE;
+        }
+
+        // The median endpoint splits the remaining endpoints in half, which bounds the depth of the tree
+        for (int i = 0; i < count; i++)
+        {
+            endpointScratch[2 * i] = lowers[positions[i]];
+            endpointScratch[2 * i + 1] = uppers[positions[i]];
+        }
+
+        Arrays.sort(endpointScratch, 0, 2 * count);
+
+        long center = endpointScratch[count];
+        var leftPositions = new int[count];
+        var rightPositions = new int[count];
+        var centerPositions = new int[count];
+        int leftCount = 0, rightCount = 0, centerCount = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            int position = positions[i];
+
+            if (uppers[position] < center)
+            {
+                leftPositions[leftCount++] = position;
+            }
+            else if (lowers[position] > center)
+            {
+                rightPositions[rightCount++] = position;
+            }
+            else
+            {
+                centerPositions[centerCount++] = position;
+            }
+        }
+
+        int node = allocateNode(center);
+
+        storeEntries(node, centerPositions, centerCount, payloads, lowers, uppers);
+
+        int left = buildNode(leftPositions, leftCount, payloads, lowers, uppers, endpointScratch);
+        int right = buildNode(rightPositions, rightCount, payloads, lowers, uppers, endpointScratch);
+
+        leftChildren[node] = left;
+        rightChildren[node] = right;
+
+        return node;
+    }
+
+    private int allocateNode(long center)
+    {
+        if (nodeCount == centers.length)
+        {
+            int newLength = centers.length * 2;
+
+            centers = Arrays.copyOf(centers, newLength);
+            leftChildren = Arrays.copyOf(leftChildren, newLength);
+            rightChildren = Arrays.copyOf(rightChildren, newLength);
+            entryStarts = Arrays.copyOf(entryStarts, newLength);
+            entryCounts = Arrays.copyOf(entryCounts, newLength);
+        }
+
+        centers[nodeCount] = center;
+
+        return nodeCount++;
+    }
+
+    private void storeEntries(int node, int[] positions, int count, int[] payloads, long[] lowers, long[] uppers)
+    {
+        if (entryCount + count > byLowerKeys.length)
+        {
+            int newLength = Math.max(byLowerKeys.length * 2, entryCount + count);
+
+            byLowerPayloads = Arrays.copyOf(byLowerPayloads, newLength);
+            byLowerKeys = Arrays.copyOf(byLowerKeys, newLength);
+            byUpperPayloads = Arrays.copyOf(byUpperPayloads, newLength);
+            byUpperKeys = Arrays.copyOf(byUpperKeys, newLength);
+        }
+
+        var lowerKeys = new long[count];
+        var upperKeys = new long[count];
+        int[] byLower = Arrays.copyOf(positions, count);
+        int[] byUpper = Arrays.copyOf(positions, count);
+
+        for (int i = 0; i < count; i++)
+        {
+            lowerKeys[i] = lowers[positions[i]];
+            upperKeys[i] = uppers[positions[i]];
+        }
+
+        PrimitiveSorts.sortParallel(lowerKeys, byLower, 0, count);
+        PrimitiveSorts.sortParallel(upperKeys, byUpper, 0, count);
+        PrimitiveSorts.reverseParallel(upperKeys, byUpper, 0, count);
+
+        System.arraycopy(lowerKeys, 0, byLowerKeys, entryCount, count);
+        System.arraycopy(upperKeys, 0, byUpperKeys, entryCount, count);
+
+        for (int i = 0; i < count; i++)
+        {
+            byLowerPayloads[entryCount + i] = payloads[byLower[i]];
+            byUpperPayloads[entryCount + i] = payloads[byUpper[i]];
+        }
+
+        entryStarts[node] = entryCount;
+        entryCounts[node] = count;
+        entryCount += count;
+    }
+}
@@ -0,0 +1,19 @@
+package com.iholden.index;
+
+import com.iholden.constants.Facing;
+
+/**
+ * Receives the pairs of rectangles found within a distance of each other by {@link NearPairs}
+ */
+@FunctionalInterface
+public interface NearPairConsumer
+{
+    /**
+     * @param first index of the rectangle with the lower index
+     * @param second index of the rectangle with the higher index
+     * @param gapX distance between the rectangles' closed X extents; 0 if they meet
+     * @param gapY distance between the rectangles' closed Y extents; 0 if they meet
+     * @param facing side or corner of the first rectangle that faces the second
+     */
+    void acceptNearPair(int first, int second, long gapX, long gapY, Facing facing);
+}
@@ -0,0 +1,322 @@
+package com.iholden.index;
+
+import com.iholden.constants.Facing;
+import com.iholden.support.IntPairConsumer;
+import com.iholden.support.PrimitiveSorts;
+import com.iholden.support.RankBitmap;
+import com.iholden.support.RectangleColumns;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>Utility class for finding every pair of rectangles within a given distance of each other along both axes: the
+ *    near-adjacent pairs, of which the pairs sharing an edge or corner, at distance 0, are a special case.</p>
+ * <p>Two rectangles are within distance {@code d} when the gap between their closed X extents and the gap between
+ *    their closed Y extents are both at most {@code d}, i.e. when their closed bounds would touch if each were grown
+ *    by {@code d} to the right and upwards. Gaps are measured like the inclusive comparisons of
+ *    {@link com.iholden.support.Range}, so rectangles sharing an edge have a gap of 0, and overlapping rectangles are
+ *    reported too, with both gaps 0.</p>
+ * <p>Bounds are grown on the fly, while sorting and comparing; no rectangles are copied. Pairs are found with a plane
+ *    sweep over X, in which the active rectangles are indexed by the rank of their minimum Y coordinate. Two grown Y
+ *    extents meet exactly when one starts within the other, so each newly visited rectangle looks up the active
+ *    rectangles starting within its grown Y extent in a {@link RankBitmap}, and those whose grown Y extents hold
+ *    its start, having started strictly before it, with a stabbing query on a segment tree over the ranks. The
+ *    two lookups never report the same pair, and every rectangle they report is within the distance, so
+ *    the join costs O(N log N + K) for K pairs.</p>
+ */
+public class NearPairs
+{
+    /**
+     * Passes every pair of rectangles within {@code distance} of each other to {@code consumer}, each pair once
+     * @param rectangles rectangles to compare
+     * @param distance largest gap along either axis; 0 finds the pairs whose closed bounds touch
+     * @param consumer receives each pair, with its gaps and the side of the first rectangle facing the second
+     * @return the number of pairs found
+     * @throws IllegalArgumentException if {@code distance} is negative
+     */
+    public static long forEach(RectangleColumns rectangles, long distance, NearPairConsumer consumer)
+    {
+        if (distance < 0)
+        {
+            throw new IllegalArgumentException("Distance must not be negative; got " + distance);
+        }
+
+        return sweep(rectangles, distance, (other, rectangle) -> report(rectangles, other, rectangle, consumer));
+    }
+
+    /**
+     * @return the number of pairs of rectangles within {@code distance} of each other
+     */
+    public static long count(RectangleColumns rectangles, long distance)
+    {
+        return forEach(rectangles, distance, (first, second, gapX, gapY, facing) -> { });
+    }
+
+    /**
+     * Runs the sweep, passing each pair found to {@code pairs} as it is found, with the rectangle visited first, the
+     * one with the lesser minimum X coordinate or the earlier of equals, as the first value
+     * @param distance largest gap along either axis; not negative
+     * @return the number of pairs found
+     */
+    static long sweep(RectangleColumns rectangles, long distance, IntPairConsumer pairs)
+    {
+        int size = rectangles.size();
+
+        // Ranks of the rectangles by minimum Y coordinate, and the start of each rank
+        var startOrder = new int[size];
+        var starts = new long[size];
+        var rankOf = new int[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            startOrder[i] = i;
+            starts[i] = rectangles.getMinY(i);
+        }
+
+        PrimitiveSorts.sortParallel(starts, startOrder, 0, size);
+
+        for (int rank = 0; rank < size; rank++)
+        {
+            rankOf[startOrder[rank]] = rank;
+        }
+
+        // Visiting order by minimum X, and retiring order by grown maximum X
+        var visitOrder = new int[size];
+        var visitKeys = new long[size];
+        var retireOrder = new int[size];
+        var retireKeys = new long[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            visitOrder[i] = i;
+            visitKeys[i] = rectangles.getMinX(i);
+            retireOrder[i] = i;
+            retireKeys[i] = grow(rectangles.getMaxX(i), distance);
+        }
+
+        PrimitiveSorts.sortParallel(visitKeys, visitOrder, 0, size);
+        PrimitiveSorts.sortParallel(retireKeys, retireOrder, 0, size);
+
+        var activeStarts = new RankBitmap(size);
+        var spans = new SpanTree(size);
+        var active = new boolean[size];
+        long count = 0;
+
+        for (int i = 0, retired = 0; i < size; i++)
+        {
+            int rectangle = visitOrder[i];
+
+            // Every later rectangle starts at or after this one, so rectangles ending before it are out of reach
+            for (; retired < size && retireKeys[retired] < visitKeys[i]; retired++)
+            {
+                int ended = retireOrder[retired];
+
+                if (active[ended])
+                {
+                    active[ended] = false;
+                    activeStarts.clear(rankOf[ended]);
+                }
+            }
+
+            long minY = rectangles.getMinY(rectangle), grownMaxY = grow(rectangles.getMaxY(rectangle), distance);
+            int rank = rankOf[rectangle];
+
+            // Active rectangles starting within this one's grown Y extent
+            int to = PrimitiveSorts.upperBound(starts, 0, size, grownMaxY);
+
+            for (int other = activeStarts.nextSet(PrimitiveSorts.lowerBound(starts, 0, size, minY)); other >= 0 && other < to; other = activeStarts.nextSet(other + 1))
+            {
+                pairs.accept(startOrder[other], rectangle);
+                count++;
+            }
+
+            // Active rectangles starting strictly before this one, whose grown Y extents hold its start
+            count += spans.stab(rank, active, other -> pairs.accept(other, rectangle));
+
+            active[rectangle] = true;
+            activeStarts.set(rank);
+
+            int spanFrom = PrimitiveSorts.upperBound(starts, 0, size, minY), spanTo = to;
+
+            if (spanFrom < spanTo)
+            {
+                spans.add(spanFrom, spanTo, rectangle);
+            }
+        }
+
+        return count;
+    }
+
+    private static void report(RectangleColumns rectangles, int a, int b, NearPairConsumer consumer)
+    {
+        int first = Math.min(a, b), second = Math.max(a, b);
+        long firstMinX = rectangles.getMinX(first), firstMaxX = rectangles.getMaxX(first);
+        long firstMinY = rectangles.getMinY(first), firstMaxY = rectangles.getMaxY(first);
+        long secondMinX = rectangles.getMinX(second), secondMaxX = rectangles.getMaxX(second);
+        long secondMinY = rectangles.getMinY(second), secondMaxY = rectangles.getMaxY(second);
+
+        // Both gaps are at most the distance, so the differences cannot overflow
+        long gapX = secondMinX > firstMaxX ? secondMinX - firstMaxX : firstMinX > secondMaxX ? firstMinX - secondMaxX : 0;
+        long gapY = secondMinY > firstMaxY ? secondMinY - firstMaxY : firstMinY > secondMaxY ? firstMinY - secondMaxY : 0;
+
+        consumer.acceptNearPair(first, second, gapX, gapY, facingOf(sideOf(firstMinX, firstMaxX, secondMinX, secondMaxX),
+                sideOf(firstMinY, firstMaxY, secondMinY, secondMaxY)));
+    }
+
+    /**
+     * @return 1 if the second extent lies beyond the end of the first, -1 if before its start, or 0 if it meets the
+     *         first's closed extent without reaching past it on that side
+     */
+    private static int sideOf(long firstMin, long firstMax, long secondMin, long secondMax)
+    {
+        if (secondMin >= firstMax && secondMax > firstMax)
+        {
+            return 1;
+        }
+
+        if (secondMax <= firstMin && secondMin < firstMin)
+        {
+            return -1;
+        }
+
+        return 0;
+    }
+
+    private static Facing facingOf(int sideX, int sideY)
+    {
+        if (sideY == 0)
+        {
+            return sideX == 0 ? Facing.OVERLAP : sideX > 0 ? Facing.RIGHT : Facing.LEFT;
+        }
+
+        if (sideY > 0)
+        {
+            return sideX == 0 ? Facing.TOP : sideX > 0 ? Facing.TOP_RIGHT : Facing.TOP_LEFT;
+        }
+
+        return sideX == 0 ? Facing.BOTTOM : sideX > 0 ? Facing.BOTTOM_RIGHT : Facing.BOTTOM_LEFT;
+    }
+
+    /**
+     * @return {@code value + distance}, or {@link Long#MAX_VALUE} if that would overflow
+     */
+    private static long grow(long value, long distance)
+    {
+        return value > Long.MAX_VALUE - distance ? Long.MAX_VALUE : value + distance;
+    }
+
+    /**
+     * <p>Segment tree over ranks, each node holding a linked list of the rectangles whose span of ranks covers the
+     *    node's canonical range.</p>
+     * <p>Retired rectangles are unlinked lazily, when a stabbing query next walks over them, so each is unlinked from
+     *    each of its O(log N) nodes at most once.</p>
+     */
+    private static class SpanTree
+    {
+        private final int leafCount;
+        private final int[] heads;
+        private int[] rectangles = new int[16];
+        private int[] next = new int[16];
+        private int entryCount;
+        private int freeEntry = -1;
+
+        private SpanTree(int leafCount)
+        {
+            this.leafCount = leafCount;
+            this.heads = new int[2 * Math.max(1, leafCount)];
+
+            Arrays.fill(heads, -1);
+        }
+
+        /**
+         * Adds {@code rectangle} to the canonical nodes of the ranks {@code [from, to)}
+         */
+        private void add(int from, int to, int rectangle)
+        {
+            for (int low = from + leafCount, high = to + leafCount; low < high; low >>>= 1, high >>>= 1)
+            {
+                if ((low & 1) == 1)
+                {
+                    push(low++, rectangle);
+                }
+
+                if ((high & 1) == 1)
+                {
+                    push(--high, rectangle);
+                }
+            }
+        }
+
+        /**
+         * Reports every active rectangle on the path from the leaf of {@code rank} to the root, unlinking retired ones
+         * @return the number of rectangles reported
+         */
+        private int stab(int rank, boolean[] active, IntConsumer consumer)
+        {
+            int reported = 0;
+
+            for (int node = rank + leafCount; node >= 1; node >>>= 1)
+            {
+                int previous = -1;
+
+                for (int entry = heads[node]; entry >= 0; )
+                {
+                    int following = next[entry];
+
+                    if (active[rectangles[entry]])
+                    {
+                        consumer.accept(rectangles[entry]);
+                        reported++;
+                        previous = entry;
+                    }
+                    else
+                    {
+                        if (previous < 0)
+                        {
+                            heads[node] = following;
+                        }
+                        else
+                        {
+                            next[previous] = following;
+                        }
+
+                        next[entry] = freeEntry;
+                        freeEntry = entry;
+                    }
+
+                    entry = following;
+                }
+            }
+
+            return reported;
+        }
+
+        private void push(int node, int rectangle)
+        {
+            int entry = freeEntry;
+
+            if (entry >= 0)
+            {
+                freeEntry = next[entry];
+            }
+            else
+            {
+                if (entryCount == rectangles.length)
+                {
+                    rectangles = Arrays.copyOf(rectangles, 2 * entryCount);
+                    next = Arrays.copyOf(next, 2 * entryCount);
+                }
+
+                entry = entryCount++;
+            }
+
+            rectangles[entry] = rectangle;
+            next[entry] = heads[node];
+            heads[node] = entry;
+        }
+    }
+
+    // Discourage Instantiation
+    private NearPairs(){};
+}
@@ -0,0 +1,113 @@
+package com.iholden.index;
+
+import com.iholden.support.OccupancyBitmap;
+
+/**
+ * <p>The cells of an {@link OccupancyGrid} occupied by a set of rectangles, as one {@link OccupancyBitmap} per level.</p>
+ * <p>Occupancy is conservative, so it only ever answers "maybe" or "certainly not": two sets, or a set and a
+ *    rectangle, with no occupied cell in common at some level have no point in common, while a common cell proves
+ *    nothing. Coarser levels are smaller and cheaper to test but reject less, so tests run from the coarsest level
+ *    to the finest and stop at the first one that rejects.</p>
+ * <p>Use {@link OccupancyGrid#occupancyOf(com.iholden.support.RectangleColumns)} to obtain an instance.</p>
+ */
+public class Occupancy
+{
+    // A rectangle spanning more rows than this at a level is not tested there, as a finer level would cost too much
+    static final int MAX_TESTED_ROWS = 32;
+
+    private final OccupancyGrid grid;
+    private final OccupancyBitmap[] bitmaps;
+
+    // Prevent external instantiation; prefer static access
+    private Occupancy(OccupancyGrid grid, OccupancyBitmap[] bitmaps)
+    {
+        this.grid = grid;
+        this.bitmaps = bitmaps;
+    }
+
+    static Occupancy of(OccupancyGrid grid, OccupancyBitmap[] bitmaps)
+    {
+        return new Occupancy(grid, bitmaps);
+    }
+
+    public OccupancyGrid getGrid()
+    {
+        return grid;
+    }
+
+    public OccupancyBitmap getBitmap(int level)
+    {
+        return bitmaps[level];
+    }
+
+    /**
+     * @return the number of cells occupied at {@code level}
+     */
+    public long getCellCount(int level)
+    {
+        return bitmaps[level].getCardinality();
+    }
+
+    /**
+     * @param other occupancy on the same grid
+     * @return false if no rectangle of this set can have a point in common with any rectangle of {@code other}
+     * @throws IllegalArgumentException if {@code other} was rasterized on a different grid
+     */
+    public boolean intersects(Occupancy other)
+    {
+        if (other.grid != grid)
+        {
+            throw new IllegalArgumentException("Occupancies must share a grid to be compared");
+        }
+
+        for (int level = bitmaps.length - 1; level >= 0; level--)
+        {
+            if (!bitmaps[level].intersects(other.bitmaps[level]))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * <p>Tests the cells the closed rectangle reaches against those occupied, row by row, at each level where it spans
+     *    at most {@value #MAX_TESTED_ROWS} rows.</p>
+     * @return false if the rectangle can have no point in common with any rectangle of the set
+     */
+    public boolean mayTouch(long minX, long minY, long maxX, long maxY)
+    {
+        for (int level = bitmaps.length - 1; level >= 0; level--)
+        {
+            int firstRow = grid.rowOf(minY, level), lastRow = grid.rowOf(maxY, level);
+
+            if (lastRow - firstRow >= MAX_TESTED_ROWS)
+            {
+                break;
+            }
+
+            if (!touchesRows(level, firstRow, lastRow, grid.columnOf(minX, level), grid.columnOf(maxX, level)))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean touchesRows(int level, int firstRow, int lastRow, int firstColumn, int lastColumn)
+    {
+        int columns = grid.getColumns(level);
+
+        for (int row = firstRow; row <= lastRow; row++)
+        {
+            if (bitmaps[level].intersectsRange(row * columns + firstColumn, row * columns + lastColumn + 1L))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,191 @@
+package com.iholden.index;
+
+import com.iholden.support.IntPairConsumer;
+import com.iholden.support.RectangleColumns;
+
+/**
+ * <p>Approximate pre-filter for the pairs formed by a set of rectangles and a set of query rectangles, which rejects
+ *    pairs that cannot have a point in common before any exact {@link com.iholden.entities.Rectangle} check runs.</p>
+ * <p>Both sets are rasterized onto the same {@link OccupancyGrid}. If their occupancies share no cell, every pair is
+ *    rejected at once. Otherwise each rectangle is tested against the occupancy of the queries, and each query
+ *    against the occupancy of the rectangles, and only those that may touch something on the other side stay live.
+ *    A pair of live rectangles then survives if their cells at the finest level overlap.</p>
+ * <p>Rejection only ever follows from closed bounds having no point in common, and such a pair is
+ *    {@link com.iholden.constants.Relation#NONE} in both directions, so classifying the survivors exactly gives the
+ *    same related pairs as classifying every pair.</p>
+ * <p>The filter counts the pairs it is asked about and those that survive, from which its selectivity follows. It
+ *    pays off when both sets are clustered on a bounded grid; for sets spread evenly over the same area nearly every
+ *    rectangle stays live.</p>
+ * <p>This class is not thread-safe.</p>
+ * <p>Use the static builder to obtain an instance: {@link OccupancyFilter#of(OccupancyGrid, RectangleColumns, RectangleColumns)}</p>
+ */
+public class OccupancyFilter
+{
+    // Cells of rectangle i occupy cells[4i .. 4i + 3], as first column, first row, last column, last row
+    private final int[] rectangleCells;
+    private final int[] queryCells;
+    private final boolean[] liveRectangles;
+    private final boolean[] liveQueries;
+    private final int[] liveRectangleIndexes;
+    private final int[] liveQueryIndexes;
+
+    private long testedCount;
+    private long survivorCount;
+
+    // Prevent external instantiation; prefer static access
+    private OccupancyFilter(OccupancyGrid grid, RectangleColumns rectangles, RectangleColumns queries)
+    {
+        Occupancy rectangleOccupancy = grid.occupancyOf(rectangles);
+        Occupancy queryOccupancy = grid.occupancyOf(queries);
+        boolean overlapping = rectangleOccupancy.intersects(queryOccupancy);
+
+        this.rectangleCells = cellsOf(grid, rectangles);
+        this.queryCells = cellsOf(grid, queries);
+        this.liveRectangles = overlapping ? liveAgainst(queryOccupancy, rectangles) : new boolean[rectangles.size()];
+        this.liveQueries = overlapping ? liveAgainst(rectangleOccupancy, queries) : new boolean[queries.size()];
+        this.liveRectangleIndexes = indexesOf(liveRectangles);
+        this.liveQueryIndexes = indexesOf(liveQueries);
+    }
+
+    /**
+     * Rasterizes both sets onto {@code grid} and finds the live rectangles of each
+     * @param grid grid to rasterize onto; the closer it fits the sets, the more the filter rejects
+     * @param rectangles first set of rectangles
+     * @param queries second set of rectangles
+     * @return a new filter
+     */
+    public static OccupancyFilter of(OccupancyGrid grid, RectangleColumns rectangles, RectangleColumns queries)
+    {
+        return new OccupancyFilter(grid, rectangles, queries);
+    }
+
+    public int getLiveRectangleCount()
+    {
+        return liveRectangleIndexes.length;
+    }
+
+    public int getLiveQueryCount()
+    {
+        return liveQueryIndexes.length;
+    }
+
+    /**
+     * @return the number of pairs the filter has been asked about
+     */
+    public long getTestedCount()
+    {
+        return testedCount;
+    }
+
+    /**
+     * @return the number of pairs the filter has let through
+     */
+    public long getSurvivorCount()
+    {
+        return survivorCount;
+    }
+
+    /**
+     * @return the share of tested pairs that survived, so lower is more selective; NaN if none were tested
+     */
+    public double getSelectivity()
+    {
+        return testedCount == 0 ? Double.NaN : (double) survivorCount / testedCount;
+    }
+
+    /**
+     * @param rectangle index of a rectangle of the first set
+     * @param query index of a rectangle of the second set
+     * @return false if the pair can have no point in common, true if it must be checked exactly
+     */
+    public boolean mayRelate(int rectangle, int query)
+    {
+        testedCount++;
+
+        if (liveRectangles[rectangle] && liveQueries[query] && cellsOverlap(rectangle, query))
+        {
+            survivorCount++;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Reports every pair of the two sets that survives the filter, counting every pair of the two sets as tested
+     * @param consumer receives the index of the rectangle and of the query of each surviving pair
+     */
+    public void forEachSurvivor(IntPairConsumer consumer)
+    {
+        testedCount += (long) liveRectangles.length * liveQueries.length;
+
+        for (int rectangle : liveRectangleIndexes)
+        {
+            for (int query : liveQueryIndexes)
+            {
+                if (cellsOverlap(rectangle, query))
+                {
+                    survivorCount++;
+                    consumer.accept(rectangle, query);
+                }
+            }
+        }
+    }
+
+    private boolean cellsOverlap(int rectangle, int query)
+    {
+        int r = 4 * rectangle, q = 4 * query;
+
+        return rectangleCells[r] <= queryCells[q + 2] && queryCells[q] <= rectangleCells[r + 2]
+                && rectangleCells[r + 1] <= queryCells[q + 3] && queryCells[q + 1] <= rectangleCells[r + 3];
+    }
+
+    private static int[] cellsOf(OccupancyGrid grid, RectangleColumns rectangles)
+    {
+        var cells = new int[4 * rectangles.size()];
+
+        for (int i = 0; i < rectangles.size(); i++)
+        {
+            cells[4 * i] = grid.columnOf(rectangles.getMinX(i), 0);
+            cells[4 * i + 1] = grid.rowOf(rectangles.getMinY(i), 0);
+            cells[4 * i + 2] = grid.columnOf(rectangles.getMaxX(i), 0);
+            cells[4 * i + 3] = grid.rowOf(rectangles.getMaxY(i), 0);
+        }
+
+        return cells;
+    }
+
+    private static boolean[] liveAgainst(Occupancy occupancy, RectangleColumns rectangles)
+    {
+        var live = new boolean[rectangles.size()];
+
+        for (int i = 0; i < live.length; i++)
+        {
+            live[i] = occupancy.mayTouch(rectangles.getMinX(i), rectangles.getMinY(i), rectangles.getMaxX(i), rectangles.getMaxY(i));
+        }
+
+        return live;
+    }
+
+    private static int[] indexesOf(boolean[] live)
+    {
+        int count = 0;
+
+        for (boolean isLive : live)
+        {
+            count += isLive ? 1 : 0;
+        }
+
+        var indexes = new int[count];
+
+        for (int i = 0, next = 0; i < live.length; i++)
+        {
+            if (live[i])
+            {
+                indexes[next++] = i;
+            }
+        }
+
+        return indexes;
+    }
+}
@@ -0,0 +1,203 @@
+package com.iholden.index;
+
+import com.iholden.support.OccupancyBitmap;
+import com.iholden.support.RectangleColumns;
+
+/**
+ * <p>Bounded grid of square cells, at several resolutions, onto which sets of rectangles are rasterized as
+ *    {@link Occupancy} bitmaps.</p>
+ * <p>Level 0 is the finest, with cells {@code cellSize} on a side; each further level doubles the cell size, so a
+ *    cell of level {@code k + 1} covers 2 by 2 cells of level {@code k}. Cells are numbered row by row within each
+ *    level.</p>
+ * <p>Rasterization is conservative: a rectangle occupies every cell its closed bounds reach, including the cell
+ *    beyond a shared edge, and coordinates beyond the edges of the grid fall in the nearest edge cell. So any two
+ *    rectangles with a point in common, including a single corner, occupy a common cell at every level.</p>
+ * <p>Use static builders to obtain an instance: {@link OccupancyGrid#of(long, long, long, int, int, int)} or
+ *    {@link OccupancyGrid#covering(RectangleColumns, int, int)}</p>
+ */
+public class OccupancyGrid
+{
+    // Cell numbers must fit in an int at the finest level
+    static final long MAX_CELLS = Integer.MAX_VALUE;
+
+    private final long originX;
+    private final long originY;
+    private final long cellSize;
+    private final int[] columns;
+    private final int[] rows;
+
+    // Prevent external instantiation; prefer static access
+    private OccupancyGrid(long originX, long originY, long cellSize, int columns, int rows, int levels)
+    {
+        this.originX = originX;
+        this.originY = originY;
+        this.cellSize = cellSize;
+        this.columns = new int[levels];
+        this.rows = new int[levels];
+
+        for (int level = 0; level < levels; level++)
+        {
+            this.columns[level] = (int) ((columns - 1L >> level) + 1);
+            this.rows[level] = (int) ((rows - 1L >> level) + 1);
+        }
+    }
+
+    /**
+     * @param originX lowest X coordinate of the grid
+     * @param originY lowest Y coordinate of the grid
+     * @param cellSize side of a cell at the finest level
+     * @param columns number of cells along the X axis at the finest level
+     * @param rows number of cells along the Y axis at the finest level
+     * @param levels number of resolutions, from 1 to 31
+     * @return a new grid
+     * @throws IllegalArgumentException if a size or count is not positive, there are too many levels for the cell
+     *         size, or the finest level has more than {@value #MAX_CELLS} cells
+     */
+    public static OccupancyGrid of(long originX, long originY, long cellSize, int columns, int rows, int levels)
+    {
+        if (cellSize < 1 || columns < 1 || rows < 1 || levels < 1 || levels > 31)
+        {
+            throw new IllegalArgumentException("Cell size and counts must be positive, with 1 to 31 levels");
+        }
+
+        if (Long.numberOfLeadingZeros(cellSize) <= levels)
+        {
+            throw new IllegalArgumentException("Cells of " + cellSize + " cannot be doubled " + (levels - 1) + " times");
+        }
+
+        if ((long) columns * rows > MAX_CELLS)
+        {
+            throw new IllegalArgumentException("Grid of " + columns + " by " + rows + " cells is too large");
+        }
+
+        return new OccupancyGrid(originX, originY, cellSize, columns, rows, levels);
+    }
+
+    /**
+     * Creates a grid covering the bounding box of {@code rectangles}, with square cells sized so that the finest level
+     * has at most {@code cellsPerSide} cells along either axis
+     * @param rectangles rectangles the grid should cover
+     * @param cellsPerSide most cells along either axis at the finest level
+     * @param levels number of resolutions
+     * @return a new grid
+     */
+    public static OccupancyGrid covering(RectangleColumns rectangles, int cellsPerSide, int levels)
+    {
+        if (cellsPerSide < 1)
+        {
+            throw new IllegalArgumentException("Cells per side must be positive; got " + cellsPerSide);
+        }
+
+        if (rectangles.size() == 0)
+        {
+            return of(0, 0, 1, 1, 1, levels);
+        }
+
+        long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE, maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+
+        for (int i = 0; i < rectangles.size(); i++)
+        {
+            minX = Math.min(minX, rectangles.getMinX(i));
+            minY = Math.min(minY, rectangles.getMinY(i));
+            maxX = Math.max(maxX, rectangles.getMaxX(i));
+            maxY = Math.max(maxY, rectangles.getMaxY(i));
+        }
+
+        // Extents are unsigned, as they can exceed Long.MAX_VALUE
+        long extent = Long.compareUnsigned(maxX - minX, maxY - minY) >= 0 ? maxX - minX : maxY - minY;
+        long cellSize = Math.max(1, Long.divideUnsigned(extent, cellsPerSide) + 1);
+        int columns = (int) (Long.divideUnsigned(maxX - minX, cellSize) + 1);
+        int rows = (int) (Long.divideUnsigned(maxY - minY, cellSize) + 1);
+
+        return of(minX, minY, cellSize, columns, rows, levels);
+    }
+
+    public int levelCount()
+    {
+        return columns.length;
+    }
+
+    public int getColumns(int level)
+    {
+        return columns[level];
+    }
+
+    public int getRows(int level)
+    {
+        return rows[level];
+    }
+
+    /**
+     * @return the side of a cell at {@code level}
+     */
+    public long getCellSize(int level)
+    {
+        return cellSize << level;
+    }
+
+    /**
+     * @return the column of {@code level} holding {@code x}, or the nearest edge column if it lies beyond the grid
+     */
+    public int columnOf(long x, int level)
+    {
+        return cellOf(x, originX, level, columns[level]);
+    }
+
+    /**
+     * @return the row of {@code level} holding {@code y}, or the nearest edge row if it lies beyond the grid
+     */
+    public int rowOf(long y, int level)
+    {
+        return cellOf(y, originY, level, rows[level]);
+    }
+
+    /**
+     * Rasterizes every rectangle of {@code rectangles} at every level
+     * @return the cells occupied by at least one of the rectangles
+     */
+    public Occupancy occupancyOf(RectangleColumns rectangles)
+    {
+        var bitmaps = new OccupancyBitmap[levelCount()];
+
+        for (int level = 0; level < bitmaps.length; level++)
+        {
+            bitmaps[level] = new OccupancyBitmap();
+
+            for (int i = 0; i < rectangles.size(); i++)
+            {
+                rasterize(bitmaps[level], level, rectangles.getMinX(i), rectangles.getMinY(i), rectangles.getMaxX(i), rectangles.getMaxY(i));
+            }
+        }
+
+        return Occupancy.of(this, bitmaps);
+    }
+
+    /**
+     * Adds the cells of {@code level} reached by the closed rectangle to {@code bitmap}, one run per row
+     */
+    void rasterize(OccupancyBitmap bitmap, int level, long minX, long minY, long maxX, long maxY)
+    {
+        int firstColumn = columnOf(minX, level), lastColumn = columnOf(maxX, level);
+        int lastRow = rowOf(maxY, level);
+
+        for (int row = rowOf(minY, level); row <= lastRow; row++)
+        {
+            int rowStart = row * columns[level];
+
+            bitmap.addRange(rowStart + firstColumn, rowStart + lastColumn + 1L);
+        }
+    }
+
+    private int cellOf(long coordinate, long origin, int level, int count)
+    {
+        if (coordinate <= origin)
+        {
+            return 0;
+        }
+
+        // The offset is unsigned, as it can exceed Long.MAX_VALUE
+        long cell = Long.divideUnsigned(coordinate - origin, cellSize << level);
+
+        return Long.compareUnsigned(cell, count - 1) >= 0 ? count - 1 : (int) cell;
+    }
+}
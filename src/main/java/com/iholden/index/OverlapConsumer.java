@@ -0,0 +1,17 @@
+package com.iholden.index;
+
+import com.iholden.constants.Adjacency;
+
+/**
+ * Receives the pairs of collinear lines found overlapping by {@link SegmentCrossings}
+ */
+@FunctionalInterface
+public interface OverlapConsumer
+{
+    /**
+     * @param first index of the line with the lower index
+     * @param second index of the line with the higher index
+     * @param adjacency how the lines overlap; never {@link Adjacency#NONE} or {@link Adjacency#SINGLE_POINT}
+     */
+    void acceptOverlap(int first, int second, Adjacency adjacency);
+}
@@ -0,0 +1,355 @@
+package com.iholden.index;
+
+import com.iholden.support.CoordinateSlots;
+import com.iholden.support.PrimitiveSorts;
+import com.iholden.support.RectangleBuffer;
+import com.iholden.support.RectangleColumns;
+
+import java.util.Arrays;
+
+/**
+ * <p>Finds the largest number of rectangles that overlap at any single point, and where that happens.</p>
+ * <p>Depth follows one of the edge semantics of {@link com.iholden.support.Range}:</p>
+ * <ul>
+ *     <li>{@link #inclusive(RectangleColumns)} - a rectangle covers the points of its closed bounds, as in
+ *         {@link com.iholden.support.Range#containsInclusive(long)}; rectangles that only touch overlap on the
+ *         shared edge or corner</li>
+ *     <li>{@link #exclusive(RectangleColumns)} - a rectangle covers only its interior, as in
+ *         {@link com.iholden.support.Range#containsExclusive(long)}; touching rectangles do not overlap, and
+ *         rectangles with zero length or width cover nothing</li>
+ * </ul>
+ * <p>Both axes are compressed into {@link CoordinateSlots}, so every point is represented by a pair of point or
+ *    gap slots. A sweep over the X slots keeps the depth of every Y slot in a lazy max segment tree, adding each
+ *    rectangle's Y slots when the sweep reaches its first X slot and removing them after its last, which takes
+ *    O(N log N) overall.</p>
+ * <p>Since the maximum may only be reached in an open gap between two coordinates, where there might not be any
+ *    whole-number points, the witness is reported as a cell: either a single coordinate or an open gap on each
+ *    axis. {@link #getWitnessX()} and {@link #getWitnessY()} give the center of the cell.</p>
+ */
+public class OverlapDepth
+{
+    private final RectangleColumns rectangles;
+    private final boolean inclusive;
+    private final CoordinateSlots xSlots;
+    private final CoordinateSlots ySlots;
+
+    private int maxDepth;
+    private int witnessXSlot = -1;
+    private int witnessYSlot = -1;
+
+    // Segment tree over the Y slots; each node holds its pending addition, plus the maximum of its subtree
+    private final int leafCount;
+    private final int[] additions;
+    private final int[] maximums;
+
+    // Prevent external instantiation; prefer static access
+    private OverlapDepth(RectangleColumns rectangles, boolean inclusive)
+    {
+        this.rectangles = rectangles;
+        this.inclusive = inclusive;
+
+        int size = rectangles.size();
+        var xCoordinates = new long[2 * size];
+        var yCoordinates = new long[2 * size];
+
+        for (int i = 0; i < size; i++)
+        {
+            xCoordinates[2 * i] = rectangles.getMinX(i);
+            xCoordinates[2 * i + 1] = rectangles.getMaxX(i);
+            yCoordinates[2 * i] = rectangles.getMinY(i);
+            yCoordinates[2 * i + 1] = rectangles.getMaxY(i);
+        }
+
+        this.xSlots = CoordinateSlots.of(xCoordinates);
+        this.ySlots = CoordinateSlots.of(yCoordinates);
+        this.leafCount = Math.max(1, ySlots.slotCount());
+        this.additions = new int[4 * leafCount];
+        this.maximums = new int[4 * leafCount];
+
+        sweep(Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * @param rectangles rectangles to examine
+     * @return the overlap depth of {@code rectangles}, counting points on their edges
+     */
+    public static OverlapDepth inclusive(RectangleColumns rectangles)
+    {
+        return new OverlapDepth(rectangles, true);
+    }
+
+    /**
+     * @param rectangles rectangles to examine
+     * @return the overlap depth of {@code rectangles}, counting only points strictly inside them
+     */
+    public static OverlapDepth exclusive(RectangleColumns rectangles)
+    {
+        return new OverlapDepth(rectangles, false);
+    }
+
+    public int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    /**
+     * @return lower X coordinate of the witness cell; equal to {@link #getWitnessMaxX()} if the cell is a single coordinate
+     * @throws IllegalStateException if no point is covered at all
+     */
+    public long getWitnessMinX()
+    {
+        return xSlots.slotStart(witnessXSlot());
+    }
+
+    public long getWitnessMaxX()
+    {
+        return xSlots.slotEnd(witnessXSlot());
+    }
+
+    /**
+     * @return lower Y coordinate of the witness cell; equal to {@link #getWitnessMaxY()} if the cell is a single coordinate
+     * @throws IllegalStateException if no point is covered at all
+     */
+    public long getWitnessMinY()
+    {
+        return ySlots.slotStart(witnessYSlot());
+    }
+
+    public long getWitnessMaxY()
+    {
+        return ySlots.slotEnd(witnessYSlot());
+    }
+
+    /**
+     * @return X coordinate of a point at which the maximum depth is reached: the center of the witness cell
+     */
+    public double getWitnessX()
+    {
+        return getWitnessMinX() / 2.0 + getWitnessMaxX() / 2.0;
+    }
+
+    /**
+     * @return Y coordinate of a point at which the maximum depth is reached: the center of the witness cell
+     */
+    public double getWitnessY()
+    {
+        return getWitnessMinY() / 2.0 + getWitnessMaxY() / 2.0;
+    }
+
+    /**
+     * <p>Appends the regions in which the depth is at least {@code minDepth} to {@code output}.</p>
+     * <p>Regions are interior-disjoint, and are reported by their closed bounds; whether points on a region's
+     *    boundary reach the depth follows the edge semantics the depth was computed with. Regions are not merged
+     *    across X, so a region of constant depth may be reported as several adjacent rectangles.</p>
+     * <p>This repeats the sweep, so costs O(N log N) plus O(log N) per region reported.</p>
+     * @param minDepth minimum depth, at least 1
+     * @param output buffer the regions are appended to
+     * @return the number of regions appended
+     */
+    public int regionsAtLeast(int minDepth, RectangleBuffer output)
+    {
+        if (minDepth < 1)
+        {
+            throw new IllegalArgumentException("minDepth must be positive; got " + minDepth);
+        }
+
+        if (minDepth > maxDepth)
+        {
+            return 0;
+        }
+
+        int sizeBefore = output.size();
+
+        sweep(minDepth, output);
+
+        return output.size() - sizeBefore;
+    }
+
+    private int witnessXSlot()
+    {
+        if (maxDepth == 0)
+        {
+            throw new IllegalStateException("No point is covered by any rectangle");
+        }
+
+        return witnessXSlot;
+    }
+
+    private int witnessYSlot()
+    {
+        witnessXSlot();
+
+        return witnessYSlot;
+    }
+
+    /**
+     * Sweeps the X slots in order. When {@code output} is null, records the maximum depth and its witness;
+     * otherwise appends the regions of depth at least {@code minDepth} to {@code output}.
+     */
+    private void sweep(int minDepth, RectangleBuffer output)
+    {
+        int size = rectangles.size();
+        var eventSlots = new long[2 * size];
+        var events = new int[2 * size];
+        int eventCount = 0;
+
+        for (int i = 0; i < size; i++)
+        {
+            int firstX = firstSlot(xSlots, rectangles.getMinX(i));
+            int lastX = lastSlot(xSlots, rectangles.getMaxX(i));
+
+            if (firstX > lastX || firstSlot(ySlots, rectangles.getMinY(i)) > lastSlot(ySlots, rectangles.getMaxY(i)))
+            {
+                continue;
+            }
+
+            // Events are encoded as 2i to add rectangle i, and 2i+1 to remove it
+            eventSlots[eventCount] = firstX;
+            events[eventCount++] = 2 * i;
+            eventSlots[eventCount] = lastX + 1;
+            events[eventCount++] = 2 * i + 1;
+        }
+
+        PrimitiveSorts.sortParallel(eventSlots, events, 0, eventCount);
+        Arrays.fill(additions, 0);
+        Arrays.fill(maximums, 0);
+
+        var run = new int[] { -1, -1 };
+        int event = 0;
+
+        while (event < eventCount)
+        {
+            int slot = (int) eventSlots[event];
+
+            for (; event < eventCount && eventSlots[event] == slot; event++)
+            {
+                int rectangle = events[event] >> 1;
+                int delta = (events[event] & 1) == 0 ? 1 : -1;
+
+                add(1, 0, leafCount - 1, firstSlot(ySlots, rectangles.getMinY(rectangle)),
+                        lastSlot(ySlots, rectangles.getMaxY(rectangle)), delta);
+            }
+
+            if (output == null)
+            {
+                if (maximums[1] > maxDepth)
+                {
+                    maxDepth = maximums[1];
+                    witnessXSlot = slot;
+                    witnessYSlot = argmax();
+                }
+            }
+            else if (event < eventCount && maximums[1] >= minDepth)
+            {
+                // Depth is constant from this event's slot up to the next one
+                long minX = xSlots.slotStart(slot);
+                long maxX = xSlots.slotEnd((int) eventSlots[event] - 1);
+
+                appendRuns(1, 0, leafCount - 1, 0, minDepth, minX, maxX, output, run);
+            }
+        }
+    }
+
+    private int firstSlot(CoordinateSlots slots, long min)
+    {
+        return slots.pointSlotOf(min) + (inclusive ? 0 : 1);
+    }
+
+    private int lastSlot(CoordinateSlots slots, long max)
+    {
+        return slots.pointSlotOf(max) - (inclusive ? 0 : 1);
+    }
+
+    private void add(int node, int nodeFrom, int nodeTo, int from, int to, int delta)
+    {
+        if (from <= nodeFrom && nodeTo <= to)
+        {
+            additions[node] += delta;
+            maximums[node] += delta;
+            return;
+        }
+
+        int middle = (nodeFrom + nodeTo) >>> 1;
+
+        if (from <= middle)
+        {
+            add(2 * node, nodeFrom, middle, from, to, delta);
+        }
+
+        if (to > middle)
+        {
+            add(2 * node + 1, middle + 1, nodeTo, from, to, delta);
+        }
+
+        maximums[node] = additions[node] + Math.max(maximums[2 * node], maximums[2 * node + 1]);
+    }
+
+    private int argmax()
+    {
+        int node = 1, nodeFrom = 0, nodeTo = leafCount - 1;
+
+        while (nodeFrom < nodeTo)
+        {
+            int middle = (nodeFrom + nodeTo) >>> 1;
+
+            if (maximums[2 * node] >= maximums[2 * node + 1])
+            {
+                node = 2 * node;
+                nodeTo = middle;
+            }
+            else
+            {
+                node = 2 * node + 1;
+                nodeFrom = middle + 1;
+            }
+        }
+
+        return nodeFrom;
+    }
+
+    /**
+     * Appends the maximal runs of Y slots with depth of at least {@code minDepth}, as regions spanning
+     * {@code minX..maxX}. {@code run} holds the first and last slot of the run in progress, or -1 if there is none.
+     */
+    private void appendRuns(int node, int nodeFrom, int nodeTo, int inherited, int minDepth, long minX, long maxX,
+                            RectangleBuffer output, int[] run)
+    {
+        boolean qualifies = inherited + maximums[node] >= minDepth;
+
+        if (qualifies && nodeFrom != nodeTo)
+        {
+            int middle = (nodeFrom + nodeTo) >>> 1;
+            int depth = inherited + additions[node];
+
+            appendRuns(2 * node, nodeFrom, middle, depth, minDepth, minX, maxX, output, run);
+            appendRuns(2 * node + 1, middle + 1, nodeTo, depth, minDepth, minX, maxX, output, run);
+        }
+        else if (qualifies)
+        {
+            if (run[0] >= 0 && run[1] == nodeFrom - 1)
+            {
+                run[1] = nodeFrom;
+            }
+            else
+            {
+                closeRun(minX, maxX, output, run);
+                run[0] = nodeFrom;
+                run[1] = nodeFrom;
+            }
+        }
+
+        if (node == 1)
+        {
+            closeRun(minX, maxX, output, run);
+        }
+    }
+
+    private void closeRun(long minX, long maxX, RectangleBuffer output, int[] run)
+    {
+        if (run[0] >= 0)
+        {
+            output.add(minX, ySlots.slotStart(run[0]), maxX, ySlots.slotEnd(run[1]));
+            run[0] = -1;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.iholden.index;
+
+import com.iholden.support.AtomicFiles;
+import com.iholden.support.HilbertOrder;
+import com.iholden.support.RectangleColumns;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * <p>Static R-tree over a set of rectangles, packed into flat primitive arrays, which can be saved to a file and
+ *    later mapped back into memory instead of being rebuilt.</p>
+ * <p>The rectangles are sorted along a Hilbert curve through their centers and become the entries of level 0, in
+ *    that order. Each level above holds one node for every {@code nodeSize} consecutive entries of the level below,
+ *    up to a single root. Every entry has closed bounds, stored as 4 longs ({@code minX, minY, maxX, maxY}), and an
+ *    int: the id of a rectangle, or the position of a node's first child. Levels are stored one after another,
+ *    from level 0 up, so neither pointers nor objects are needed.</p>
+ * <p>Saved trees are versioned binary files: a header holding the magic bytes {@code RTRE}, the version, the node
+ *    size, the rectangle and entry counts, the level count and a CRC-32 of everything after the header; then the end
+ *    of each level, the bounds and the ints, all big-endian. They are replaced atomically with
+ *    {@link AtomicFiles#replace(Path, ByteBuffer...)}, as checkpoints are.</p>
+ * <p>{@link #map(Path, boolean)} maps the bounds and the ints read-only, and queries read the mapped pages directly,
+ *    so opening a saved tree costs a few system calls however large it is, and processes mapping the same file
+ *    share its pages in the page cache. Verifying the checksum reads the whole file once.</p>
+ * <p>Use a static builder to obtain an instance: {@link PackedRTree#of(RectangleColumns)},
+ *    {@link PackedRTree#of(RectangleColumns, int)} or {@link PackedRTree#map(Path, boolean)}</p>
+ */
+public class PackedRTree
+{
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    private static final int MAGIC = 0x52545245; // "RTRE"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 6 * Integer.BYTES + Long.BYTES;
+
+    // Bounds of all entries must fit in a single mapping
+    private static final int MAX_ENTRIES = Integer.MAX_VALUE / (4 * Long.BYTES);
+
+    private final int nodeSize;
+    private final int size;
+    private final int[] levelEnds;
+    private final LongBuffer bounds;
+    private final IntBuffer indexes;
+
+    // Prevent external instantiation; prefer static access
+    private PackedRTree(int nodeSize, int size, int[] levelEnds, LongBuffer bounds, IntBuffer indexes)
+    {
+        this.nodeSize = nodeSize;
+        this.size = size;
+        this.levelEnds = levelEnds;
+        this.bounds = bounds;
+        this.indexes = indexes;
+    }
+
+    public static PackedRTree of(RectangleColumns rectangles)
+    {
+        return of(rectangles, DEFAULT_NODE_SIZE);
+    }
+
+    /**
+     * Builds the tree in O(N log N), dominated by the Hilbert sort
+     * @param rectangles rectangles to index
+     * @param nodeSize number of children of each node, from 2 to 65536
+     * @return a new tree
+     */
+    public static PackedRTree of(RectangleColumns rectangles, int nodeSize)
+    {
+        if (nodeSize < 2 || nodeSize > 1 << 16)
+        {
+            throw new IllegalArgumentException("Node size must be from 2 to 65536; got " + nodeSize);
+        }
+
+        int size = rectangles.size();
+        int[] levelEnds = levelEndsOf(size, nodeSize);
+        int entryCount = levelEnds.length == 0 ? 0 : levelEnds[levelEnds.length - 1];
+        var bounds = new long[4 * entryCount];
+        var indexes = new int[entryCount];
+        int[] order = HilbertOrder.orderOf(rectangles);
+
+        for (int i = 0; i < size; i++)
+        {
+            bounds[4 * i] = rectangles.getMinX(order[i]);
+            bounds[4 * i + 1] = rectangles.getMinY(order[i]);
+            bounds[4 * i + 2] = rectangles.getMaxX(order[i]);
+            bounds[4 * i + 3] = rectangles.getMaxY(order[i]);
+            indexes[i] = rectangles.getId(order[i]);
+        }
+
+        for (int level = 1, child = 0; level < levelEnds.length; level++)
+        {
+            for (int node = levelEnds[level - 1]; node < levelEnds[level]; node++)
+            {
+                int end = Math.min(child + nodeSize, levelEnds[level - 1]);
+
+                bounds[4 * node] = Long.MAX_VALUE;
+                bounds[4 * node + 1] = Long.MAX_VALUE;
+                bounds[4 * node + 2] = Long.MIN_VALUE;
+                bounds[4 * node + 3] = Long.MIN_VALUE;
+                indexes[node] = child;
+
+                for (; child < end; child++)
+                {
+                    bounds[4 * node] = Math.min(bounds[4 * node], bounds[4 * child]);
+                    bounds[4 * node + 1] = Math.min(bounds[4 * node + 1], bounds[4 * child + 1]);
+                    bounds[4 * node + 2] = Math.max(bounds[4 * node + 2], bounds[4 * child + 2]);
+                    bounds[4 * node + 3] = Math.max(bounds[4 * node + 3], bounds[4 * child + 3]);
+                }
+            }
+        }
+
+        return new PackedRTree(nodeSize, size, levelEnds, LongBuffer.wrap(bounds), IntBuffer.wrap(indexes));
+    }
+
+    /**
+     * Maps a tree saved by {@link #write(Path)}, read-only
+     * @param path file holding the tree
+     * @param verifyChecksum true to read the whole file and check it against its checksum; the header and the sizes
+     *                       of its sections are checked either way
+     * @return the mapped tree; it stays valid after the file is closed, as long as the file is not modified
+     * @throws IOException if the file cannot be read, or is not a valid tree
+     */
+    public static PackedRTree map(Path path, boolean verifyChecksum) throws IOException
+    {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long fileSize = channel.size();
+            var header = ByteBuffer.allocate(HEADER_SIZE);
+
+            while (header.hasRemaining() && channel.read(header) >= 0)
+            {
+                // Keep reading until the header is complete or the file ends
+            }
+
+            header.flip();
+
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION)
+            {
+                throw new IOException("Not a valid R-tree file: " + path);
+            }
+
+            int nodeSize = header.getInt(), size = header.getInt(), entryCount = header.getInt(), levelCount = header.getInt();
+            long checksum = header.getLong();
+
+            if (nodeSize < 2 || nodeSize > 1 << 16 || size < 0 || size > entryCount || entryCount > MAX_ENTRIES
+                    || levelCount < 0 || levelCount > Integer.SIZE
+                    || fileSize != sectionsOffset(levelCount) + (long) entryCount * (4 * Long.BYTES + Integer.BYTES))
+            {
+                throw new IOException("Not a valid R-tree file: " + path);
+            }
+
+            long boundsOffset = sectionsOffset(levelCount);
+            long indexesOffset = boundsOffset + (long) entryCount * 4 * Long.BYTES;
+            var levels = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, boundsOffset - HEADER_SIZE);
+            var mappedBounds = channel.map(FileChannel.MapMode.READ_ONLY, boundsOffset, indexesOffset - boundsOffset);
+            var mappedIndexes = channel.map(FileChannel.MapMode.READ_ONLY, indexesOffset, fileSize - indexesOffset);
+
+            if (verifyChecksum)
+            {
+                var crc = new CRC32();
+
+                crc.update(levels.duplicate());
+                crc.update(mappedBounds.duplicate());
+                crc.update(mappedIndexes.duplicate());
+
+                if (crc.getValue() != checksum)
+                {
+                    throw new IOException("Checksum mismatch in R-tree file: " + path);
+                }
+            }
+
+            var levelEnds = new int[levelCount];
+
+            levels.asIntBuffer().get(levelEnds);
+
+            if (!Arrays.equals(levelEnds, levelEndsOf(size, nodeSize)) || entryCount != (levelCount == 0 ? 0 : levelEnds[levelCount - 1]))
+            {
+                throw new IOException("Not a valid R-tree file: " + path);
+            }
+
+            return new PackedRTree(nodeSize, size, levelEnds, mappedBounds.asLongBuffer(), mappedIndexes.asIntBuffer());
+        }
+    }
+
+    /**
+     * Atomically replaces the contents of {@code path} with this tree, syncing it to the storage device
+     * @param path file to hold the tree
+     * @throws IOException if the tree cannot be written
+     */
+    public void write(Path path) throws IOException
+    {
+        int entryCount = indexes.limit();
+        var levels = ByteBuffer.allocate((int) (sectionsOffset(levelEnds.length) - HEADER_SIZE));
+        var boundBytes = ByteBuffer.allocate(entryCount * 4 * Long.BYTES);
+        var indexBytes = ByteBuffer.allocate(entryCount * Integer.BYTES);
+        var crc = new CRC32();
+
+        levels.asIntBuffer().put(levelEnds);
+        boundBytes.asLongBuffer().put(bounds.duplicate().clear());
+        indexBytes.asIntBuffer().put(indexes.duplicate().clear());
+        crc.update(levels.array());
+        crc.update(boundBytes.array());
+        crc.update(indexBytes.array());
+
+        var header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC).putInt(VERSION).putInt(nodeSize).putInt(size).putInt(entryCount).putInt(levelEnds.length)
+                .putLong(crc.getValue())
+                .flip();
+
+        AtomicFiles.replace(path, header, levels, boundBytes, indexBytes);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Reports the id of every rectangle whose closed bounds have a point in common with those of the query
+     * rectangle, including rectangles that only touch it
+     * @param consumer receives the id of each rectangle found
+     */
+    public void forEachIntersecting(long minX, long minY, long maxX, long maxY, IntConsumer consumer)
+    {
+        if (levelEnds.length == 0)
+        {
+            return;
+        }
+
+        // Pending entries and their levels; each level adds at most one node's children
+        var stack = new int[2 * (nodeSize * levelEnds.length + 1)];
+        int top = 0;
+
+        stack[top++] = levelEnds[levelEnds.length - 1] - 1;
+        stack[top++] = levelEnds.length - 1;
+
+        while (top > 0)
+        {
+            int level = stack[--top];
+            int entry = stack[--top];
+
+            if (bounds.get(4 * entry) > maxX || bounds.get(4 * entry + 1) > maxY
+                    || bounds.get(4 * entry + 2) < minX || bounds.get(4 * entry + 3) < minY)
+            {
+                continue;
+            }
+
+            if (level == 0)
+            {
+                consumer.accept(indexes.get(entry));
+                continue;
+            }
+
+            int first = indexes.get(entry);
+            int end = Math.min(first + nodeSize, levelEnds[level - 1]);
+
+            // Pushed in reverse, so children are visited in curve order
+            for (int child = end - 1; child >= first; child--)
+            {
+                stack[top++] = child;
+                stack[top++] = level - 1;
+            }
+        }
+    }
+
+    /**
+     * @return the number of rectangles whose closed bounds have a point in common with those of the query rectangle
+     */
+    public int countIntersecting(long minX, long minY, long maxX, long maxY)
+    {
+        var count = new int[1];
+
+        forEachIntersecting(minX, minY, maxX, maxY, id -> count[0]++);
+
+        return count[0];
+    }
+
+    /**
+     * @return the end of each level's entries, from level 0 up to the root; none if there are no rectangles
+     */
+    private static int[] levelEndsOf(int size, int nodeSize)
+    {
+        if (size == 0)
+        {
+            return new int[0];
+        }
+
+        var levelEnds = new int[Integer.SIZE];
+        int levelCount = 0, count = size;
+        long end = size;
+
+        levelEnds[levelCount++] = size;
+
+        do
+        {
+            count = (count - 1) / nodeSize + 1;
+            end += count;
+
+            if (end > MAX_ENTRIES)
+            {
+                throw new IllegalArgumentException("Too many rectangles for a packed R-tree: " + size);
+            }
+
+            levelEnds[levelCount++] = (int) end;
+        }
+        while (count > 1);
+
+        return Arrays.copyOf(levelEnds, levelCount);
+    }
+
+    /**
+     * @return the offset of the bounds, after the header and the level ends, padded so the longs are aligned
+     */
+    private static long sectionsOffset(int levelCount)
+    {
+        return HEADER_SIZE + ((long) levelCount * Integer.BYTES + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+    }
+}
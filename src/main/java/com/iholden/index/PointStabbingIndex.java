@@ -0,0 +1,538 @@
+package com.iholden.index;
+
+import com.iholden.support.CoordinateSlots;
+import com.iholden.support.IntPairConsumer;
+import com.iholden.support.PrimitiveSorts;
+import com.iholden.support.RectangleColumns;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>Static index answering point stabbing queries: which rectangles cover the point {@code (x, y)}?</p>
+ * <p>A rectangle covers a point under the same inclusive bounds test that {@link com.iholden.entities.Rectangle#contains}
+ *    applies to corner points, e.g. {@code minX <= x <= maxX} and {@code minY <= y <= maxY}; points on an edge
+ *    are covered.</p>
+ * <p>The index is a segment tree over the {@link CoordinateSlots} of the X axis. Each rectangle is stored at the
+ *    O(log N) tree nodes that canonically cover its X extent, and each node keeps its rectangles' Y extents in a
+ *    centered interval tree (for reporting) and in two sorted arrays (for counting). A query visits the O(log N)
+ *    nodes on the path to the query's X slot, so reporting costs O(log^2 N + k) and counting O(log^2 N).</p>
+ * <p>For large batches of query points, {@link #forEachContaining(long[], long[], IntPairConsumer)} and
+ *    {@link #countContaining(long[], long[], int[])} answer every query in a single offline sweep over X instead.</p>
+ */
+public class PointStabbingIndex
+{
+    private final RectangleColumns rectangles;
+    private final CoordinateSlots xSlots;
+    private final int leafOffset;
+
+    // Per tree node, in heap order: root of the node's interval tree, and the node's range in the sorted arrays
+    private final int[] intervalTreeRoots;
+    private final int[] nodeStarts;
+    private final long[] sortedLowers;
+    private final long[] sortedUppers;
+    private final IntervalForest forest = new IntervalForest();
+
+    // Prevent external instantiation; prefer static access
+    private PointStabbingIndex(RectangleColumns rectangles)
+    {
+        this.rectangles = rectangles;
+
+        int size = rectangles.size();
+        var xCoordinates = new long[2 * size];
+
+        for (int i = 0; i < size; i++)
+        {
+            xCoordinates[2 * i] = rectangles.getMinX(i);
+            xCoordinates[2 * i + 1] = rectangles.getMaxX(i);
+        }
+
+        this.xSlots = CoordinateSlots.of(xCoordinates);
+        this.leafOffset = Math.max(1, Integer.highestOneBit(Math.max(1, xSlots.slotCount() - 1)) << 1);
+
+        int nodeCount = 2 * leafOffset;
+        var counts = new int[nodeCount + 1];
+
+        for (int i = 0; i < size; i++)
+        {
+            forEachCanonicalNode(xSlots.pointSlotOf(rectangles.getMinX(i)), xSlots.pointSlotOf(rectangles.getMaxX(i)), node -> counts[node + 1]++);
+        }
+
+        for (int node = 0; node < nodeCount; node++)
+        {
+            counts[node + 1] += counts[node];
+        }
+
+        this.nodeStarts = counts;
+
+        int[] fillPositions = Arrays.copyOf(nodeStarts, nodeCount);
+        var members = new int[nodeStarts[nodeCount]];
+
+        for (int i = 0; i < size; i++)
+        {
+            final int rectangle = i;
+
+            forEachCanonicalNode(xSlots.pointSlotOf(rectangles.getMinX(i)), xSlots.pointSlotOf(rectangles.getMaxX(i)), node -> members[fillPositions[node]++] = rectangle);
+        }
+
+        this.intervalTreeRoots = new int[nodeCount];
+        this.sortedLowers = new long[members.length];
+        this.sortedUppers = new long[members.length];
+
+        buildNodes(members);
+    }
+
+    public static PointStabbingIndex of(RectangleColumns rectangles)
+    {
+        return new PointStabbingIndex(rectangles);
+    }
+
+    /**
+     * Reports the id of every rectangle that covers {@code (x, y)}
+     * @param x x-coordinate of the query point
+     * @param y y-coordinate of the query point
+     * @param consumer receives the id of each covering rectangle
+     */
+    public void forEachContaining(long x, long y, IntConsumer consumer)
+    {
+        int slot = xSlots.slotOf(x);
+
+        if (slot < 0)
+        {
+            return;
+        }
+
+        for (int node = leafOffset + slot; node >= 1; node >>= 1)
+        {
+            forest.stab(intervalTreeRoots[node], y, consumer);
+        }
+    }
+
+    /**
+     * Counts the rectangles that cover {@code (x, y)}, without enumerating them
+     * @param x x-coordinate of the query point
+     * @param y y-coordinate of the query point
+     * @return the number of covering rectangles
+     */
+    public int countContaining(long x, long y)
+    {
+        int slot = xSlots.slotOf(x);
+
+        if (slot < 0)
+        {
+            return 0;
+        }
+
+        int count = 0;
+
+        for (int node = leafOffset + slot; node >= 1; node >>= 1)
+        {
+            int start = nodeStarts[node];
+            int end = nodeStarts[node + 1];
+
+            // Every interval with lower <= y covers y, except those that already ended below it
+            count += countBelow(sortedLowers, start, end, y, true) - countBelow(sortedUppers, start, end, y, false);
+        }
+
+        return count;
+    }
+
+    /**
+     * <p>Answers a batch of stabbing queries in one offline sweep over X, reporting each (query index, rectangle id)
+     *    match.</p>
+     * <p>Query points are sorted by X, and rectangles enter and leave a segment tree over the Y slots as the sweep
+     *    passes their left and right edges, so every query costs O(log N + k) on top of the O((N + Q) log(N + Q)) sort.</p>
+     * @param xs x-coordinates of the query points
+     * @param ys y-coordinates of the query points
+     * @param consumer receives (query index, rectangle id) for each match
+     */
+    public void forEachContaining(long[] xs, long[] ys, IntPairConsumer consumer)
+    {
+        new ReportingSweep(xs, ys, consumer).run();
+    }
+
+    /**
+     * Counts the covering rectangles of a batch of query points in one offline sweep over X
+     * @param xs x-coordinates of the query points
+     * @param ys y-coordinates of the query points
+     * @param counts receives the number of rectangles covering each query point; must be at least as long as {@code xs}
+     */
+    public void countContaining(long[] xs, long[] ys, int[] counts)
+    {
+        if (xs.length != ys.length || counts.length < xs.length)
+        {
+            throw new IllegalArgumentException("xs, ys and counts must all hold one entry per query");
+        }
+
+        Arrays.fill(counts, 0, xs.length, 0);
+
+        CoordinateSlots ySlots = ySlots();
+        int ySlotCount = ySlots.slotCount();
+        var fenwick = new long[ySlotCount + 2];
+
+        sweep(xs, (rectangle, entering) ->
+        {
+            int delta = entering ? 1 : -1;
+
+            fenwickAdd(fenwick, ySlots.pointSlotOf(rectangles.getMinY(rectangle)), delta);
+            fenwickAdd(fenwick, ySlots.pointSlotOf(rectangles.getMaxY(rectangle)) + 1, -delta);
+        }, query ->
+        {
+            int ySlot = ySlots.slotOf(ys[query]);
+
+            counts[query] = ySlot < 0 ? 0 : (int) fenwickPrefixSum(fenwick, ySlot);
+        });
+    }
+
+    private void buildNodes(int[] members)
+    {
+        int size = rectangles.size();
+        var payloads = new int[size];
+        var lowers = new long[size];
+        var uppers = new long[size];
+
+        for (int node = 0; node < intervalTreeRoots.length; node++)
+        {
+            int start = nodeStarts[node];
+            int count = nodeStarts[node + 1] - start;
+
+            for (int i = 0; i < count; i++)
+            {
+                int rectangle = members[start + i];
+
+                payloads[i] = rectangles.getId(rectangle);
+                lowers[i] = rectangles.getMinY(rectangle);
+                uppers[i] = rectangles.getMaxY(rectangle);
+            }
+
+            intervalTreeRoots[node] = forest.build(payloads, lowers, uppers, count);
+
+            System.arraycopy(lowers, 0, sortedLowers, start, count);
+            System.arraycopy(uppers, 0, sortedUppers, start, count);
+            Arrays.sort(sortedLowers, start, start + count);
+            Arrays.sort(sortedUppers, start, start + count);
+        }
+    }
+
+    /**
+     * Visits the heap indices of the tree nodes that canonically cover the leaf range {@code [firstSlot, lastSlot]}
+     */
+    private void forEachCanonicalNode(int firstSlot, int lastSlot, IntConsumer consumer)
+    {
+        for (int left = firstSlot + leafOffset, right = lastSlot + leafOffset + 1; left < right; left >>= 1, right >>= 1)
+        {
+            if ((left & 1) == 1)
+            {
+                consumer.accept(left++);
+            }
+
+            if ((right & 1) == 1)
+            {
+                consumer.accept(--right);
+            }
+        }
+    }
+
+    private CoordinateSlots ySlots()
+    {
+        int size = rectangles.size();
+        var yCoordinates = new long[2 * size];
+
+        for (int i = 0; i < size; i++)
+        {
+            yCoordinates[2 * i] = rectangles.getMinY(i);
+            yCoordinates[2 * i + 1] = rectangles.getMaxY(i);
+        }
+
+        return CoordinateSlots.of(yCoordinates);
+    }
+
+    /**
+     * Drives an offline sweep over the X slots: before the queries at each slot are answered, every rectangle whose
+     * left edge is at or before the slot has entered, and every rectangle whose right edge is before the slot has left
+     */
+    private void sweep(long[] xs, SweepListener listener, IntConsumer queryHandler)
+    {
+        int size = rectangles.size();
+        var entryKeys = new long[size];
+        var entryOrder = new int[size];
+        var exitKeys = new long[size];
+        var exitOrder = new int[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            entryKeys[i] = xSlots.pointSlotOf(rectangles.getMinX(i));
+            exitKeys[i] = xSlots.pointSlotOf(rectangles.getMaxX(i));
+            entryOrder[i] = i;
+            exitOrder[i] = i;
+        }
+
+        PrimitiveSorts.sortParallel(entryKeys, entryOrder, 0, size);
+        PrimitiveSorts.sortParallel(exitKeys, exitOrder, 0, size);
+
+        var queryKeys = new long[xs.length];
+        var queryOrder = new int[xs.length];
+        int answerable = 0;
+
+        for (int query = 0; query < xs.length; query++)
+        {
+            int slot = xSlots.slotOf(xs[query]);
+
+            // Queries outside of every rectangle's X extent have no matches, and are left out of the sweep
+            if (slot >= 0)
+            {
+                queryKeys[answerable] = slot;
+                queryOrder[answerable++] = query;
+            }
+        }
+
+        PrimitiveSorts.sortParallel(queryKeys, queryOrder, 0, answerable);
+
+        int nextEntry = 0, nextExit = 0, nextQuery = 0;
+
+        while (nextQuery < answerable)
+        {
+            long slot = queryKeys[nextQuery];
+
+            // A rectangle always enters no later than it leaves, so entries are applied first
+            while (nextEntry < size && entryKeys[nextEntry] <= slot)
+            {
+                listener.onRectangle(entryOrder[nextEntry++], true);
+            }
+
+            while (nextExit < size && exitKeys[nextExit] < slot)
+            {
+                listener.onRectangle(exitOrder[nextExit++], false);
+            }
+
+            while (nextQuery < answerable && queryKeys[nextQuery] == slot)
+            {
+                queryHandler.accept(queryOrder[nextQuery++]);
+            }
+        }
+    }
+
+    /**
+     * Counts the values in the sorted range {@code [start, end)} that are below {@code value}, or at most {@code value}
+     * if {@code inclusive}
+     */
+    private static int countBelow(long[] sorted, int start, int end, long value, boolean inclusive)
+    {
+        int low = start, high = end;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (sorted[middle] < value || (inclusive && sorted[middle] == value))
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low - start;
+    }
+
+    private static void fenwickAdd(long[] fenwick, int slot, long delta)
+    {
+        for (int i = slot + 1; i < fenwick.length; i += i & -i)
+        {
+            fenwick[i] += delta;
+        }
+    }
+
+    private static long fenwickPrefixSum(long[] fenwick, int slot)
+    {
+        long sum = 0;
+
+        for (int i = slot + 1; i > 0; i -= i & -i)
+        {
+            sum += fenwick[i];
+        }
+
+        return sum;
+    }
+
+    @FunctionalInterface
+    private interface SweepListener
+    {
+        void onRectangle(int rectangle, boolean entering);
+    }
+
+    /**
+     * <p>Offline reporting sweep. Active rectangles are kept in a segment tree over the Y slots, where each rectangle
+     *    is linked into the lists of the nodes that canonically cover its Y extent. A query walks from its Y leaf up
+     *    to the root, and reports every rectangle linked at each node on the way.</p>
+     * <p>List entries live in primitive arrays and are recycled through a free list, so the sweep allocates only in
+     *    proportion to the number of simultaneously active rectangles.</p>
+     */
+    private class ReportingSweep
+    {
+        private static final int NONE = -1;
+
+        private final long[] xs;
+        private final long[] ys;
+        private final IntPairConsumer consumer;
+        private final CoordinateSlots ySlots;
+        private final int yLeafOffset;
+        private final int[] nodeHeads;
+
+        // Per list entry
+        private int[] entryRectangles = new int[64];
+        private int[] entryNodes = new int[64];
+        private int[] entryPrevious = new int[64];
+        private int[] entryNext = new int[64];
+        private int[] entryNextOfRectangle = new int[64];
+        private int entryCount;
+        private int freeEntry = NONE;
+
+        private final int[] firstEntryOfRectangle;
+
+        private ReportingSweep(long[] xs, long[] ys, IntPairConsumer consumer)
+        {
+            if (xs.length != ys.length)
+            {
+                throw new IllegalArgumentException("xs and ys must hold one entry per query");
+            }
+
+            this.xs = xs;
+            this.ys = ys;
+            this.consumer = consumer;
+            this.ySlots = ySlots();
+            this.yLeafOffset = Math.max(1, Integer.highestOneBit(Math.max(1, ySlots.slotCount() - 1)) << 1);
+            this.nodeHeads = new int[2 * yLeafOffset];
+            this.firstEntryOfRectangle = new int[rectangles.size()];
+
+            Arrays.fill(nodeHeads, NONE);
+            Arrays.fill(firstEntryOfRectangle, NONE);
+        }
+
+        private void run()
+        {
+            sweep(xs, (rectangle, entering) ->
+            {
+                if (entering)
+                {
+                    link(rectangle);
+                }
+                else
+                {
+                    unlink(rectangle);
+                }
+            }, query ->
+            {
+                int ySlot = ySlots.slotOf(ys[query]);
+
+                if (ySlot < 0)
+                {
+                    return;
+                }
+
+                for (int node = yLeafOffset + ySlot; node >= 1; node >>= 1)
+                {
+                    for (int entry = nodeHeads[node]; entry != NONE; entry = entryNext[entry])
+                    {
+                        consumer.accept(query, rectangles.getId(entryRectangles[entry]));
+                    }
+                }
+            });
+        }
+
+        private void link(int rectangle)
+        {
+            int first = ySlots.pointSlotOf(rectangles.getMinY(rectangle)) + yLeafOffset;
+            int last = ySlots.pointSlotOf(rectangles.getMaxY(rectangle)) + yLeafOffset + 1;
+
+            for (int left = first, right = last; left < right; left >>= 1, right >>= 1)
+            {
+                if ((left & 1) == 1)
+                {
+                    linkAt(rectangle, left++);
+                }
+
+                if ((right & 1) == 1)
+                {
+                    linkAt(rectangle, --right);
+                }
+            }
+        }
+
+        private void linkAt(int rectangle, int node)
+        {
+            int entry = allocateEntry();
+
+            entryRectangles[entry] = rectangle;
+            entryNodes[entry] = node;
+            entryPrevious[entry] = NONE;
+            entryNext[entry] = nodeHeads[node];
+
+            if (nodeHeads[node] != NONE)
+            {
+                entryPrevious[nodeHeads[node]] = entry;
+            }
+
+            nodeHeads[node] = entry;
+            entryNextOfRectangle[entry] = firstEntryOfRectangle[rectangle];
+            firstEntryOfRectangle[rectangle] = entry;
+        }
+
+        private void unlink(int rectangle)
+        {
+            int entry = firstEntryOfRectangle[rectangle];
+
+            while (entry != NONE)
+            {
+                int next = entryNextOfRectangle[entry];
+
+                if (entryPrevious[entry] != NONE)
+                {
+                    entryNext[entryPrevious[entry]] = entryNext[entry];
+                }
+                else
+                {
+                    nodeHeads[entryNodes[entry]] = entryNext[entry];
+                }
+
+                if (entryNext[entry] != NONE)
+                {
+                    entryPrevious[entryNext[entry]] = entryPrevious[entry];
+                }
+
+                entryNext[entry] = freeEntry;
+                freeEntry = entry;
+                entry = next;
+            }
+
+            firstEntryOfRectangle[rectangle] = NONE;
+        }
+
+        private int allocateEntry()
+        {
+            if (freeEntry != NONE)
+            {
+                int entry = freeEntry;
+
+                freeEntry = entryNext[entry];
+
+                return entry;
+            }
+
+            if (entryCount == entryRectangles.length)
+            {
+                int newLength = entryCount * 2;
+
+                entryRectangles = Arrays.copyOf(entryRectangles, newLength);
+                entryNodes = Arrays.copyOf(entryNodes, newLength);
+                entryPrevious = Arrays.copyOf(entryPrevious, newLength);
+                entryNext = Arrays.copyOf(entryNext, newLength);
+                entryNextOfRectangle = Arrays.copyOf(entryNextOfRectangle, newLength);
+            }
+
+            return entryCount++;
+        }
+    }
+}
@@ -0,0 +1,480 @@
+package com.iholden.index;
+
+import com.iholden.constants.Adjacency;
+import com.iholden.constants.Orientation;
+import com.iholden.entities.Line;
+import com.iholden.entities.Point;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.support.PrimitiveSorts;
+import com.iholden.support.RankBitmap;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>Finds where the lines of a collection of any size cross or overlap one another, without comparing every
+ *    pair.</p>
+ * <p>A horizontal and a vertical line cross when each passes through the interior of the other, exactly as the
+ *    sides of two rectangles do in {@link com.iholden.entities.Rectangle#findIntersectionPointsWith}; lines that
+ *    merely touch, end to side or end to end, do not cross. Crossings are found by sweeping along X: horizontal lines
+ *    are active between their ends, and each vertical line looks up the active lines strictly between its own ends.
+ *    Counting keeps the active lines in a Fenwick tree over their Y coordinates, so costs O(N log N) and creates
+ *    nothing. Reporting keeps them in lists per Y coordinate, and skips empty ones with a bitmap of occupied
+ *    coordinates in which each level summarizes the 64 times larger one below it, so costs O(N log N + K).</p>
+ * <p>Collinear lines overlap when they share more than a single point, and are classified as
+ *    {@link Line#determineAdjacencyWith} classifies them from the longer line: {@link Adjacency#PROPER} when
+ *    identical, {@link Adjacency#SUB_LINE} when one lies strictly within the other, and {@link Adjacency#PARTIAL}
+ *    otherwise. The bounds are compared directly, rather than enumerating the shared coordinates. Overlaps are found
+ *    by sorting each line's segments by start and keeping those not yet ended, which costs O(N log N + K).</p>
+ * <p>Lines are identified by their position in the collection, and compared by their bounds, whichever way round
+ *    their points are given. A line whose points coincide counts as vertical.</p>
+ * <p>Use the static builder to obtain an instance: {@link SegmentCrossings#of(Collection)}</p>
+ */
+public class SegmentCrossings
+{
+    private final Segments horizontals;
+    private final Segments verticals;
+
+    // Prevent external instantiation; prefer static access
+    private SegmentCrossings(Segments horizontals, Segments verticals)
+    {
+        this.horizontals = horizontals;
+        this.verticals = verticals;
+    }
+
+    /**
+     * @param lines lines to search, identified by their position in iteration order
+     * @return a new search over a primitive copy of the lines
+     * @throws com.iholden.exceptions.DiagonalLineException if any line is diagonal
+     */
+    public static SegmentCrossings of(Collection<? extends Line> lines)
+    {
+        var horizontals = new Segments(lines.size());
+        var verticals = new Segments(lines.size());
+        int index = 0;
+
+        for (Line line : lines)
+        {
+            long xA = line.getPointA().getXCoordinate(), yA = line.getPointA().getYCoordinate();
+            long xB = line.getPointB().getXCoordinate(), yB = line.getPointB().getYCoordinate();
+
+            if (line.getOrientation() == Orientation.VERTICAL)
+            {
+                verticals.add(index++, xA, Math.min(yA, yB), Math.max(yA, yB));
+            }
+            else
+            {
+                horizontals.add(index++, yA, Math.min(xA, xB), Math.max(xA, xB));
+            }
+        }
+
+        return new SegmentCrossings(horizontals, verticals);
+    }
+
+    /**
+     * Counts the crossings of horizontal and vertical lines, without creating their points
+     * @return the number of crossings
+     */
+    public long countCrossings()
+    {
+        return sweepCrossings(null);
+    }
+
+    /**
+     * Reports every crossing of a horizontal and a vertical line, in order of X
+     * @param consumer receives each crossing
+     * @return the number of crossings
+     */
+    public long forEachCrossing(CrossingConsumer consumer)
+    {
+        return sweepCrossings(consumer);
+    }
+
+    /**
+     * @return the distinct points at which a horizontal and a vertical line cross
+     */
+    public Set<Point> findCrossingPoints()
+    {
+        var points = new HashSet<Point>();
+
+        sweepCrossings((horizontal, vertical, x, y) -> points.add(new PointImpl(x, y)));
+
+        return points;
+    }
+
+    /**
+     * Counts the pairs of overlapping collinear lines, without classifying them
+     * @return the number of overlapping pairs
+     */
+    public long countOverlaps()
+    {
+        return horizontals.sweepOverlaps(null) + verticals.sweepOverlaps(null);
+    }
+
+    /**
+     * Reports every pair of collinear lines sharing more than a single point
+     * @param consumer receives each overlapping pair
+     * @return the number of overlapping pairs
+     */
+    public long forEachOverlap(OverlapConsumer consumer)
+    {
+        return horizontals.sweepOverlaps(consumer) + verticals.sweepOverlaps(consumer);
+    }
+
+    /**
+     * Sweeps along X, activating each horizontal line once the sweep is past its left end and deactivating it once
+     * the sweep reaches its right end, so that the lines active at a vertical line are those whose interiors it is in
+     * @param consumer receives each crossing, or null to count them only
+     */
+    private long sweepCrossings(CrossingConsumer consumer)
+    {
+        int horizontalCount = horizontals.size, verticalCount = verticals.size;
+
+        if (horizontalCount == 0 || verticalCount == 0)
+        {
+            return 0;
+        }
+
+        long[] ys = distinct(horizontals.fixed, horizontalCount);
+        var slots = new int[horizontalCount];
+
+        for (int i = 0; i < horizontalCount; i++)
+        {
+            slots[i] = Arrays.binarySearch(ys, horizontals.fixed[i]);
+        }
+
+        int[] byStart = horizontals.orderBy(horizontals.min);
+        int[] byEnd = horizontals.orderBy(horizontals.max);
+        int[] byX = verticals.orderBy(verticals.fixed);
+
+        // Counting uses the Fenwick tree, and reporting the lists and bitmap
+        var fenwick = consumer == null ? new int[ys.length + 1] : null;
+        var active = consumer == null ? null : new ActiveLists(ys.length, horizontalCount);
+
+        long crossings = 0;
+        int started = 0, ended = 0;
+
+        for (int v : byX)
+        {
+            long x = verticals.fixed[v];
+
+            for (; started < horizontalCount && horizontals.min[byStart[started]] < x; started++)
+            {
+                int h = byStart[started];
+
+                if (consumer == null)
+                {
+                    addToFenwick(fenwick, slots[h], 1);
+                }
+                else
+                {
+                    active.add(slots[h], h);
+                }
+            }
+
+            // Every line ending here started further left, so has already been activated
+            for (; ended < horizontalCount && horizontals.max[byEnd[ended]] <= x; ended++)
+            {
+                int h = byEnd[ended];
+
+                if (consumer == null)
+                {
+                    addToFenwick(fenwick, slots[h], -1);
+                }
+                else
+                {
+                    active.remove(slots[h], h);
+                }
+            }
+
+            // Slots of the Y coordinates strictly between the vertical line's ends
+            int from = PrimitiveSorts.upperBound(ys, 0, ys.length, verticals.min[v]);
+            int to = PrimitiveSorts.lowerBound(ys, 0, ys.length, verticals.max[v]) - 1;
+
+            if (from > to)
+            {
+                continue;
+            }
+
+            if (consumer == null)
+            {
+                crossings += prefixSum(fenwick, to) - prefixSum(fenwick, from - 1);
+                continue;
+            }
+
+            for (int slot = active.nextOccupied(from); slot >= 0 && slot <= to; slot = active.nextOccupied(slot + 1))
+            {
+                for (int h = active.first(slot); h >= 0; h = active.next(h))
+                {
+                    consumer.acceptCrossing(horizontals.indexes[h], verticals.indexes[v], x, ys[slot]);
+                    crossings++;
+                }
+            }
+        }
+
+        return crossings;
+    }
+
+    private static void addToFenwick(int[] fenwick, int slot, int delta)
+    {
+        for (int i = slot + 1; i < fenwick.length; i += i & -i)
+        {
+            fenwick[i] += delta;
+        }
+    }
+
+    /**
+     * @return the sum of slots 0 to {@code slot}, inclusive
+     */
+    private static int prefixSum(int[] fenwick, int slot)
+    {
+        int sum = 0;
+
+        for (int i = slot + 1; i > 0; i -= i & -i)
+        {
+            sum += fenwick[i];
+        }
+
+        return sum;
+    }
+
+    private static long[] distinct(long[] values, int size)
+    {
+        var sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+
+        int distinct = 0;
+
+        for (int i = 0; i < size; i++)
+        {
+            if (i == 0 || sorted[i] != sorted[i - 1])
+            {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+
+        return Arrays.copyOf(sorted, distinct);
+    }
+
+    /**
+     * Lines of one orientation, as the coordinate they lie on and the range they span along it
+     */
+    private static class Segments
+    {
+        private final int[] indexes;
+        private final long[] fixed;
+        private final long[] min;
+        private final long[] max;
+        private int size;
+
+        private Segments(int capacity)
+        {
+            this.indexes = new int[capacity];
+            this.fixed = new long[capacity];
+            this.min = new long[capacity];
+            this.max = new long[capacity];
+        }
+
+        private void add(int index, long fixedCoordinate, long from, long to)
+        {
+            indexes[size] = index;
+            fixed[size] = fixedCoordinate;
+            min[size] = from;
+            max[size] = to;
+            size++;
+        }
+
+        /**
+         * @return the positions of the segments, sorted by {@code keys}; stable, so earlier sorts break ties
+         */
+        private int[] orderBy(long[] keys)
+        {
+            var order = new int[size];
+
+            for (int i = 0; i < size; i++)
+            {
+                order[i] = i;
+            }
+
+            return reorderBy(keys, order);
+        }
+
+        private int[] reorderBy(long[] keys, int[] order)
+        {
+            var sortKeys = new long[size];
+
+            for (int i = 0; i < size; i++)
+            {
+                sortKeys[i] = keys[order[i]];
+            }
+
+            PrimitiveSorts.sortParallel(sortKeys, order, 0, size);
+
+            return order;
+        }
+
+        /**
+         * <p>Walks the segments of each line in order of their start, keeping those that reach past the start of
+         *    the current one. Each kept segment overlaps the current one, and each dropped one is dropped for good,
+         *    so the walk costs no more than the overlaps it finds, besides sorting.</p>
+         * <p>Segments without length only ever overlap identical ones, which are found among runs of equal
+         *    bounds.</p>
+         * @param consumer receives each overlapping pair, or null to count them only
+         */
+        private long sweepOverlaps(OverlapConsumer consumer)
+        {
+            int[] order = reorderBy(fixed, reorderBy(min, orderBy(max)));
+            var active = new int[Math.max(1, size)];
+            int activeCount = 0;
+            long overlaps = 0;
+
+            for (int i = 0; i < size; i++)
+            {
+                int current = order[i];
+
+                if (i > 0 && fixed[order[i - 1]] != fixed[current])
+                {
+                    activeCount = 0;
+                }
+
+                if (min[current] == max[current])
+                {
+                    // Identical points follow one another, since the order is by line, start and end
+                    for (int j = i - 1; j >= 0 && isIdentical(order[j], current); j--)
+                    {
+                        overlaps++;
+                        report(consumer, order[j], current, Adjacency.PROPER);
+                    }
+
+                    continue;
+                }
+
+                int kept = 0;
+
+                for (int k = 0; k < activeCount; k++)
+                {
+                    int other = active[k];
+
+                    if (max[other] > min[current])
+                    {
+                        active[kept++] = other;
+                        overlaps++;
+                        report(consumer, other, current, classify(other, current));
+                    }
+                }
+
+                active[kept++] = current;
+                activeCount = kept;
+            }
+
+            return overlaps;
+        }
+
+        private boolean isIdentical(int first, int second)
+        {
+            return fixed[first] == fixed[second] && min[first] == min[second] && max[first] == max[second];
+        }
+
+        /**
+         * Classifies two collinear segments sharing more than a point, the first starting no later than the second
+         */
+        private Adjacency classify(int first, int second)
+        {
+            if (min[first] == min[second] && max[first] == max[second])
+            {
+                return Adjacency.PROPER;
+            }
+
+            return min[first] < min[second] && max[second] < max[first] ? Adjacency.SUB_LINE : Adjacency.PARTIAL;
+        }
+
+        private void report(OverlapConsumer consumer, int first, int second, Adjacency adjacency)
+        {
+            if (consumer != null)
+            {
+                consumer.acceptOverlap(Math.min(indexes[first], indexes[second]), Math.max(indexes[first], indexes[second]), adjacency);
+            }
+        }
+    }
+
+    /**
+     * Active horizontal lines in a doubly linked list per Y slot, with a {@link RankBitmap} of the slots whose lists
+     * are not empty
+     */
+    private static class ActiveLists
+    {
+        private final int[] heads;
+        private final int[] next;
+        private final int[] previous;
+        private final RankBitmap occupied;
+
+        private ActiveLists(int slotCount, int lineCount)
+        {
+            this.heads = new int[slotCount];
+            this.next = new int[lineCount];
+            this.previous = new int[lineCount];
+            this.occupied = new RankBitmap(slotCount);
+
+            Arrays.fill(heads, -1);
+        }
+
+        private void add(int slot, int line)
+        {
+            next[line] = heads[slot];
+            previous[line] = -1;
+
+            if (heads[slot] >= 0)
+            {
+                previous[heads[slot]] = line;
+            }
+            else
+            {
+                occupied.set(slot);
+            }
+
+            heads[slot] = line;
+        }
+
+        private void remove(int slot, int line)
+        {
+            if (previous[line] >= 0)
+            {
+                next[previous[line]] = next[line];
+            }
+            else
+            {
+                heads[slot] = next[line];
+            }
+
+            if (next[line] >= 0)
+            {
+                previous[next[line]] = previous[line];
+            }
+
+            if (heads[slot] < 0)
+            {
+                occupied.clear(slot);
+            }
+        }
+
+        private int first(int slot)
+        {
+            return heads[slot];
+        }
+
+        private int next(int line)
+        {
+            return next[line];
+        }
+
+        /**
+         * @return the first occupied slot at or after {@code from}, or -1 if there is none
+         */
+        private int nextOccupied(int from)
+        {
+            return occupied.nextSet(from);
+        }
+    }
+}
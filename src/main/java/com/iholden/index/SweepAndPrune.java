@@ -0,0 +1,542 @@
+package com.iholden.index;
+
+import com.iholden.constants.Contact;
+import com.iholden.constants.ContactEvent;
+import com.iholden.support.LongIntHashMap;
+import com.iholden.support.PrimitiveSorts;
+import com.iholden.support.RectangleColumns;
+
+import java.util.Arrays;
+
+/**
+ * <p>Tracks which of a set of moving rectangles are in contact, reporting the contacts that begin and end from one
+ *    tick of a simulation to the next.</p>
+ * <p>Contacts are decided on the rectangles' bounds, like {@link com.iholden.constants.Connectivity}: pairs whose
+ *    interiors overlap, including contained and identical rectangles, are in {@link Contact#OVERLAP}, and pairs that
+ *    only share an edge or a corner are in {@link Contact#ADJACENCY}.</p>
+ * <p>This is a sort-and-sweep broad phase. The minimum and maximum of every rectangle on each axis are kept in an
+ *    endpoint list sorted by coordinate, minimums before maximums on ties, which persists between ticks. Two
+ *    rectangles' closed bounds meet on an axis exactly when each one's minimum comes before the other's maximum, so
+ *    a pair can only start touching when a minimum is swapped in front of a maximum. Each tick, the endpoints of the
+ *    rectangles that moved are put back in order by insertion sort, which only swaps the endpoints they moved past.
+ *    While motion is small compared to the spacing of the endpoints, a tick costs O(M) for M moved rectangles, plus
+ *    O(C) over the C current contacts; once a large share of the rectangles moved, a single sequential pass over
+ *    each whole list replaces the scattered per-rectangle updates.</p>
+ * <p>Positions are updated in place through {@link #moveBy(int, long, long)} and
+ *    {@link #setBounds(int, long, long, long, long)}, and take effect on the next {@link #tick(ContactListener)}.
+ *    Changes within a tick are netted out, so a pair that touches and separates again between two ticks reports
+ *    nothing.</p>
+ * <p>This class is not thread-safe.</p>
+ * <p>Use the static builder to obtain an instance: {@link SweepAndPrune#of(RectangleColumns)}</p>
+ */
+public class SweepAndPrune
+{
+    private static final Contact[] CONTACTS = Contact.values();
+
+    // Once more than 1/8 of the rectangles moved, one pass over each whole endpoint list beats sifting them one by one
+    private static final int WHOLE_SORT_DIVISOR = 8;
+
+    // Bounds of rectangle i are interleaved at 4i as minX, maxX, minY, maxY, so that comparing a pair touches at most
+    // two cache lines
+    private static final int X_OFFSET = 0;
+    private static final int Y_OFFSET = 2;
+
+    private final long[] bounds;
+    private final Axis xAxis;
+    private final Axis yAxis;
+
+    private final boolean[] moved;
+    private final int[] movedIndexes;
+    private int movedCount;
+
+    // Contacts as of the last tick, stored densely, with the position of each pair's entry keyed by pair
+    private int[] contactFirst = new int[16];
+    private int[] contactSecond = new int[16];
+    private byte[] contactStates = new byte[16];
+    private int contactCount;
+    private final LongIntHashMap contactPositions;
+
+    // Prevent external instantiation; prefer static access
+    private SweepAndPrune(RectangleColumns rectangles)
+    {
+        int size = rectangles.size();
+
+        this.bounds = new long[4 * size];
+
+        for (int i = 0; i < size; i++)
+        {
+            bounds[4 * i] = rectangles.getMinX(i);
+            bounds[4 * i + 1] = rectangles.getMaxX(i);
+            bounds[4 * i + 2] = rectangles.getMinY(i);
+            bounds[4 * i + 3] = rectangles.getMaxY(i);
+        }
+
+        this.xAxis = new Axis(bounds, X_OFFSET);
+        this.yAxis = new Axis(bounds, Y_OFFSET);
+        this.moved = new boolean[size];
+        this.movedIndexes = new int[size];
+        this.contactPositions = new LongIntHashMap(size);
+
+        TouchingPairs.forEach(rectangles, (first, second) -> addContact(first, second, contactOf(first, second)));
+    }
+
+    /**
+     * @param rectangles starting positions of the rectangles, which are copied
+     * @return a broad phase over {@code rectangles}, with their initial contacts already known
+     */
+    public static SweepAndPrune of(RectangleColumns rectangles)
+    {
+        return new SweepAndPrune(rectangles);
+    }
+
+    public int size()
+    {
+        return moved.length;
+    }
+
+    public long getMinX(int index)
+    {
+        return bounds[4 * index];
+    }
+
+    public long getMinY(int index)
+    {
+        return bounds[4 * index + 2];
+    }
+
+    public long getMaxX(int index)
+    {
+        return bounds[4 * index + 1];
+    }
+
+    public long getMaxY(int index)
+    {
+        return bounds[4 * index + 3];
+    }
+
+    /**
+     * Moves a rectangle for the next tick
+     * @param index index of the rectangle
+     * @param dx distance to move along the X axis
+     * @param dy distance to move along the Y axis
+     * @throws ArithmeticException if a coordinate would overflow
+     */
+    public void moveBy(int index, long dx, long dy)
+    {
+        int offset = 4 * index;
+
+        bounds[offset] = Math.addExact(bounds[offset], dx);
+        bounds[offset + 1] = Math.addExact(bounds[offset + 1], dx);
+        bounds[offset + 2] = Math.addExact(bounds[offset + 2], dy);
+        bounds[offset + 3] = Math.addExact(bounds[offset + 3], dy);
+        markMoved(index);
+    }
+
+    /**
+     * Replaces the bounds of a rectangle for the next tick
+     * @param index index of the rectangle
+     * @throws IllegalArgumentException if a minimum is greater than its maximum
+     */
+    public void setBounds(int index, long minX, long minY, long maxX, long maxY)
+    {
+        if (minX > maxX || minY > maxY)
+        {
+            throw new IllegalArgumentException("Minimum bounds must not exceed maximum bounds");
+        }
+
+        bounds[4 * index] = minX;
+        bounds[4 * index + 1] = maxX;
+        bounds[4 * index + 2] = minY;
+        bounds[4 * index + 3] = maxY;
+        markMoved(index);
+    }
+
+    /**
+     * Brings the contacts up to date with every move since the last tick, passing each change to {@code listener}.
+     * A pair changing from one kind of contact to the other reports the end of the old one, then the beginning of
+     * the new one.
+     * @param listener receives each change in contact
+     */
+    public void tick(ContactListener listener)
+    {
+        if (movedCount > size() / WHOLE_SORT_DIVISOR)
+        {
+            sortAllEndpoints(xAxis);
+            sortAllEndpoints(yAxis);
+        }
+        else
+        {
+            for (int i = 0; i < movedCount; i++)
+            {
+                sortEndpoints(xAxis, movedIndexes[i]);
+                sortEndpoints(yAxis, movedIndexes[i]);
+            }
+        }
+
+        // Sorting only ever adds contacts, so every contact that changed involves a moved rectangle
+        int position = 0;
+
+        while (movedCount > 0 && position < contactCount)
+        {
+            int first = contactFirst[position];
+            int second = contactSecond[position];
+
+            if (!moved[first] && !moved[second])
+            {
+                position++;
+                continue;
+            }
+
+            Contact previous = CONTACTS[contactStates[position]];
+            Contact current = contactOf(first, second);
+
+            if (current != previous)
+            {
+                if (previous != Contact.NONE)
+                {
+                    listener.onContactEvent(first, second, ContactEvent.endOf(previous));
+                }
+
+                if (current != Contact.NONE)
+                {
+                    listener.onContactEvent(first, second, ContactEvent.beginningOf(current));
+                }
+            }
+
+            if (current == Contact.NONE)
+            {
+                removeContact(position);
+            }
+            else
+            {
+                contactStates[position++] = (byte) current.ordinal();
+            }
+        }
+
+        for (int i = 0; i < movedCount; i++)
+        {
+            moved[movedIndexes[i]] = false;
+        }
+
+        movedCount = 0;
+    }
+
+    /**
+     * @return the number of pairs in contact as of the last tick
+     */
+    public int contactCount()
+    {
+        return contactCount;
+    }
+
+    /**
+     * @return the contact between two rectangles as of the last tick
+     */
+    public Contact getContact(int first, int second)
+    {
+        int position = contactPositions.get(pairKey(first, second), -1);
+
+        return position < 0 ? Contact.NONE : CONTACTS[contactStates[position]];
+    }
+
+    private void markMoved(int index)
+    {
+        if (!moved[index])
+        {
+            moved[index] = true;
+            movedIndexes[movedCount++] = index;
+        }
+    }
+
+    /**
+     * Puts every endpoint on {@code axis} back in order with a single insertion sort, which walks the list in order
+     * instead of jumping to each moved endpoint
+     */
+    private void sortAllEndpoints(Axis axis)
+    {
+        long[] values = axis.values;
+        long[] crossMins = axis.crossMins;
+        long[] crossMaxes = axis.crossMaxes;
+        int[] endpoints = axis.endpoints;
+        int[] positions = axis.positions;
+
+        // Refreshing in list order writes sequentially, which beats writing to the scattered positions of the moved
+        for (int position = 0; position < endpoints.length; position++)
+        {
+            axis.refresh(endpoints[position], position);
+        }
+
+        for (int next = 1; next < endpoints.length; next++)
+        {
+            long value = values[next];
+            long crossMin = crossMins[next];
+            long crossMax = crossMaxes[next];
+            int endpoint = endpoints[next];
+            int position = next;
+
+            while (position > 0 && precedes(value, endpoint, values[position - 1], endpoints[position - 1]))
+            {
+                int other = endpoints[position - 1];
+
+                if (isMax(other) && !isMax(endpoint) && crossMin <= crossMaxes[position - 1] && crossMins[position - 1] <= crossMax)
+                {
+                    beginIfTouching(endpoint >> 1, other >> 1);
+                }
+
+                values[position] = values[position - 1];
+                crossMins[position] = crossMins[position - 1];
+                crossMaxes[position] = crossMaxes[position - 1];
+                endpoints[position--] = other;
+            }
+
+            values[position] = value;
+            crossMins[position] = crossMin;
+            crossMaxes[position] = crossMax;
+            endpoints[position] = endpoint;
+        }
+
+        for (int position = 0; position < endpoints.length; position++)
+        {
+            positions[endpoints[position]] = position;
+        }
+    }
+
+    /**
+     * Puts a rectangle's endpoints on {@code axis} back in order after a move
+     */
+    private void sortEndpoints(Axis axis, int index)
+    {
+        int minEndpoint = index << 1;
+        int maxEndpoint = minEndpoint | 1;
+        boolean maxIncreased = axis.boundOf(maxEndpoint) > axis.values[axis.positions[maxEndpoint]];
+
+        axis.refresh(minEndpoint, axis.positions[minEndpoint]);
+        axis.refresh(maxEndpoint, axis.positions[maxEndpoint]);
+
+        // The endpoint leading the move goes first, so that it never stops against its own stale partner
+        if (maxIncreased)
+        {
+            sift(axis, maxEndpoint);
+            sift(axis, minEndpoint);
+        }
+        else
+        {
+            sift(axis, minEndpoint);
+            sift(axis, maxEndpoint);
+        }
+    }
+
+    /**
+     * Moves an endpoint left or right until it is in order, checking each pair whose minimum it swaps in front of a
+     * maximum
+     */
+    private void sift(Axis axis, int endpoint)
+    {
+        long[] values = axis.values;
+        long[] crossMins = axis.crossMins;
+        long[] crossMaxes = axis.crossMaxes;
+        int[] endpoints = axis.endpoints;
+        int[] positions = axis.positions;
+        int position = positions[endpoint];
+        long value = values[position];
+        long crossMin = crossMins[position];
+        long crossMax = crossMaxes[position];
+
+        while (position > 0 && precedes(value, endpoint, values[position - 1], endpoints[position - 1]))
+        {
+            int other = endpoints[position - 1];
+
+            if (isMax(other) && !isMax(endpoint) && crossMin <= crossMaxes[position - 1] && crossMins[position - 1] <= crossMax)
+            {
+                beginIfTouching(endpoint >> 1, other >> 1);
+            }
+
+            values[position] = values[position - 1];
+            crossMins[position] = crossMins[position - 1];
+            crossMaxes[position] = crossMaxes[position - 1];
+            endpoints[position] = other;
+            positions[other] = position--;
+        }
+
+        while (position < endpoints.length - 1 && precedes(values[position + 1], endpoints[position + 1], value, endpoint))
+        {
+            int other = endpoints[position + 1];
+
+            if (isMax(endpoint) && !isMax(other) && crossMin <= crossMaxes[position + 1] && crossMins[position + 1] <= crossMax)
+            {
+                beginIfTouching(endpoint >> 1, other >> 1);
+            }
+
+            values[position] = values[position + 1];
+            crossMins[position] = crossMins[position + 1];
+            crossMaxes[position] = crossMaxes[position + 1];
+            endpoints[position] = other;
+            positions[other] = position++;
+        }
+
+        values[position] = value;
+        crossMins[position] = crossMin;
+        crossMaxes[position] = crossMax;
+        endpoints[position] = endpoint;
+        positions[endpoint] = position;
+    }
+
+    private static boolean precedes(long value, int endpoint, long otherValue, int otherEndpoint)
+    {
+        return value < otherValue || (value == otherValue && (endpoint & 1) < (otherEndpoint & 1));
+    }
+
+    private static boolean isMax(int endpoint)
+    {
+        return (endpoint & 1) != 0;
+    }
+
+    /**
+     * Starts tracking a pair whose bounds touch, with no contact as of the last tick so the next tick reports it
+     */
+    private void beginIfTouching(int first, int second)
+    {
+        if (first != second && contactOf(first, second) != Contact.NONE
+                && contactPositions.get(pairKey(first, second), -1) < 0)
+        {
+            addContact(first, second, Contact.NONE);
+        }
+    }
+
+    private Contact contactOf(int first, int second)
+    {
+        int a = 4 * first;
+        int b = 4 * second;
+        long lowX = Math.max(bounds[a], bounds[b]);
+        long highX = Math.min(bounds[a + 1], bounds[b + 1]);
+        long lowY = Math.max(bounds[a + 2], bounds[b + 2]);
+        long highY = Math.min(bounds[a + 3], bounds[b + 3]);
+
+        if (lowX < highX && lowY < highY)
+        {
+            return Contact.OVERLAP;
+        }
+
+        return lowX <= highX && lowY <= highY ? Contact.ADJACENCY : Contact.NONE;
+    }
+
+    private void addContact(int first, int second, Contact state)
+    {
+        if (contactCount == contactFirst.length)
+        {
+            contactFirst = Arrays.copyOf(contactFirst, 2 * contactCount);
+            contactSecond = Arrays.copyOf(contactSecond, 2 * contactCount);
+            contactStates = Arrays.copyOf(contactStates, 2 * contactCount);
+        }
+
+        contactFirst[contactCount] = Math.min(first, second);
+        contactSecond[contactCount] = Math.max(first, second);
+        contactStates[contactCount] = (byte) state.ordinal();
+        contactPositions.put(pairKey(first, second), contactCount++);
+    }
+
+    /**
+     * Removes the contact at {@code position}, moving the last contact into its place
+     */
+    private void removeContact(int position)
+    {
+        contactPositions.remove(pairKey(contactFirst[position], contactSecond[position]), -1);
+
+        int last = --contactCount;
+
+        if (position != last)
+        {
+            contactFirst[position] = contactFirst[last];
+            contactSecond[position] = contactSecond[last];
+            contactStates[position] = contactStates[last];
+            contactPositions.put(pairKey(contactFirst[position], contactSecond[position]), position);
+        }
+    }
+
+    private static long pairKey(int first, int second)
+    {
+        return ((long) Math.min(first, second) << 32) | Math.max(first, second);
+    }
+
+    /**
+     * Endpoint list along one axis. Endpoints are encoded as {@code 2i} for the minimum of rectangle i and
+     * {@code 2i+1} for its maximum; {@code positions} holds the position of each endpoint in the list.
+     * {@code values} caches the coordinate of the endpoint at each position, and {@code crossMins} and
+     * {@code crossMaxes} the bounds of its rectangle on the other axis, so that most pairs swapped past each other
+     * can be ruled out without looking up their bounds.
+     */
+    private static class Axis
+    {
+        private final long[] bounds;
+        private final int offset;
+        private final int crossOffset;
+        private final long[] values;
+        private final long[] crossMins;
+        private final long[] crossMaxes;
+        private final int[] endpoints;
+        private final int[] positions;
+
+        private Axis(long[] bounds, int offset)
+        {
+            int endpointCount = bounds.length / 2;
+            var keys = new long[endpointCount];
+
+            this.bounds = bounds;
+            this.offset = offset;
+            this.crossOffset = Y_OFFSET - offset;
+            this.values = new long[endpointCount];
+            this.crossMins = new long[endpointCount];
+            this.crossMaxes = new long[endpointCount];
+            this.endpoints = new int[endpointCount];
+            this.positions = new int[endpointCount];
+
+            for (int endpoint = 0; endpoint < endpointCount; endpoint++)
+            {
+                keys[endpoint] = boundOf(endpoint);
+                endpoints[endpoint] = endpoint;
+            }
+
+            PrimitiveSorts.sortParallel(keys, endpoints, 0, endpointCount);
+
+            // Within each run of equal coordinates, every minimum goes before every maximum
+            for (int from = 0, to; from < endpointCount; from = to)
+            {
+                int boundary = from;
+
+                for (to = from; to < endpointCount && keys[to] == keys[from]; to++)
+                {
+                    if (!isMax(endpoints[to]))
+                    {
+                        int endpoint = endpoints[to];
+
+                        endpoints[to] = endpoints[boundary];
+                        endpoints[boundary++] = endpoint;
+                    }
+                }
+            }
+
+            for (int position = 0; position < endpointCount; position++)
+            {
+                positions[endpoints[position]] = position;
+                refresh(endpoints[position], position);
+            }
+        }
+
+        private long boundOf(int endpoint)
+        {
+            return bounds[(endpoint >> 1 << 2) + offset + (endpoint & 1)];
+        }
+
+        /**
+         * Copies the current bounds of an endpoint's rectangle to its position in the list
+         */
+        private void refresh(int endpoint, int position)
+        {
+            int rectangle = (endpoint >> 1) << 2;
+
+            values[position] = boundOf(endpoint);
+            crossMins[position] = bounds[rectangle + crossOffset];
+            crossMaxes[position] = bounds[rectangle + crossOffset + 1];
+        }
+    }
+}
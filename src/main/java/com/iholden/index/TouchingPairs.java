@@ -0,0 +1,30 @@
+package com.iholden.index;
+
+import com.iholden.support.IntPairConsumer;
+import com.iholden.support.RectangleColumns;
+
+/**
+ * <p>Utility class for finding every pair of rectangles whose closed bounds share at least one point.</p>
+ * <p>Only such pairs can have any relation other than {@link com.iholden.constants.Relation#NONE}, so this is the
+ *    candidate set for all-pairs classification and clustering.</p>
+ * <p>Pairs are found with the plane sweep of {@link NearPairs} at distance 0: rectangles are visited in order of
+ *    their minimum X coordinate, and the rectangles whose X extent still reaches each one are looked up by their Y
+ *    extent in a bitmap of ranks and a segment tree, never scanned. This costs O(N log N + K) for K touching pairs,
+ *    however many rectangles cross the sweep line at once.</p>
+ */
+public class TouchingPairs
+{
+    /**
+     * Passes the indexes of every pair of touching rectangles to {@code consumer}, each pair once, with the index of
+     * the rectangle visited first by the sweep as the first value
+     * @param rectangles rectangles to compare
+     * @param consumer receives the index of each rectangle of a touching pair
+     */
+    public static void forEach(RectangleColumns rectangles, IntPairConsumer consumer)
+    {
+        NearPairs.sweep(rectangles, 0, consumer);
+    }
+
+    // Discourage Instantiation
+    private TouchingPairs(){};
+}
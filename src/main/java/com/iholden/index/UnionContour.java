@@ -0,0 +1,532 @@
+package com.iholden.index;
+
+import com.iholden.entities.Line;
+import com.iholden.entities.impl.LineImpl;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.support.CoordinateSlots;
+import com.iholden.support.LongIntHashMap;
+import com.iholden.support.PrimitiveSorts;
+import com.iholden.support.RectangleColumns;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * <p>Traces the outline of the union of a set of rectangles, as closed loops of alternating vertical and horizontal
+ *    {@link Line}s.</p>
+ * <p>The union is the area covered by the rectangles, so rectangles that share an edge merge into one region, and
+ *    rectangles with zero length or width contribute nothing. Loops are oriented with the union on their left:
+ *    outer boundaries run counter-clockwise and the boundaries of holes clockwise. Where two parts of the union meet
+ *    at a single corner, their loops are kept apart, each passing through the shared corner. Each line's points are
+ *    in ascending order, as in {@link com.iholden.entities.Rectangle#getLines()}, whichever way the loop runs along
+ *    it.</p>
+ * <p>A sweep over X keeps the coverage of every elementary Y interval in a segment tree, along with whether each
+ *    node is fully covered or fully uncovered. At each X coordinate, the vertical sides of the contour are the parts
+ *    of the starting rectangles that were uncovered just before it, and the parts of the ending rectangles that are
+ *    uncovered just after it; the tree reports each such part in O(log N). Horizontal sides stay open until the
+ *    sweep reaches the vertex they end at, and the pieces of each loop are linked as they are found, so a loop is
+ *    passed on as soon as it closes. Only the loops crossing the sweep line are ever held in memory.</p>
+ * <p>This costs O(N log N) for the sweep, plus O(log N) per side of the contour.</p>
+ */
+public class UnionContour
+{
+    private final CoordinateSlots yCoordinates;
+    private final ContourConsumer consumer;
+
+    // Segment tree over the elementary Y intervals: the number of rectangles covering each node's whole range
+    // without covering its parent's, and whether its range is fully covered, or fully uncovered
+    private final int leafCount;
+    private final int[] counts;
+    private final boolean[] covered;
+    private final boolean[] uncovered;
+
+    // Vertical sides found at the current X coordinate, as runs of elementary intervals, in ascending order
+    private int[] runFrom = new int[16];
+    private int[] runTo = new int[16];
+    private boolean[] runEast = new boolean[16];
+    private int runCount;
+
+    // Vertices of the loops still open: each has one vertical and one horizontal neighbor, and the vertices at the
+    // two ends of an open chain point at each other
+    private long[] vertexX = new long[16];
+    private long[] vertexY = new long[16];
+    private boolean[] vertexEast = new boolean[16];
+    private int[] verticalNeighbors = new int[16];
+    private int[] horizontalNeighbors = new int[16];
+    private int[] otherEnds = new int[16];
+    private int[] freeVertices = new int[16];
+    private int freeCount;
+    private int vertexCount;
+
+    // Horizontal sides waiting for the vertex they end at, by Y coordinate
+    private final LongIntHashMap openSides = new LongIntHashMap(16);
+
+    private long loopCount;
+
+    // Prevent external instantiation; prefer static access
+    private UnionContour(CoordinateSlots yCoordinates, ContourConsumer consumer)
+    {
+        this.yCoordinates = yCoordinates;
+        this.consumer = consumer;
+        this.leafCount = Math.max(1, yCoordinates.coordinateCount() - 1);
+        this.counts = new int[4 * leafCount];
+        this.covered = new boolean[4 * leafCount];
+        this.uncovered = new boolean[4 * leafCount];
+
+        Arrays.fill(uncovered, true);
+    }
+
+    /**
+     * Passes every loop of the contour of the union of {@code rectangles} to {@code consumer}, in the order the
+     * loops close as the sweep moves along X
+     * @param rectangles rectangles whose union is outlined
+     * @param consumer receives each loop
+     * @return the number of loops
+     */
+    public static long forEachLoop(RectangleColumns rectangles, ContourConsumer consumer)
+    {
+        int size = rectangles.size();
+        var yValues = new long[2 * size];
+        var eventXs = new long[2 * size];
+        var events = new int[2 * size];
+        int eventCount = 0;
+
+        for (int i = 0; i < size; i++)
+        {
+            yValues[2 * i] = rectangles.getMinY(i);
+            yValues[2 * i + 1] = rectangles.getMaxY(i);
+
+            if (rectangles.getMinX(i) < rectangles.getMaxX(i) && rectangles.getMinY(i) < rectangles.getMaxY(i))
+            {
+                // Events are encoded as 2i for rectangle i starting, and 2i+1 for it ending
+                eventXs[eventCount] = rectangles.getMinX(i);
+                events[eventCount++] = 2 * i;
+                eventXs[eventCount] = rectangles.getMaxX(i);
+                events[eventCount++] = 2 * i + 1;
+            }
+        }
+
+        PrimitiveSorts.sortParallel(eventXs, events, 0, eventCount);
+
+        var contour = new UnionContour(CoordinateSlots.of(yValues), consumer);
+        var starting = new Intervals(eventCount);
+        var ending = new Intervals(eventCount);
+
+        for (int event = 0; event < eventCount; )
+        {
+            long x = eventXs[event];
+
+            starting.clear();
+            ending.clear();
+
+            for (; event < eventCount && eventXs[event] == x; event++)
+            {
+                int rectangle = events[event] >> 1;
+                int from = contour.yCoordinates.indexOf(rectangles.getMinY(rectangle));
+                int to = contour.yCoordinates.indexOf(rectangles.getMaxY(rectangle)) - 1;
+
+                ((events[event] & 1) == 0 ? starting : ending).add(from, to);
+            }
+
+            contour.advanceTo(x, starting, ending);
+        }
+
+        return contour.loopCount;
+    }
+
+    /**
+     * Applies the rectangles starting and ending at {@code x}, then links the sides of the contour found there
+     */
+    private void advanceTo(long x, Intervals starting, Intervals ending)
+    {
+        runCount = 0;
+
+        // Sides with the union to the east: starting rectangles, where nothing was covered before
+        for (int i = 0, merged = starting.merge(); i < merged; i++)
+        {
+            collectUncovered(1, 0, leafCount - 1, starting.mergedFrom[i], starting.mergedTo[i], true);
+        }
+
+        for (int i = 0; i < ending.count; i++)
+        {
+            update(1, 0, leafCount - 1, ending.from[i], ending.to[i], -1);
+        }
+
+        for (int i = 0; i < starting.count; i++)
+        {
+            update(1, 0, leafCount - 1, starting.from[i], starting.to[i], 1);
+        }
+
+        int eastRuns = runCount;
+
+        // Sides with the union to the west: ending rectangles, where nothing is covered after
+        for (int i = 0, merged = ending.merge(); i < merged; i++)
+        {
+            collectUncovered(1, 0, leafCount - 1, ending.mergedFrom[i], ending.mergedTo[i], false);
+        }
+
+        sortRuns(eastRuns);
+        linkSides(x);
+    }
+
+    private void update(int node, int nodeFrom, int nodeTo, int from, int to, int delta)
+    {
+        if (from <= nodeFrom && nodeTo <= to)
+        {
+            counts[node] += delta;
+        }
+        else
+        {
+            int middle = (nodeFrom + nodeTo) >>> 1;
+
+            if (from <= middle)
+            {
+                update(2 * node, nodeFrom, middle, from, to, delta);
+            }
+
+            if (to > middle)
+            {
+                update(2 * node + 1, middle + 1, nodeTo, from, to, delta);
+            }
+        }
+
+        if (counts[node] > 0)
+        {
+            covered[node] = true;
+            uncovered[node] = false;
+        }
+        else if (nodeFrom == nodeTo)
+        {
+            covered[node] = false;
+            uncovered[node] = true;
+        }
+        else
+        {
+            covered[node] = covered[2 * node] && covered[2 * node + 1];
+            uncovered[node] = uncovered[2 * node] && uncovered[2 * node + 1];
+        }
+    }
+
+    /**
+     * Appends the uncovered parts of {@code from..to} as runs, merging each with the previous run if they meet
+     */
+    private void collectUncovered(int node, int nodeFrom, int nodeTo, int from, int to, boolean east)
+    {
+        if (covered[node])
+        {
+            return;
+        }
+
+        if (uncovered[node] && from <= nodeFrom && nodeTo <= to)
+        {
+            if (runCount > 0 && runEast[runCount - 1] == east && runTo[runCount - 1] == nodeFrom - 1)
+            {
+                runTo[runCount - 1] = nodeTo;
+            }
+            else
+            {
+                addRun(nodeFrom, nodeTo, east);
+            }
+
+            return;
+        }
+
+        int middle = (nodeFrom + nodeTo) >>> 1;
+
+        if (from <= middle)
+        {
+            collectUncovered(2 * node, nodeFrom, middle, from, to, east);
+        }
+
+        if (to > middle)
+        {
+            collectUncovered(2 * node + 1, middle + 1, nodeTo, from, to, east);
+        }
+    }
+
+    private void addRun(int from, int to, boolean east)
+    {
+        if (runCount == runFrom.length)
+        {
+            runFrom = Arrays.copyOf(runFrom, 2 * runCount);
+            runTo = Arrays.copyOf(runTo, 2 * runCount);
+            runEast = Arrays.copyOf(runEast, 2 * runCount);
+        }
+
+        runFrom[runCount] = from;
+        runTo[runCount] = to;
+        runEast[runCount++] = east;
+    }
+
+    /**
+     * Merges the ascending east runs, before {@code eastRuns}, with the ascending west runs after them
+     */
+    private void sortRuns(int eastRuns)
+    {
+        if (eastRuns == 0 || eastRuns == runCount)
+        {
+            return;
+        }
+
+        var from = Arrays.copyOf(runFrom, runCount);
+        var to = Arrays.copyOf(runTo, runCount);
+        var east = Arrays.copyOf(runEast, runCount);
+
+        for (int run = 0, i = 0, j = eastRuns; run < runCount; run++)
+        {
+            int next = j == runCount || (i < eastRuns && from[i] < from[j]) ? i++ : j++;
+
+            runFrom[run] = from[next];
+            runTo[run] = to[next];
+            runEast[run] = east[next];
+        }
+    }
+
+    /**
+     * Turns each run into a vertical side, and links its vertices to the horizontal sides they start or end
+     */
+    private void linkSides(long x)
+    {
+        int previousTop = -1;
+
+        for (int run = 0; run < runCount; run++)
+        {
+            long low = yCoordinates.coordinateAt(runFrom[run]);
+            long high = yCoordinates.coordinateAt(runTo[run] + 1);
+            int bottom = newVertex(x, low, runEast[run]);
+            int top = newVertex(x, high, runEast[run]);
+
+            verticalNeighbors[bottom] = top;
+            verticalNeighbors[top] = bottom;
+            otherEnds[bottom] = top;
+            otherEnds[top] = bottom;
+
+            if (previousTop >= 0 && vertexY[previousTop] == low)
+            {
+                linkPinch(previousTop, bottom);
+            }
+            else
+            {
+                if (previousTop >= 0)
+                {
+                    linkVertex(previousTop);
+                }
+
+                linkVertex(bottom);
+            }
+
+            previousTop = top;
+        }
+
+        if (previousTop >= 0)
+        {
+            linkVertex(previousTop);
+        }
+    }
+
+    /**
+     * Ends the horizontal side waiting at the vertex's Y coordinate, or starts one if there is none
+     */
+    private void linkVertex(int vertex)
+    {
+        int west = openSides.remove(vertexY[vertex], -1);
+
+        if (west >= 0)
+        {
+            join(west, vertex);
+        }
+        else
+        {
+            openSides.put(vertexY[vertex], vertex);
+        }
+    }
+
+    /**
+     * Links a vertex where the union meets itself at a single corner. {@code below} ends the vertical side under the
+     * corner and {@code above} starts the one over it; each is paired with the horizontal side bounding the same
+     * quadrant of the union, so the two loops stay apart.
+     */
+    private void linkPinch(int below, int above)
+    {
+        int west = openSides.remove(vertexY[above], -1);
+
+        // With the union to the north-east, the side above turns east, leaving the south-west to the side below
+        if (vertexEast[above])
+        {
+            join(west, below);
+            openSides.put(vertexY[above], above);
+        }
+        else
+        {
+            join(west, above);
+            openSides.put(vertexY[below], below);
+        }
+    }
+
+    /**
+     * Joins the ends of two chains with a horizontal side, passing on the loop if they were the same chain
+     */
+    private void join(int first, int second)
+    {
+        horizontalNeighbors[first] = second;
+        horizontalNeighbors[second] = first;
+
+        if (otherEnds[first] == second)
+        {
+            emitLoop(first);
+            return;
+        }
+
+        int firstEnd = otherEnds[first];
+        int secondEnd = otherEnds[second];
+
+        otherEnds[firstEnd] = secondEnd;
+        otherEnds[secondEnd] = firstEnd;
+    }
+
+    private void emitLoop(int start)
+    {
+        // With the union on the left, sides with the union to the east run downwards
+        int next = vertexEast[start] == (vertexY[verticalNeighbors[start]] < vertexY[start])
+                ? verticalNeighbors[start]
+                : horizontalNeighbors[start];
+        boolean vertical = next == verticalNeighbors[start];
+        var lines = new ArrayList<Line>();
+        int lowest = start;
+        int vertex = start;
+
+        do
+        {
+            lines.add(lineBetween(vertex, next));
+            freeVertex(vertex);
+            vertex = next;
+            vertical = !vertical;
+            next = vertical ? verticalNeighbors[vertex] : horizontalNeighbors[vertex];
+
+            if (vertexX[vertex] < vertexX[lowest] || (vertexX[vertex] == vertexX[lowest] && vertexY[vertex] < vertexY[lowest]))
+            {
+                lowest = vertex;
+            }
+        }
+        while (vertex != start);
+
+        loopCount++;
+
+        // The lowest vertex of the leftmost side has the loop's inside to its north-east; a hole has the union outside
+        consumer.acceptLoop(lines, !vertexEast[lowest]);
+    }
+
+    private Line lineBetween(int first, int second)
+    {
+        boolean ascending = vertexX[first] < vertexX[second] || vertexY[first] < vertexY[second];
+        int low = ascending ? first : second;
+        int high = ascending ? second : first;
+
+        return new LineImpl(new PointImpl(vertexX[low], vertexY[low]), new PointImpl(vertexX[high], vertexY[high]));
+    }
+
+    private int newVertex(long x, long y, boolean east)
+    {
+        int vertex;
+
+        if (freeCount > 0)
+        {
+            vertex = freeVertices[--freeCount];
+        }
+        else
+        {
+            if (vertexCount == vertexX.length)
+            {
+                int capacity = 2 * vertexCount;
+
+                vertexX = Arrays.copyOf(vertexX, capacity);
+                vertexY = Arrays.copyOf(vertexY, capacity);
+                vertexEast = Arrays.copyOf(vertexEast, capacity);
+                verticalNeighbors = Arrays.copyOf(verticalNeighbors, capacity);
+                horizontalNeighbors = Arrays.copyOf(horizontalNeighbors, capacity);
+                otherEnds = Arrays.copyOf(otherEnds, capacity);
+                freeVertices = Arrays.copyOf(freeVertices, capacity);
+            }
+
+            vertex = vertexCount++;
+        }
+
+        vertexX[vertex] = x;
+        vertexY[vertex] = y;
+        vertexEast[vertex] = east;
+
+        return vertex;
+    }
+
+    private void freeVertex(int vertex)
+    {
+        freeVertices[freeCount++] = vertex;
+    }
+
+    /**
+     * Intervals of elementary Y intervals, which can also be merged into disjoint ascending intervals
+     */
+    private static class Intervals
+    {
+        private final int[] from;
+        private final int[] to;
+        private final int[] mergedFrom;
+        private final int[] mergedTo;
+        private final long[] keys;
+        private final int[] order;
+        private int count;
+
+        private Intervals(int capacity)
+        {
+            this.from = new int[capacity];
+            this.to = new int[capacity];
+            this.mergedFrom = new int[capacity];
+            this.mergedTo = new int[capacity];
+            this.keys = new long[capacity];
+            this.order = new int[capacity];
+        }
+
+        private void clear()
+        {
+            count = 0;
+        }
+
+        private void add(int intervalFrom, int intervalTo)
+        {
+            from[count] = intervalFrom;
+            to[count++] = intervalTo;
+        }
+
+        /**
+         * Sorts the intervals and merges those that overlap or meet into {@code mergedFrom} and {@code mergedTo}
+         * @return the number of merged intervals
+         */
+        private int merge()
+        {
+            for (int i = 0; i < count; i++)
+            {
+                keys[i] = from[i];
+                order[i] = to[i];
+            }
+
+            PrimitiveSorts.sortParallel(keys, order, 0, count);
+
+            int merged = 0;
+
+            for (int i = 0; i < count; i++)
+            {
+                if (merged > 0 && keys[i] <= mergedTo[merged - 1] + 1)
+                {
+                    mergedTo[merged - 1] = Math.max(mergedTo[merged - 1], order[i]);
+                }
+                else
+                {
+                    mergedFrom[merged] = (int) keys[i];
+                    mergedTo[merged++] = order[i];
+                }
+            }
+
+            return merged;
+        }
+    }
+}
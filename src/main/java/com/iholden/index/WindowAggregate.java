@@ -0,0 +1,105 @@
+package com.iholden.index;
+
+/**
+ * <p>Aggregate summary of the rectangles that meet a query window, as computed by {@link WindowAggregateIndex}.</p>
+ * <p>Every rectangle whose closed bounds touch or overlap the window is <i>matching</i>. Matching rectangles are
+ *    further broken down by how they meet the window:</p>
+ * <ul>
+ *     <li><b>Overlapping</b> - the interiors overlap; this covers IDENTICAL, CONTAINMENT and INTERSECTION</li>
+ *     <li><b>Edge adjacent</b> - the rectangle meets the window along a shared line segment only, e.g.
+ *         {@link com.iholden.constants.Adjacency#PROPER}, {@link com.iholden.constants.Adjacency#PARTIAL} or
+ *         {@link com.iholden.constants.Adjacency#SUB_LINE}</li>
+ *     <li><b>Corner adjacent</b> - the rectangle meets the window at a single corner point only, e.g.
+ *         {@link com.iholden.constants.Adjacency#SINGLE_POINT}</li>
+ * </ul>
+ */
+public class WindowAggregate
+{
+    private final long matchingCount;
+    private final long matchingAreaSum;
+    private final long overlappingCount;
+    private final long overlappingAreaSum;
+    private final long cornerAdjacentCount;
+    private final long identicalCount;
+
+    WindowAggregate(long matchingCount, long matchingAreaSum, long overlappingCount, long overlappingAreaSum,
+                    long cornerAdjacentCount, long identicalCount)
+    {
+        this.matchingCount = matchingCount;
+        this.matchingAreaSum = matchingAreaSum;
+        this.overlappingCount = overlappingCount;
+        this.overlappingAreaSum = overlappingAreaSum;
+        this.cornerAdjacentCount = cornerAdjacentCount;
+        this.identicalCount = identicalCount;
+    }
+
+    /**
+     * @return the number of rectangles whose closed bounds touch or overlap the window
+     */
+    public long getMatchingCount()
+    {
+        return matchingCount;
+    }
+
+    /**
+     * @return the sum of the areas of the matching rectangles
+     */
+    public long getMatchingAreaSum()
+    {
+        return matchingAreaSum;
+    }
+
+    /**
+     * @return the number of rectangles whose interior overlaps the interior of the window
+     */
+    public long getOverlappingCount()
+    {
+        return overlappingCount;
+    }
+
+    /**
+     * @return the sum of the areas of the overlapping rectangles
+     */
+    public long getOverlappingAreaSum()
+    {
+        return overlappingAreaSum;
+    }
+
+    /**
+     * @return the number of rectangles that only share boundary with the window, along a line segment
+     */
+    public long getEdgeAdjacentCount()
+    {
+        return matchingCount - overlappingCount - cornerAdjacentCount;
+    }
+
+    /**
+     * @return the number of rectangles that only share a single corner point with the window
+     */
+    public long getCornerAdjacentCount()
+    {
+        return cornerAdjacentCount;
+    }
+
+    /**
+     * @return the number of rectangles that are identical to the window
+     */
+    public long getIdenticalCount()
+    {
+        return identicalCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "WindowAggregate{" +
+                "matchingCount=" + matchingCount +
+                ", matchingAreaSum=" + matchingAreaSum +
+                ", overlappingCount=" + overlappingCount +
+                ", overlappingAreaSum=" + overlappingAreaSum +
+                ", edgeAdjacentCount=" + getEdgeAdjacentCount() +
+                ", cornerAdjacentCount=" + cornerAdjacentCount +
+                ", identicalCount=" + identicalCount +
+                '}';
+    }
+}
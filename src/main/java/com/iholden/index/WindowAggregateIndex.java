@@ -0,0 +1,334 @@
+package com.iholden.index;
+
+import com.iholden.support.PrimitiveSorts;
+import com.iholden.support.RectangleColumns;
+
+/**
+ * <p>Static index answering aggregate window queries over a fixed set of rectangles--how many rectangles meet a
+ *    window, what their areas sum to, and how they meet it--without enumerating the matching rectangles.</p>
+ * <p>A rectangle fails to meet the window only if it lies entirely to the left, right, below or above it. Those four
+ *    conditions are counted by inclusion-exclusion: the single conditions and the four compatible pairs of conditions
+ *    ("left and below", etc.) are each a 2-dimensional dominance query on one pair of the rectangles' edge
+ *    coordinates, answered by a {@link DominanceTree}; no rectangle can be both left and right of the window, or
+ *    both below and above it. Using strict or non-strict comparisons in the same decomposition yields either the
+ *    closed (touching counts) or the open (interiors must overlap) semantics, matching
+ *    {@link com.iholden.support.Range#containsInclusive(long)} and {@link com.iholden.support.Range#containsExclusive(long)}.</p>
+ * <p>Each query costs O(log^2 N); the index uses O(N log N) memory. Rectangles are assumed to have non-negative
+ *    length and width; zero-area rectangles have no interior, and are never counted as overlapping.</p>
+ */
+public class WindowAggregateIndex
+{
+    private final EdgeTrees allRectangles;
+    private final EdgeTrees zeroAreaRectangles;
+    private final long[][] sortedBounds;
+
+    // Prevent external instantiation; prefer static access
+    private WindowAggregateIndex(RectangleColumns rectangles)
+    {
+        int size = rectangles.size();
+        int zeroAreaCount = 0;
+
+        for (int i = 0; i < size; i++)
+        {
+            if (area(rectangles, i) == 0)
+            {
+                zeroAreaCount++;
+            }
+        }
+
+        var zeroAreaPositions = new int[zeroAreaCount];
+
+        for (int i = 0, next = 0; i < size; i++)
+        {
+            if (area(rectangles, i) == 0)
+            {
+                zeroAreaPositions[next++] = i;
+            }
+        }
+
+        this.allRectangles = new EdgeTrees(rectangles, null);
+        this.zeroAreaRectangles = zeroAreaCount == 0 ? null : new EdgeTrees(rectangles, zeroAreaPositions);
+        this.sortedBounds = lexicographicallySortedBounds(rectangles);
+    }
+
+    public static WindowAggregateIndex of(RectangleColumns rectangles)
+    {
+        return new WindowAggregateIndex(rectangles);
+    }
+
+    /**
+     * Counts the rectangles whose closed bounds touch or overlap the window
+     */
+    public long countMatching(long minX, long minY, long maxX, long maxY)
+    {
+        var scratch = new long[2];
+
+        return allRectangles.aggregateMeeting(minX, minY, maxX, maxY, false, scratch, new long[2])[0];
+    }
+
+    /**
+     * Computes the full aggregate summary of the rectangles that meet the window
+     * @return the aggregate summary
+     */
+    public WindowAggregate aggregate(long minX, long minY, long maxX, long maxY)
+    {
+        var scratch = new long[2];
+        var matching = allRectangles.aggregateMeeting(minX, minY, maxX, maxY, false, scratch, new long[2]);
+        var overlapping = new long[2];
+
+        // A window without an interior cannot overlap anything
+        if (minX < maxX && minY < maxY)
+        {
+            allRectangles.aggregateMeeting(minX, minY, maxX, maxY, true, scratch, overlapping);
+
+            if (zeroAreaRectangles != null)
+            {
+                var zeroArea = zeroAreaRectangles.aggregateMeeting(minX, minY, maxX, maxY, true, scratch, new long[2]);
+
+                overlapping[0] -= zeroArea[0];
+            }
+        }
+
+        long cornerAdjacent = allRectangles.countCornerMatches(minX, minY, maxX, maxY, scratch);
+
+        return new WindowAggregate(matching[0], matching[1], overlapping[0], overlapping[1], cornerAdjacent,
+                countIdentical(minX, minY, maxX, maxY));
+    }
+
+    private long countIdentical(long minX, long minY, long maxX, long maxY)
+    {
+        long[] query = {minX, minY, maxX, maxY};
+
+        return upperBound(query) - lowerBound(query);
+    }
+
+    private int lowerBound(long[] query)
+    {
+        int low = 0, high = sortedBounds[0].length;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (compareBounds(middle, query) < 0)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private int upperBound(long[] query)
+    {
+        int low = 0, high = sortedBounds[0].length;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (compareBounds(middle, query) <= 0)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private int compareBounds(int position, long[] query)
+    {
+        for (int column = 0; column < 4; column++)
+        {
+            int comparison = Long.compare(sortedBounds[column][position], query[column]);
+
+            if (comparison != 0)
+            {
+                return comparison;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Sorts the bounds of every rectangle lexicographically by (minX, minY, maxX, maxY), using one stable sort per
+     * column from the least significant column to the most significant one
+     */
+    private static long[][] lexicographicallySortedBounds(RectangleColumns rectangles)
+    {
+        int size = rectangles.size();
+        var order = new int[size];
+        var keys = new long[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            order[i] = i;
+        }
+
+        for (int column = 3; column >= 0; column--)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                keys[i] = boundOf(rectangles, order[i], column);
+            }
+
+            PrimitiveSorts.sortParallel(keys, order, 0, size);
+        }
+
+        var bounds = new long[4][size];
+
+        for (int column = 0; column < 4; column++)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                bounds[column][i] = boundOf(rectangles, order[i], column);
+            }
+        }
+
+        return bounds;
+    }
+
+    private static long boundOf(RectangleColumns rectangles, int index, int column)
+    {
+        return switch (column)
+        {
+            case 0 -> rectangles.getMinX(index);
+            case 1 -> rectangles.getMinY(index);
+            case 2 -> rectangles.getMaxX(index);
+            default -> rectangles.getMaxY(index);
+        };
+    }
+
+    private static long area(RectangleColumns rectangles, int index)
+    {
+        return (rectangles.getMaxX(index) - rectangles.getMinX(index)) * (rectangles.getMaxY(index) - rectangles.getMinY(index));
+    }
+
+    /**
+     * The four dominance trees over the pairs of edge coordinates of a set of rectangles, weighted by area
+     */
+    private static class EdgeTrees
+    {
+        private final DominanceTree maxXMaxY;
+        private final DominanceTree maxXMinY;
+        private final DominanceTree minXMaxY;
+        private final DominanceTree minXMinY;
+        private final long count;
+        private final long totalArea;
+
+        private EdgeTrees(RectangleColumns rectangles, int[] positions)
+        {
+            int size = positions == null ? rectangles.size() : positions.length;
+            var minX = new long[size];
+            var minY = new long[size];
+            var maxX = new long[size];
+            var maxY = new long[size];
+            var areas = new long[size];
+            long areaSum = 0;
+
+            for (int i = 0; i < size; i++)
+            {
+                int index = positions == null ? i : positions[i];
+
+                minX[i] = rectangles.getMinX(index);
+                minY[i] = rectangles.getMinY(index);
+                maxX[i] = rectangles.getMaxX(index);
+                maxY[i] = rectangles.getMaxY(index);
+                areas[i] = area(rectangles, index);
+                areaSum += areas[i];
+            }
+
+            this.maxXMaxY = new DominanceTree(maxX, maxY, areas);
+            this.maxXMinY = new DominanceTree(maxX, minY, areas);
+            this.minXMaxY = new DominanceTree(minX, maxY, areas);
+            this.minXMinY = new DominanceTree(minX, minY, areas);
+            this.count = size;
+            this.totalArea = areaSum;
+        }
+
+        /**
+         * <p>Aggregates the rectangles that meet the window, by inclusion-exclusion over the ways of missing it.</p>
+         * <p>For the closed semantics, a rectangle misses the window when e.g. {@code maxX < window.minX}; for the
+         *    open semantics, when {@code maxX <= window.minX}.</p>
+         * @return {@code result}, holding the count at index 0 and the area sum at index 1
+         */
+        private long[] aggregateMeeting(long minX, long minY, long maxX, long maxY, boolean open, long[] scratch, long[] result)
+        {
+            // Inclusiveness of "edge below the window's lower bound" and "edge at or below the window's upper bound"
+            boolean belowLower = open;
+            boolean belowUpper = !open;
+
+            maxXMaxY.aggregate(minX, belowLower, Long.MAX_VALUE, true, scratch);
+            long leftCount = scratch[0], leftArea = scratch[1];
+
+            maxXMaxY.aggregate(Long.MAX_VALUE, true, minY, belowLower, scratch);
+            long belowCount = scratch[0], belowArea = scratch[1];
+
+            minXMinY.aggregate(maxX, belowUpper, Long.MAX_VALUE, true, scratch);
+            long notRightCount = scratch[0], notRightArea = scratch[1];
+
+            minXMinY.aggregate(Long.MAX_VALUE, true, maxY, belowUpper, scratch);
+            long notAboveCount = scratch[0], notAboveArea = scratch[1];
+
+            maxXMaxY.aggregate(minX, belowLower, minY, belowLower, scratch);
+            long leftAndBelowCount = scratch[0], leftAndBelowArea = scratch[1];
+
+            maxXMinY.aggregate(minX, belowLower, maxY, belowUpper, scratch);
+            long leftAndAboveCount = leftCount - scratch[0], leftAndAboveArea = leftArea - scratch[1];
+
+            minXMaxY.aggregate(maxX, belowUpper, minY, belowLower, scratch);
+            long rightAndBelowCount = belowCount - scratch[0], rightAndBelowArea = belowArea - scratch[1];
+
+            minXMinY.aggregate(maxX, belowUpper, maxY, belowUpper, scratch);
+            long rightAndAboveCount = count - notRightCount - notAboveCount + scratch[0];
+            long rightAndAboveArea = totalArea - notRightArea - notAboveArea + scratch[1];
+
+            long rightCount = count - notRightCount, rightArea = totalArea - notRightArea;
+            long aboveCount = count - notAboveCount, aboveArea = totalArea - notAboveArea;
+
+            result[0] = count - leftCount - rightCount - belowCount - aboveCount
+                    + leftAndBelowCount + leftAndAboveCount + rightAndBelowCount + rightAndAboveCount;
+            result[1] = totalArea - leftArea - rightArea - belowArea - aboveArea
+                    + leftAndBelowArea + leftAndAboveArea + rightAndBelowArea + rightAndAboveArea;
+
+            return result;
+        }
+
+        /**
+         * Counts rectangles having a corner exactly on the opposite corner of the window, e.g. a top-right corner on
+         * the window's lower-left corner
+         */
+        private long countCornerMatches(long minX, long minY, long maxX, long maxY, long[] scratch)
+        {
+            return countEqual(maxXMaxY, minX, minY, scratch)
+                    + countEqual(minXMaxY, maxX, minY, scratch)
+                    + countEqual(minXMinY, maxX, maxY, scratch)
+                    + countEqual(maxXMinY, minX, maxY, scratch);
+        }
+
+        private static long countEqual(DominanceTree tree, long u, long v, long[] scratch)
+        {
+            tree.aggregate(u, true, v, true, scratch);
+            long count = scratch[0];
+
+            tree.aggregate(u, false, v, true, scratch);
+            count -= scratch[0];
+
+            tree.aggregate(u, true, v, false, scratch);
+            count -= scratch[0];
+
+            tree.aggregate(u, false, v, false, scratch);
+
+            return count + scratch[0];
+        }
+    }
+}
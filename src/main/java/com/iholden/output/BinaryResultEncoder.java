@@ -0,0 +1,82 @@
+package com.iholden.output;
+
+import com.iholden.batch.PairEvaluation;
+import com.iholden.constants.ResultField;
+
+/**
+ * <p>Writes a short header, followed by one fixed-width, big-endian record per pair.</p>
+ * <p>The header is the {@link #MAGIC} bytes, the {@link #VERSION} byte, the number of fields and the ordinal of
+ *    each {@link ResultField}, one byte each. Each record holds the 8 byte pair index, followed by each field:</p>
+ * <ul>
+ *     <li>{@code AREA_A}, {@code AREA_B} - 8 byte signed value</li>
+ *     <li>{@code RELATION}, {@code ADJACENCY} - 1 byte enum ordinal</li>
+ *     <li>{@code IDENTICAL}, {@code CONTAINMENT}, {@code INTERSECTION} - 1 byte, 0 or 1</li>
+ *     <li>{@code INTERSECTION_POINTS} - 1 byte point count, then 4 slots of 8 byte x and y values; unused slots are 0</li>
+ * </ul>
+ * <p>Every record therefore has the same width for a given header, and can be located by offset.</p>
+ */
+final class BinaryResultEncoder implements ResultEncoder
+{
+    static final byte[] MAGIC = ByteSink.ascii("RECT");
+    static final int VERSION = 2;
+
+    private final ByteSink sink;
+    private final ResultField[] fields;
+    private final long[] points = new long[2 * PairEvaluation.MAX_INTERSECTION_POINTS];
+
+    BinaryResultEncoder(ByteSink sink, ResultField[] fields)
+    {
+        this.sink = sink;
+        this.fields = fields;
+    }
+
+    @Override
+    public void writeHeader()
+    {
+        sink.putBytes(MAGIC).putByte(VERSION).putByte(fields.length);
+
+        for (ResultField field : fields)
+        {
+            sink.putByte(field.ordinal());
+        }
+    }
+
+    @Override
+    public void write(PairEvaluation evaluation)
+    {
+        sink.putLong(evaluation.getIndex());
+
+        for (ResultField field : fields)
+        {
+            switch (field)
+            {
+                case AREA_A -> sink.putLong(evaluation.getPair().getRectangleA().getArea());
+                case AREA_B -> sink.putLong(evaluation.getPair().getRectangleB().getArea());
+                case RELATION -> sink.putByte(evaluation.getRelation().ordinal());
+                case IDENTICAL -> sink.putByte(evaluation.isIdentical() ? 1 : 0);
+                case CONTAINMENT -> sink.putByte(evaluation.isContainment() ? 1 : 0);
+                case INTERSECTION -> sink.putByte(evaluation.isIntersection() ? 1 : 0);
+                case INTERSECTION_POINTS -> writePoints(evaluation);
+                case ADJACENCY -> sink.putByte(evaluation.getAdjacency().ordinal());
+            }
+        }
+    }
+
+    @Override
+    public void flush()
+    {
+        sink.flush();
+    }
+
+    private void writePoints(PairEvaluation evaluation)
+    {
+        int count = evaluation.copyIntersectionPointsTo(points);
+
+        sink.putByte(count);
+
+        for (int i = 0; i < 2 * PairEvaluation.MAX_INTERSECTION_POINTS; i++)
+        {
+            sink.putLong(i < 2 * count ? points[i] : 0);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.iholden.output;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Writes bytes to a {@link WritableByteChannel} through a single, reusable {@link ByteBuffer}.</p>
+ * <p>Numbers are written directly into the buffer, as ASCII digits or as fixed-width binary values, so that writing
+ *    a value never creates an intermediate {@link String}. The buffer is written to the channel whenever it fills
+ *    up, and on {@link #flush()}.</p>
+ * <p>This class is not thread-safe.</p>
+ */
+public class ByteSink
+{
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    // Long.MIN_VALUE has 19 digits, plus its sign
+    private static final int MAX_LONG_CHARACTERS = 20;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] digits = new byte[MAX_LONG_CHARACTERS];
+
+    // Prevent external instantiation; prefer static access
+    private ByteSink(WritableByteChannel channel, ByteBuffer buffer)
+    {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * @param channel channel the bytes are written to
+     * @param capacity size of the buffer, in bytes; writes of a single value never exceed 256 bytes
+     * @return a new sink
+     */
+    public static ByteSink of(WritableByteChannel channel, int capacity)
+    {
+        if (capacity < 256)
+        {
+            throw new IllegalArgumentException("capacity must be at least 256 bytes; got " + capacity);
+        }
+
+        return new ByteSink(channel, ByteBuffer.allocateDirect(capacity));
+    }
+
+    /**
+     * Encodes {@code value} as ASCII bytes, for use with {@link #putBytes(byte[])}; intended for constants
+     */
+    public static byte[] ascii(String value)
+    {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public ByteSink putByte(int value)
+    {
+        ensureRemaining(1);
+        buffer.put((byte) value);
+
+        return this;
+    }
+
+    public ByteSink putBytes(byte[] bytes)
+    {
+        if (bytes.length > buffer.capacity())
+        {
+            drain();
+            write(ByteBuffer.wrap(bytes));
+            return this;
+        }
+
+        ensureRemaining(bytes.length);
+        buffer.put(bytes);
+
+        return this;
+    }
+
+    /**
+     * Writes {@code value} as a big-endian, 8 byte binary value
+     */
+    public ByteSink putLong(long value)
+    {
+        ensureRemaining(Long.BYTES);
+        buffer.putLong(value);
+
+        return this;
+    }
+
+    /**
+     * Writes {@code value} as ASCII decimal digits, preceded by a minus sign if negative
+     */
+    public ByteSink putDecimal(long value)
+    {
+        ensureRemaining(MAX_LONG_CHARACTERS);
+
+        if (value == 0)
+        {
+            buffer.put((byte) '0');
+            return this;
+        }
+
+        int position = MAX_LONG_CHARACTERS;
+        boolean negative = value < 0;
+
+        // Digits are produced from negative values, since Long.MIN_VALUE has no positive counterpart
+        long remaining = negative ? value : -value;
+
+        while (remaining != 0)
+        {
+            digits[--position] = (byte) ('0' - remaining % 10);
+            remaining /= 10;
+        }
+
+        if (negative)
+        {
+            digits[--position] = '-';
+        }
+
+        buffer.put(digits, position, MAX_LONG_CHARACTERS - position);
+
+        return this;
+    }
+
+    /**
+     * Writes any buffered bytes to the channel
+     */
+    public void flush()
+    {
+        drain();
+    }
+
+    private void ensureRemaining(int bytes)
+    {
+        if (buffer.remaining() < bytes)
+        {
+            drain();
+        }
+    }
+
+    private void drain()
+    {
+        buffer.flip();
+        write(buffer);
+        buffer.clear();
+    }
+
+    private void write(ByteBuffer source)
+    {
+        try
+        {
+            while (source.hasRemaining())
+            {
+                channel.write(source);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.iholden.output;
+
+import com.iholden.batch.PairEvaluation;
+import com.iholden.constants.ResultField;
+
+/**
+ * <p>Writes a header line of field names, followed by one line of delimited values per pair.</p>
+ * <p>Intersection points are written as space-separated {@code x y} coordinates, with points separated by
+ *    {@code ;}. No value can contain a comma, tab or quote, so values are never quoted.</p>
+ */
+final class DelimitedResultEncoder implements ResultEncoder
+{
+    private final ByteSink sink;
+    private final ResultField[] fields;
+    private final char separator;
+    private final long[] points = new long[2 * PairEvaluation.MAX_INTERSECTION_POINTS];
+
+    DelimitedResultEncoder(ByteSink sink, ResultField[] fields, char separator)
+    {
+        this.sink = sink;
+        this.fields = fields;
+        this.separator = separator;
+    }
+
+    @Override
+    public void writeHeader()
+    {
+        sink.putBytes(EncodedNames.INDEX);
+
+        for (ResultField field : fields)
+        {
+            sink.putByte(separator).putBytes(EncodedNames.FIELDS[field.ordinal()]);
+        }
+
+        sink.putByte('\n');
+    }
+
+    @Override
+    public void write(PairEvaluation evaluation)
+    {
+        sink.putDecimal(evaluation.getIndex());
+
+        for (ResultField field : fields)
+        {
+            sink.putByte(separator);
+
+            switch (field)
+            {
+                case AREA_A -> sink.putDecimal(evaluation.getPair().getRectangleA().getArea());
+                case AREA_B -> sink.putDecimal(evaluation.getPair().getRectangleB().getArea());
+                case RELATION -> sink.putBytes(EncodedNames.RELATIONS[evaluation.getRelation().ordinal()]);
+                case IDENTICAL -> sink.putBytes(EncodedNames.of(evaluation.isIdentical()));
+                case CONTAINMENT -> sink.putBytes(EncodedNames.of(evaluation.isContainment()));
+                case INTERSECTION -> sink.putBytes(EncodedNames.of(evaluation.isIntersection()));
+                case INTERSECTION_POINTS -> writePoints(evaluation);
+                case ADJACENCY -> sink.putBytes(EncodedNames.ADJACENCIES[evaluation.getAdjacency().ordinal()]);
+            }
+        }
+
+        sink.putByte('\n');
+    }
+
+    @Override
+    public void flush()
+    {
+        sink.flush();
+    }
+
+    private void writePoints(PairEvaluation evaluation)
+    {
+        int count = evaluation.copyIntersectionPointsTo(points);
+
+        for (int i = 0; i < count; i++)
+        {
+            if (i > 0)
+            {
+                sink.putByte(';');
+            }
+
+            sink.putDecimal(points[2 * i]).putByte(' ').putDecimal(points[2 * i + 1]);
+        }
+    }
+}
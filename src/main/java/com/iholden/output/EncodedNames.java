@@ -0,0 +1,50 @@
+package com.iholden.output;
+
+import com.iholden.constants.Adjacency;
+import com.iholden.constants.Relation;
+import com.iholden.constants.ResultField;
+
+import java.util.Locale;
+
+/**
+ * ASCII encodings of the names written by the text encoders, computed once so records can be written without Strings
+ */
+final class EncodedNames
+{
+    static final byte[] TRUE = ByteSink.ascii("true");
+    static final byte[] FALSE = ByteSink.ascii("false");
+    static final byte[] INDEX = ByteSink.ascii("INDEX");
+    static final byte[] INDEX_KEY = ByteSink.ascii("index");
+
+    static final byte[][] RELATIONS = new byte[Relation.values().length][];
+    static final byte[][] ADJACENCIES = new byte[Adjacency.values().length][];
+    static final byte[][] FIELDS = new byte[ResultField.values().length][];
+    static final byte[][] FIELD_KEYS = new byte[ResultField.values().length][];
+
+    static
+    {
+        for (Relation relation : Relation.values())
+        {
+            RELATIONS[relation.ordinal()] = ByteSink.ascii(relation.name());
+        }
+
+        for (Adjacency adjacency : Adjacency.values())
+        {
+            ADJACENCIES[adjacency.ordinal()] = ByteSink.ascii(adjacency.name());
+        }
+
+        for (ResultField field : ResultField.values())
+        {
+            FIELDS[field.ordinal()] = ByteSink.ascii(field.name());
+            FIELD_KEYS[field.ordinal()] = ByteSink.ascii(field.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    static byte[] of(boolean value)
+    {
+        return value ? TRUE : FALSE;
+    }
+
+    // Discourage Instantiation
+    private EncodedNames(){};
+}
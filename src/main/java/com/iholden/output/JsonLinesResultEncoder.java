@@ -0,0 +1,90 @@
+package com.iholden.output;
+
+import com.iholden.batch.PairEvaluation;
+import com.iholden.constants.ResultField;
+
+/**
+ * <p>Writes one JSON object per line for each pair, keyed by the lower-case field names.</p>
+ * <p>Intersection points are written as an array of {@code [x, y]} arrays. There is no header.</p>
+ */
+final class JsonLinesResultEncoder implements ResultEncoder
+{
+    private final ByteSink sink;
+    private final ResultField[] fields;
+    private final long[] points = new long[2 * PairEvaluation.MAX_INTERSECTION_POINTS];
+
+    JsonLinesResultEncoder(ByteSink sink, ResultField[] fields)
+    {
+        this.sink = sink;
+        this.fields = fields;
+    }
+
+    @Override
+    public void writeHeader()
+    {
+        // Every line is self-describing
+    }
+
+    @Override
+    public void write(PairEvaluation evaluation)
+    {
+        sink.putByte('{');
+        writeKey(EncodedNames.INDEX_KEY).putDecimal(evaluation.getIndex());
+
+        for (ResultField field : fields)
+        {
+            sink.putByte(',');
+            writeKey(EncodedNames.FIELD_KEYS[field.ordinal()]);
+
+            switch (field)
+            {
+                case AREA_A -> sink.putDecimal(evaluation.getPair().getRectangleA().getArea());
+                case AREA_B -> sink.putDecimal(evaluation.getPair().getRectangleB().getArea());
+                case RELATION -> writeString(EncodedNames.RELATIONS[evaluation.getRelation().ordinal()]);
+                case IDENTICAL -> sink.putBytes(EncodedNames.of(evaluation.isIdentical()));
+                case CONTAINMENT -> sink.putBytes(EncodedNames.of(evaluation.isContainment()));
+                case INTERSECTION -> sink.putBytes(EncodedNames.of(evaluation.isIntersection()));
+                case INTERSECTION_POINTS -> writePoints(evaluation);
+                case ADJACENCY -> writeString(EncodedNames.ADJACENCIES[evaluation.getAdjacency().ordinal()]);
+            }
+        }
+
+        sink.putByte('}').putByte('\n');
+    }
+
+    @Override
+    public void flush()
+    {
+        sink.flush();
+    }
+
+    private ByteSink writeKey(byte[] key)
+    {
+        return writeString(key).putByte(':');
+    }
+
+    // Names are plain upper/lower-case ASCII, so they never need escaping
+    private ByteSink writeString(byte[] value)
+    {
+        return sink.putByte('"').putBytes(value).putByte('"');
+    }
+
+    private void writePoints(PairEvaluation evaluation)
+    {
+        int count = evaluation.copyIntersectionPointsTo(points);
+
+        sink.putByte('[');
+
+        for (int i = 0; i < count; i++)
+        {
+            if (i > 0)
+            {
+                sink.putByte(',');
+            }
+
+            sink.putByte('[').putDecimal(points[2 * i]).putByte(',').putDecimal(points[2 * i + 1]).putByte(']');
+        }
+
+        sink.putByte(']');
+    }
+}
@@ -0,0 +1,53 @@
+package com.iholden.output;
+
+import com.iholden.batch.PairEvaluation;
+import com.iholden.constants.OutputFormat;
+import com.iholden.constants.ResultField;
+
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * <p>Writes the requested {@link ResultField}s of evaluated pairs to a {@link WritableByteChannel}, in one of the
+ *    supported {@link OutputFormat}s.</p>
+ * <p>Encoders write values straight into a reusable {@link ByteSink}, rather than formatting them as Strings, so
+ *    once constructed, encoding a value creates no objects. This covers the encoding step alone: the pair, its
+ *    rectangles and its {@link PairEvaluation} are created by the caller, and some checks, such as adjacency,
+ *    create objects of their own when evaluated. Only the requested fields are evaluated.</p>
+ * <p>Implementations are not thread-safe.</p>
+ */
+public interface ResultEncoder
+{
+    /**
+     * Creates an encoder for {@code format}, with a buffer of {@link ByteSink#DEFAULT_CAPACITY} bytes
+     * @param format format to write
+     * @param fields fields to write for each pair, in order
+     * @param channel channel to write to; not closed by the encoder
+     * @return a new encoder
+     */
+    static ResultEncoder of(OutputFormat format, List<ResultField> fields, WritableByteChannel channel)
+    {
+        ByteSink sink = ByteSink.of(channel, ByteSink.DEFAULT_CAPACITY);
+        ResultField[] fieldArray = fields.toArray(new ResultField[0]);
+
+        return switch (format)
+        {
+            case TSV -> new DelimitedResultEncoder(sink, fieldArray, '\t');
+            case CSV -> new DelimitedResultEncoder(sink, fieldArray, ',');
+            case JSONL -> new JsonLinesResultEncoder(sink, fieldArray);
+            case BINARY -> new BinaryResultEncoder(sink, fieldArray);
+        };
+    }
+
+    /**
+     * Writes whatever the format expects before the first pair, if anything
+     */
+    void writeHeader();
+
+    void write(PairEvaluation evaluation);
+
+    /**
+     * Writes any buffered output to the channel
+     */
+    void flush();
+}
@@ -0,0 +1,473 @@
+package com.iholden.pipeline;
+
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.RectanglePair;
+import com.iholden.support.Classification;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * <p>A {@link Flow.Processor} stage that classifies incoming items as {@link RectanglePair}s, emitting a
+ *    {@link Classification} for each one.</p>
+ * <p>Classification work is spread over up to {@code parallelism} tasks on the provided {@link Executor}. Results
+ *    are emitted either in arrival order, or as soon as they are available, depending on {@code ordered}.</p>
+ * <p>Backpressure is demand-based in both directions: at most {@code capacity} items are ever requested from
+ *    upstream but not yet delivered downstream, which bounds memory use regardless of how slow the downstream
+ *    subscriber is. Upstream demand is replenished in batches of {@code requestBatchSize} items, rather than one
+ *    item at a time, so that signaling overhead does not dominate the cost of a classification.</p>
+ * <p>Items that are not already pairs (e.g. a stream of {@link Rectangle}s compared against a reference rectangle)
+ *    are supported via the {@code pairMapper} provided at construction; see {@link #againstReference(Rectangle, int, boolean)}.</p>
+ * <p>A single downstream subscriber is supported.</p>
+ * @param <T> type of the items published upstream
+ */
+public class ClassificationProcessor<T> implements Flow.Processor<T, Classification>
+{
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final Function<? super T, ? extends RectanglePair> pairMapper;
+    private final Executor executor;
+    private final int parallelism;
+    private final int capacity;
+    private final int mask;
+    private final int requestBatchSize;
+    private final boolean ordered;
+
+    private final ConcurrentLinkedQueue<PendingItem<T>> pendingItems = new ConcurrentLinkedQueue<>();
+    private final AtomicReferenceArray<Classification> orderedResults;
+    private final ConcurrentLinkedQueue<Classification> unorderedResults;
+
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private final AtomicInteger drainWorkInProgress = new AtomicInteger();
+    private final AtomicLong downstreamDemand = new AtomicLong();
+
+    // The first failure wins; it is recorded before upstreamDone is set, so seeing upstreamDone means seeing it
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super Classification> downstream;
+    private volatile long receivedCount;
+    private volatile long emittedCount;
+    private volatile boolean upstreamDone;
+    private volatile boolean cancelled;
+
+    // Only accessed from within the serialized drain loop
+    private long consumedSinceLastRequest;
+    private boolean terminated;
+
+    /**
+     * @param pairMapper maps each upstream item to the pair of rectangles that should be classified
+     * @param executor executor used to run classification tasks
+     * @param parallelism maximum number of classification tasks running concurrently
+     * @param capacity maximum number of items in flight between upstream and downstream; rounded up to a power of two
+     * @param requestBatchSize number of items to consume before replenishing upstream demand; at most {@code capacity}
+     * @param ordered whether results must be emitted in the same order as the items arrived
+     */
+    public ClassificationProcessor(Function<? super T, ? extends RectanglePair> pairMapper, Executor executor,
+                                   int parallelism, int capacity, int requestBatchSize, boolean ordered)
+    {
+        if (parallelism < 1 || capacity < 1 || requestBatchSize < 1)
+        {
+            throw new IllegalArgumentException("parallelism, capacity and requestBatchSize must all be positive");
+        }
+
+        this.pairMapper = Objects.requireNonNull(pairMapper);
+        this.executor = Objects.requireNonNull(executor);
+        this.parallelism = parallelism;
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.requestBatchSize = Math.min(requestBatchSize, this.capacity);
+        this.ordered = ordered;
+        this.orderedResults = ordered ? new AtomicReferenceArray<>(this.capacity) : null;
+        this.unorderedResults = ordered ? null : new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Creates a processor for a stream of pairs, using the common pool with one task per available processor
+     * @param capacity maximum number of items in flight
+     * @param ordered whether results must be emitted in arrival order
+     * @return a new processor
+     */
+    public static ClassificationProcessor<RectanglePair> forPairs(int capacity, boolean ordered)
+    {
+        return new ClassificationProcessor<>(Function.identity(), ForkJoinPool.commonPool(),
+                Runtime.getRuntime().availableProcessors(), capacity, Math.max(1, capacity / 4), ordered);
+    }
+
+    /**
+     * Creates a processor that classifies each incoming rectangle as Rectangle B against {@code reference} as Rectangle A
+     * @param reference rectangle every incoming rectangle is compared with
+     * @param capacity maximum number of items in flight
+     * @param ordered whether results must be emitted in arrival order
+     * @return a new processor
+     */
+    public static ClassificationProcessor<Rectangle> againstReference(Rectangle reference, int capacity, boolean ordered)
+    {
+        Objects.requireNonNull(reference);
+
+        return new ClassificationProcessor<>(rectangle -> RectanglePair.of(reference, rectangle), ForkJoinPool.commonPool(),
+                Runtime.getRuntime().availableProcessors(), capacity, Math.max(1, capacity / 4), ordered);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Classification> subscriber)
+    {
+        Objects.requireNonNull(subscriber);
+
+        if (downstream != null)
+        {
+            subscriber.onSubscribe(new RejectedSubscription());
+            subscriber.onError(new IllegalStateException("ClassificationProcessor supports a single subscriber"));
+            return;
+        }
+
+        downstream = subscriber;
+        subscriber.onSubscribe(new DownstreamSubscription());
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription)
+    {
+        if (upstream != null || cancelled)
+        {
+            subscription.cancel();
+            return;
+        }
+
+        upstream = subscription;
+        subscription.request(capacity);
+    }
+
+    @Override
+    public void onNext(T item)
+    {
+        if (upstreamDone || cancelled)
+        {
+            return;
+        }
+
+        long sequence = receivedCount;
+
+        if (sequence - emittedCount >= capacity)
+        {
+            // Upstream broke the protocol, so nothing more is accepted from it
+            failAndCancelUpstream(new IllegalStateException("Upstream published more items than were requested"));
+            return;
+        }
+
+        pendingItems.offer(new PendingItem<>(sequence, item));
+        receivedCount = sequence + 1;
+
+        if (tryAcquireWorker())
+        {
+            startWorker();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable)
+    {
+        if (upstreamDone)
+        {
+            return;
+        }
+
+        error.compareAndSet(null, throwable);
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete()
+    {
+        upstreamDone = true;
+        drain();
+    }
+
+    private boolean tryAcquireWorker()
+    {
+        int active;
+
+        do
+        {
+            active = activeWorkers.get();
+
+            if (active >= parallelism)
+            {
+                return false;
+            }
+        }
+        while (!activeWorkers.compareAndSet(active, active + 1));
+
+        return true;
+    }
+
+    private void startWorker()
+    {
+        try
+        {
+            executor.execute(this::runWorker);
+        }
+        catch (RejectedExecutionException e)
+        {
+            activeWorkers.decrementAndGet();
+            failAndCancelUpstream(e);
+        }
+    }
+
+    private void runWorker()
+    {
+        do
+        {
+            PendingItem<T> pendingItem;
+
+            while ((pendingItem = pendingItems.poll()) != null)
+            {
+                if (cancelled || error.get() != null)
+                {
+                    pendingItems.clear();
+                    break;
+                }
+
+                Classification classification;
+
+                try
+                {
+                    classification = Classification.of(pairMapper.apply(pendingItem.item));
+                }
+                catch (RuntimeException e)
+                {
+                    failAndCancelUpstream(e);
+                    break;
+                }
+
+                if (ordered)
+                {
+                    orderedResults.set((int) (pendingItem.sequence & mask), classification);
+                }
+                else
+                {
+                    unorderedResults.offer(classification);
+                }
+
+                drain();
+            }
+
+            activeWorkers.decrementAndGet();
+        }
+        // An item may have been offered after the queue was seen as empty, but before this worker was released
+        while (!pendingItems.isEmpty() && tryAcquireWorker());
+    }
+
+    private void failAndCancelUpstream(Throwable throwable)
+    {
+        error.compareAndSet(null, throwable);
+
+        // Nothing more is accepted from upstream, so a late onError cannot replace this failure
+        upstreamDone = true;
+
+        Flow.Subscription subscription = upstream;
+
+        if (subscription != null)
+        {
+            subscription.cancel();
+        }
+
+        drain();
+    }
+
+    private Classification pollResult()
+    {
+        if (!ordered)
+        {
+            return unorderedResults.poll();
+        }
+
+        int index = (int) (emittedCount & mask);
+        Classification classification = orderedResults.get(index);
+
+        if (classification != null)
+        {
+            orderedResults.set(index, null);
+        }
+
+        return classification;
+    }
+
+    /**
+     * <p>Emits available results to the downstream subscriber, within its outstanding demand.</p>
+     * <p>Calls are serialized via a work-in-progress counter, so only one thread ever signals downstream at a time;
+     *    a thread that finds the loop already running simply records that more work is available.</p>
+     */
+    private void drain()
+    {
+        if (drainWorkInProgress.getAndIncrement() != 0)
+        {
+            return;
+        }
+
+        int missed = 1;
+
+        do
+        {
+            Flow.Subscriber<? super Classification> subscriber = downstream;
+
+            if (subscriber != null && !terminated)
+            {
+                emitAvailableResults(subscriber);
+            }
+
+            missed = drainWorkInProgress.addAndGet(-missed);
+        }
+        while (missed != 0);
+    }
+
+    private void emitAvailableResults(Flow.Subscriber<? super Classification> subscriber)
+    {
+        long demand = downstreamDemand.get();
+        long sent = 0;
+
+        while (sent != demand)
+        {
+            if (cancelled)
+            {
+                clearBuffers();
+                terminated = true;
+                return;
+            }
+
+            if (error.get() != null)
+            {
+                break;
+            }
+
+            Classification classification = pollResult();
+
+            if (classification == null)
+            {
+                break;
+            }
+
+            subscriber.onNext(classification);
+            emittedCount = emittedCount + 1;
+            sent++;
+
+            if (++consumedSinceLastRequest == requestBatchSize)
+            {
+                consumedSinceLastRequest = 0;
+                upstream.request(requestBatchSize);
+            }
+        }
+
+        if (sent != 0 && demand != Long.MAX_VALUE)
+        {
+            downstreamDemand.addAndGet(-sent);
+        }
+
+        // Read upstreamDone before the error, so a failure that ended the upstream is never taken for completion
+        boolean done = upstreamDone;
+        Throwable failure = error.get();
+
+        if (cancelled)
+        {
+            clearBuffers();
+            terminated = true;
+        }
+        else if (failure != null)
+        {
+            clearBuffers();
+            terminated = true;
+            subscriber.onError(failure);
+        }
+        else if (done && emittedCount == receivedCount)
+        {
+            terminated = true;
+            subscriber.onComplete();
+        }
+    }
+
+    private void clearBuffers()
+    {
+        pendingItems.clear();
+
+        if (ordered)
+        {
+            for (int i = 0; i < capacity; i++)
+            {
+                orderedResults.set(i, null);
+            }
+        }
+        else
+        {
+            unorderedResults.clear();
+        }
+    }
+
+    private class DownstreamSubscription implements Flow.Subscription
+    {
+        @Override
+        public void request(long n)
+        {
+            if (n <= 0)
+            {
+                failAndCancelUpstream(new IllegalArgumentException("Requested demand must be positive; got " + n));
+                return;
+            }
+
+            downstreamDemand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            drain();
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+
+            Flow.Subscription subscription = upstream;
+
+            if (subscription != null)
+            {
+                subscription.cancel();
+            }
+
+            drain();
+        }
+    }
+
+    private static class RejectedSubscription implements Flow.Subscription
+    {
+        @Override
+        public void request(long n)
+        {
+            // No items will ever be delivered to a rejected subscriber
+        }
+
+        @Override
+        public void cancel()
+        {
+            // Nothing to release
+        }
+    }
+
+    private static class PendingItem<T>
+    {
+        private final long sequence;
+        private final T item;
+
+        private PendingItem(long sequence, T item)
+        {
+            this.sequence = sequence;
+            this.item = item;
+        }
+    }
+}
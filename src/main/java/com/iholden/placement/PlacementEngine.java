@@ -0,0 +1,307 @@
+package com.iholden.placement;
+
+import com.iholden.constants.PlacementPolicy;
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.entities.impl.RectangleImpl;
+import com.iholden.support.RectangleBuffer;
+
+import java.util.Optional;
+
+/**
+ * <p>Finds free positions for new rectangles within a bounding region, as rectangles are placed in and removed from
+ *    it.</p>
+ * <p>A rectangle fits at a position when it lies within the region and its interior overlaps the interior of no
+ *    placed rectangle, in line with {@link Rectangle#intersection(Rectangle, com.iholden.support.RectangleBuffer)}:
+ *    sharing an edge or a corner with placed rectangles, or with the region's boundary, is allowed.</p>
+ * <p>The engine maintains the maximal empty rectangles of the region: the free rectangles that cannot grow in any
+ *    direction without overlapping a placed rectangle or leaving the region. Every position that fits a rectangle
+ *    lies within one of them, so a rectangle fits somewhere exactly when some maximal empty rectangle is at least as
+ *    long and as wide as it, and its lowest, leftmost and tightest positions are all lower left corners of maximal
+ *    empty rectangles.</p>
+ * <ul>
+ *     <li>Placing a rectangle splits each maximal empty rectangle it overlaps into up to four pieces around it, and
+ *         drops the pieces contained in another maximal empty rectangle.</li>
+ *     <li>Removing a rectangle can only grow or create maximal empty rectangles near it. The new ones all lie within
+ *         the bounding box of the removed rectangle and the maximal empty rectangles touching it, so they are
+ *         recomputed within that box alone, and the touching ones they now contain are dropped.</li>
+ * </ul>
+ * <p>Both placed and maximal empty rectangles are kept in trees of subtree aggregates, so finding a position, or
+ *    the maximal empty rectangles a placement affects, descends only into subtrees that can hold a match. See
+ *    {@link PlacementPolicy} for the positions each query chooses.</p>
+ * <p>This class is not thread-safe.</p>
+ * <p>Use the static builder to obtain an instance: {@link PlacementEngine#of(Rectangle)}</p>
+ */
+public class PlacementEngine
+{
+    private final RectangleSlots freeRectangles = new RectangleSlots();
+    private final RectangleSlots placedRectangles = new RectangleSlots();
+    private final RectangleBuffer pieces = new RectangleBuffer();
+
+    // Prevent external instantiation; prefer static access
+    private PlacementEngine(long minX, long minY, long maxX, long maxY)
+    {
+        if (minX < maxX && minY < maxY)
+        {
+            freeRectangles.add(minX, minY, maxX, maxY);
+        }
+    }
+
+    /**
+     * @param region bounding region that rectangles are placed within; initially empty
+     * @return a new engine
+     * @throws IllegalArgumentException if the region's length or width is negative, or too large to represent
+     */
+    public static PlacementEngine of(Rectangle region)
+    {
+        long minX = region.getRangeX().getMin(), maxX = region.getRangeX().getMax();
+        long minY = region.getRangeY().getMin(), maxY = region.getRangeY().getMax();
+
+        // Lengths and widths of free rectangles are taken as differences of bounds, which must not overflow
+        if (maxX < minX || maxY < minY || maxX - minX < 0 || maxY - minY < 0)
+        {
+            throw new IllegalArgumentException("Region must have a non-negative length and width that fit in a long");
+        }
+
+        return new PlacementEngine(minX, minY, maxX, maxY);
+    }
+
+    public int getPlacedCount()
+    {
+        return placedRectangles.size();
+    }
+
+    /**
+     * @return the number of maximal empty rectangles in the region
+     */
+    public int getFreeRectangleCount()
+    {
+        return freeRectangles.size();
+    }
+
+    /**
+     * @param rectangle rectangle of positive length and width, at the position to check
+     * @return true if the rectangle lies within the region and overlaps no placed rectangle
+     */
+    public boolean fits(Rectangle rectangle)
+    {
+        checkPositiveSize(rectangle.getLength(), rectangle.getWidth());
+
+        return freeRectangles.findContaining(rectangle.getRangeX().getMin(), rectangle.getRangeY().getMin(),
+                rectangle.getRangeX().getMax(), rectangle.getRangeY().getMax()) >= 0;
+    }
+
+    /**
+     * Places the rectangle at its own position, if it fits there
+     * @param rectangle rectangle of positive length and width to place
+     * @return true if the rectangle was placed; false if it does not fit
+     */
+    public boolean place(Rectangle rectangle)
+    {
+        if (!fits(rectangle))
+        {
+            return false;
+        }
+
+        occupy(rectangle.getRangeX().getMin(), rectangle.getRangeY().getMin(), rectangle.getRangeX().getMax(), rectangle.getRangeY().getMax());
+
+        return true;
+    }
+
+    /**
+     * Finds a position for a {@code length} x {@code width} rectangle, without placing it
+     * @param length length of the rectangle, along the x axis
+     * @param width width of the rectangle, along the y axis
+     * @param policy which of the positions that fit to choose
+     * @return the rectangle at the chosen position, or {@code Optional.empty()} if it fits nowhere in the region
+     */
+    public Optional<Rectangle> find(long length, long width, PlacementPolicy policy)
+    {
+        checkPositiveSize(length, width);
+
+        int slot = switch (policy)
+        {
+            case FIRST_FIT -> freeRectangles.findFirstFit(length, width);
+            case BEST_FIT -> freeRectangles.findBestFit(length, width);
+            case BOTTOM_LEFT -> freeRectangles.findBottomLeft(length, width);
+        };
+
+        if (slot < 0)
+        {
+            return Optional.empty();
+        }
+
+        return Optional.of(new RectangleImpl(length, width,
+                new PointImpl(freeRectangles.getMinX(slot), freeRectangles.getMinY(slot))));
+    }
+
+    /**
+     * Finds a position for a {@code length} x {@code width} rectangle as {@link #find(long, long, PlacementPolicy)}
+     * does, and places it there
+     * @return the placed rectangle, or {@code Optional.empty()} if it fits nowhere in the region
+     */
+    public Optional<Rectangle> place(long length, long width, PlacementPolicy policy)
+    {
+        Optional<Rectangle> position = find(length, width, policy);
+
+        position.ifPresent(rectangle -> occupy(rectangle.getRangeX().getMin(), rectangle.getRangeY().getMin(),
+                rectangle.getRangeX().getMax(), rectangle.getRangeY().getMax()));
+
+        return position;
+    }
+
+    /**
+     * Removes a placed rectangle, freeing its area
+     * @param rectangle rectangle with the same bounds as a placed one
+     * @return true if the rectangle was removed; false if no placed rectangle has its bounds
+     */
+    public boolean remove(Rectangle rectangle)
+    {
+        long minX = rectangle.getRangeX().getMin(), maxX = rectangle.getRangeX().getMax();
+        long minY = rectangle.getRangeY().getMin(), maxY = rectangle.getRangeY().getMax();
+
+        // Placed rectangles have disjoint interiors, so the only placed rectangle containing one is itself
+        int placed = minX < maxX && minY < maxY ? placedRectangles.findContaining(minX, minY, maxX, maxY) : -1;
+
+        if (placed < 0 || placedRectangles.getMinX(placed) != minX || placedRectangles.getMinY(placed) != minY
+                || placedRectangles.getMaxX(placed) != maxX || placedRectangles.getMaxY(placed) != maxY)
+        {
+            return false;
+        }
+
+        placedRectangles.remove(placed);
+
+        int[] touching = freeRectangles.findMeeting(minX, minY, maxX, maxY, false);
+        long boxMinX = minX, boxMinY = minY, boxMaxX = maxX, boxMaxY = maxY;
+
+        for (int slot : touching)
+        {
+            boxMinX = Math.min(boxMinX, freeRectangles.getMinX(slot));
+            boxMinY = Math.min(boxMinY, freeRectangles.getMinY(slot));
+            boxMaxX = Math.max(boxMaxX, freeRectangles.getMaxX(slot));
+            boxMaxY = Math.max(boxMaxY, freeRectangles.getMaxY(slot));
+        }
+
+        // Maximal empty rectangles of the box that overlap the freed area are maximal in the whole region too
+        var local = new PlacementEngine(boxMinX, boxMinY, boxMaxX, boxMaxY);
+
+        for (int slot : placedRectangles.findMeeting(boxMinX, boxMinY, boxMaxX, boxMaxY, true))
+        {
+            local.occupy(Math.max(boxMinX, placedRectangles.getMinX(slot)), Math.max(boxMinY, placedRectangles.getMinY(slot)),
+                    Math.min(boxMaxX, placedRectangles.getMaxX(slot)), Math.min(boxMaxY, placedRectangles.getMaxY(slot)));
+        }
+
+        RectangleSlots created = local.freeRectangles;
+        int[] createdSlots = created.findMeeting(minX, minY, maxX, maxY, true);
+
+        for (int slot : touching)
+        {
+            for (int createdSlot : createdSlots)
+            {
+                if (contains(created.getMinX(createdSlot), created.getMinY(createdSlot), created.getMaxX(createdSlot), created.getMaxY(createdSlot),
+                        freeRectangles.getMinX(slot), freeRectangles.getMinY(slot), freeRectangles.getMaxX(slot), freeRectangles.getMaxY(slot)))
+                {
+                    freeRectangles.remove(slot);
+                    break;
+                }
+            }
+        }
+
+        for (int slot : createdSlots)
+        {
+            freeRectangles.add(created.getMinX(slot), created.getMinY(slot), created.getMaxX(slot), created.getMaxY(slot));
+        }
+
+        return true;
+    }
+
+    /**
+     * Places a rectangle known to fit, splitting the maximal empty rectangles it overlaps
+     */
+    private void occupy(long minX, long minY, long maxX, long maxY)
+    {
+        pieces.clear();
+
+        for (int slot : freeRectangles.findMeeting(minX, minY, maxX, maxY, true))
+        {
+            split(freeRectangles.getMinX(slot), freeRectangles.getMinY(slot), freeRectangles.getMaxX(slot), freeRectangles.getMaxY(slot),
+                    minX, minY, maxX, maxY);
+            freeRectangles.remove(slot);
+        }
+
+        // A piece is maximal unless it lies within an untouched maximal empty rectangle, or within another piece
+        for (int i = 0; i < pieces.size(); i++)
+        {
+            if (freeRectangles.findContaining(pieces.getMinX(i), pieces.getMinY(i), pieces.getMaxX(i), pieces.getMaxY(i)) < 0
+                    && !isWithinOtherPiece(i))
+            {
+                freeRectangles.add(pieces.getMinX(i), pieces.getMinY(i), pieces.getMaxX(i), pieces.getMaxY(i));
+            }
+        }
+
+        placedRectangles.add(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Appends the largest parts of the free rectangle left of, right of, below and above the placed one to the
+     * pieces, each spanning the free rectangle's full extent along the other axis
+     */
+    private void split(long freeMinX, long freeMinY, long freeMaxX, long freeMaxY, long minX, long minY, long maxX, long maxY)
+    {
+        if (minX > freeMinX)
+        {
+            pieces.add(freeMinX, freeMinY, minX, freeMaxY);
+        }
+
+        if (maxX < freeMaxX)
+        {
+            pieces.add(maxX, freeMinY, freeMaxX, freeMaxY);
+        }
+
+        if (minY > freeMinY)
+        {
+            pieces.add(freeMinX, freeMinY, freeMaxX, minY);
+        }
+
+        if (maxY < freeMaxY)
+        {
+            pieces.add(freeMinX, maxY, freeMaxX, freeMaxY);
+        }
+    }
+
+    private boolean isWithinOtherPiece(int piece)
+    {
+        long minX = pieces.getMinX(piece), minY = pieces.getMinY(piece), maxX = pieces.getMaxX(piece), maxY = pieces.getMaxY(piece);
+
+        for (int other = 0; other < pieces.size(); other++)
+        {
+            if (other == piece || !contains(pieces.getMinX(other), pieces.getMinY(other), pieces.getMaxX(other), pieces.getMaxY(other), minX, minY, maxX, maxY))
+            {
+                continue;
+            }
+
+            // Of identical pieces, only the first is kept
+            boolean identical = contains(minX, minY, maxX, maxY, pieces.getMinX(other), pieces.getMinY(other), pieces.getMaxX(other), pieces.getMaxY(other));
+
+            if (!identical || other < piece)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean contains(long minX, long minY, long maxX, long maxY, long otherMinX, long otherMinY, long otherMaxX, long otherMaxY)
+    {
+        return minX <= otherMinX && minY <= otherMinY && otherMaxX <= maxX && otherMaxY <= maxY;
+    }
+
+    private static void checkPositiveSize(long length, long width)
+    {
+        if (length <= 0 || width <= 0)
+        {
+            throw new IllegalArgumentException("Placed rectangles must have a positive length and width; got " + length + " x " + width);
+        }
+    }
+}
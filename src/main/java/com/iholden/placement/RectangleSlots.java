@@ -0,0 +1,381 @@
+package com.iholden.placement;
+
+import java.util.Arrays;
+
+/**
+ * <p>Mutable set of rectangles stored as primitive closed bounds in numbered slots, with a tournament tree over the
+ *    slots that keeps, for every subtree, the bounding box of its rectangles, their greatest length and width and
+ *    their least area.</p>
+ * <p>Searches descend only into subtrees whose aggregates leave room for a match, so a search that matches few
+ *    rectangles, or whose best match is found early, visits O(log N) nodes per match rather than every slot. Slots
+ *    freed by {@link #remove(int)} are reused before the set grows.</p>
+ * <p>This class is not thread-safe.</p>
+ */
+class RectangleSlots
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] minX;
+    private long[] minY;
+    private long[] maxX;
+    private long[] maxY;
+    private int[] releasedSlots;
+    private int releasedCount;
+    private int usedSlots;
+    private int size;
+
+    // Subtree aggregates; node 1 is the root, and the leaf of slot s is node capacity + s
+    private long[] treeMinX;
+    private long[] treeMinY;
+    private long[] treeMaxX;
+    private long[] treeMaxY;
+    private long[] treeMaxLength;
+    private long[] treeMaxWidth;
+    private long[] treeMinArea;
+
+    // Scratch state of the current search
+    private int[] meetingSlots = new int[8];
+    private int bestSlot;
+
+    RectangleSlots()
+    {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    long getMinX(int slot)
+    {
+        return minX[slot];
+    }
+
+    long getMinY(int slot)
+    {
+        return minY[slot];
+    }
+
+    long getMaxX(int slot)
+    {
+        return maxX[slot];
+    }
+
+    long getMaxY(int slot)
+    {
+        return maxY[slot];
+    }
+
+    /**
+     * @return the slot the rectangle was stored in
+     */
+    int add(long minX, long minY, long maxX, long maxY)
+    {
+        int slot;
+
+        if (releasedCount > 0)
+        {
+            slot = releasedSlots[--releasedCount];
+        }
+        else
+        {
+            if (usedSlots == this.minX.length)
+            {
+                allocate(2 * this.minX.length);
+            }
+
+            slot = usedSlots++;
+        }
+
+        this.minX[slot] = minX;
+        this.minY[slot] = minY;
+        this.maxX[slot] = maxX;
+        this.maxY[slot] = maxY;
+        size++;
+        update(slot, true);
+
+        return slot;
+    }
+
+    void remove(int slot)
+    {
+        releasedSlots[releasedCount++] = slot;
+        size--;
+        update(slot, false);
+    }
+
+    /**
+     * @return a slot whose rectangle contains the closed rectangle, or -1 if there is none
+     */
+    int findContaining(long minX, long minY, long maxX, long maxY)
+    {
+        return findContaining(1, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * @param interiors true to match rectangles whose interiors overlap the rectangle's, false to also match those
+     *                  that only share an edge or a corner with it
+     * @return the slots of the matching rectangles
+     */
+    int[] findMeeting(long minX, long minY, long maxX, long maxY, boolean interiors)
+    {
+        int count = collectMeeting(1, minX, minY, maxX, maxY, interiors, 0);
+
+        return Arrays.copyOf(meetingSlots, count);
+    }
+
+    /**
+     * @return the lowest slot whose rectangle is at least {@code length} long and {@code width} wide, or -1
+     */
+    int findFirstFit(long length, long width)
+    {
+        return findFirstFit(1, length, width);
+    }
+
+    /**
+     * @return the slot whose rectangle has the lowest, then leftmost, lower left corner of those at least
+     *         {@code length} long and {@code width} wide, or -1
+     */
+    int findBottomLeft(long length, long width)
+    {
+        bestSlot = -1;
+        searchBottomLeft(1, length, width);
+
+        return bestSlot;
+    }
+
+    /**
+     * @return the slot whose rectangle has the least area of those at least {@code length} long and {@code width}
+     *         wide, ties going to the lowest, then leftmost, or -1
+     */
+    int findBestFit(long length, long width)
+    {
+        bestSlot = -1;
+        searchBestFit(1, length, width);
+
+        return bestSlot;
+    }
+
+    private int findContaining(int node, long minX, long minY, long maxX, long maxY)
+    {
+        if (treeMinX[node] > minX || treeMinY[node] > minY || treeMaxX[node] < maxX || treeMaxY[node] < maxY)
+        {
+            return -1;
+        }
+
+        int leaves = treeMinX.length / 2;
+
+        if (node >= leaves)
+        {
+            return node - leaves;
+        }
+
+        int slot = findContaining(2 * node, minX, minY, maxX, maxY);
+
+        return slot >= 0 ? slot : findContaining(2 * node + 1, minX, minY, maxX, maxY);
+    }
+
+    private int findFirstFit(int node, long length, long width)
+    {
+        // Greatest length and width may come from different rectangles, so a subtree that passes can still hold no fit
+        if (!canFit(node, length, width))
+        {
+            return -1;
+        }
+
+        int leaves = treeMinX.length / 2;
+
+        if (node >= leaves)
+        {
+            return node - leaves;
+        }
+
+        int slot = findFirstFit(2 * node, length, width);
+
+        return slot >= 0 ? slot : findFirstFit(2 * node + 1, length, width);
+    }
+
+    private int collectMeeting(int node, long minX, long minY, long maxX, long maxY, boolean interiors, int count)
+    {
+        // A node's box covers its leaves' boxes, so a node whose box fails the test holds no match
+        if (interiors ? treeMinX[node] >= maxX || minX >= treeMaxX[node] || treeMinY[node] >= maxY || minY >= treeMaxY[node]
+                      : treeMinX[node] > maxX || minX > treeMaxX[node] || treeMinY[node] > maxY || minY > treeMaxY[node])
+        {
+            return count;
+        }
+
+        int leaves = treeMinX.length / 2;
+
+        if (node >= leaves)
+        {
+            if (count == meetingSlots.length)
+            {
+                meetingSlots = Arrays.copyOf(meetingSlots, 2 * count);
+            }
+
+            meetingSlots[count] = node - leaves;
+
+            return count + 1;
+        }
+
+        count = collectMeeting(2 * node, minX, minY, maxX, maxY, interiors, count);
+
+        return collectMeeting(2 * node + 1, minX, minY, maxX, maxY, interiors, count);
+    }
+
+    private void searchBottomLeft(int node, long length, long width)
+    {
+        if (!canFit(node, length, width) || (bestSlot >= 0 && !isLower(treeMinY[node], treeMinX[node], minY[bestSlot], minX[bestSlot])))
+        {
+            return;
+        }
+
+        int leaves = treeMinX.length / 2;
+
+        if (node >= leaves)
+        {
+            bestSlot = node - leaves;
+            return;
+        }
+
+        // The child with the lower bound is the likelier to hold the best match, which then prunes the other
+        int first = isLower(treeMinY[2 * node + 1], treeMinX[2 * node + 1], treeMinY[2 * node], treeMinX[2 * node]) ? 2 * node + 1 : 2 * node;
+
+        searchBottomLeft(first, length, width);
+        searchBottomLeft(first ^ 1, length, width);
+    }
+
+    private void searchBestFit(int node, long length, long width)
+    {
+        if (!canFit(node, length, width) || (bestSlot >= 0 && treeMinArea[node] > areaOf(bestSlot)))
+        {
+            return;
+        }
+
+        int leaves = treeMinX.length / 2;
+
+        if (node >= leaves)
+        {
+            int slot = node - leaves;
+
+            if (bestSlot < 0 || areaOf(slot) < areaOf(bestSlot)
+                    || (areaOf(slot) == areaOf(bestSlot) && isLower(minY[slot], minX[slot], minY[bestSlot], minX[bestSlot])))
+            {
+                bestSlot = slot;
+            }
+
+            return;
+        }
+
+        int first = treeMinArea[2 * node + 1] < treeMinArea[2 * node] ? 2 * node + 1 : 2 * node;
+
+        searchBestFit(first, length, width);
+        searchBestFit(first ^ 1, length, width);
+    }
+
+    private boolean canFit(int node, long length, long width)
+    {
+        return treeMaxLength[node] >= length && treeMaxWidth[node] >= width;
+    }
+
+    private long areaOf(int slot)
+    {
+        return saturatedArea(maxX[slot] - minX[slot], maxY[slot] - minY[slot]);
+    }
+
+    private void update(int slot, boolean live)
+    {
+        int node = treeMinX.length / 2 + slot;
+
+        treeMinX[node] = live ? minX[slot] : Long.MAX_VALUE;
+        treeMinY[node] = live ? minY[slot] : Long.MAX_VALUE;
+        treeMaxX[node] = live ? maxX[slot] : Long.MIN_VALUE;
+        treeMaxY[node] = live ? maxY[slot] : Long.MIN_VALUE;
+        treeMaxLength[node] = live ? maxX[slot] - minX[slot] : -1;
+        treeMaxWidth[node] = live ? maxY[slot] - minY[slot] : -1;
+        treeMinArea[node] = live ? areaOf(slot) : Long.MAX_VALUE;
+
+        for (node >>>= 1; node > 0; node >>>= 1)
+        {
+            combine(node);
+        }
+    }
+
+    private void combine(int node)
+    {
+        int left = 2 * node, right = 2 * node + 1;
+
+        treeMinX[node] = Math.min(treeMinX[left], treeMinX[right]);
+        treeMinY[node] = Math.min(treeMinY[left], treeMinY[right]);
+        treeMaxX[node] = Math.max(treeMaxX[left], treeMaxX[right]);
+        treeMaxY[node] = Math.max(treeMaxY[left], treeMaxY[right]);
+        treeMaxLength[node] = Math.max(treeMaxLength[left], treeMaxLength[right]);
+        treeMaxWidth[node] = Math.max(treeMaxWidth[left], treeMaxWidth[right]);
+        treeMinArea[node] = Math.min(treeMinArea[left], treeMinArea[right]);
+    }
+
+    private void allocate(int capacity)
+    {
+        int used = minX == null ? 0 : usedSlots;
+
+        minX = minX == null ? new long[capacity] : Arrays.copyOf(minX, capacity);
+        minY = minY == null ? new long[capacity] : Arrays.copyOf(minY, capacity);
+        maxX = maxX == null ? new long[capacity] : Arrays.copyOf(maxX, capacity);
+        maxY = maxY == null ? new long[capacity] : Arrays.copyOf(maxY, capacity);
+        releasedSlots = releasedSlots == null ? new int[capacity] : Arrays.copyOf(releasedSlots, capacity);
+
+        var live = new boolean[capacity];
+
+        Arrays.fill(live, 0, used, true);
+
+        for (int i = 0; i < releasedCount; i++)
+        {
+            live[releasedSlots[i]] = false;
+        }
+
+        treeMinX = new long[2 * capacity];
+        treeMinY = new long[2 * capacity];
+        treeMaxX = new long[2 * capacity];
+        treeMaxY = new long[2 * capacity];
+        treeMaxLength = new long[2 * capacity];
+        treeMaxWidth = new long[2 * capacity];
+        treeMinArea = new long[2 * capacity];
+
+        for (int slot = 0; slot < capacity; slot++)
+        {
+            int node = capacity + slot;
+
+            treeMinX[node] = live[slot] ? minX[slot] : Long.MAX_VALUE;
+            treeMinY[node] = live[slot] ? minY[slot] : Long.MAX_VALUE;
+            treeMaxX[node] = live[slot] ? maxX[slot] : Long.MIN_VALUE;
+            treeMaxY[node] = live[slot] ? maxY[slot] : Long.MIN_VALUE;
+            treeMaxLength[node] = live[slot] ? maxX[slot] - minX[slot] : -1;
+            treeMaxWidth[node] = live[slot] ? maxY[slot] - minY[slot] : -1;
+            treeMinArea[node] = live[slot] ? areaOf(slot) : Long.MAX_VALUE;
+        }
+
+        for (int node = capacity - 1; node > 0; node--)
+        {
+            combine(node);
+        }
+    }
+
+    /**
+     * @return true if {@code (y, x)} comes before {@code (otherY, otherX)}: lower, or as low and further left
+     */
+    static boolean isLower(long y, long x, long otherY, long otherX)
+    {
+        return y < otherY || (y == otherY && x < otherX);
+    }
+
+    /**
+     * @return {@code length * width}, or {@link Long#MAX_VALUE} if the product overflows
+     */
+    static long saturatedArea(long length, long width)
+    {
+        long area = length * width;
+
+        return Math.multiplyHigh(length, width) != 0 || area < 0 ? Long.MAX_VALUE : area;
+    }
+}
@@ -0,0 +1,130 @@
+package com.iholden.registry;
+
+import com.iholden.entities.Rectangle;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * <p>Thread-safe registry of {@link Rectangle}s keyed by id, built for many concurrent readers and few writers.</p>
+ * <p>Entries are striped across a fixed number of immutable segments by id hash. An update copies only the affected
+ *    segment, and publishes a new {@link RegistrySnapshot} with a single compare-and-set; concurrent updates that
+ *    lose the race retry against the newer snapshot. Updates are therefore linearizable, in the order in which their
+ *    compare-and-set succeeded.</p>
+ * <p>Readers never block or take locks: {@link #snapshot()} is a single volatile read, so read throughput scales with
+ *    the number of reader threads.</p>
+ */
+public class RectangleRegistry
+{
+    public static final int DEFAULT_SEGMENT_COUNT = 64;
+
+    private final AtomicReference<RegistrySnapshot> current;
+
+    public RectangleRegistry()
+    {
+        this(DEFAULT_SEGMENT_COUNT);
+    }
+
+    /**
+     * @param segmentCount number of segments; rounded up to a power of two. More segments make updates cheaper,
+     *                     at the cost of more per-segment overhead in queries.
+     */
+    public RectangleRegistry(int segmentCount)
+    {
+        if (segmentCount < 1)
+        {
+            throw new IllegalArgumentException("segmentCount must be positive; got " + segmentCount);
+        }
+
+        var segments = new RegistrySegment[segmentCount == 1 ? 1 : Integer.highestOneBit(segmentCount - 1) << 1];
+
+        Arrays.fill(segments, RegistrySegment.EMPTY);
+        this.current = new AtomicReference<>(new RegistrySnapshot(segments, 0));
+    }
+
+    /**
+     * Returns a consistent, immutable view of the registry as of the most recent completed update
+     * @return the current snapshot
+     */
+    public RegistrySnapshot snapshot()
+    {
+        return current.get();
+    }
+
+    public Rectangle get(String id)
+    {
+        return snapshot().get(id);
+    }
+
+    /**
+     * Registers {@code rectangle} under {@code id}, replacing any rectangle already registered under that id
+     * @param id id of the rectangle
+     * @param rectangle rectangle to register
+     * @return the rectangle previously registered under {@code id}, or null if there was none
+     */
+    public Rectangle put(String id, Rectangle rectangle)
+    {
+        Objects.requireNonNull(id);
+        Objects.requireNonNull(rectangle);
+
+        RegistrySnapshot snapshot;
+        Rectangle previous;
+
+        do
+        {
+            snapshot = current.get();
+            previous = snapshot.get(id);
+        }
+        while (!current.compareAndSet(snapshot, withSegment(snapshot, id, segment -> segment.with(id, rectangle))));
+
+        return previous;
+    }
+
+    /**
+     * Removes the rectangle registered under {@code id}, if any
+     * @param id id of the rectangle
+     * @return the removed rectangle, or null if there was none
+     */
+    public Rectangle remove(String id)
+    {
+        Objects.requireNonNull(id);
+
+        RegistrySnapshot snapshot;
+        Rectangle previous;
+
+        do
+        {
+            snapshot = current.get();
+            previous = snapshot.get(id);
+
+            if (previous == null)
+            {
+                return null;
+            }
+        }
+        while (!current.compareAndSet(snapshot, withSegment(snapshot, id, segment -> segment.without(id))));
+
+        return previous;
+    }
+
+    private static RegistrySnapshot withSegment(RegistrySnapshot snapshot, String id, UnaryOperator<RegistrySegment> update)
+    {
+        RegistrySegment[] segments = snapshot.segments();
+        RegistrySegment[] updatedSegments = segments.clone();
+        int index = segmentIndexOf(id, segments.length);
+
+        updatedSegments[index] = update.apply(segments[index]);
+
+        return new RegistrySnapshot(updatedSegments, snapshot.getVersion() + 1);
+    }
+
+    static int segmentIndexOf(String id, int segmentCount)
+    {
+        int hash = id.hashCode();
+
+        // Spread the high bits down, since only the low bits select the segment
+        return (hash ^ (hash >>> 16)) & (segmentCount - 1);
+    }
+}
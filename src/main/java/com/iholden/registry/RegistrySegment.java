@@ -0,0 +1,207 @@
+package com.iholden.registry;
+
+import com.iholden.entities.Rectangle;
+import com.iholden.support.PrimitiveSorts;
+
+import java.util.function.BiConsumer;
+
+/**
+ * <p>Immutable slice of a {@link RectangleRegistry}, holding the entries whose ids hash to the same stripe.</p>
+ * <p>Entries are stored in parallel arrays sorted by the minimum X coordinate of each rectangle. Spatial queries
+ *    binary search for the first entry that can reach the left-hand edge of the query rectangle, using the running
+ *    maximum of the maximum X coordinates, and for the last entry starting before its right-hand edge, and only
+ *    scan the entries between. Ids are found through an open-addressing table of positions, built with the
+ *    segment.</p>
+ * <p>Updates never modify a segment; they produce a copy with the change applied.</p>
+ */
+final class RegistrySegment
+{
+    static final RegistrySegment EMPTY = new RegistrySegment(new String[0], new Rectangle[0]);
+
+    private final String[] ids;
+    private final Rectangle[] rectangles;
+    private final long[] minX;
+    private final long[] maxX;
+    private final long[] minY;
+    private final long[] maxY;
+
+    // Largest maximum X coordinate of the entries up to each position, which never decreases along the segment
+    private final long[] reachX;
+
+    // Position plus 1 of the entry whose id hashes to each slot, or 0 for an empty slot; at most half full
+    private final int[] slots;
+    private final int slotShift;
+
+    // Bounding box of every rectangle in the segment, used to skip the segment entirely
+    private final long boundsMinX;
+    private final long boundsMaxX;
+    private final long boundsMinY;
+    private final long boundsMaxY;
+
+    private RegistrySegment(String[] ids, Rectangle[] rectangles)
+    {
+        this.ids = ids;
+        this.rectangles = rectangles;
+        this.minX = new long[ids.length];
+        this.maxX = new long[ids.length];
+        this.minY = new long[ids.length];
+        this.maxY = new long[ids.length];
+        this.reachX = new long[ids.length];
+
+        long lowX = Long.MAX_VALUE, highX = Long.MIN_VALUE, lowY = Long.MAX_VALUE, highY = Long.MIN_VALUE;
+
+        for (int i = 0; i < ids.length; i++)
+        {
+            minX[i] = rectangles[i].getRangeX().getMin();
+            maxX[i] = rectangles[i].getRangeX().getMax();
+            minY[i] = rectangles[i].getRangeY().getMin();
+            maxY[i] = rectangles[i].getRangeY().getMax();
+
+            lowX = Math.min(lowX, minX[i]);
+            highX = Math.max(highX, maxX[i]);
+            lowY = Math.min(lowY, minY[i]);
+            highY = Math.max(highY, maxY[i]);
+            reachX[i] = highX;
+        }
+
+        int slotBits = Integer.SIZE - Integer.numberOfLeadingZeros(ids.length);
+
+        this.slots = new int[1 << (slotBits + 1)];
+        this.slotShift = Integer.SIZE - slotBits - 1;
+
+        for (int i = 0; i < ids.length; i++)
+        {
+            int slot = slotOf(ids[i]);
+
+            while (slots[slot] != 0)
+            {
+                slot = (slot + 1) & (slots.length - 1);
+            }
+
+            slots[slot] = i + 1;
+        }
+
+        this.boundsMinX = lowX;
+        this.boundsMaxX = highX;
+        this.boundsMinY = lowY;
+        this.boundsMaxY = highY;
+    }
+
+    int size()
+    {
+        return ids.length;
+    }
+
+    Rectangle get(String id)
+    {
+        int index = indexOf(id);
+
+        return index < 0 ? null : rectangles[index];
+    }
+
+    /**
+     * Returns a copy of this segment with {@code id} mapped to {@code rectangle}, replacing any existing mapping
+     */
+    RegistrySegment with(String id, Rectangle rectangle)
+    {
+        RegistrySegment remaining = without(id);
+        int insertAt = PrimitiveSorts.upperBound(remaining.minX, 0, remaining.ids.length, rectangle.getRangeX().getMin());
+
+        var newIds = new String[remaining.ids.length + 1];
+        var newRectangles = new Rectangle[remaining.ids.length + 1];
+
+        System.arraycopy(remaining.ids, 0, newIds, 0, insertAt);
+        System.arraycopy(remaining.ids, insertAt, newIds, insertAt + 1, remaining.ids.length - insertAt);
+        System.arraycopy(remaining.rectangles, 0, newRectangles, 0, insertAt);
+        System.arraycopy(remaining.rectangles, insertAt, newRectangles, insertAt + 1, remaining.ids.length - insertAt);
+        newIds[insertAt] = id;
+        newRectangles[insertAt] = rectangle;
+
+        return new RegistrySegment(newIds, newRectangles);
+    }
+
+    /**
+     * Returns a copy of this segment without {@code id}, or this segment if it does not hold {@code id}
+     */
+    RegistrySegment without(String id)
+    {
+        int existingIndex = indexOf(id);
+
+        if (existingIndex < 0)
+        {
+            return this;
+        }
+
+        var newIds = new String[ids.length - 1];
+        var newRectangles = new Rectangle[ids.length - 1];
+
+        System.arraycopy(ids, 0, newIds, 0, existingIndex);
+        System.arraycopy(ids, existingIndex + 1, newIds, existingIndex, ids.length - existingIndex - 1);
+        System.arraycopy(rectangles, 0, newRectangles, 0, existingIndex);
+        System.arraycopy(rectangles, existingIndex + 1, newRectangles, existingIndex, ids.length - existingIndex - 1);
+
+        // Removing an entry keeps the remaining entries sorted
+        return new RegistrySegment(newIds, newRectangles);
+    }
+
+    /**
+     * Passes every entry whose bounds touch or overlap those of {@code query} to {@code consumer}.
+     * Rectangles whose bounds do not touch cannot be related to the query in any way, so this is the candidate set
+     * for every relation query.
+     */
+    void forEachTouching(Rectangle query, BiConsumer<String, Rectangle> consumer)
+    {
+        long queryMinX = query.getRangeX().getMin();
+        long queryMaxX = query.getRangeX().getMax();
+        long queryMinY = query.getRangeY().getMin();
+        long queryMaxY = query.getRangeY().getMax();
+
+        if (ids.length == 0 || boundsMinX > queryMaxX || boundsMaxX < queryMinX || boundsMinY > queryMaxY || boundsMaxY < queryMinY)
+        {
+            return;
+        }
+
+        // Entries before the first to reach the query's left-hand edge, or from the first to start past its
+        // right-hand edge, cannot touch it
+        int from = PrimitiveSorts.lowerBound(reachX, 0, ids.length, queryMinX);
+        int to = PrimitiveSorts.upperBound(minX, from, ids.length, queryMaxX);
+
+        for (int i = from; i < to; i++)
+        {
+            if (maxX[i] >= queryMinX && minY[i] <= queryMaxY && maxY[i] >= queryMinY)
+            {
+                consumer.accept(ids[i], rectangles[i]);
+            }
+        }
+    }
+
+    void forEach(BiConsumer<String, Rectangle> consumer)
+    {
+        for (int i = 0; i < ids.length; i++)
+        {
+            consumer.accept(ids[i], rectangles[i]);
+        }
+    }
+
+    private int indexOf(String id)
+    {
+        for (int slot = slotOf(id); slots[slot] != 0; slot = (slot + 1) & (slots.length - 1))
+        {
+            if (ids[slots[slot] - 1].equals(id))
+            {
+                return slots[slot] - 1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Takes the slot from the high bits of a multiplicative hash, since the ids of a segment all share the low bits
+     * that chose the segment
+     */
+    private int slotOf(String id)
+    {
+        return (id.hashCode() * 0x9E3779B9) >>> slotShift;
+    }
+}
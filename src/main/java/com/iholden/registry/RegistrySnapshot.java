@@ -0,0 +1,142 @@
+package com.iholden.registry;
+
+import com.iholden.constants.Adjacency;
+import com.iholden.entities.Rectangle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+
+/**
+ * <p>Immutable, point-in-time view of a {@link RectangleRegistry}.</p>
+ * <p>A snapshot reflects every update that completed before it was taken and none that completed after, so
+ *    queries against it are consistent with each other no matter how many writers are active. Taking and querying
+ *    a snapshot never blocks.</p>
+ * <p>Relation queries use the {@link Rectangle} relation semantics, evaluated with the query rectangle as
+ *    Rectangle A and each registered rectangle as Rectangle B.</p>
+ */
+public final class RegistrySnapshot
+{
+    private final RegistrySegment[] segments;
+    private final long version;
+    private final int size;
+
+    RegistrySnapshot(RegistrySegment[] segments, long version)
+    {
+        this.segments = segments;
+        this.version = version;
+
+        int total = 0;
+
+        for (RegistrySegment segment : segments)
+        {
+            total += segment.size();
+        }
+
+        this.size = total;
+    }
+
+    RegistrySegment[] segments()
+    {
+        return segments;
+    }
+
+    /**
+     * Returns the number of updates applied to the registry at the time the snapshot was taken
+     * @return version of the snapshot
+     */
+    public long getVersion()
+    {
+        return version;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public Rectangle get(String id)
+    {
+        return segments[RectangleRegistry.segmentIndexOf(id, segments.length)].get(id);
+    }
+
+    public void forEach(BiConsumer<String, Rectangle> consumer)
+    {
+        for (RegistrySegment segment : segments)
+        {
+            segment.forEach(consumer);
+        }
+    }
+
+    /**
+     * Finds the ids of registered rectangles that {@code query} intersects with
+     * @param query query rectangle
+     * @return ids of the matching rectangles
+     * @see Rectangle#intersects(Rectangle)
+     */
+    public List<String> findIntersecting(Rectangle query)
+    {
+        return findMatching(query, Rectangle::intersects);
+    }
+
+    /**
+     * Finds the ids of registered rectangles that {@code query} contains
+     * @param query query rectangle
+     * @return ids of the matching rectangles
+     * @see Rectangle#contains(Rectangle)
+     */
+    public List<String> findContainedBy(Rectangle query)
+    {
+        return findMatching(query, Rectangle::contains);
+    }
+
+    /**
+     * Finds the ids of registered rectangles that contain {@code query}
+     * @param query query rectangle
+     * @return ids of the matching rectangles
+     * @see Rectangle#contains(Rectangle)
+     */
+    public List<String> findContaining(Rectangle query)
+    {
+        return findMatching(query, (q, candidate) -> candidate.contains(q));
+    }
+
+    /**
+     * Finds the ids of registered rectangles that {@code query} is adjacent to, in any {@link Adjacency} other than NONE
+     * @param query query rectangle
+     * @return ids of the matching rectangles
+     * @see Rectangle#determineAdjacencyWith(Rectangle)
+     */
+    public List<String> findAdjacent(Rectangle query)
+    {
+        return findMatching(query, (q, candidate) -> q.determineAdjacencyWith(candidate) != Adjacency.NONE);
+    }
+
+    /**
+     * <p>Finds the ids of registered rectangles for which {@code relation} holds, with {@code query} passed as the
+     *    first argument.</p>
+     * <p>Only rectangles whose bounds touch or overlap those of {@code query} are tested, so the relation must
+     *    never hold for rectangles that are apart.</p>
+     * @param query query rectangle
+     * @param relation relation to test
+     * @return ids of the matching rectangles
+     */
+    public List<String> findMatching(Rectangle query, BiPredicate<Rectangle, Rectangle> relation)
+    {
+        var matchingIds = new ArrayList<String>();
+
+        for (RegistrySegment segment : segments)
+        {
+            segment.forEachTouching(query, (id, candidate) ->
+            {
+                if (relation.test(query, candidate))
+                {
+                    matchingIds.add(id);
+                }
+            });
+        }
+
+        return matchingIds;
+    }
+}
@@ -0,0 +1,132 @@
+package com.iholden.sampling;
+
+/**
+ * <p>An estimated proportion, with the confidence interval around it and the sample it was drawn from.</p>
+ * <p>Use a static builder to obtain an instance: {@link Estimate#of(double, double, double, long, long)} or
+ *    {@link Estimate#wilson(long, long, double)}</p>
+ */
+public class Estimate
+{
+    private final double value;
+    private final double lower;
+    private final double upper;
+    private final long hits;
+    private final long trials;
+
+    // Prevent external instantiation; prefer static access
+    private Estimate(double value, double lower, double upper, long hits, long trials)
+    {
+        this.value = value;
+        this.lower = lower;
+        this.upper = upper;
+        this.hits = hits;
+        this.trials = trials;
+    }
+
+    /**
+     * @param value estimated proportion; NaN if nothing was sampled to estimate it from
+     * @param lower lower end of the confidence interval
+     * @param upper upper end of the confidence interval
+     * @param hits number of sampled pairs having the estimated property
+     * @param trials number of sampled pairs the property was looked for in
+     * @return a new estimate
+     */
+    public static Estimate of(double value, double lower, double upper, long hits, long trials)
+    {
+        return new Estimate(value, lower, upper, hits, trials);
+    }
+
+    /**
+     * <p>Estimates a proportion from a simple random sample, with the Wilson score interval, which unlike the normal
+     *    interval stays meaningful when there are few or no hits.</p>
+     * @param hits number of sampled items having the property
+     * @param trials number of sampled items
+     * @param confidence confidence level of the interval, e.g. 0.95
+     * @return the estimate, or one with a NaN value and an interval of [0, 1] if there were no trials
+     */
+    public static Estimate wilson(long hits, long trials, double confidence)
+    {
+        double z = zScore(confidence);
+
+        if (trials == 0)
+        {
+            return new Estimate(Double.NaN, 0, 1, 0, 0);
+        }
+
+        double proportion = (double) hits / trials;
+        double zSquared = z * z;
+        double centre = (proportion + zSquared / (2 * trials)) / (1 + zSquared / trials);
+        double halfWidth = z / (1 + zSquared / trials) * Math.sqrt(proportion * (1 - proportion) / trials + zSquared / (4.0 * trials * trials));
+
+        // The bounds are exact at the extremes, where rounding would otherwise leave them a hair inside
+        double lower = hits == 0 ? 0 : Math.max(0, centre - halfWidth);
+        double upper = hits == trials ? 1 : Math.min(1, centre + halfWidth);
+
+        return new Estimate(proportion, lower, upper, hits, trials);
+    }
+
+    /**
+     * <p>Finds the number of standard deviations either side of the mean of a normal distribution that hold the
+     *    given share of it, by the rational approximation of Abramowitz and Stegun 26.2.23, which is accurate to
+     *    within 0.00045.</p>
+     * @param confidence share of the distribution to hold, e.g. 0.95
+     * @return the two-sided z-score, e.g. about 1.96 for 0.95
+     * @throws IllegalArgumentException if {@code confidence} is not strictly between 0 and 1
+     */
+    public static double zScore(double confidence)
+    {
+        if (!(confidence > 0 && confidence < 1))
+        {
+            throw new IllegalArgumentException("Confidence must be strictly between 0 and 1; got " + confidence);
+        }
+
+        double t = Math.sqrt(-2 * Math.log((1 - confidence) / 2));
+
+        return t - (2.515517 + 0.802853 * t + 0.010328 * t * t) / (1 + 1.432788 * t + 0.189269 * t * t + 0.001308 * t * t * t);
+    }
+
+    public double getValue()
+    {
+        return value;
+    }
+
+    public double getLower()
+    {
+        return lower;
+    }
+
+    public double getUpper()
+    {
+        return upper;
+    }
+
+    public long getHits()
+    {
+        return hits;
+    }
+
+    public long getTrials()
+    {
+        return trials;
+    }
+
+    /**
+     * @return true if the interval includes {@code proportion}
+     */
+    public boolean covers(double proportion)
+    {
+        return lower <= proportion && proportion <= upper;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Estimate{" +
+                "value=" + value +
+                ", lower=" + lower +
+                ", upper=" + upper +
+                ", hits=" + hits +
+                ", trials=" + trials +
+                '}';
+    }
+}
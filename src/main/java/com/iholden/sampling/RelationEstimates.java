@@ -0,0 +1,205 @@
+package com.iholden.sampling;
+
+import com.iholden.constants.Adjacency;
+import com.iholden.constants.Relation;
+
+/**
+ * <p>The classified sample pairs of a {@link RelationSampler}, from which the share of pairs having each
+ *    {@link Relation} and {@link Adjacency} is estimated.</p>
+ * <p>The counts are kept per stratum, along with the number of pairs in the whole stream that each stratum stands
+ *    for. A uniform sample is a single stratum, and its proportions get Wilson score intervals. Stratified
+ *    proportions are the weighted sums of each stratum's proportions, and get normal intervals from the variance
+ *    within each stratum, linearized for shares that are themselves ratios. A stratum that saw no hits, or nothing
+ *    but hits, is treated for its variance as if it had seen half a hit, or half a miss, so that it still widens the
+ *    interval.</p>
+ * <p>Use the static builder to obtain an instance: {@link RelationEstimates#of(long, double[], long[], long[][])}</p>
+ */
+public class RelationEstimates
+{
+    static final int CATEGORY_COUNT = Relation.values().length + Adjacency.values().length;
+
+    private final long rectangleCount;
+    private final double[] populationPairs;
+    private final long[] sampledPairs;
+    private final long[][] counts;
+
+    // Prevent external instantiation; prefer static access
+    private RelationEstimates(long rectangleCount, double[] populationPairs, long[] sampledPairs, long[][] counts)
+    {
+        this.rectangleCount = rectangleCount;
+        this.populationPairs = populationPairs;
+        this.sampledPairs = sampledPairs;
+        this.counts = counts;
+    }
+
+    /**
+     * @param rectangleCount number of rectangles in the stream
+     * @param populationPairs number of ordered pairs in the stream that each stratum stands for
+     * @param sampledPairs number of pairs classified in each stratum
+     * @param counts number of pairs classified in each stratum with each relation, then each adjacency type
+     * @return new estimates
+     */
+    static RelationEstimates of(long rectangleCount, double[] populationPairs, long[] sampledPairs, long[][] counts)
+    {
+        return new RelationEstimates(rectangleCount, populationPairs, sampledPairs, counts);
+    }
+
+    static int categoryOf(Relation relation)
+    {
+        return relation.ordinal();
+    }
+
+    static int categoryOf(Adjacency adjacency)
+    {
+        return Relation.values().length + adjacency.ordinal();
+    }
+
+    public long getRectangleCount()
+    {
+        return rectangleCount;
+    }
+
+    /**
+     * @return the number of ordered pairs of distinct rectangles in the stream
+     */
+    public double getPopulationPairCount()
+    {
+        double total = 0;
+
+        for (double pairs : populationPairs)
+        {
+            total += pairs;
+        }
+
+        return total;
+    }
+
+    /**
+     * @return the number of pairs classified
+     */
+    public long getSampledPairCount()
+    {
+        long total = 0;
+
+        for (long pairs : sampledPairs)
+        {
+            total += pairs;
+        }
+
+        return total;
+    }
+
+    /**
+     * @param relation relation to estimate
+     * @param confidence confidence level of the interval, e.g. 0.95
+     * @return the estimated share of all ordered pairs having {@code relation}
+     */
+    public Estimate shareOf(Relation relation, double confidence)
+    {
+        return estimate(categoryOf(relation), -1, confidence);
+    }
+
+    /**
+     * @param adjacency adjacency type to estimate
+     * @param confidence confidence level of the interval, e.g. 0.95
+     * @return the estimated share of all ordered pairs having {@code adjacency}
+     */
+    public Estimate shareOf(Adjacency adjacency, double confidence)
+    {
+        return estimate(categoryOf(adjacency), -1, confidence);
+    }
+
+    /**
+     * @param adjacency adjacency type to estimate
+     * @param confidence confidence level of the interval, e.g. 0.95
+     * @return the estimated share of adjacent pairs, those with {@link Relation#ADJACENCY}, having {@code adjacency}
+     */
+    public Estimate shareAmongAdjacent(Adjacency adjacency, double confidence)
+    {
+        return estimate(categoryOf(adjacency), categoryOf(Relation.ADJACENCY), confidence);
+    }
+
+    /**
+     * <p>Estimates the share of pairs in {@code category} among those in {@code given}, or among all pairs.</p>
+     * <p>Strata standing for some pairs but without any sampled pairs, which can only happen to the pairs spanning
+     *    two strata, leave the estimate unchanged, but widen the interval of shares of all pairs by their weight.</p>
+     * @param given category the pairs are restricted to, or -1 for all pairs
+     */
+    private Estimate estimate(int category, int given, double confidence)
+    {
+        double z = Estimate.zScore(confidence);
+        double population = getPopulationPairCount();
+        double numerator = 0, denominator = 0, covered = 0, missing = 0;
+        long hits = 0, trials = 0;
+        int sampledStrata = 0;
+
+        for (int stratum = 0; stratum < sampledPairs.length; stratum++)
+        {
+            double weight = population == 0 ? 0 : populationPairs[stratum] / population;
+            long pairs = sampledPairs[stratum];
+            long matching = given < 0 ? pairs : counts[stratum][given];
+
+            if (pairs == 0)
+            {
+                missing += weight;
+                continue;
+            }
+
+            sampledStrata++;
+            covered += weight;
+            numerator += weight * counts[stratum][category] / pairs;
+            denominator += weight * matching / pairs;
+            hits += counts[stratum][category];
+            trials += matching;
+        }
+
+        if (sampledStrata == 1 && missing == 0)
+        {
+            return Estimate.wilson(hits, trials, confidence);
+        }
+
+        if (denominator == 0)
+        {
+            return Estimate.of(Double.NaN, 0, 1, hits, trials);
+        }
+
+        double share = numerator / denominator;
+        double variance = 0;
+
+        for (int stratum = 0; stratum < sampledPairs.length; stratum++)
+        {
+            double pairs = sampledPairs[stratum];
+
+            if (pairs == 0)
+            {
+                continue;
+            }
+
+            double weight = populationPairs[stratum] / population;
+            double matching = given < 0 ? pairs : counts[stratum][given];
+            double matched = counts[stratum][category];
+
+            if (matching >= 1)
+            {
+                matched = Math.min(Math.max(matched, 0.5), matching - 0.5);
+            }
+
+            // Each pair contributes (in category) - share * (in given), which averages to 0 over the whole stream
+            double mean = (matched - share * matching) / pairs;
+            double meanSquare = (matched * (1 - share) * (1 - share) + (matching - matched) * share * share) / pairs;
+
+            variance += weight * weight * Math.max(0, meanSquare - mean * mean) / pairs;
+        }
+
+        double halfWidth = z * Math.sqrt(variance) / denominator;
+        double lower = Math.max(0, share - halfWidth), upper = Math.min(1, share + halfWidth);
+
+        if (given < 0)
+        {
+            lower = lower * covered;
+            upper = Math.min(1, upper * covered + missing);
+        }
+
+        return Estimate.of(share, lower, upper, hits, trials);
+    }
+}
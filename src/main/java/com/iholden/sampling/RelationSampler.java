@@ -0,0 +1,233 @@
+package com.iholden.sampling;
+
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.impl.RectanglePairImpl;
+import com.iholden.support.Classification;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * <p>Draws a sample of rectangles from a stream of any length in a single pass, then classifies pairs drawn from
+ *    the sample to estimate how common each {@link com.iholden.constants.Relation} and
+ *    {@link com.iholden.constants.Adjacency} is among all ordered pairs of distinct rectangles in the stream.</p>
+ * <p>Rectangles are kept in reservoirs: each holds a uniform random sample of at most {@code sampleSize} of the
+ *    rectangles offered to it, however many that is, so memory is proportional to the sample size alone. The
+ *    sampled rectangles are shuffled and paired off, so the classified pairs are uniform, and never share a
+ *    rectangle.</p>
+ * <p>Related pairs are usually close together, so among uniformly sampled pairs they are rare, and estimates of them
+ *    are poor. A stratified sampler divides the plane into square tiles and hashes each rectangle, by the tile
+ *    holding its lower left corner, into one of a fixed number of strata, each with its own reservoir. Pairs within
+ *    each stratum, where related pairs concentrate, are sampled separately from pairs spanning two strata, which are
+ *    drawn from one more reservoir over the whole stream, and the estimates are weighted by the number of pairs of
+ *    each kind. Spanning pairs are nearly all of the pairs, so their reservoir holds as many rectangles as those of
+ *    all the strata together; otherwise the few related pairs among them would dominate the uncertainty.</p>
+ * <p>Use a static builder to obtain an instance: {@link RelationSampler#uniform(int, long)} or
+ *    {@link RelationSampler#stratified(int, int, long, long)}</p>
+ */
+public class RelationSampler implements Consumer<Rectangle>
+{
+    /**
+     * Largest number of rectangles the reservoir over the whole stream can hold
+     */
+    public static final int MAX_SAMPLE_SIZE = Integer.MAX_VALUE - 8;
+
+    private final int sampleSize;
+    private final int spanningSampleSize;
+    private final int strata;
+    private final long tileSize;
+    private final SplittableRandom random;
+
+    // One reservoir per stratum, followed by the one over the whole stream when stratified
+    private final Rectangle[][] reservoirs;
+    private final int[] reservoirSizes;
+    private final long[] offered;
+
+    // Prevent external instantiation; prefer static access
+    private RelationSampler(int sampleSize, int strata, long tileSize, long seed)
+    {
+        if (sampleSize < 2)
+        {
+            throw new IllegalArgumentException("Sample size must be at least 2; got " + sampleSize);
+        }
+
+        if (strata < 1 || tileSize < 1)
+        {
+            throw new IllegalArgumentException("Strata and tile size must be positive; got " + strata + " and " + tileSize);
+        }
+
+        if ((long) sampleSize * strata > MAX_SAMPLE_SIZE)
+        {
+            throw new IllegalArgumentException("Sample size times strata must be at most " + MAX_SAMPLE_SIZE);
+        }
+
+        int reservoirCount = strata == 1 ? 1 : strata + 1;
+
+        this.sampleSize = sampleSize;
+        this.spanningSampleSize = sampleSize * strata;
+        this.strata = strata;
+        this.tileSize = tileSize;
+        this.random = new SplittableRandom(seed);
+        this.reservoirs = new Rectangle[reservoirCount][];
+        this.reservoirSizes = new int[reservoirCount];
+        this.offered = new long[reservoirCount];
+    }
+
+    /**
+     * @param sampleSize number of rectangles to sample; about half as many pairs are classified
+     * @param seed seed of the random choices, so that runs can be repeated
+     * @return a new sampler drawing uniformly from the whole stream
+     */
+    public static RelationSampler uniform(int sampleSize, long seed)
+    {
+        return new RelationSampler(sampleSize, 1, 1, seed);
+    }
+
+    /**
+     * @param sampleSize number of rectangles to sample in each stratum; {@code strata} times as many are sampled
+     *                   across the whole stream
+     * @param strata number of strata to hash tiles into
+     * @param tileSize length of the sides of the square tiles
+     * @param seed seed of the random choices, so that runs can be repeated
+     * @return a new sampler drawing from each stratum separately
+     */
+    public static RelationSampler stratified(int sampleSize, int strata, long tileSize, long seed)
+    {
+        return new RelationSampler(sampleSize, strata, tileSize, seed);
+    }
+
+    /**
+     * Offers the next rectangle of the stream to its stratum's reservoir and to the reservoir over the whole stream
+     */
+    @Override
+    public void accept(Rectangle rectangle)
+    {
+        offer(stratumOf(rectangle), rectangle);
+
+        if (strata > 1)
+        {
+            offer(strata, rectangle);
+        }
+    }
+
+    /**
+     * @return the number of rectangles offered so far
+     */
+    public long getRectangleCount()
+    {
+        return offered[offered.length - 1];
+    }
+
+    /**
+     * Classifies pairs of the rectangles sampled so far; sampling may continue afterwards
+     * @return the counts from which relations are estimated
+     */
+    public RelationEstimates estimate()
+    {
+        int stratumCount = reservoirs.length;
+        var sampledPairs = new long[stratumCount];
+        var counts = new long[stratumCount][RelationEstimates.CATEGORY_COUNT];
+        var populationPairs = new double[stratumCount];
+        double allPairs = pairsAmong(getRectangleCount());
+
+        for (int stratum = 0; stratum < stratumCount; stratum++)
+        {
+            boolean spanning = stratumCount > 1 && stratum == strata;
+            populationPairs[stratum] = spanning ? allPairs : pairsAmong(offered[stratum]);
+
+            if (spanning)
+            {
+                for (int other = 0; other < strata; other++)
+                {
+                    populationPairs[stratum] -= populationPairs[other];
+                }
+            }
+
+            int size = reservoirSizes[stratum];
+            Rectangle[] sample = size == 0 ? new Rectangle[0] : Arrays.copyOf(reservoirs[stratum], size);
+
+            // Fisher-Yates shuffle, after which consecutive rectangles form uniform, disjoint, randomly ordered pairs
+            for (int i = size - 1; i > 0; i--)
+            {
+                int j = random.nextInt(i + 1);
+                Rectangle swapped = sample[i];
+                sample[i] = sample[j];
+                sample[j] = swapped;
+            }
+
+            for (int i = 0; i + 1 < size; i += 2)
+            {
+                // Within the whole stream's reservoir, only pairs spanning two strata represent their kind
+                if (spanning && stratumOf(sample[i]) == stratumOf(sample[i + 1]))
+                {
+                    continue;
+                }
+
+                var classification = Classification.of(new RectanglePairImpl(sample[i], sample[i + 1]));
+
+                counts[stratum][RelationEstimates.categoryOf(classification.getRelation())]++;
+                counts[stratum][RelationEstimates.categoryOf(classification.getAdjacency())]++;
+                sampledPairs[stratum]++;
+            }
+        }
+
+        return RelationEstimates.of(getRectangleCount(), populationPairs, sampledPairs, counts);
+    }
+
+    /**
+     * Algorithm R: once the reservoir is full, the n-th rectangle offered replaces a random sampled one with
+     * probability capacity / n
+     */
+    private void offer(int reservoir, Rectangle rectangle)
+    {
+        long seen = ++offered[reservoir];
+        int size = reservoirSizes[reservoir];
+        int limit = reservoir == strata ? spanningSampleSize : sampleSize;
+
+        if (size < limit)
+        {
+            if (reservoirs[reservoir] == null || size == reservoirs[reservoir].length)
+            {
+                // Grown as needed, since most strata of a small stream never fill
+                int capacity = reservoirs[reservoir] == null ? Math.min(16, limit) : (int) Math.min(2L * size, limit);
+                reservoirs[reservoir] = reservoirs[reservoir] == null ? new Rectangle[capacity] : Arrays.copyOf(reservoirs[reservoir], capacity);
+            }
+
+            reservoirs[reservoir][reservoirSizes[reservoir]++] = rectangle;
+            return;
+        }
+
+        long slot = random.nextLong(seen);
+
+        if (slot < limit)
+        {
+            reservoirs[reservoir][(int) slot] = rectangle;
+        }
+    }
+
+    private int stratumOf(Rectangle rectangle)
+    {
+        if (strata == 1)
+        {
+            return 0;
+        }
+
+        long column = Math.floorDiv(rectangle.getRangeX().getMin(), tileSize);
+        long row = Math.floorDiv(rectangle.getRangeY().getMin(), tileSize);
+        long hash = (column * 0x9E3779B97F4A7C15L) ^ (row * 0xC2B2AE3D27D4EB4FL);
+
+        hash ^= hash >>> 31;
+
+        return (int) Math.floorMod(hash * 0x94D049BB133111EBL, (long) strata);
+    }
+
+    /**
+     * @return the number of ordered pairs of distinct rectangles among {@code count}, as a double, since a few billion
+     *         rectangles have more pairs than a long can hold
+     */
+    private static double pairsAmong(long count)
+    {
+        return (double) count * (count - 1);
+    }
+}
@@ -0,0 +1,383 @@
+package com.iholden.session;
+
+import com.iholden.constants.Adjacency;
+import com.iholden.constants.Relation;
+import com.iholden.entities.Rectangle;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * <p>A set of named {@link Rectangle}s, together with the relation matrix between every ordered pair of them.</p>
+ * <p>The matrix is maintained incrementally: adding or removing a rectangle only updates that rectangle's row and
+ *    column. Only rectangles whose closed bounds touch can have any relation other than {@link Relation#NONE}, so
+ *    candidates are found with an index of the rectangles sorted by minimum X coordinate, and only those candidates
+ *    are classified.</p>
+ * <p>The matrix is stored sparsely, as packed {@link RelationCodes}: each rectangle keeps the slots of the rectangles
+ *    it touches, with one byte per direction. Any pair that is not stored is {@link RelationCodes#NONE}.</p>
+ * <p>This class is not thread-safe.</p>
+ */
+public class RectangleSession
+{
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int[] NO_SLOTS = new int[0];
+    private static final byte[] NO_CODES = new byte[0];
+
+    private final Map<String, Integer> slotsByLabel = new HashMap<>();
+
+    // Per-slot state, indexed by slot; slots of removed rectangles are reused
+    private String[] labels = new String[INITIAL_CAPACITY];
+    private Rectangle[] rectangles = new Rectangle[INITIAL_CAPACITY];
+    private long[] minX = new long[INITIAL_CAPACITY];
+    private long[] minY = new long[INITIAL_CAPACITY];
+    private long[] maxX = new long[INITIAL_CAPACITY];
+    private long[] maxY = new long[INITIAL_CAPACITY];
+    private int[][] relatedSlots = new int[INITIAL_CAPACITY][];
+    private byte[][] outgoingCodes = new byte[INITIAL_CAPACITY][];
+    private byte[][] incomingCodes = new byte[INITIAL_CAPACITY][];
+    private int[] relatedCounts = new int[INITIAL_CAPACITY];
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeSlotCount;
+    private int slotCount;
+
+    // Candidate index: occupied slots sorted by minimum X coordinate
+    private int[] slotsByMinX = new int[INITIAL_CAPACITY];
+    private long[] sortedMinX = new long[INITIAL_CAPACITY];
+    private int size;
+
+    // Widest rectangle added since the session was last empty; never shrinks, so it stays a safe upper bound
+    private long maxLengthX;
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean contains(String label)
+    {
+        return slotsByLabel.containsKey(label);
+    }
+
+    public Rectangle get(String label)
+    {
+        Integer slot = slotsByLabel.get(label);
+
+        return slot == null ? null : rectangles[slot];
+    }
+
+    /**
+     * @return an unmodifiable view of the labels of every rectangle in the session
+     */
+    public Set<String> labels()
+    {
+        return Collections.unmodifiableSet(slotsByLabel.keySet());
+    }
+
+    /**
+     * Adds {@code rectangle} under {@code label}, classifying it against every rectangle it touches
+     * @param label label of the rectangle
+     * @param rectangle rectangle to add
+     * @throws IllegalArgumentException if a rectangle is already labelled {@code label}
+     */
+    public void add(String label, Rectangle rectangle)
+    {
+        Objects.requireNonNull(label);
+        Objects.requireNonNull(rectangle);
+
+        if (slotsByLabel.containsKey(label))
+        {
+            throw new IllegalArgumentException("A rectangle labelled " + label + " already exists");
+        }
+
+        int slot = allocateSlot();
+
+        labels[slot] = label;
+        rectangles[slot] = rectangle;
+        minX[slot] = rectangle.getRangeX().getMin();
+        maxX[slot] = rectangle.getRangeX().getMax();
+        minY[slot] = rectangle.getRangeY().getMin();
+        maxY[slot] = rectangle.getRangeY().getMax();
+        relatedSlots[slot] = NO_SLOTS;
+        outgoingCodes[slot] = NO_CODES;
+        incomingCodes[slot] = NO_CODES;
+        relatedCounts[slot] = 0;
+
+        classifyCandidatesOf(slot);
+        insertIntoIndex(slot);
+
+        maxLengthX = Math.max(maxLengthX, maxX[slot] - minX[slot]);
+        slotsByLabel.put(label, slot);
+    }
+
+    /**
+     * Removes the rectangle labelled {@code label}, if any, along with its row and column of the relation matrix
+     * @param label label of the rectangle
+     * @return the removed rectangle, or null if there was none
+     */
+    public Rectangle remove(String label)
+    {
+        Integer boxedSlot = slotsByLabel.remove(label);
+
+        if (boxedSlot == null)
+        {
+            return null;
+        }
+
+        int slot = boxedSlot;
+        Rectangle rectangle = rectangles[slot];
+
+        for (int i = 0; i < relatedCounts[slot]; i++)
+        {
+            unlink(relatedSlots[slot][i], slot);
+        }
+
+        removeFromIndex(slot);
+
+        labels[slot] = null;
+        rectangles[slot] = null;
+        relatedSlots[slot] = null;
+        outgoingCodes[slot] = null;
+        incomingCodes[slot] = null;
+        relatedCounts[slot] = 0;
+
+        if (freeSlotCount == freeSlots.length)
+        {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+        }
+
+        freeSlots[freeSlotCount++] = slot;
+
+        if (size == 0)
+        {
+            maxLengthX = 0;
+        }
+
+        return rectangle;
+    }
+
+    /**
+     * Returns the code of the rectangle labelled {@code labelA} classified against the one labelled {@code labelB}
+     * @param labelA label of Rectangle A
+     * @param labelB label of Rectangle B
+     * @return the packed relation code
+     * @throws IllegalArgumentException if either label is not in the session
+     * @see RelationCodes
+     */
+    public int getRelationCode(String labelA, String labelB)
+    {
+        int slotA = slotOf(labelA);
+        int slotB = slotOf(labelB);
+
+        if (slotA == slotB)
+        {
+            return RelationCodes.IDENTICAL;
+        }
+
+        int index = indexOfRelated(slotA, slotB);
+
+        return index < 0 ? RelationCodes.NONE : outgoingCodes[slotA][index];
+    }
+
+    public Relation getRelation(String labelA, String labelB)
+    {
+        return RelationCodes.relationOf(getRelationCode(labelA, labelB));
+    }
+
+    public Adjacency getAdjacency(String labelA, String labelB)
+    {
+        return RelationCodes.adjacencyOf(getRelationCode(labelA, labelB));
+    }
+
+    /**
+     * @param label label of the rectangle
+     * @return the number of other rectangles related to the rectangle labelled {@code label}, in either direction
+     * @throws IllegalArgumentException if the label is not in the session
+     */
+    public int countRelated(String label)
+    {
+        return relatedCounts[slotOf(label)];
+    }
+
+    /**
+     * Passes every rectangle related to the one labelled {@code label}, in either direction, to {@code consumer}
+     * @param label label of the rectangle
+     * @param consumer receives the label of each related rectangle, with the codes in both directions
+     * @throws IllegalArgumentException if the label is not in the session
+     */
+    public void forEachRelated(String label, RelationConsumer consumer)
+    {
+        int slot = slotOf(label);
+
+        for (int i = 0; i < relatedCounts[slot]; i++)
+        {
+            consumer.accept(labels[relatedSlots[slot][i]], outgoingCodes[slot][i], incomingCodes[slot][i]);
+        }
+    }
+
+    private int slotOf(String label)
+    {
+        Integer slot = slotsByLabel.get(label);
+
+        if (slot == null)
+        {
+            throw new IllegalArgumentException("No rectangle labelled " + label);
+        }
+
+        return slot;
+    }
+
+    private void classifyCandidatesOf(int slot)
+    {
+        // Every candidate has minX within maxLengthX of this rectangle's minX, or it could not reach it
+        long fromMinX = minX[slot] - maxLengthX;
+
+        if (fromMinX > minX[slot])
+        {
+            fromMinX = Long.MIN_VALUE;
+        }
+
+        for (int i = firstIndexAtLeast(fromMinX); i < size && sortedMinX[i] <= maxX[slot]; i++)
+        {
+            int other = slotsByMinX[i];
+
+            if (maxX[other] < minX[slot] || minY[other] > maxY[slot] || maxY[other] < minY[slot])
+            {
+                continue;
+            }
+
+            int outgoing = RelationCodes.classify(rectangles[slot], rectangles[other]);
+            int incoming = RelationCodes.classify(rectangles[other], rectangles[slot]);
+
+            if (outgoing != RelationCodes.NONE || incoming != RelationCodes.NONE)
+            {
+                link(slot, other, outgoing, incoming);
+                link(other, slot, incoming, outgoing);
+            }
+        }
+    }
+
+    private void link(int slot, int other, int outgoing, int incoming)
+    {
+        int count = relatedCounts[slot];
+
+        if (count == relatedSlots[slot].length)
+        {
+            int capacity = Math.max(4, count * 2);
+
+            relatedSlots[slot] = Arrays.copyOf(relatedSlots[slot], capacity);
+            outgoingCodes[slot] = Arrays.copyOf(outgoingCodes[slot], capacity);
+            incomingCodes[slot] = Arrays.copyOf(incomingCodes[slot], capacity);
+        }
+
+        relatedSlots[slot][count] = other;
+        outgoingCodes[slot][count] = (byte) outgoing;
+        incomingCodes[slot][count] = (byte) incoming;
+        relatedCounts[slot] = count + 1;
+    }
+
+    private void unlink(int slot, int other)
+    {
+        int index = indexOfRelated(slot, other);
+        int last = --relatedCounts[slot];
+
+        // Rows are unordered, so the last entry can simply take the place of the removed one
+        relatedSlots[slot][index] = relatedSlots[slot][last];
+        outgoingCodes[slot][index] = outgoingCodes[slot][last];
+        incomingCodes[slot][index] = incomingCodes[slot][last];
+    }
+
+    private int indexOfRelated(int slot, int other)
+    {
+        int[] related = relatedSlots[slot];
+
+        for (int i = 0; i < relatedCounts[slot]; i++)
+        {
+            if (related[i] == other)
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private int allocateSlot()
+    {
+        if (freeSlotCount > 0)
+        {
+            return freeSlots[--freeSlotCount];
+        }
+
+        if (slotCount == labels.length)
+        {
+            int capacity = slotCount * 2;
+
+            labels = Arrays.copyOf(labels, capacity);
+            rectangles = Arrays.copyOf(rectangles, capacity);
+            minX = Arrays.copyOf(minX, capacity);
+            minY = Arrays.copyOf(minY, capacity);
+            maxX = Arrays.copyOf(maxX, capacity);
+            maxY = Arrays.copyOf(maxY, capacity);
+            relatedSlots = Arrays.copyOf(relatedSlots, capacity);
+            outgoingCodes = Arrays.copyOf(outgoingCodes, capacity);
+            incomingCodes = Arrays.copyOf(incomingCodes, capacity);
+            relatedCounts = Arrays.copyOf(relatedCounts, capacity);
+            slotsByMinX = Arrays.copyOf(slotsByMinX, capacity);
+            sortedMinX = Arrays.copyOf(sortedMinX, capacity);
+        }
+
+        return slotCount++;
+    }
+
+    private void insertIntoIndex(int slot)
+    {
+        int insertAt = firstIndexAtLeast(minX[slot]);
+
+        System.arraycopy(slotsByMinX, insertAt, slotsByMinX, insertAt + 1, size - insertAt);
+        System.arraycopy(sortedMinX, insertAt, sortedMinX, insertAt + 1, size - insertAt);
+
+        slotsByMinX[insertAt] = slot;
+        sortedMinX[insertAt] = minX[slot];
+        size++;
+    }
+
+    private void removeFromIndex(int slot)
+    {
+        int index = firstIndexAtLeast(minX[slot]);
+
+        while (slotsByMinX[index] != slot)
+        {
+            index++;
+        }
+
+        System.arraycopy(slotsByMinX, index + 1, slotsByMinX, index, size - index - 1);
+        System.arraycopy(sortedMinX, index + 1, sortedMinX, index, size - index - 1);
+        size--;
+    }
+
+    private int firstIndexAtLeast(long value)
+    {
+        int low = 0;
+        int high = size;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (sortedMinX[middle] < value)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+}
@@ -0,0 +1,65 @@
+package com.iholden.session;
+
+import com.iholden.constants.Adjacency;
+import com.iholden.constants.Relation;
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.RectanglePair;
+import com.iholden.support.Classification;
+
+/**
+ * <p>Utility class for packing a {@link Relation} and its {@link Adjacency} into a single small integer code.</p>
+ * <p>A code fits in a byte, which lets relation matrices store one byte per ordered pair of rectangles instead of
+ *    one {@link Classification} object.</p>
+ */
+public class RelationCodes
+{
+    private static final int ADJACENCY_BITS = 3;
+    private static final int ADJACENCY_MASK = (1 << ADJACENCY_BITS) - 1;
+
+    private static final Relation[] RELATIONS = Relation.values();
+    private static final Adjacency[] ADJACENCIES = Adjacency.values();
+
+    /**
+     * Code of an ordered pair of rectangles that have no relationship at all
+     */
+    public static final int NONE = encode(Relation.NONE, Adjacency.NONE);
+
+    /**
+     * Code of an ordered pair of identical rectangles
+     */
+    public static final int IDENTICAL = encode(Relation.IDENTICAL, Adjacency.NONE);
+
+    public static int encode(Relation relation, Adjacency adjacency)
+    {
+        return relation.ordinal() << ADJACENCY_BITS | adjacency.ordinal();
+    }
+
+    public static int of(Classification classification)
+    {
+        return encode(classification.getRelation(), classification.getAdjacency());
+    }
+
+    /**
+     * Classifies {@code rectangleA} against {@code rectangleB}; equivalent to encoding {@link Classification#of(RectanglePair)}
+     * @param rectangleA Rectangle A of the ordered pair
+     * @param rectangleB Rectangle B of the ordered pair
+     * @return the code of the pair's classification
+     */
+    public static int classify(Rectangle rectangleA, Rectangle rectangleB)
+    {
+        return of(Classification.of(RectanglePair.of(rectangleA, rectangleB)));
+    }
+
+    public static Relation relationOf(int code)
+    {
+        return RELATIONS[code >>> ADJACENCY_BITS];
+    }
+
+    public static Adjacency adjacencyOf(int code)
+    {
+        return ADJACENCIES[code & ADJACENCY_MASK];
+    }
+
+    // Discourage Instantiation
+    private RelationCodes(){};
+}
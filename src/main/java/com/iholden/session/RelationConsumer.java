@@ -0,0 +1,16 @@
+package com.iholden.session;
+
+/**
+ * Receives the relation codes between a rectangle and one of the rectangles related to it
+ * @see RelationCodes
+ */
+@FunctionalInterface
+public interface RelationConsumer
+{
+    /**
+     * @param relatedLabel label of the related rectangle
+     * @param outgoingCode code of the rectangle classified against the related rectangle
+     * @param incomingCode code of the related rectangle classified against the rectangle
+     */
+    void accept(String relatedLabel, int outgoingCode, int incomingCode);
+}
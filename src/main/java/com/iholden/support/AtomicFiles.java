@@ -0,0 +1,66 @@
+package com.iholden.support;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>Utility class for replacing files so that a crash leaves either the old contents or the new, never a mix.</p>
+ * <p>The new contents are written and synced to a temporary sibling of the file, which is then renamed over it, and
+ *    the parent directory is synced so that the rename itself survives a crash.</p>
+ */
+public class AtomicFiles
+{
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * Atomically replaces the contents of {@code path} with the remaining bytes of the buffers, in order, syncing them
+     * to the storage device
+     * @param path file to replace; created if it does not exist
+     * @param buffers contents of the file; consumed
+     * @throws IOException if the file cannot be written
+     */
+    public static void replace(Path path, ByteBuffer... buffers) throws IOException
+    {
+        Path temporary = path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            for (ByteBuffer buffer : buffers)
+            {
+                while (buffer.hasRemaining())
+                {
+                    channel.write(buffer);
+                }
+            }
+
+            channel.force(true);
+        }
+
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Makes the rename durable, on platforms that allow directories to be synced
+     */
+    private static void syncDirectory(Path directory)
+    {
+        try (var channel = FileChannel.open(directory, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        }
+        catch (IOException e)
+        {
+            // Not supported on every platform; the rename is still atomic, if not yet durable
+        }
+    }
+
+    // Discourage Instantiation
+    private AtomicFiles(){};
+}
@@ -0,0 +1,82 @@
+package com.iholden.support;
+
+import com.iholden.constants.Adjacency;
+import com.iholden.constants.Relation;
+import com.iholden.entities.RectanglePair;
+
+/**
+ * <p>Represents the classification of a {@link RectanglePair}: which {@link Relation} applies, and--for
+ *    {@link Relation#ADJACENCY}--the type of {@link Adjacency}.</p>
+ * <p>Use the static builder to obtain an instance: {@link Classification#of(RectanglePair)}</p>
+ */
+public class Classification
+{
+    private final RectanglePair pair;
+    private final Relation relation;
+    private final Adjacency adjacency;
+
+    // Prevent external instantiation; prefer static access
+    private Classification(RectanglePair pair, Relation relation, Adjacency adjacency)
+    {
+        this.pair = pair;
+        this.relation = relation;
+        this.adjacency = adjacency;
+    }
+
+    /**
+     * <p>Classifies the pair using the {@link com.iholden.entities.Rectangle} relation methods.</p>
+     * <p>Checks are performed from cheapest to most expensive, and stop at the first one that applies, since
+     *    the classifications are mutually exclusive.</p>
+     * @param pair pair of rectangles to classify
+     * @return the classification of the pair
+     */
+    public static Classification of(RectanglePair pair)
+    {
+        var rectangleA = pair.getRectangleA();
+        var rectangleB = pair.getRectangleB();
+
+        if (rectangleA.equals(rectangleB))
+        {
+            return new Classification(pair, Relation.IDENTICAL, Adjacency.NONE);
+        }
+
+        if (rectangleA.contains(rectangleB))
+        {
+            return new Classification(pair, Relation.CONTAINMENT, Adjacency.NONE);
+        }
+
+        if (rectangleA.intersects(rectangleB))
+        {
+            return new Classification(pair, Relation.INTERSECTION, Adjacency.NONE);
+        }
+
+        Adjacency adjacency = rectangleA.determineAdjacencyWith(rectangleB);
+
+        return new Classification(pair, adjacency == Adjacency.NONE ? Relation.NONE : Relation.ADJACENCY, adjacency);
+    }
+
+    public RectanglePair getPair()
+    {
+        return pair;
+    }
+
+    public Relation getRelation()
+    {
+        return relation;
+    }
+
+    public Adjacency getAdjacency()
+    {
+        return adjacency;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Classification{" +
+                "pair=" + pair +
+                ", relation=" + relation +
+                ", adjacency=" + adjacency +
+                '}';
+    }
+}
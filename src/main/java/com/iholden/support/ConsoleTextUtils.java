@@ -1,10 +1,14 @@
 package com.iholden.support;
 
+import com.iholden.constants.Relation;
+import com.iholden.diagnostics.FormatEvent;
+import com.iholden.diagnostics.Magnitudes;
 import com.iholden.entities.Point;
 import com.iholden.entities.Rectangle;
+import com.iholden.session.RectangleSession;
+import com.iholden.session.RelationCodes;
 
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -12,14 +16,107 @@ import java.util.stream.Collectors;
  */
 public class ConsoleTextUtils
 {
-    public static final List<String> RECTANGLE_LABELS = List.of("A", "B");
+    public static final String BATCH_OPTION = "--batch";
+
+    public static final String BATCH_OUTPUT_OPTION = "--output";
+
+    public static final String BATCH_CHECKPOINT_OPTION = "--checkpoint";
+
+    public static final String BATCH_CHECKPOINT_INTERVAL_OPTION = "--checkpoint-interval";
+
+    public static final String BATCH_RESUME_OPTION = "--resume";
+
+    public static final String BATCH_USAGE =
+            """
+            Usage: --batch <pair file> [--fields <fields>] [--relations <relations>] [--adjacency <adjacency types>] [--format <format>]
+                           [--output <file>] [--checkpoint <file> [--checkpoint-interval <seconds>] [--resume]]
+              Each line of the pair file holds 8 whole numbers: lengthA widthA xA yA lengthB widthB xB yB
+              Fields:          AREA_A, AREA_B, RELATION, IDENTICAL, CONTAINMENT, INTERSECTION, INTERSECTION_POINTS, ADJACENCY
+              Relations:       IDENTICAL, CONTAINMENT, INTERSECTION, ADJACENCY, NONE
+              Adjacency types: PROPER, PARTIAL, SUB_LINE, SINGLE_POINT, NONE
+              Formats:         TSV, CSV, JSONL, BINARY
+              Values are comma-separated; only the requested fields are computed.
+              --output:              write to this file instead of standard output
+              --checkpoint:          periodically record progress in this file; requires --output
+              --checkpoint-interval: seconds between checkpoints (default: 10)
+              --resume:              continue an interrupted run from its checkpoint, with the same options""";
+
+    public static final String SHARDED_OPTION = "--sharded";
+
+    public static final String SHARDED_WORKERS_OPTION = "--workers";
+
+    public static final String SHARDED_TILES_OPTION = "--tiles";
+
+    public static final String SHARDED_THREADS_OPTION = "--threads";
+
+    public static final String SHARDED_USAGE =
+            """
+            Usage: --sharded <rectangle file> [--workers <count>] [--tiles <count>] [--threads]
+              Each line of the rectangle file holds 4 whole numbers: length width x y, optionally followed by an id;
+              rectangles without one are numbered from 0 in the order read
+              --workers: number of worker processes to run at once (default: available processors)
+              --tiles:   number of tiles along each axis (default: twice the number of workers)
+              --threads: run the workers as threads of this process instead of separate processes
+              Writes ID_A, ID_B and the relation and adjacency in both directions of every related pair as TSV;
+              statistics for each tile are written to standard error.""";
+
+    public static final String ESTIMATE_OPTION = "--estimate";
+
+    public static final String ESTIMATE_SAMPLE_OPTION = "--sample";
+
+    public static final String ESTIMATE_STRATA_OPTION = "--strata";
+
+    public static final String ESTIMATE_TILE_SIZE_OPTION = "--tile-size";
+
+    public static final String ESTIMATE_CONFIDENCE_OPTION = "--confidence";
+
+    public static final String ESTIMATE_SEED_OPTION = "--seed";
+
+    public static final String ESTIMATE_USAGE =
+            """
+            Usage: --estimate <rectangle file> [--sample <count>] [--strata <count> --tile-size <length>] [--confidence <level>] [--seed <seed>]
+              Each line of the rectangle file holds 4 whole numbers: length width x y
+              Estimates the share of ordered pairs having each relation and adjacency type from a sample, in one pass
+              --sample:     rectangles to sample, in each stratum when stratified (default: 10000)
+              --strata:     stratify by hashing square tiles into this many strata; requires --tile-size
+              --tile-size:  length of the sides of the tiles
+              --confidence: confidence level of the intervals (default: 0.95)
+              --seed:       seed of the random sample (default: 1)
+              Writes each statistic's estimate and interval, and the sampled pairs it is based on, as TSV.""";
+
+    public static final String REORDER_OPTION = "--reorder";
+
+    public static final String REORDER_OUTPUT_OPTION = "--output";
+
+    public static final String REORDER_USAGE =
+            """
+            Usage: --reorder <rectangle file> [--output <file>]
+              Each line of the rectangle file holds 4 whole numbers: length width x y, optionally followed by an id
+              Rewrites the rectangles in Hilbert curve order of their centers, so that rectangles near each other in
+              the plane are near each other in the file. Each line keeps its rectangle's id, or gains the line's
+              position as its id, so results for the reordered file are reported in terms of the original ids.
+              --output: write to this file instead of standard output""";
+
+    public static final String ESTIMATES_HEADER = "STATISTIC\tVALUE\tESTIMATE\tLOWER\tUPPER\tHITS\tPAIRS";
+
+    public static final String ESTIMATE_TEMPLATE = "%s\t%s\t%.6g\t%.6g\t%.6g\t%d\t%d%n";
+
+    public static final String ESTIMATE_SUMMARY_TEMPLATE = "%d rectangles, %.4g ordered pairs, %d pairs classified%n";
+
+    public static final String RELATED_PAIRS_HEADER = "ID_A\tID_B\tRELATION_A_B\tADJACENCY_A_B\tRELATION_B_A\tADJACENCY_B_A";
+
+    public static final String SHARD_STATS_TEMPLATE = "Tile %d: %d rectangles, %d pairs, %d attempt(s), %.1f ms, %.0f rectangles/s%n";
 
     public static final List<String> YES_NO_INPUT_ACCEPTED_VALUES = List.of("Y", "N");
 
-    public static final String INITIAL_MESSAGE = "Use this application to calculate data about the relationships between two rectangles.";
+    public static final String INITIAL_MESSAGE = "Use this application to calculate data about the relationships between any number of rectangles.";
 
     public static final String RECTANGLE_INPUT_LABEL_PROMPT = "Enter a name for this Rectangle: ";
 
+    public static final String RECTANGLE_LABEL_INPUT_INVALID = "Invalid input; the name must not be blank. Please try again...";
+
+    public static final String RECTANGLE_LABEL_REPLACED_TEMPLATE = "Rectangle %s already exists, and will be replaced.%n";
+
     public static final String RECTANGLE_INPUT_LENGTH_PROMPT_TEMPLATE = "Enter Rectangle %s LENGTH: ";
 
     public static final String RECTANGLE_INPUT_WIDTH_PROMPT_TEMPLATE = "Enter Rectangle %s WIDTH: ";
@@ -45,28 +142,75 @@ public class ConsoleTextUtils
               Rectangle %s Area: %d
               Rectangles are Identical: %b
               Rectangle %s CONTAINS Rectangle %s: %b
+              Rectangle %s CONTAINS Rectangle %s: %b
               Rectangle %s INTERSECTS with Rectangle %s at points: %s
               Rectangle Adjacency status: %s
             ===================================================================
             """;
 
-    public static String getRectangleComparisonResults(Map<String, Rectangle> rectanglesByLabel)
-    {
-        Rectangle rectangleA = rectanglesByLabel.get(RECTANGLE_LABELS.get(0));
-        Rectangle rectangleB = rectanglesByLabel.get(RECTANGLE_LABELS.get(1));
+    public static final String SESSION_RESULTS_TEMPLATE =
+            """
+            ===================================================================
+            | Session                                                         |
+            ===================================================================
+              Rectangles in session: %d
+              Rectangles related to Rectangle %s: %d
+            ===================================================================
+            """;
 
-        return getRectangleComparisonResults(rectangleA, rectangleB);
+    /**
+     * Describes the relationships between the rectangle labelled {@code label} and every rectangle related to it
+     * @param session session holding the rectangle
+     * @param label label of the rectangle
+     * @return the session summary, followed by the comparison results for each related rectangle
+     */
+    public static String getSessionResults(RectangleSession session, String label)
+    {
+        var event = new FormatEvent();
+        event.begin();
+
+        var results = new StringBuilder(SESSION_RESULTS_TEMPLATE.formatted(session.size(), label, session.countRelated(label)));
+        var magnitude = new long[1];
+
+        session.forEachRelated(label, (relatedLabel, outgoingCode, incomingCode) ->
+        {
+            results.append(getRectangleComparisonResults(label, session.get(label), relatedLabel, session.get(relatedLabel),
+                    outgoingCode, incomingCode));
+
+            if (event.isEnabled())
+            {
+                magnitude[0] = Math.max(magnitude[0], Magnitudes.of(session.get(label), session.get(relatedLabel)));
+            }
+        });
+
+        if (event.shouldCommit())
+        {
+            event.format = FormatEvent.CONSOLE;
+            event.resultCount = session.countRelated(label);
+            event.magnitude = magnitude[0];
+            event.commit();
+        }
+
+        return results.toString();
     }
 
-    private static String getRectangleComparisonResults(Rectangle rectangleA, Rectangle rectangleB)
+    private static String getRectangleComparisonResults(String labelA, Rectangle rectangleA, String labelB, Rectangle rectangleB,
+                                                        int outgoingCode, int incomingCode)
     {
+        Relation relation = RelationCodes.relationOf(outgoingCode);
+
+        // Intersection points are not part of the relation code, so they are only computed when there are some
+        String intersectionPoints = relation != Relation.INTERSECTION ? "" : rectangleA.findIntersectionPointsWith(rectangleB)
+                .stream().map(Point::prettyPrint).collect(Collectors.joining(", "));
+
         return RECTANGLE_COMPARISON_RESULTS_TEMPLATE.formatted(
-                "A", rectangleA.getArea(),
-                "B", rectangleB.getArea(),
-                rectangleA.equals(rectangleB),
-                "A", "B", rectangleA.contains(rectangleB),
-                "A", "B", rectangleA.findIntersectionPointsWith(rectangleB).stream().map(Point::prettyPrint).collect(Collectors.joining(", ")),
-                rectangleA.determineAdjacencyWith(rectangleB));
+                labelA, rectangleA.getArea(),
+                labelB, rectangleB.getArea(),
+                relation == Relation.IDENTICAL,
+                labelA, labelB, relation == Relation.CONTAINMENT,
+                labelB, labelA, RelationCodes.relationOf(incomingCode) == Relation.CONTAINMENT,
+                labelA, labelB, intersectionPoints,
+                RelationCodes.adjacencyOf(outgoingCode));
     }
 
     // Discourage Instantiation
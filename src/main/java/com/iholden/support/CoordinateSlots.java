@@ -0,0 +1,141 @@
+package com.iholden.support;
+
+import java.util.Arrays;
+
+/**
+ * <p>Compresses a set of coordinates on one axis into consecutive integer "slots", for use by the slot-indexed
+ *    trees and sweeps.</p>
+ * <p>For the {@code m} distinct coordinates {@code c[0] < c[1] < ... < c[m-1]}, there are {@code 2m - 1} slots:
+ *    even slot {@code 2i} is the single coordinate {@code c[i]}, and odd slot {@code 2i + 1} is the open gap
+ *    {@code (c[i], c[i+1])} between two consecutive coordinates. Keeping points and gaps apart lets callers
+ *    express both the inclusive and the exclusive edge semantics of {@link Range} exactly: the closed range
+ *    {@code [c[i], c[j]]} covers slots {@code 2i..2j}, while the open range {@code (c[i], c[j])} covers
+ *    {@code 2i+1..2j-1}.</p>
+ */
+public class CoordinateSlots
+{
+    private final long[] coordinates;
+
+    // Prevent external instantiation; prefer static access
+    private CoordinateSlots(long[] coordinates)
+    {
+        this.coordinates = coordinates;
+    }
+
+    /**
+     * @param values coordinates to compress; may contain duplicates and be in any order. The array is not modified.
+     * @return slots over the distinct values
+     */
+    public static CoordinateSlots of(long[] values)
+    {
+        long[] sorted = values.clone();
+
+        Arrays.sort(sorted);
+
+        int distinct = 0;
+
+        for (int i = 0; i < sorted.length; i++)
+        {
+            if (i == 0 || sorted[i] != sorted[distinct - 1])
+            {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+
+        return new CoordinateSlots(Arrays.copyOf(sorted, distinct));
+    }
+
+    /**
+     * @return the number of distinct coordinates
+     */
+    public int coordinateCount()
+    {
+        return coordinates.length;
+    }
+
+    /**
+     * @return the number of slots, e.g. {@code 2 * coordinateCount() - 1}, or 0 if there are no coordinates
+     */
+    public int slotCount()
+    {
+        return coordinates.length == 0 ? 0 : 2 * coordinates.length - 1;
+    }
+
+    public long coordinateAt(int coordinateIndex)
+    {
+        return coordinates[coordinateIndex];
+    }
+
+    /**
+     * Returns the index of a coordinate that is known to be one of the compressed values
+     * @param coordinate one of the compressed coordinates
+     * @return the index of the coordinate
+     * @throws IllegalArgumentException if the coordinate was not one of the compressed values
+     */
+    public int indexOf(long coordinate)
+    {
+        int index = Arrays.binarySearch(coordinates, coordinate);
+
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("Coordinate %d was not compressed".formatted(coordinate));
+        }
+
+        return index;
+    }
+
+    /**
+     * Returns the point slot of a compressed coordinate, e.g. {@code 2 * indexOf(coordinate)}
+     * @param coordinate one of the compressed coordinates
+     * @return the point slot of the coordinate
+     */
+    public int pointSlotOf(long coordinate)
+    {
+        return 2 * indexOf(coordinate);
+    }
+
+    /**
+     * Finds the slot containing an arbitrary value
+     * @param value any value
+     * @return the point slot if {@code value} is one of the coordinates, the gap slot if it falls between two
+     *         coordinates, or -1 if it falls outside of the compressed coordinates altogether
+     */
+    public int slotOf(long value)
+    {
+        int index = Arrays.binarySearch(coordinates, value);
+
+        if (index >= 0)
+        {
+            return 2 * index;
+        }
+
+        int insertionPoint = -index - 1;
+
+        if (insertionPoint == 0 || insertionPoint == coordinates.length)
+        {
+            return -1;
+        }
+
+        return 2 * insertionPoint - 1;
+    }
+
+    /**
+     * Returns the lowest coordinate covered by a slot; for a gap slot this is the (excluded) lower end of the gap
+     * @param slot a slot
+     * @return lower coordinate of the slot
+     */
+    public long slotStart(int slot)
+    {
+        return coordinates[slot >> 1];
+    }
+
+    /**
+     * Returns the highest coordinate covered by a slot; for a gap slot this is the (excluded) upper end of the gap
+     * @param slot a slot
+     * @return upper coordinate of the slot
+     */
+    public long slotEnd(int slot)
+    {
+        return coordinates[(slot + 1) >> 1];
+    }
+}
@@ -0,0 +1,11 @@
+package com.iholden.support;
+
+/**
+ * Primitive specialization of {@link java.util.function.BiConsumer} for reporting pairs of int values, such as
+ * (query index, rectangle id) matches, without boxing
+ */
+@FunctionalInterface
+public interface IntPairConsumer
+{
+    void accept(int first, int second);
+}
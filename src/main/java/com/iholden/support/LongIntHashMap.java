@@ -0,0 +1,167 @@
+package com.iholden.support;
+
+import java.util.Arrays;
+
+/**
+ * <p>Map from long keys to int values, stored in primitive arrays with open addressing and linear probing, so that
+ *    neither keys nor values are ever boxed.</p>
+ * <p>Any long is a valid key. The table is kept at most half full, and removal shifts later entries of a probe
+ *    sequence back into the freed slot, so lookups never have to skip over deleted entries.</p>
+ * <p>This class is not thread-safe.</p>
+ */
+public class LongIntHashMap
+{
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    /**
+     * @param expectedSize number of entries expected; the map grows as needed either way
+     */
+    public LongIntHashMap(int expectedSize)
+    {
+        allocate(Integer.highestOneBit(Math.max(8, expectedSize) * 2 - 1) << 1);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param key key to look up
+     * @param missing value to return if {@code key} is absent
+     * @return the value mapped to {@code key}, or {@code missing}
+     */
+    public int get(long key, int missing)
+    {
+        for (int position = mix(key) & mask; used[position]; position = (position + 1) & mask)
+        {
+            if (keys[position] == key)
+            {
+                return values[position];
+            }
+        }
+
+        return missing;
+    }
+
+    /**
+     * Maps {@code key} to {@code value}, replacing any previous value
+     */
+    public void put(long key, int value)
+    {
+        int position = mix(key) & mask;
+
+        while (used[position])
+        {
+            if (keys[position] == key)
+            {
+                values[position] = value;
+                return;
+            }
+
+            position = (position + 1) & mask;
+        }
+
+        used[position] = true;
+        keys[position] = key;
+        values[position] = value;
+
+        if (2 * ++size > keys.length)
+        {
+            grow();
+        }
+    }
+
+    /**
+     * Removes the entry for {@code key}, if any
+     * @param key key to remove
+     * @param missing value to return if {@code key} is absent
+     * @return the value that was mapped to {@code key}, or {@code missing}
+     */
+    public int remove(long key, int missing)
+    {
+        int position = mix(key) & mask;
+
+        while (used[position] && keys[position] != key)
+        {
+            position = (position + 1) & mask;
+        }
+
+        if (!used[position])
+        {
+            return missing;
+        }
+
+        int removed = values[position];
+        int free = position;
+
+        // Move back any later entry of the probe sequence that would no longer be reachable past the freed slot
+        for (int next = (free + 1) & mask; used[next]; next = (next + 1) & mask)
+        {
+            int home = mix(keys[next]) & mask;
+
+            if (((next - home) & mask) >= ((next - free) & mask))
+            {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+
+        used[free] = false;
+        size--;
+
+        return removed;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Spreads every bit of {@code value} across the low bits of the result, which are the ones a table index uses
+     */
+    static int mix(long value)
+    {
+        // Finalizer of the 64-bit MurmurHash3
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+
+        return (int) value;
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private void grow()
+    {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        allocate(keys.length * 2);
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldUsed[i])
+            {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.iholden.support;
+
+import java.util.Arrays;
+
+/**
+ * <p>Compressed set of non-negative int values, laid out like a Roaring bitmap, used to record which cells of a
+ *    grid are occupied.</p>
+ * <p>Values are split into chunks of 65536 by their high 16 bits, and each chunk present is held in a container of
+ *    its own: a sorted array of the low 16 bits while the chunk holds at most {@value #ARRAY_LIMIT} values, or a
+ *    65536-bit bitmap once it holds more. Sparse chunks take 2 bytes per value and dense ones a fixed 8 KB, and
+ *    intersection tests between bitmap containers are plain word ANDs.</p>
+ * <p>This class is not thread-safe.</p>
+ */
+public class OccupancyBitmap
+{
+    // Past this many values an array container would be larger than a bitmap container
+    static final int ARRAY_LIMIT = 4096;
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+    private static final int BITMAP_WORDS = (1 << CHUNK_BITS) / Long.SIZE;
+
+    // Chunk keys in ascending order; chunk i is held in arrays[i] (the first sizes[i] entries) or in bitmaps[i]
+    private int[] keys = new int[4];
+    private char[][] arrays = new char[4][];
+    private long[][] bitmaps = new long[4][];
+    private int[] sizes = new int[4];
+    private int chunkCount;
+
+    public boolean isEmpty()
+    {
+        return chunkCount == 0;
+    }
+
+    /**
+     * @return the number of values in the set
+     */
+    public long getCardinality()
+    {
+        long cardinality = 0;
+
+        for (int chunk = 0; chunk < chunkCount; chunk++)
+        {
+            cardinality += sizes[chunk];
+        }
+
+        return cardinality;
+    }
+
+    public boolean contains(int value)
+    {
+        return intersectsRange(value, value + 1L);
+    }
+
+    public void add(int value)
+    {
+        addRange(value, value + 1L);
+    }
+
+    /**
+     * Adds every value from {@code from}, inclusive, to {@code to}, exclusive
+     * @throws IllegalArgumentException if {@code from} is negative
+     */
+    public void addRange(int from, long to)
+    {
+        if (from < 0)
+        {
+            throw new IllegalArgumentException("Values must not be negative; got " + from);
+        }
+
+        for (long start = from; start < to; start = (start | CHUNK_MASK) + 1)
+        {
+            int key = (int) (start >>> CHUNK_BITS);
+            long end = Math.min(to, ((long) key + 1) << CHUNK_BITS);
+
+            addToChunk(chunkFor(key), (int) start & CHUNK_MASK, (int) (end - ((long) key << CHUNK_BITS)));
+        }
+    }
+
+    /**
+     * @return true if the set holds any value from {@code from}, inclusive, to {@code to}, exclusive
+     */
+    public boolean intersectsRange(int from, long to)
+    {
+        for (long start = Math.max(0, from); start < to; start = (start | CHUNK_MASK) + 1)
+        {
+            int key = (int) (start >>> CHUNK_BITS);
+            int chunk = Arrays.binarySearch(keys, 0, chunkCount, key);
+
+            if (chunk < 0)
+            {
+                continue;
+            }
+
+            long end = Math.min(to, ((long) key + 1) << CHUNK_BITS);
+
+            if (chunkIntersectsRange(chunk, (int) start & CHUNK_MASK, (int) (end - ((long) key << CHUNK_BITS))))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true if the two sets share any value
+     */
+    public boolean intersects(OccupancyBitmap other)
+    {
+        int i = 0, j = 0;
+
+        while (i < chunkCount && j < other.chunkCount)
+        {
+            if (keys[i] < other.keys[j])
+            {
+                i++;
+            }
+            else if (keys[i] > other.keys[j])
+            {
+                j++;
+            }
+            else if (chunksIntersect(i++, other, j++))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean chunksIntersect(int chunk, OccupancyBitmap other, int otherChunk)
+    {
+        long[] words = bitmaps[chunk], otherWords = other.bitmaps[otherChunk];
+
+        if (words != null && otherWords != null)
+        {
+            for (int word = 0; word < BITMAP_WORDS; word++)
+            {
+                if ((words[word] & otherWords[word]) != 0)
+                {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        if (words != null)
+        {
+            return other.chunkIntersectsArray(otherChunk, words);
+        }
+
+        if (otherWords != null)
+        {
+            return chunkIntersectsArray(chunk, otherWords);
+        }
+
+        char[] values = arrays[chunk], otherValues = other.arrays[otherChunk];
+        int size = sizes[chunk], otherSize = other.sizes[otherChunk];
+
+        for (int a = 0, b = 0; a < size && b < otherSize; )
+        {
+            if (values[a] < otherValues[b])
+            {
+                a++;
+            }
+            else if (values[a] > otherValues[b])
+            {
+                b++;
+            }
+            else
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true if the array container of {@code chunk} holds any value set in {@code words}
+     */
+    private boolean chunkIntersectsArray(int chunk, long[] words)
+    {
+        char[] values = arrays[chunk];
+
+        for (int i = 0; i < sizes[chunk]; i++)
+        {
+            if ((words[values[i] >>> 6] & 1L << values[i]) != 0)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param from first low value, inclusive
+     * @param to last low value, exclusive; at most 65536
+     */
+    private boolean chunkIntersectsRange(int chunk, int from, int to)
+    {
+        long[] words = bitmaps[chunk];
+
+        if (words == null)
+        {
+            int index = lowerBound(arrays[chunk], sizes[chunk], from);
+
+            return index < sizes[chunk] && arrays[chunk][index] < to;
+        }
+
+        int first = from >>> 6, last = (to - 1) >>> 6;
+
+        for (int word = first; word <= last; word++)
+        {
+            long mask = -1L;
+
+            if (word == first)
+            {
+                mask &= -1L << from;
+            }
+
+            if (word == last)
+            {
+                mask &= -1L >>> (Long.SIZE - 1 - ((to - 1) & 63));
+            }
+
+            if ((words[word] & mask) != 0)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void addToChunk(int chunk, int from, int to)
+    {
+        if (bitmaps[chunk] == null)
+        {
+            char[] values = arrays[chunk];
+            int size = sizes[chunk];
+            int start = lowerBound(values, size, from), end = lowerBound(values, size, to);
+            int merged = size - (end - start) + (to - from);
+
+            if (merged <= ARRAY_LIMIT)
+            {
+                var result = merged <= values.length ? values : Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(merged, 2 * values.length)));
+
+                // Shift the values above the range into place, then write the range over the ones inside it
+                System.arraycopy(values, end, result, start + (to - from), size - end);
+
+                if (result != values)
+                {
+                    System.arraycopy(values, 0, result, 0, start);
+                }
+
+                for (int value = from; value < to; value++)
+                {
+                    result[start + value - from] = (char) value;
+                }
+
+                arrays[chunk] = result;
+                sizes[chunk] = merged;
+
+                return;
+            }
+
+            convertToBitmap(chunk);
+        }
+
+        long[] words = bitmaps[chunk];
+
+        for (int value = from; value < to; )
+        {
+            int word = value >>> 6;
+            int bits = Math.min(to - value, Long.SIZE - (value & 63));
+            long mask = (bits == Long.SIZE ? -1L : (1L << bits) - 1) << value;
+
+            sizes[chunk] += Long.bitCount(mask & ~words[word]);
+            words[word] |= mask;
+            value += bits;
+        }
+    }
+
+    private void convertToBitmap(int chunk)
+    {
+        var words = new long[BITMAP_WORDS];
+        char[] values = arrays[chunk];
+
+        for (int i = 0; i < sizes[chunk]; i++)
+        {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+
+        bitmaps[chunk] = words;
+        arrays[chunk] = null;
+    }
+
+    /**
+     * @return the index of the container for {@code key}, inserting an empty array container if there is none
+     */
+    private int chunkFor(int key)
+    {
+        int chunk = Arrays.binarySearch(keys, 0, chunkCount, key);
+
+        if (chunk >= 0)
+        {
+            return chunk;
+        }
+
+        chunk = -chunk - 1;
+
+        if (chunkCount == keys.length)
+        {
+            int capacity = chunkCount * 2;
+
+            keys = Arrays.copyOf(keys, capacity);
+            arrays = Arrays.copyOf(arrays, capacity);
+            bitmaps = Arrays.copyOf(bitmaps, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+
+        int moved = chunkCount - chunk;
+
+        System.arraycopy(keys, chunk, keys, chunk + 1, moved);
+        System.arraycopy(arrays, chunk, arrays, chunk + 1, moved);
+        System.arraycopy(bitmaps, chunk, bitmaps, chunk + 1, moved);
+        System.arraycopy(sizes, chunk, sizes, chunk + 1, moved);
+
+        keys[chunk] = key;
+        arrays[chunk] = new char[8];
+        bitmaps[chunk] = null;
+        sizes[chunk] = 0;
+        chunkCount++;
+
+        return chunk;
+    }
+
+    /**
+     * @return the index of the first of the {@code size} sorted values that is at least {@code value}
+     */
+    private static int lowerBound(char[] values, int size, int value)
+    {
+        int low = 0, high = size;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (values[middle] < value)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+}
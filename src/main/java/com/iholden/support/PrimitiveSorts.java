@@ -0,0 +1,319 @@
+package com.iholden.support;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Utility class holding sorting routines over primitive arrays, for the bulk structures that must sort millions of
+ * entries without boxing them, and binary searches over the sorted arrays
+ */
+public class PrimitiveSorts
+{
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    // Radix sorting pays for its histograms and scratch arrays only on longer runs
+    private static final int RADIX_SORT_THRESHOLD = 1 << 12;
+    private static final int RADIX_BITS = 11;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    // Each parallel task histograms and scatters a block of at least this many keys
+    private static final int RADIX_BLOCK_MIN = 1 << 16;
+
+    /**
+     * <p>Sorts {@code keys[from, to)} in ascending order, applying the same permutation to {@code values[from, to)}.</p>
+     * <p>The sort is stable, so values with equal keys keep their relative order.</p>
+     * @param keys sort keys
+     * @param values values carried along with their keys
+     * @param from first position to sort, inclusive
+     * @param to last position to sort, exclusive
+     */
+    public static void sortParallel(long[] keys, int[] values, int from, int to)
+    {
+        if (to - from < 2)
+        {
+            return;
+        }
+
+        long[] keyBuffer = new long[to - from];
+        int[] valueBuffer = new int[to - from];
+
+        mergeSort(keys, values, from, to, keyBuffer, valueBuffer);
+    }
+
+    /**
+     * <p>Sorts {@code keys[from, to)} in ascending order, applying the same permutation to {@code values[from, to)},
+     *    with a least significant digit radix sort whose passes are spread over the common fork-join pool.</p>
+     * <p>Each pass splits the run into blocks, counts the digits of every block in parallel, and then moves every
+     *    block's keys to their places in parallel, each block writing to its own precomputed offsets. Digits are
+     *    {@value #RADIX_BITS} bits, and passes in which every key has the same digit are skipped, so keys spanning
+     *    a narrow range take fewer passes.</p>
+     * <p>The sort is stable, like {@link #sortParallel(long[], int[], int, int)}, which short runs fall back to.</p>
+     * @param keys sort keys
+     * @param values values carried along with their keys
+     * @param from first position to sort, inclusive
+     * @param to last position to sort, exclusive
+     */
+    public static void radixSortParallel(long[] keys, int[] values, int from, int to)
+    {
+        int length = to - from;
+
+        if (length < RADIX_SORT_THRESHOLD)
+        {
+            sortParallel(keys, values, from, to);
+            return;
+        }
+
+        int blockCount = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4, length / RADIX_BLOCK_MIN));
+        int blockLength = (length + blockCount - 1) / blockCount;
+        var counts = new int[blockCount][RADIX];
+        long[] sourceKeys = keys, targetKeys = new long[length];
+        int[] sourceValues = values, targetValues = new int[length];
+        int sourceFrom = from, targetFrom = 0;
+
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS)
+        {
+            final int digitShift = shift;
+            final long[] passKeys = sourceKeys, passTargetKeys = targetKeys;
+            final int[] passValues = sourceValues, passTargetValues = targetValues;
+            final int passFrom = sourceFrom, passTargetFrom = targetFrom;
+
+            IntStream.range(0, blockCount).parallel().forEach(block ->
+            {
+                int[] blockCounts = counts[block];
+                int end = Math.min(length, (block + 1) * blockLength);
+
+                Arrays.fill(blockCounts, 0);
+
+                for (int i = block * blockLength; i < end; i++)
+                {
+                    blockCounts[digitOf(passKeys[passFrom + i], digitShift)]++;
+                }
+            });
+
+            if (isSingleDigit(counts, length))
+            {
+                continue;
+            }
+
+            // Turn the counts into the offset at which each block writes its first key of each digit
+            int offset = passTargetFrom;
+
+            for (int digit = 0; digit < RADIX; digit++)
+            {
+                for (int[] blockCounts : counts)
+                {
+                    int count = blockCounts[digit];
+                    blockCounts[digit] = offset;
+                    offset += count;
+                }
+            }
+
+            IntStream.range(0, blockCount).parallel().forEach(block ->
+            {
+                int[] offsets = counts[block];
+                int end = Math.min(length, (block + 1) * blockLength);
+
+                for (int i = block * blockLength; i < end; i++)
+                {
+                    long key = passKeys[passFrom + i];
+                    int target = offsets[digitOf(key, digitShift)]++;
+
+                    passTargetKeys[target] = key;
+                    passTargetValues[target] = passValues[passFrom + i];
+                }
+            });
+
+            long[] swappedKeys = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = swappedKeys;
+
+            int[] swappedValues = sourceValues;
+            sourceValues = targetValues;
+            targetValues = swappedValues;
+
+            int swappedFrom = sourceFrom;
+            sourceFrom = targetFrom;
+            targetFrom = swappedFrom;
+        }
+
+        if (sourceKeys != keys)
+        {
+            System.arraycopy(sourceKeys, 0, keys, from, length);
+            System.arraycopy(sourceValues, 0, values, from, length);
+        }
+    }
+
+    /**
+     * Reverses {@code keys[from, to)} and {@code values[from, to)} in place, e.g. to turn an ascending sort into a
+     * descending one
+     */
+    public static void reverseParallel(long[] keys, int[] values, int from, int to)
+    {
+        for (int i = from, j = to - 1; i < j; i++, j--)
+        {
+            long key = keys[i];
+            keys[i] = keys[j];
+            keys[j] = key;
+
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    /**
+     * @param sorted keys sorted in ascending order over {@code [from, to)}
+     * @return the first position in {@code [from, to)} whose key is at least {@code value}, or {@code to} if there is
+     *         none; unlike {@link Arrays#binarySearch(long[], long)}, the first of several equal keys
+     */
+    public static int lowerBound(long[] sorted, int from, int to, long value)
+    {
+        int low = from, high = to;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (sorted[middle] < value)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @param sorted keys sorted in ascending order over {@code [from, to)}
+     * @return the first position in {@code [from, to)} whose key is greater than {@code value}, or {@code to} if there
+     *         is none
+     */
+    public static int upperBound(long[] sorted, int from, int to, long value)
+    {
+        int low = from, high = to;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if (sorted[middle] <= value)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Flipping the sign bit makes unsigned digits order signed keys
+     */
+    private static int digitOf(long key, int shift)
+    {
+        return (int) ((key ^ Long.MIN_VALUE) >>> shift) & (RADIX - 1);
+    }
+
+    private static boolean isSingleDigit(int[][] counts, int length)
+    {
+        for (int digit = 0; digit < RADIX; digit++)
+        {
+            int total = 0;
+
+            for (int[] blockCounts : counts)
+            {
+                total += blockCounts[digit];
+            }
+
+            if (total != 0)
+            {
+                return total == length;
+            }
+        }
+
+        return true;
+    }
+
+    private static void mergeSort(long[] keys, int[] values, int from, int to, long[] keyBuffer, int[] valueBuffer)
+    {
+        if (to - from <= INSERTION_SORT_THRESHOLD)
+        {
+            insertionSort(keys, values, from, to);
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+
+        mergeSort(keys, values, from, middle, keyBuffer, valueBuffer);
+        mergeSort(keys, values, middle, to, keyBuffer, valueBuffer);
+
+        // Already in order; nothing to merge
+        if (keys[middle - 1] <= keys[middle])
+        {
+            return;
+        }
+
+        int length = to - from;
+
+        System.arraycopy(keys, from, keyBuffer, 0, length);
+        System.arraycopy(values, from, valueBuffer, 0, length);
+
+        int left = 0, leftEnd = middle - from, right = leftEnd, target = from;
+
+        while (left < leftEnd && right < length)
+        {
+            if (keyBuffer[right] < keyBuffer[left])
+            {
+                keys[target] = keyBuffer[right];
+                values[target++] = valueBuffer[right++];
+            }
+            else
+            {
+                keys[target] = keyBuffer[left];
+                values[target++] = valueBuffer[left++];
+            }
+        }
+
+        while (left < leftEnd)
+        {
+            keys[target] = keyBuffer[left];
+            values[target++] = valueBuffer[left++];
+        }
+
+        while (right < length)
+        {
+            keys[target] = keyBuffer[right];
+            values[target++] = valueBuffer[right++];
+        }
+    }
+
+    private static void insertionSort(long[] keys, int[] values, int from, int to)
+    {
+        for (int i = from + 1; i < to; i++)
+        {
+            long key = keys[i];
+            int value = values[i];
+            int j = i - 1;
+
+            while (j >= from && keys[j] > key)
+            {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+
+            keys[j + 1] = key;
+            values[j + 1] = value;
+        }
+    }
+
+    // Discourage Instantiation
+    private PrimitiveSorts(){};
+}
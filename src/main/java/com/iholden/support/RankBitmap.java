@@ -0,0 +1,99 @@
+package com.iholden.support;
+
+/**
+ * <p>Set of ranks {@code 0..size-1}, as a hierarchical bitmap: level 0 has a bit per rank, and each higher level a
+ *    bit per word of the one below, set when that word is not 0; the top level is a single word.</p>
+ * <p>Adding and removing a rank touch one word per level at most, and the next rank in the set is found in
+ *    O(log<sub>64</sub> N) however sparse the set is, so sweeps can walk the members of a range of ranks in time
+ *    proportional to the members found.</p>
+ * <p>This class is not thread-safe.</p>
+ */
+public class RankBitmap
+{
+    private final long[][] levels;
+
+    public RankBitmap(int size)
+    {
+        int levelCount = 1;
+
+        for (long bits = size; bits > 64; bits = (bits + 63) >>> 6)
+        {
+            levelCount++;
+        }
+
+        this.levels = new long[levelCount][];
+
+        long bits = size;
+
+        for (int level = 0; level < levelCount; level++)
+        {
+            levels[level] = new long[(int) Math.max(1, (bits + 63) >>> 6)];
+            bits = levels[level].length;
+        }
+    }
+
+    public void set(int rank)
+    {
+        for (int level = 0, bit = rank; level < levels.length; level++, bit >>>= 6)
+        {
+            long word = levels[level][bit >>> 6];
+            levels[level][bit >>> 6] = word | (1L << bit);
+
+            // The levels above already record this word as non-empty
+            if (word != 0)
+            {
+                return;
+            }
+        }
+    }
+
+    public void clear(int rank)
+    {
+        for (int level = 0, bit = rank; level < levels.length; level++, bit >>>= 6)
+        {
+            long word = levels[level][bit >>> 6] & ~(1L << bit);
+            levels[level][bit >>> 6] = word;
+
+            // The word still holds other ranks, so the levels above are unchanged
+            if (word != 0)
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the first rank in the set at or after {@code from}, or -1 if there is none
+     */
+    public int nextSet(int from)
+    {
+        return nextSet(0, from);
+    }
+
+    private int nextSet(int level, int from)
+    {
+        long[] words = levels[level];
+        int word = from >>> 6;
+
+        if (word >= words.length)
+        {
+            return -1;
+        }
+
+        long bits = words[word] & (-1L << from);
+
+        if (bits != 0)
+        {
+            return (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+
+        if (level + 1 == levels.length)
+        {
+            return -1;
+        }
+
+        int nextWord = nextSet(level + 1, word + 1);
+
+        return nextWord < 0 ? -1 : (nextWord << 6) + Long.numberOfTrailingZeros(words[nextWord]);
+    }
+}
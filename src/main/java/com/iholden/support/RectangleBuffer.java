@@ -0,0 +1,110 @@
+package com.iholden.support;
+
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.entities.impl.RectangleImpl;
+
+import java.util.Arrays;
+
+/**
+ * <p>Growable, reusable buffer of rectangles stored as primitive closed bounds, used as the output of rectangle
+ *    boolean operations such as {@link Rectangle#subtract(Rectangle, RectangleBuffer)}.</p>
+ * <p>Calling {@link #clear()} keeps the underlying storage, so a buffer that is reused across many operations stops
+ *    allocating once it has grown to the largest result it needs to hold.</p>
+ */
+public class RectangleBuffer
+{
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // minX, minY, maxX, maxY of each rectangle, in sequence
+    private long[] bounds;
+    private int size;
+
+    public RectangleBuffer()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public RectangleBuffer(int initialCapacity)
+    {
+        this.bounds = new long[4 * Math.max(1, initialCapacity)];
+    }
+
+    public void add(long minX, long minY, long maxX, long maxY)
+    {
+        if (4 * size == bounds.length)
+        {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+
+        int offset = 4 * size++;
+
+        bounds[offset] = minX;
+        bounds[offset + 1] = minY;
+        bounds[offset + 2] = maxX;
+        bounds[offset + 3] = maxY;
+    }
+
+    public void add(Rectangle rectangle)
+    {
+        add(rectangle.getRangeX().getMin(), rectangle.getRangeY().getMin(), rectangle.getRangeX().getMax(), rectangle.getRangeY().getMax());
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Removes every rectangle from the buffer, keeping its storage for reuse
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+
+    public long getMinX(int index)
+    {
+        return bounds[4 * checkIndex(index)];
+    }
+
+    public long getMinY(int index)
+    {
+        return bounds[4 * checkIndex(index) + 1];
+    }
+
+    public long getMaxX(int index)
+    {
+        return bounds[4 * checkIndex(index) + 2];
+    }
+
+    public long getMaxY(int index)
+    {
+        return bounds[4 * checkIndex(index) + 3];
+    }
+
+    /**
+     * Materializes the rectangle at {@code index} as a {@link Rectangle}
+     * @param index position of the rectangle in the buffer
+     * @return a new Rectangle with the same bounds
+     */
+    public Rectangle toRectangle(int index)
+    {
+        return new RectangleImpl(getMaxX(index) - getMinX(index), getMaxY(index) - getMinY(index), new PointImpl(getMinX(index), getMinY(index)));
+    }
+
+    private int checkIndex(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index %d out of bounds for size %d".formatted(index, size));
+        }
+
+        return index;
+    }
+}
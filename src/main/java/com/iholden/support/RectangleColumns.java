@@ -0,0 +1,130 @@
+package com.iholden.support;
+
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.entities.impl.RectangleImpl;
+
+import java.util.List;
+
+/**
+ * <p>Column-oriented, primitive representation of a fixed set of rectangles, used as the input of the bulk
+ *    spatial structures and sweeps.</p>
+ * <p>Each rectangle is stored as its closed bounds ({@code minX}, {@code minY}, {@code maxX}, {@code maxY}) along
+ *    with an integer id, which is what results are reported in terms of. Ids default to the position of the
+ *    rectangle in the source list.</p>
+ * <p>Use static builders to obtain an instance: {@link RectangleColumns#of(List)} or
+ *    {@link RectangleColumns#of(int[], long[], long[], long[], long[])}. Arrays passed in are used as-is, not copied.</p>
+ */
+public class RectangleColumns
+{
+    private final int[] ids;
+    private final long[] minX;
+    private final long[] minY;
+    private final long[] maxX;
+    private final long[] maxY;
+
+    // Prevent external instantiation; prefer static access
+    private RectangleColumns(int[] ids, long[] minX, long[] minY, long[] maxX, long[] maxY)
+    {
+        this.ids = ids;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    public static RectangleColumns of(List<? extends Rectangle> rectangles)
+    {
+        int size = rectangles.size();
+        var ids = new int[size];
+        var minX = new long[size];
+        var minY = new long[size];
+        var maxX = new long[size];
+        var maxY = new long[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            Rectangle rectangle = rectangles.get(i);
+
+            ids[i] = i;
+            minX[i] = rectangle.getRangeX().getMin();
+            minY[i] = rectangle.getRangeY().getMin();
+            maxX[i] = rectangle.getRangeX().getMax();
+            maxY[i] = rectangle.getRangeY().getMax();
+        }
+
+        return new RectangleColumns(ids, minX, minY, maxX, maxY);
+    }
+
+    public static RectangleColumns of(long[] minX, long[] minY, long[] maxX, long[] maxY)
+    {
+        var ids = new int[minX.length];
+
+        for (int i = 0; i < ids.length; i++)
+        {
+            ids[i] = i;
+        }
+
+        return of(ids, minX, minY, maxX, maxY);
+    }
+
+    public static RectangleColumns of(int[] ids, long[] minX, long[] minY, long[] maxX, long[] maxY)
+    {
+        int size = ids.length;
+
+        if (minX.length != size || minY.length != size || maxX.length != size || maxY.length != size)
+        {
+            throw new IllegalArgumentException("All columns must have the same length");
+        }
+
+        for (int i = 0; i < size; i++)
+        {
+            if (minX[i] > maxX[i] || minY[i] > maxY[i])
+            {
+                throw new IllegalArgumentException("Rectangle at position %d has min > max".formatted(i));
+            }
+        }
+
+        return new RectangleColumns(ids, minX, minY, maxX, maxY);
+    }
+
+    public int size()
+    {
+        return ids.length;
+    }
+
+    public int getId(int index)
+    {
+        return ids[index];
+    }
+
+    public long getMinX(int index)
+    {
+        return minX[index];
+    }
+
+    public long getMinY(int index)
+    {
+        return minY[index];
+    }
+
+    public long getMaxX(int index)
+    {
+        return maxX[index];
+    }
+
+    public long getMaxY(int index)
+    {
+        return maxY[index];
+    }
+
+    /**
+     * Materializes the rectangle at {@code index} as a {@link Rectangle}, e.g. to apply the relation methods to it
+     * @param index position of the rectangle in the columns
+     * @return a new Rectangle with the same bounds
+     */
+    public Rectangle toRectangle(int index)
+    {
+        return new RectangleImpl(maxX[index] - minX[index], maxY[index] - minY[index], new PointImpl(minX[index], minY[index]));
+    }
+}
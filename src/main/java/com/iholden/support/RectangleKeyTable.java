@@ -0,0 +1,149 @@
+package com.iholden.support;
+
+import java.util.Arrays;
+
+/**
+ * <p>Assigns dense ids, from 0 upwards, to distinct rectangles, keyed on 4 packed longs such as their bounds or their
+ *    {@code (x, y, length, width)}.</p>
+ * <p>Keys are stored in a single primitive array, 4 longs per id, and found through an open-addressing table of ids
+ *    with linear probing, so interning a rectangle creates no objects and never calls {@code hashCode} or
+ *    {@code equals}. The table is kept at most half full.</p>
+ * <p>This class is not thread-safe.</p>
+ */
+public class RectangleKeyTable
+{
+    private static final int EMPTY = -1;
+    private static final int KEY_LONGS = 4;
+
+    private long[] keys;
+    private int[] table;
+    private int mask;
+    private int size;
+
+    /**
+     * @param expectedSize number of distinct rectangles expected; the table grows as needed either way
+     */
+    public RectangleKeyTable(int expectedSize)
+    {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize) * 2 - 1) << 1;
+
+        this.keys = new long[KEY_LONGS * Math.max(8, expectedSize)];
+        this.table = new int[capacity];
+        this.mask = capacity - 1;
+
+        Arrays.fill(table, EMPTY);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return the id of the rectangle keyed {@code (k0, k1, k2, k3)}, assigning it the next id if it is new
+     */
+    public int intern(long k0, long k1, long k2, long k3)
+    {
+        int position = hash(k0, k1, k2, k3) & mask;
+
+        for (int id = table[position]; id != EMPTY; id = table[position])
+        {
+            if (matches(id, k0, k1, k2, k3))
+            {
+                return id;
+            }
+
+            position = (position + 1) & mask;
+        }
+
+        if (KEY_LONGS * size == keys.length)
+        {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+
+        int id = size++;
+        int offset = KEY_LONGS * id;
+
+        keys[offset] = k0;
+        keys[offset + 1] = k1;
+        keys[offset + 2] = k2;
+        keys[offset + 3] = k3;
+        table[position] = id;
+
+        if (2 * size > table.length)
+        {
+            grow();
+        }
+
+        return id;
+    }
+
+    /**
+     * @return the id of the rectangle keyed {@code (k0, k1, k2, k3)}, or -1 if it has not been interned
+     */
+    public int find(long k0, long k1, long k2, long k3)
+    {
+        int position = hash(k0, k1, k2, k3) & mask;
+
+        for (int id = table[position]; id != EMPTY; id = table[position])
+        {
+            if (matches(id, k0, k1, k2, k3))
+            {
+                return id;
+            }
+
+            position = (position + 1) & mask;
+        }
+
+        return EMPTY;
+    }
+
+    /**
+     * @param id id of an interned rectangle
+     * @param component index of the key component, from 0 to 3
+     * @return that component of the rectangle's key
+     */
+    public long getKey(int id, int component)
+    {
+        return keys[KEY_LONGS * id + component];
+    }
+
+    private boolean matches(int id, long k0, long k1, long k2, long k3)
+    {
+        int offset = KEY_LONGS * id;
+
+        return keys[offset] == k0 && keys[offset + 1] == k1 && keys[offset + 2] == k2 && keys[offset + 3] == k3;
+    }
+
+    private void grow()
+    {
+        table = new int[table.length * 2];
+        mask = table.length - 1;
+
+        Arrays.fill(table, EMPTY);
+
+        for (int id = 0; id < size; id++)
+        {
+            int offset = KEY_LONGS * id;
+            int position = hash(keys[offset], keys[offset + 1], keys[offset + 2], keys[offset + 3]) & mask;
+
+            while (table[position] != EMPTY)
+            {
+                position = (position + 1) & mask;
+            }
+
+            table[position] = id;
+        }
+    }
+
+    private static int hash(long k0, long k1, long k2, long k3)
+    {
+        long hash = k0;
+
+        hash = hash * 0x9E3779B97F4A7C15L + k1;
+        hash = hash * 0x9E3779B97F4A7C15L + k2;
+        hash = hash * 0x9E3779B97F4A7C15L + k3;
+
+        return LongIntHashMap.mix(hash);
+    }
+}
@@ -0,0 +1,395 @@
+package com.iholden.support;
+
+import java.util.Arrays;
+
+/**
+ * <p>Merges a set of possibly overlapping rectangles into a set of rectangles with non-overlapping interiors that
+ *    covers exactly the same area.</p>
+ * <p>The output consists of maximal horizontal strips: the union is cut at every X coordinate where its cross-section
+ *    changes, and each disjoint Y interval of a cross-section becomes one rectangle, extended along X for as long as
+ *    that interval stays the same. No two output rectangles could therefore be joined along X into one, but the
+ *    output is not always a minimum partition: a bar with a bump on top is cut into three strips, where two
+ *    rectangles would cover it.</p>
+ * <p>Rectangles are swept along X once, with their starts and ends sorted up front. The Y extents of the rectangles
+ *    spanning the sweep position are counted over the gaps between Y coordinates in a segment tree, and at each
+ *    start or end only the disjoint intervals near the rectangle are compared before and after, so merging takes
+ *    O((N + K) log N) for N rectangles and K output rectangles.</p>
+ * <p>Output rectangles may share edges, and are adjacent rather than overlapping in that case, in line with the
+ *    closed bounds of {@link Range}. Rectangles without area contribute nothing to the union.</p>
+ * <p>Instances hold scratch space that is reused between calls; an instance is not thread-safe.</p>
+ */
+public class RectangleMerger
+{
+    private int[] members = new int[16];
+    private long[] yCoordinates = new long[16];
+    private int[] lowerSlots = new int[16];
+    private int[] upperSlots = new int[16];
+    private long[] startKeys = new long[16];
+    private int[] byStart = new int[16];
+    private long[] endKeys = new long[16];
+    private int[] byEnd = new int[16];
+
+    // Segment tree over the gaps between Y coordinates: how many spanning rectangles cover each gap. A node's
+    // additions apply to its whole range, and its least and greatest counts include them.
+    private int gapCount;
+    private int leafCount;
+    private int[] treeAdded = new int[32];
+    private int[] treeLeast = new int[32];
+    private int[] treeGreatest = new int[32];
+
+    // Intervals of the cross-section near the rectangles of one sweep position, by first and last gap, before and
+    // after the position; a stamp marks the intervals found at the current position
+    private int[] beforeFirsts = new int[16];
+    private int[] beforeLasts = new int[16];
+    private int beforeCount;
+    private int[] afterFirsts = new int[16];
+    private int[] afterLasts = new int[16];
+    private int afterCount;
+    private int[] beforeStamps = new int[16];
+    private int[] beforeEnds = new int[16];
+    private int[] afterStamps = new int[16];
+    private int[] afterEnds = new int[16];
+    private int stamp;
+
+    // X coordinate where the open strip of each interval of the cross-section started, by the interval's first gap
+    private long[] stripStarts = new long[16];
+
+    /**
+     * Appends a set of interior-disjoint rectangles covering the union of {@code input} to {@code output}, as maximal
+     * horizontal strips rather than the fewest rectangles possible
+     * @param input rectangles to merge; not modified
+     * @param output buffer the merged rectangles are appended to
+     */
+    public void merge(RectangleBuffer input, RectangleBuffer output)
+    {
+        int memberCount = collectMembers(input);
+
+        if (memberCount == 0)
+        {
+            return;
+        }
+
+        int gapCount = assignYSlots(input, memberCount) - 1;
+
+        prepareTree(gapCount);
+        sortEvents(input, memberCount);
+
+        Arrays.fill(beforeStamps, 0, gapCount, 0);
+        Arrays.fill(afterStamps, 0, gapCount, 0);
+        stamp = 0;
+
+        int nextStart = 0, nextEnd = 0;
+
+        while (nextEnd < memberCount)
+        {
+            long x = nextStart < memberCount ? Math.min(startKeys[nextStart], endKeys[nextEnd]) : endKeys[nextEnd];
+            int startsFrom = nextStart, endsFrom = nextEnd;
+
+            while (nextStart < memberCount && startKeys[nextStart] == x)
+            {
+                nextStart++;
+            }
+
+            while (nextEnd < memberCount && endKeys[nextEnd] == x)
+            {
+                nextEnd++;
+            }
+
+            stamp++;
+            beforeCount = 0;
+            afterCount = 0;
+            collectIntervalsNear(startsFrom, nextStart, endsFrom, nextEnd, gapCount, false);
+
+            for (int i = startsFrom; i < nextStart; i++)
+            {
+                add(lowerSlots[byStart[i]], upperSlots[byStart[i]] - 1, 1);
+            }
+
+            for (int i = endsFrom; i < nextEnd; i++)
+            {
+                add(lowerSlots[byEnd[i]], upperSlots[byEnd[i]] - 1, -1);
+            }
+
+            collectIntervalsNear(startsFrom, nextStart, endsFrom, nextEnd, gapCount, true);
+
+            // Intervals that are the same on both sides of x keep their strips; the others end or start here
+            for (int i = 0; i < beforeCount; i++)
+            {
+                int first = beforeFirsts[i], last = beforeLasts[i];
+
+                if (afterStamps[first] != stamp || afterEnds[first] != last)
+                {
+                    output.add(stripStarts[first], yCoordinates[first], x, yCoordinates[last + 1]);
+                }
+            }
+
+            for (int i = 0; i < afterCount; i++)
+            {
+                int first = afterFirsts[i], last = afterLasts[i];
+
+                if (beforeStamps[first] != stamp || beforeEnds[first] != last)
+                {
+                    stripStarts[first] = x;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gathers the positions of the rectangles with area into {@code members}
+     * @return the number of rectangles with area
+     */
+    private int collectMembers(RectangleBuffer input)
+    {
+        int size = input.size();
+        int count = 0;
+
+        members = ensure(members, size);
+
+        for (int i = 0; i < size; i++)
+        {
+            if (input.getMinX(i) < input.getMaxX(i) && input.getMinY(i) < input.getMaxY(i))
+            {
+                members[count++] = i;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Numbers the distinct Y coordinates of the members in order, and finds the numbers of each member's extent
+     * @return the number of distinct Y coordinates
+     */
+    private int assignYSlots(RectangleBuffer input, int memberCount)
+    {
+        yCoordinates = ensure(yCoordinates, 2 * memberCount);
+        lowerSlots = ensure(lowerSlots, memberCount);
+        upperSlots = ensure(upperSlots, memberCount);
+
+        for (int i = 0; i < memberCount; i++)
+        {
+            yCoordinates[2 * i] = input.getMinY(members[i]);
+            yCoordinates[2 * i + 1] = input.getMaxY(members[i]);
+        }
+
+        Arrays.sort(yCoordinates, 0, 2 * memberCount);
+
+        int distinct = 0;
+
+        for (int i = 0; i < 2 * memberCount; i++)
+        {
+            if (distinct == 0 || yCoordinates[i] != yCoordinates[distinct - 1])
+            {
+                yCoordinates[distinct++] = yCoordinates[i];
+            }
+        }
+
+        for (int i = 0; i < memberCount; i++)
+        {
+            lowerSlots[i] = Arrays.binarySearch(yCoordinates, 0, distinct, input.getMinY(members[i]));
+            upperSlots[i] = Arrays.binarySearch(yCoordinates, 0, distinct, input.getMaxY(members[i]));
+        }
+
+        return distinct;
+    }
+
+    /**
+     * Sorts the members by start and by end along X, once for the whole sweep
+     */
+    private void sortEvents(RectangleBuffer input, int memberCount)
+    {
+        startKeys = ensure(startKeys, memberCount);
+        byStart = ensure(byStart, memberCount);
+        endKeys = ensure(endKeys, memberCount);
+        byEnd = ensure(byEnd, memberCount);
+
+        for (int i = 0; i < memberCount; i++)
+        {
+            startKeys[i] = input.getMinX(members[i]);
+            byStart[i] = i;
+            endKeys[i] = input.getMaxX(members[i]);
+            byEnd[i] = i;
+        }
+
+        PrimitiveSorts.sortParallel(startKeys, byStart, 0, memberCount);
+        PrimitiveSorts.sortParallel(endKeys, byEnd, 0, memberCount);
+    }
+
+    /**
+     * Records the intervals of the current cross-section that meet, or touch, the Y extent of any rectangle starting
+     * or ending at the sweep position, as those are the only intervals the position can change
+     * @param after false to record them as the intervals before the position, true as those after it
+     */
+    private void collectIntervalsNear(int startsFrom, int startsTo, int endsFrom, int endsTo, int gapCount, boolean after)
+    {
+        for (int i = startsFrom; i < startsTo; i++)
+        {
+            collectIntervalsMeeting(Math.max(0, lowerSlots[byStart[i]] - 1), Math.min(gapCount - 1, upperSlots[byStart[i]]), after);
+        }
+
+        for (int i = endsFrom; i < endsTo; i++)
+        {
+            collectIntervalsMeeting(Math.max(0, lowerSlots[byEnd[i]] - 1), Math.min(gapCount - 1, upperSlots[byEnd[i]]), after);
+        }
+    }
+
+    /**
+     * Records each run of covered gaps that overlaps the gaps {@code from} to {@code to}, in full, once per position
+     */
+    private void collectIntervalsMeeting(int from, int to, boolean after)
+    {
+        for (int gap = nextGap(from, true); gap <= to; )
+        {
+            int first = gap == from ? previousGap(from, false) + 1 : gap;
+            int last = nextGap(gap, false) - 1;
+
+            if (after && afterStamps[first] != stamp)
+            {
+                afterStamps[first] = stamp;
+                afterEnds[first] = last;
+                afterFirsts = ensureCopy(afterFirsts, afterCount + 1);
+                afterLasts = ensureCopy(afterLasts, afterCount + 1);
+                afterFirsts[afterCount] = first;
+                afterLasts[afterCount++] = last;
+            }
+            else if (!after && beforeStamps[first] != stamp)
+            {
+                beforeStamps[first] = stamp;
+                beforeEnds[first] = last;
+                beforeFirsts = ensureCopy(beforeFirsts, beforeCount + 1);
+                beforeLasts = ensureCopy(beforeLasts, beforeCount + 1);
+                beforeFirsts[beforeCount] = first;
+                beforeLasts[beforeCount++] = last;
+            }
+
+            gap = nextGap(last + 1, true);
+        }
+    }
+
+    private void prepareTree(int gapCount)
+    {
+        leafCount = Integer.highestOneBit(Math.max(1, gapCount - 1)) << 1;
+
+        treeAdded = ensure(treeAdded, 2 * leafCount);
+        treeLeast = ensure(treeLeast, 2 * leafCount);
+        treeGreatest = ensure(treeGreatest, 2 * leafCount);
+        Arrays.fill(treeAdded, 0, 2 * leafCount, 0);
+        Arrays.fill(treeLeast, 0, 2 * leafCount, 0);
+        Arrays.fill(treeGreatest, 0, 2 * leafCount, 0);
+
+        beforeStamps = ensure(beforeStamps, gapCount);
+        beforeEnds = ensure(beforeEnds, gapCount);
+        afterStamps = ensure(afterStamps, gapCount);
+        afterEnds = ensure(afterEnds, gapCount);
+        stripStarts = ensure(stripStarts, gapCount);
+        this.gapCount = gapCount;
+    }
+
+    private void add(int from, int to, int delta)
+    {
+        add(1, 0, leafCount - 1, from, to, delta);
+    }
+
+    private void add(int node, int nodeFrom, int nodeTo, int from, int to, int delta)
+    {
+        if (to < nodeFrom || nodeTo < from)
+        {
+            return;
+        }
+
+        if (from <= nodeFrom && nodeTo <= to)
+        {
+            treeAdded[node] += delta;
+            treeLeast[node] += delta;
+            treeGreatest[node] += delta;
+            return;
+        }
+
+        int middle = (nodeFrom + nodeTo) >>> 1;
+
+        add(2 * node, nodeFrom, middle, from, to, delta);
+        add(2 * node + 1, middle + 1, nodeTo, from, to, delta);
+        treeLeast[node] = treeAdded[node] + Math.min(treeLeast[2 * node], treeLeast[2 * node + 1]);
+        treeGreatest[node] = treeAdded[node] + Math.max(treeGreatest[2 * node], treeGreatest[2 * node + 1]);
+    }
+
+    /**
+     * @return the first gap at or after {@code from} that is covered, or uncovered if {@code covered} is false; the
+     *         gap count if there is none
+     */
+    private int nextGap(int from, boolean covered)
+    {
+        int gap = from >= gapCount ? gapCount : nextGap(1, 0, leafCount - 1, from, covered, 0);
+
+        return Math.min(gap, gapCount);
+    }
+
+    private int nextGap(int node, int nodeFrom, int nodeTo, int from, boolean covered, int inherited)
+    {
+        if (nodeTo < from || !holds(node, covered, inherited))
+        {
+            return Integer.MAX_VALUE;
+        }
+
+        if (nodeFrom == nodeTo)
+        {
+            return nodeFrom;
+        }
+
+        int middle = (nodeFrom + nodeTo) >>> 1;
+        int gap = nextGap(2 * node, nodeFrom, middle, from, covered, inherited + treeAdded[node]);
+
+        return gap != Integer.MAX_VALUE ? gap : nextGap(2 * node + 1, middle + 1, nodeTo, from, covered, inherited + treeAdded[node]);
+    }
+
+    /**
+     * @return the last gap at or before {@code to} that is covered, or uncovered if {@code covered} is false; -1 if
+     *         there is none
+     */
+    private int previousGap(int to, boolean covered)
+    {
+        return previousGap(1, 0, leafCount - 1, to, covered, 0);
+    }
+
+    private int previousGap(int node, int nodeFrom, int nodeTo, int to, boolean covered, int inherited)
+    {
+        if (nodeFrom > to || !holds(node, covered, inherited))
+        {
+            return -1;
+        }
+
+        if (nodeFrom == nodeTo)
+        {
+            return nodeFrom;
+        }
+
+        int middle = (nodeFrom + nodeTo) >>> 1;
+        int gap = previousGap(2 * node + 1, middle + 1, nodeTo, to, covered, inherited + treeAdded[node]);
+
+        return gap >= 0 ? gap : previousGap(2 * node, nodeFrom, middle, to, covered, inherited + treeAdded[node]);
+    }
+
+    /**
+     * @return true if the node's range may hold a gap that is covered, or uncovered if {@code covered} is false
+     */
+    private boolean holds(int node, boolean covered, int inherited)
+    {
+        return covered ? inherited + treeGreatest[node] > 0 : inherited + treeLeast[node] == 0;
+    }
+
+    private static int[] ensure(int[] array, int length)
+    {
+        return array.length >= length ? array : new int[Math.max(length, 2 * array.length)];
+    }
+
+    private static long[] ensure(long[] array, int length)
+    {
+        return array.length >= length ? array : new long[Math.max(length, 2 * array.length)];
+    }
+
+    private static int[] ensureCopy(int[] array, int length)
+    {
+        return array.length >= length ? array : Arrays.copyOf(array, Math.max(length, 2 * array.length));
+    }
+}
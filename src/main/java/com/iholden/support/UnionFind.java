@@ -0,0 +1,94 @@
+package com.iholden.support;
+
+import java.util.Arrays;
+
+/**
+ * <p>Disjoint-set forest over the elements {@code 0..size-1}, stored in a single primitive array.</p>
+ * <p>Each entry holds either the element's parent, or--for a root--the negated size of its set. Sets are joined by
+ *    size, and paths are halved on every lookup, so any sequence of operations runs in near-linear time.</p>
+ * <p>This class is not thread-safe.</p>
+ */
+public class UnionFind
+{
+    private final int[] parents;
+    private int setCount;
+
+    public UnionFind(int size)
+    {
+        this.parents = new int[size];
+        this.setCount = size;
+
+        Arrays.fill(parents, -1);
+    }
+
+    public int size()
+    {
+        return parents.length;
+    }
+
+    public int setCount()
+    {
+        return setCount;
+    }
+
+    /**
+     * @param element element to look up
+     * @return the root element of the set holding {@code element}
+     */
+    public int find(int element)
+    {
+        int current = element;
+
+        while (parents[current] >= 0)
+        {
+            int parent = parents[current];
+
+            if (parents[parent] >= 0)
+            {
+                // Path halving: point at the grandparent, then continue from there
+                parents[current] = parents[parent];
+            }
+
+            current = parents[current];
+        }
+
+        return current;
+    }
+
+    /**
+     * Joins the sets holding {@code first} and {@code second}
+     * @return true if they were in different sets; otherwise false
+     */
+    public boolean union(int first, int second)
+    {
+        int firstRoot = find(first);
+        int secondRoot = find(second);
+
+        if (firstRoot == secondRoot)
+        {
+            return false;
+        }
+
+        // Sizes are stored negated, so the larger set has the smaller value
+        if (parents[firstRoot] > parents[secondRoot])
+        {
+            int swap = firstRoot;
+            firstRoot = secondRoot;
+            secondRoot = swap;
+        }
+
+        parents[firstRoot] += parents[secondRoot];
+        parents[secondRoot] = firstRoot;
+        setCount--;
+
+        return true;
+    }
+
+    /**
+     * @return the number of elements in the set holding {@code element}
+     */
+    public int sizeOf(int element)
+    {
+        return -parents[find(element)];
+    }
+}
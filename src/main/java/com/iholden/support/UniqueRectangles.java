@@ -0,0 +1,130 @@
+package com.iholden.support;
+
+/**
+ * <p>Collapses a set of rectangles into its distinct rectangles, each weighted by the number of copies it stands
+ *    for.</p>
+ * <p>Exact duplicates are {@link com.iholden.constants.Relation#IDENTICAL} to each other, and relate to every other
+ *    rectangle in the same way as one another, so pairwise work only needs doing once per distinct rectangle; the
+ *    results are then expanded back to the original rectangles through {@link #getMember(int, int)}.</p>
+ * <p>Rectangles are hashed on their bounds in a {@link RectangleKeyTable}, so collapsing takes linear time and
+ *    creates no objects per rectangle. Distinct rectangles are numbered in order of their first copy, and the members
+ *    of each are listed in increasing index order.</p>
+ * <p>Use the static builder to obtain an instance: {@link UniqueRectangles#of(RectangleColumns)}</p>
+ */
+public class UniqueRectangles
+{
+    private final RectangleColumns unique;
+    private final int[] uniqueOf;
+    private final int[] memberStarts;
+    private final int[] members;
+
+    // Prevent external instantiation; prefer static access
+    private UniqueRectangles(RectangleColumns unique, int[] uniqueOf, int[] memberStarts, int[] members)
+    {
+        this.unique = unique;
+        this.uniqueOf = uniqueOf;
+        this.memberStarts = memberStarts;
+        this.members = members;
+    }
+
+    /**
+     * @param rectangles rectangles to collapse
+     * @return the distinct rectangles of {@code rectangles}
+     */
+    public static UniqueRectangles of(RectangleColumns rectangles)
+    {
+        int size = rectangles.size();
+        var table = new RectangleKeyTable(size);
+        var uniqueOf = new int[size];
+
+        for (int i = 0; i < size; i++)
+        {
+            uniqueOf[i] = table.intern(rectangles.getMinX(i), rectangles.getMinY(i), rectangles.getMaxX(i), rectangles.getMaxY(i));
+        }
+
+        int uniqueCount = table.size();
+        var minX = new long[uniqueCount];
+        var minY = new long[uniqueCount];
+        var maxX = new long[uniqueCount];
+        var maxY = new long[uniqueCount];
+        var memberStarts = new int[uniqueCount + 1];
+
+        for (int u = 0; u < uniqueCount; u++)
+        {
+            minX[u] = table.getKey(u, 0);
+            minY[u] = table.getKey(u, 1);
+            maxX[u] = table.getKey(u, 2);
+            maxY[u] = table.getKey(u, 3);
+        }
+
+        // Counting sort of the indices by distinct rectangle, which keeps each one's members in index order
+        for (int i = 0; i < size; i++)
+        {
+            memberStarts[uniqueOf[i] + 1]++;
+        }
+
+        for (int u = 0; u < uniqueCount; u++)
+        {
+            memberStarts[u + 1] += memberStarts[u];
+        }
+
+        var members = new int[size];
+        var next = memberStarts.clone();
+
+        for (int i = 0; i < size; i++)
+        {
+            members[next[uniqueOf[i]]++] = i;
+        }
+
+        return new UniqueRectangles(RectangleColumns.of(minX, minY, maxX, maxY), uniqueOf, memberStarts, members);
+    }
+
+    /**
+     * @return the distinct rectangles, whose ids are their positions, from 0 to {@code uniqueCount() - 1}
+     */
+    public RectangleColumns getUnique()
+    {
+        return unique;
+    }
+
+    public int uniqueCount()
+    {
+        return unique.size();
+    }
+
+    /**
+     * @return the number of collapsed rectangles
+     */
+    public int size()
+    {
+        return uniqueOf.length;
+    }
+
+    /**
+     * @param index position of a rectangle in the collapsed {@link RectangleColumns}
+     * @return the distinct rectangle it is a copy of
+     */
+    public int uniqueOf(int index)
+    {
+        return uniqueOf[index];
+    }
+
+    /**
+     * @param unique position of a distinct rectangle
+     * @return the number of copies of the rectangle, at least 1
+     */
+    public int multiplicity(int unique)
+    {
+        return memberStarts[unique + 1] - memberStarts[unique];
+    }
+
+    /**
+     * @param unique position of a distinct rectangle
+     * @param member which copy of the rectangle, from 0 to {@code multiplicity(unique) - 1}
+     * @return position of that copy in the collapsed {@link RectangleColumns}
+     */
+    public int getMember(int unique, int member)
+    {
+        return members[memberStarts[unique] + member];
+    }
+}
@@ -0,0 +1,230 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.iholden.batch.BatchCheckpoint;
+import com.iholden.batch.BatchEvaluator;
+import com.iholden.batch.BatchQuery;
+import com.iholden.batch.CheckpointedBatch;
+import com.iholden.batch.PairEvaluation;
+import com.iholden.constants.ResultField;
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.RectanglePair;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.entities.impl.RectangleImpl;
+import com.iholden.output.ResultEncoder;
+import com.iholden.support.Classification;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+public class BatchEvaluatorTest
+{
+    private static final String PAIRS = """
+            # contained, intersecting, adjacent, unrelated
+            3 3 0 0 2 2 1 1
+            4 4 0 0 4 4 2 2
+
+            2 2 0 0 2 2 2 0
+            1 1 0 0 1 1 5 5
+            """;
+
+    @Test
+    public void pairEvaluation_randomPairs_matchesClassification()
+    {
+        var random = new Random(11);
+
+        for (int i = 0; i < 5_000; i++)
+        {
+            Rectangle rectangleA = new RectangleImpl(random.nextInt(5), random.nextInt(5), new PointImpl(random.nextInt(8), random.nextInt(8)));
+            Rectangle rectangleB = new RectangleImpl(random.nextInt(5), random.nextInt(5), new PointImpl(random.nextInt(8), random.nextInt(8)));
+            var pair = RectanglePair.of(rectangleA, rectangleB);
+            var classification = Classification.of(pair);
+            var evaluation = PairEvaluation.of(i, pair);
+
+            assertEquals(!rectangleA.findIntersectionPointsWith(rectangleB).isEmpty(), rectangleA.intersects(rectangleB), pair.toString());
+            assertEquals(classification.getAdjacency(), evaluation.getAdjacency(), pair.toString());
+            assertEquals(classification.getRelation(), evaluation.getRelation(), pair.toString());
+
+            long[] coordinates = new long[2 * PairEvaluation.MAX_INTERSECTION_POINTS];
+            int count = evaluation.copyIntersectionPointsTo(coordinates);
+            var copiedPoints = new HashSet<Object>();
+
+            for (int j = 0; j < count; j++)
+            {
+                copiedPoints.add(new PointImpl(coordinates[2 * j], coordinates[2 * j + 1]));
+            }
+
+            assertEquals(rectangleA.findIntersectionPointsWith(rectangleB), copiedPoints, pair.toString());
+        }
+    }
+
+    @Test
+    public void forEachMatching_relationFilter_acceptsOnlyMatchingPairs()
+    {
+        var input = new BufferedReader(new StringReader(PAIRS));
+        var query = BatchQuery.parse(List.of(BatchQuery.RELATIONS_OPTION, "intersection,adjacency", BatchQuery.FIELDS_OPTION, "ADJACENCY"));
+        var matched = new ArrayList<String>();
+
+        long count = BatchEvaluator.forEachMatching(input, query, evaluation ->
+                matched.add(evaluation.getIndex() + ":" + evaluation.getAdjacency()));
+
+        assertEquals(2, count);
+        assertEquals(List.of("1:NONE", "2:PROPER"), matched);
+        assertEquals(List.of(ResultField.ADJACENCY), query.getFields());
+    }
+
+    @Test
+    public void forEachMatching_duplicatePairs_matchesFreshEvaluation()
+    {
+        var random = new Random(13);
+        var lines = new ArrayList<String>();
+        var pairs = new ArrayList<RectanglePair>();
+
+        for (int i = 0; i < 2_000; i++)
+        {
+            var values = new long[8];
+
+            for (int j = 0; j < 8; j++)
+            {
+                values[j] = j % 4 < 2 ? random.nextInt(3) : random.nextInt(4);
+            }
+
+            lines.add(String.join(" ", Arrays.stream(values).mapToObj(Long::toString).toArray(String[]::new)));
+            pairs.add(RectanglePair.of(new RectangleImpl(values[0], values[1], new PointImpl(values[2], values[3])),
+                    new RectangleImpl(values[4], values[5], new PointImpl(values[6], values[7]))));
+        }
+
+        // Every field, so the copies' output covers every check they reuse
+        var query = BatchQuery.parse(List.of(BatchQuery.RELATIONS_OPTION, "CONTAINMENT,INTERSECTION,ADJACENCY"));
+        var expected = new ByteArrayOutputStream();
+        var encoder = ResultEncoder.of(query.getFormat(), query.getFields(), Channels.newChannel(expected));
+
+        encoder.writeHeader();
+
+        for (int i = 0; i < pairs.size(); i++)
+        {
+            var evaluation = PairEvaluation.of(i, pairs.get(i));
+
+            if (query.getFilter().test(evaluation))
+            {
+                encoder.write(evaluation);
+            }
+        }
+
+        encoder.flush();
+
+        assertEquals(expected.toString(StandardCharsets.US_ASCII), new String(encode(query, String.join("\n", lines)), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void parse_unrecognizedOption_throwsIllegalArgumentException()
+    {
+        assertThrows(IllegalArgumentException.class, () -> BatchQuery.parse(List.of("--where", "INTERSECTION")));
+    }
+
+    @Test
+    public void writeMatching_tsvFormat_writesHeaderAndRows()
+    {
+        var query = BatchQuery.parse(List.of(BatchQuery.FIELDS_OPTION, "AREA_A,RELATION,INTERSECTION_POINTS"));
+
+        assertEquals("""
+                INDEX\tAREA_A\tRELATION\tINTERSECTION_POINTS
+                0\t9\tCONTAINMENT\t
+                1\t16\tINTERSECTION\t2 4;4 2
+                2\t4\tADJACENCY\t
+                3\t1\tNONE\t
+                """, new String(encode(query), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void writeMatching_jsonLinesFormat_writesOneObjectPerPair()
+    {
+        var query = BatchQuery.parse(List.of(BatchQuery.FORMAT_OPTION, "jsonl", BatchQuery.RELATIONS_OPTION, "INTERSECTION",
+                BatchQuery.FIELDS_OPTION, "INTERSECTION,INTERSECTION_POINTS,ADJACENCY"));
+
+        assertEquals("{\"index\":1,\"intersection\":true,\"intersection_points\":[[2,4],[4,2]],\"adjacency\":\"NONE\"}\n",
+                new String(encode(query), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void writeMatching_binaryFormat_writesFixedWidthRecords()
+    {
+        var query = BatchQuery.parse(List.of(BatchQuery.FORMAT_OPTION, "BINARY", BatchQuery.FIELDS_OPTION, "AREA_B,ADJACENCY"));
+        ByteBuffer output = ByteBuffer.wrap(encode(query));
+        int headerLength = 4 + 1 + 1 + 2;
+        int recordLength = 8 + 8 + 1;
+
+        assertEquals(headerLength + 4 * recordLength, output.remaining());
+        assertEquals(2, output.get(5));
+
+        output.position(headerLength + 2 * recordLength);
+
+        assertEquals(2, output.getLong());
+        assertEquals(4, output.getLong());
+        assertEquals(0, output.get());
+    }
+
+    @Test
+    public void resume_afterInterruptedRun_outputMatchesUninterruptedRun() throws Exception
+    {
+        var random = new Random(5);
+        var pairs = new StringBuilder();
+
+        for (int i = 0; i < 3_000; i++)
+        {
+            for (int j = 0; j < 8; j++)
+            {
+                pairs.append(j % 4 < 2 ? random.nextInt(5) : random.nextInt(8)).append(j == 7 ? "\n" : " ");
+            }
+        }
+
+        String firstHalf = pairs.substring(0, pairs.indexOf("\n", pairs.length() / 2) + 1);
+        BatchQuery query = BatchQuery.parse(List.of("--relations", "INTERSECTION,ADJACENCY", "--format", "BINARY"));
+        Path directory = Files.createTempDirectory("checkpoint");
+        Path input = directory.resolve("pairs.txt");
+        Path output = directory.resolve("results.bin");
+        Path checkpoint = directory.resolve("results.checkpoint");
+
+        Files.writeString(input, pairs);
+        long expectedMatched = CheckpointedBatch.run(input, output, checkpoint, query, Duration.ZERO);
+        byte[] expected = Files.readAllBytes(output);
+
+        // The first run dies after checkpointing half the input, and after writing part of a record it never checkpointed
+        Files.writeString(input, firstHalf);
+        CheckpointedBatch.run(input, output, checkpoint, query, Duration.ZERO);
+        Files.write(output, new byte[] { 1, 2, 3 }, StandardOpenOption.APPEND);
+        Files.writeString(input, pairs);
+
+        assertEquals(expectedMatched, CheckpointedBatch.resume(input, output, checkpoint, query, Duration.ZERO));
+        assertArrayEquals(expected, Files.readAllBytes(output));
+        assertEquals(3_000, BatchCheckpoint.read(checkpoint).getPairCount());
+    }
+
+    private static byte[] encode(BatchQuery query)
+    {
+        return encode(query, PAIRS);
+    }
+
+    private static byte[] encode(BatchQuery query, String pairs)
+    {
+        var bytes = new ByteArrayOutputStream();
+        var encoder = ResultEncoder.of(query.getFormat(), query.getFields(), Channels.newChannel(bytes));
+
+        BatchEvaluator.writeMatching(new BufferedReader(new StringReader(pairs)), query, encoder);
+
+        return bytes.toByteArray();
+    }
+}
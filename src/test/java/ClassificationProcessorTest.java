@@ -0,0 +1,392 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.RectanglePair;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.entities.impl.RectangleImpl;
+import com.iholden.pipeline.ClassificationProcessor;
+import com.iholden.support.Classification;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+public class ClassificationProcessorTest
+{
+    private static final int CAPACITY = 16;
+    private static final int ITEM_COUNT = 300;
+
+    private static final Rectangle REFERENCE = new RectangleImpl(20, 20, new PointImpl(0, 0));
+
+    private final ExecutorService workers = Executors.newFixedThreadPool(4);
+    private final ExecutorService publishing = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    public void shutDownExecutors()
+    {
+        workers.shutdownNow();
+        publishing.shutdownNow();
+    }
+
+    @Test
+    public void subscribe_slowOrderedSubscriber_emitsInArrivalOrderWithinCapacity() throws InterruptedException
+    {
+        var processor = processorOf(rectangle -> RectanglePair.of(REFERENCE, rectangle));
+        var upstream = new MeteredUpstream(processor);
+        var downstream = new RecordingSubscriber(Long.MAX_VALUE, upstream);
+        List<Rectangle> published = rectangles();
+
+        processor.subscribe(downstream);
+        publish(published, upstream);
+
+        assertTrue(downstream.terminated.await(30, TimeUnit.SECONDS));
+        assertTrue(downstream.completed);
+        assertNull(downstream.error);
+        assertEquals(published.size(), downstream.received.size());
+
+        for (int i = 0; i < published.size(); i++)
+        {
+            assertSame(published.get(i), downstream.received.get(i).getPair().getRectangleB());
+        }
+
+        assertTrue(downstream.mostOutstanding <= CAPACITY, "outstanding items: " + downstream.mostOutstanding);
+    }
+
+    @Test
+    public void cancel_afterSomeItems_stopsEmissionAndCancelsUpstream() throws InterruptedException
+    {
+        var processor = processorOf(rectangle -> RectanglePair.of(REFERENCE, rectangle));
+        var upstream = new MeteredUpstream(processor);
+        var downstream = new RecordingSubscriber(5, upstream);
+
+        processor.subscribe(downstream);
+        publish(rectangles(), upstream);
+
+        assertTrue(downstream.terminated.await(30, TimeUnit.SECONDS));
+        assertTrue(upstream.cancelled.get());
+
+        // Nothing may follow a cancellation, not even a terminal signal
+        Thread.sleep(100);
+        assertEquals(5, downstream.received.size());
+        assertFalse(downstream.completed);
+        assertNull(downstream.error);
+    }
+
+    @Test
+    public void onNext_mapperThrows_signalsErrorAndCancelsUpstream() throws InterruptedException
+    {
+        var failure = new IllegalArgumentException("unmappable");
+        List<Rectangle> published = rectangles();
+        Rectangle unmappable = published.get(7);
+        var processor = processorOf(rectangle ->
+        {
+            if (rectangle == unmappable)
+            {
+                throw failure;
+            }
+
+            return RectanglePair.of(REFERENCE, rectangle);
+        });
+        var upstream = new MeteredUpstream(processor);
+        var downstream = new RecordingSubscriber(Long.MAX_VALUE, upstream);
+
+        processor.subscribe(downstream);
+        publish(published, upstream);
+
+        assertTrue(downstream.terminated.await(30, TimeUnit.SECONDS));
+        assertSame(failure, downstream.error);
+        assertFalse(downstream.completed);
+        assertTrue(upstream.cancelled.get());
+
+        // Results are ordered, so nothing after the failed item can have been emitted
+        assertTrue(downstream.received.size() <= 7);
+    }
+
+    @Test
+    public void onError_afterMapperFailureCancelledUpstream_keepsFirstFailure() throws InterruptedException
+    {
+        var failure = new IllegalArgumentException("unmappable");
+        List<Rectangle> published = rectangles();
+        var processor = processorOf(rectangle ->
+        {
+            if (rectangle == published.get(1))
+            {
+                throw failure;
+            }
+
+            return RectanglePair.of(REFERENCE, rectangle);
+        });
+        var firstReceived = new CountDownLatch(1);
+        var releaseFirst = new CountDownLatch(1);
+        var upstreamCancelled = new CountDownLatch(1);
+        var errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        var terminated = new CountDownLatch(1);
+
+        processor.subscribe(new Flow.Subscriber<>()
+        {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription)
+            {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Classification item)
+            {
+                // Holds the emitting worker, so the failure below is recorded while delivery is busy
+                firstReceived.countDown();
+
+                try
+                {
+                    releaseFirst.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable)
+            {
+                errors.add(throwable);
+                terminated.countDown();
+            }
+
+            @Override
+            public void onComplete()
+            {
+                terminated.countDown();
+            }
+        });
+        processor.onSubscribe(new Flow.Subscription()
+        {
+            @Override
+            public void request(long n)
+            {
+            }
+
+            @Override
+            public void cancel()
+            {
+                upstreamCancelled.countDown();
+            }
+        });
+
+        processor.onNext(published.get(0));
+        assertTrue(firstReceived.await(30, TimeUnit.SECONDS));
+        processor.onNext(published.get(1));
+        assertTrue(upstreamCancelled.await(30, TimeUnit.SECONDS));
+
+        // The cancelled upstream signals an error of its own before the first failure could be delivered
+        processor.onError(new IllegalStateException("late"));
+        releaseFirst.countDown();
+
+        assertTrue(terminated.await(30, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(List.of(failure), errors);
+    }
+
+    @Test
+    public void onNext_upstreamIgnoresDemand_signalsErrorAndCancelsUpstream() throws InterruptedException
+    {
+        var processor = new ClassificationProcessor<Rectangle>(rectangle -> RectanglePair.of(REFERENCE, rectangle),
+                Runnable::run, 1, CAPACITY, CAPACITY / 4, true);
+        var downstream = new RecordingSubscriber(0, null);
+        var cancelled = new AtomicBoolean();
+
+        processor.subscribe(downstream);
+        processor.onSubscribe(new Flow.Subscription()
+        {
+            @Override
+            public void request(long n)
+            {
+                // Demand is ignored below, as a misbehaving publisher would
+            }
+
+            @Override
+            public void cancel()
+            {
+                cancelled.set(true);
+            }
+        });
+
+        for (Rectangle rectangle : rectangles().subList(0, CAPACITY + 1))
+        {
+            processor.onNext(rectangle);
+        }
+
+        assertTrue(downstream.terminated.await(30, TimeUnit.SECONDS));
+        assertTrue(downstream.error instanceof IllegalStateException);
+        assertTrue(downstream.received.isEmpty());
+        assertTrue(cancelled.get());
+    }
+
+    private ClassificationProcessor<Rectangle> processorOf(Function<Rectangle, RectanglePair> pairMapper)
+    {
+        return new ClassificationProcessor<>(pairMapper, workers, 4, CAPACITY, CAPACITY / 4, true);
+    }
+
+    /**
+     * Submits the rectangles from a publisher with a buffer larger than the processor's capacity, so the processor's
+     * demand alone bounds what reaches it
+     */
+    private void publish(List<Rectangle> rectangles, Flow.Subscriber<Rectangle> subscriber)
+    {
+        var publisher = new SubmissionPublisher<Rectangle>(publishing, 4 * CAPACITY);
+
+        publisher.subscribe(subscriber);
+        rectangles.forEach(publisher::submit);
+        publisher.close();
+    }
+
+    private static List<Rectangle> rectangles()
+    {
+        var rectangles = new ArrayList<Rectangle>();
+
+        for (int i = 0; i < ITEM_COUNT; i++)
+        {
+            rectangles.add(new RectangleImpl(1 + i % 7, 1 + i % 5, new PointImpl(i % 31, i % 23)));
+        }
+
+        return rectangles;
+    }
+
+    /**
+     * Passes items on to the processor, counting the items the processor requests and whether it cancels
+     */
+    private static class MeteredUpstream implements Flow.Subscriber<Rectangle>
+    {
+        private final Flow.Subscriber<Rectangle> processor;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private MeteredUpstream(Flow.Subscriber<Rectangle> processor)
+        {
+            this.processor = processor;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            processor.onSubscribe(new Flow.Subscription()
+            {
+                @Override
+                public void request(long n)
+                {
+                    requested.addAndGet(n);
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel()
+                {
+                    cancelled.set(true);
+                    subscription.cancel();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(Rectangle item)
+        {
+            processor.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            processor.onError(throwable);
+        }
+
+        @Override
+        public void onComplete()
+        {
+            processor.onComplete();
+        }
+    }
+
+    /**
+     * Requests one item at a time and takes a while over each, cancelling once it has {@code cancelAfter} items
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<Classification>
+    {
+        private final long cancelAfter;
+        private final MeteredUpstream upstream;
+        private final List<Classification> received = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private Flow.Subscription subscription;
+
+        private volatile boolean completed;
+        private volatile Throwable error;
+        private volatile long mostOutstanding;
+
+        private RecordingSubscriber(long cancelAfter, MeteredUpstream upstream)
+        {
+            this.cancelAfter = cancelAfter;
+            this.upstream = upstream;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription)
+        {
+            this.subscription = subscription;
+
+            if (cancelAfter > 0)
+            {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(Classification item)
+        {
+            // Items requested from upstream but not yet delivered here, counting this one as not yet delivered
+            mostOutstanding = Math.max(mostOutstanding, upstream.requested.get() - received.size());
+            received.add(item);
+
+            if (received.size() == cancelAfter)
+            {
+                subscription.cancel();
+                terminated.countDown();
+                return;
+            }
+
+            try
+            {
+                Thread.sleep(1);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            error = throwable;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete()
+        {
+            completed = true;
+            terminated.countDown();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.iholden.constants.PlacementPolicy;
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.entities.impl.RectangleImpl;
+import com.iholden.placement.PlacementEngine;
+import com.iholden.support.RectangleBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+public class PlacementEngineTest
+{
+    private static final int REGION_SIZE = 24;
+
+    @Test
+    public void place_besideExistingRectangle_allowsSharedEdgesButNotOverlap()
+    {
+        var engine = PlacementEngine.of(new RectangleImpl(10, 10, new PointImpl(0, 0)));
+
+        assertTrue(engine.place(new RectangleImpl(4, 10, new PointImpl(0, 0))));
+        assertFalse(engine.fits(new RectangleImpl(4, 4, new PointImpl(3, 0))));
+        assertTrue(engine.fits(new RectangleImpl(6, 10, new PointImpl(4, 0))));
+        assertFalse(engine.fits(new RectangleImpl(6, 10, new PointImpl(5, 0))));
+
+        assertEquals(Optional.of(new RectangleImpl(6, 10, new PointImpl(4, 0))), engine.place(6, 10, PlacementPolicy.BOTTOM_LEFT));
+        assertTrue(engine.find(1, 1, PlacementPolicy.FIRST_FIT).isEmpty());
+        assertEquals(0, engine.getFreeRectangleCount());
+
+        assertTrue(engine.remove(new RectangleImpl(4, 10, new PointImpl(0, 0))));
+        assertFalse(engine.remove(new RectangleImpl(4, 10, new PointImpl(0, 0))));
+        assertEquals(Optional.of(new RectangleImpl(4, 10, new PointImpl(0, 0))), engine.find(4, 10, PlacementPolicy.BEST_FIT));
+    }
+
+    @Test
+    public void find_randomPlacementsAndRemovals_matchesBruteForceProbing()
+    {
+        var random = new Random(17);
+        var engine = PlacementEngine.of(new RectangleImpl(REGION_SIZE, REGION_SIZE, new PointImpl(0, 0)));
+        var placed = new ArrayList<Rectangle>();
+        PlacementPolicy[] policies = PlacementPolicy.values();
+
+        for (int step = 0; step < 600; step++)
+        {
+            if (!placed.isEmpty() && random.nextInt(3) == 0)
+            {
+                assertTrue(engine.remove(placed.remove(random.nextInt(placed.size()))));
+            }
+            else if (random.nextBoolean())
+            {
+                var rectangle = new RectangleImpl(1 + random.nextInt(6), 1 + random.nextInt(6),
+                        new PointImpl(random.nextInt(REGION_SIZE), random.nextInt(REGION_SIZE)));
+                boolean fits = bruteForceFits(placed, rectangle);
+
+                assertEquals(fits, engine.place(rectangle));
+
+                if (fits)
+                {
+                    placed.add(rectangle);
+                }
+            }
+            else
+            {
+                long length = 1 + random.nextInt(8), width = 1 + random.nextInt(8);
+                Rectangle lowest = bruteForceBottomLeft(placed, length, width);
+
+                assertEquals(Optional.ofNullable(lowest), engine.find(length, width, PlacementPolicy.BOTTOM_LEFT));
+
+                Optional<Rectangle> result = engine.place(length, width, policies[random.nextInt(policies.length)]);
+
+                assertEquals(lowest != null, result.isPresent());
+                result.ifPresent(rectangle -> assertTrue(bruteForceFits(placed, rectangle)));
+                result.ifPresent(placed::add);
+            }
+
+            assertEquals(placed.size(), engine.getPlacedCount());
+        }
+    }
+
+    private static Rectangle bruteForceBottomLeft(List<Rectangle> placed, long length, long width)
+    {
+        for (int y = 0; y + width <= REGION_SIZE; y++)
+        {
+            for (int x = 0; x + length <= REGION_SIZE; x++)
+            {
+                var candidate = new RectangleImpl(length, width, new PointImpl(x, y));
+
+                if (bruteForceFits(placed, candidate))
+                {
+                    return candidate;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean bruteForceFits(List<Rectangle> placed, Rectangle candidate)
+    {
+        var region = new RectangleImpl(REGION_SIZE, REGION_SIZE, new PointImpl(0, 0));
+
+        if (!candidate.equals(region) && !region.contains(candidate))
+        {
+            return false;
+        }
+
+        var output = new RectangleBuffer();
+
+        return placed.stream().noneMatch(rectangle -> rectangle.intersection(candidate, output));
+    }
+}
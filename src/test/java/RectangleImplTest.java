@@ -5,6 +5,9 @@ import com.iholden.entities.impl.PointImpl;
 import com.iholden.entities.Rectangle;
 import com.iholden.entities.impl.RectangleImpl;
 import com.iholden.constants.Adjacency;
+import com.iholden.support.Range;
+import com.iholden.support.RectangleBuffer;
+import com.iholden.support.RectangleMerger;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
@@ -15,6 +18,7 @@ public class RectangleImplTest
     protected Rectangle rectangleA;
     protected Rectangle rectangleB;
     protected Set<Point> expectedIntersectionPoints;
+    protected RectangleBuffer output = new RectangleBuffer();
 
     @AfterEach
     public void betweenTestCleanup()
@@ -22,6 +26,7 @@ public class RectangleImplTest
         rectangleA = null;
         rectangleB = null;
         expectedIntersectionPoints = null;
+        output.clear();
     }
 
     @Test
@@ -276,4 +281,92 @@ public class RectangleImplTest
 
         assertEquals(Adjacency.SINGLE_POINT, actualAdjacency);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void intersection_overlappingRectangles_appendsSharedRegion()
+    {
+        rectangleA = new RectangleImpl(4, 5, new PointImpl(1, 2));
+        rectangleB = new RectangleImpl(5, 2, new PointImpl(3, 3));
+
+        assertTrue(rectangleA.intersection(rectangleB, output));
+        assertEquals(1, output.size());
+        assertEquals(new RectangleImpl(2, 2, new PointImpl(3, 3)), output.toRectangle(0));
+    }
+
+    @Test
+    public void intersection_rectanglesAreAdjacent_appendsNothing()
+    {
+        rectangleA = new RectangleImpl(5, 4, new PointImpl(2, 2));
+        rectangleB = new RectangleImpl(7, 4, new PointImpl(7, 2));
+
+        assertFalse(rectangleA.intersection(rectangleB, output));
+        assertTrue(output.isEmpty());
+    }
+
+    @Test
+    public void subtract_otherRectangleInsideThisOne_appendsFourPieces()
+    {
+        rectangleA = new RectangleImpl(6, 6, new PointImpl(0, 0));
+        rectangleB = new RectangleImpl(2, 2, new PointImpl(2, 2));
+
+        assertEquals(4, rectangleA.subtract(rectangleB, output));
+        assertEquals(new RectangleImpl(6, 2, new PointImpl(0, 0)), output.toRectangle(0));
+        assertEquals(new RectangleImpl(6, 2, new PointImpl(0, 4)), output.toRectangle(1));
+        assertEquals(new RectangleImpl(2, 2, new PointImpl(0, 2)), output.toRectangle(2));
+        assertEquals(new RectangleImpl(2, 2, new PointImpl(4, 2)), output.toRectangle(3));
+    }
+
+    @Test
+    public void subtract_rectanglesAreAdjacent_appendsThisRectangle()
+    {
+        rectangleA = new RectangleImpl(5, 4, new PointImpl(2, 2));
+        rectangleB = new RectangleImpl(7, 4, new PointImpl(7, 2));
+
+        assertEquals(1, rectangleA.subtract(rectangleB, output));
+        assertEquals(rectangleA, output.toRectangle(0));
+    }
+
+    @Test
+    public void subtract_thisRectangleCovered_appendsNothing()
+    {
+        rectangleA = new RectangleImpl(2, 2, new PointImpl(2, 2));
+        rectangleB = new RectangleImpl(6, 6, new PointImpl(0, 0));
+
+        assertEquals(0, rectangleA.subtract(rectangleB, output));
+        assertTrue(output.isEmpty());
+    }
+
+    @Test
+    public void clip_rectangleTouchesWindowEdge_appendsSharedEdge()
+    {
+        rectangleA = new RectangleImpl(5, 4, new PointImpl(2, 2));
+
+        assertTrue(rectangleA.clip(Range.of(7, 10), Range.of(0, 10), output));
+        assertEquals(new RectangleImpl(0, 4, new PointImpl(7, 2)), output.toRectangle(0));
+    }
+
+    @Test
+    public void merge_overlappingRectangles_coversUnionWithoutOverlap()
+    {
+        var input = new RectangleBuffer();
+        input.add(0, 0, 4, 4);
+        input.add(2, 2, 6, 6);
+        input.add(0, 0, 4, 4);
+
+        new RectangleMerger().merge(input, output);
+
+        long totalArea = 0;
+
+        for (int i = 0; i < output.size(); i++)
+        {
+            totalArea += output.toRectangle(i).getArea();
+
+            for (int j = i + 1; j < output.size(); j++)
+            {
+                assertFalse(output.toRectangle(i).intersection(output.toRectangle(j), new RectangleBuffer()));
+            }
+        }
+
+        assertEquals(28, totalArea);
+    }
+}
@@ -0,0 +1,201 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.iholden.constants.Adjacency;
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.entities.impl.RectangleImpl;
+import com.iholden.registry.RectangleRegistry;
+import com.iholden.registry.RegistrySnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiPredicate;
+
+public class RectangleRegistryTest
+{
+    private static final int WRITER_COUNT = 4;
+    private static final int READER_COUNT = 4;
+    private static final int UPDATES_PER_WRITER = 2_000;
+
+    @Test
+    public void relationQueries_randomRectangles_matchBruteForce()
+    {
+        var registry = new RectangleRegistry(8);
+        var random = new Random(42);
+        var expected = new ConcurrentHashMap<String, Rectangle>();
+
+        // Some long rectangles, so that queries must start before entries that end left of them
+        for (int i = 0; i < 500; i++)
+        {
+            Rectangle rectangle = new RectangleImpl(i % 50 == 0 ? 40 : random.nextInt(8) + 1, random.nextInt(8) + 1, new PointImpl(random.nextInt(40), random.nextInt(40)));
+
+            registry.put("r" + i, rectangle);
+            expected.put("r" + i, rectangle);
+        }
+
+        for (int i = 0; i < 100; i++)
+        {
+            Rectangle replacement = new RectangleImpl(random.nextInt(8) + 1, random.nextInt(8) + 1, new PointImpl(random.nextInt(40), random.nextInt(40)));
+            String id = "r" + random.nextInt(500);
+
+            assertSame(expected.put(id, replacement), registry.put(id, replacement));
+        }
+
+        for (int i = 0; i < 100; i++)
+        {
+            String id = "r" + random.nextInt(500);
+
+            assertSame(expected.remove(id), registry.remove(id));
+        }
+
+        RegistrySnapshot snapshot = registry.snapshot();
+
+        assertEquals(expected.size(), snapshot.size());
+        expected.forEach((id, rectangle) -> assertSame(rectangle, snapshot.get(id)));
+
+        for (int i = 0; i < 200; i++)
+        {
+            Rectangle query = new RectangleImpl(random.nextInt(12) + 1, random.nextInt(12) + 1, new PointImpl(random.nextInt(40), random.nextInt(40)));
+
+            assertSameIds(expected, snapshot.findIntersecting(query), (q, r) -> !q.findIntersectionPointsWith(r).isEmpty(), query);
+            assertSameIds(expected, snapshot.findContainedBy(query), Rectangle::contains, query);
+            assertSameIds(expected, snapshot.findContaining(query), (q, r) -> r.contains(q), query);
+            assertSameIds(expected, snapshot.findAdjacent(query), (q, r) -> q.determineAdjacencyWith(r) != Adjacency.NONE, query);
+        }
+    }
+
+    /**
+     * Each writer updates its "first" key and then its "second" key with the same counter value. Any snapshot must
+     * therefore show the first counter at or ahead of the second, never move backwards, and carry a version equal
+     * to the total number of updates it reflects.
+     */
+    @Test
+    public void snapshots_concurrentWritersAndReaders_areLinearizable() throws InterruptedException
+    {
+        var registry = new RectangleRegistry(4);
+        var writersDone = new AtomicBoolean();
+        var failures = new ConcurrentHashMap<String, String>();
+        var start = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+
+        for (int writer = 0; writer < WRITER_COUNT; writer++)
+        {
+            final int writerId = writer;
+
+            threads.add(new Thread(() ->
+            {
+                awaitQuietly(start);
+
+                for (int counter = 1; counter <= UPDATES_PER_WRITER; counter++)
+                {
+                    registry.put("w" + writerId + "-first", new RectangleImpl(1, 1, new PointImpl(counter, writerId)));
+                    registry.put("w" + writerId + "-second", new RectangleImpl(1, 1, new PointImpl(counter, writerId)));
+                }
+            }));
+        }
+
+        var readers = new ArrayList<Thread>();
+
+        for (int reader = 0; reader < READER_COUNT; reader++)
+        {
+            readers.add(new Thread(() ->
+            {
+                awaitQuietly(start);
+
+                long lastVersion = -1;
+                var lastFirstCounters = new long[WRITER_COUNT];
+
+                while (!writersDone.get())
+                {
+                    RegistrySnapshot snapshot = registry.snapshot();
+                    long reflectedUpdates = 0;
+
+                    if (snapshot.getVersion() < lastVersion)
+                    {
+                        failures.put("version", "snapshot version moved backwards");
+                    }
+
+                    for (int writerId = 0; writerId < WRITER_COUNT; writerId++)
+                    {
+                        long first = counterOf(snapshot.get("w" + writerId + "-first"));
+                        long second = counterOf(snapshot.get("w" + writerId + "-second"));
+
+                        if (second > first || first < lastFirstCounters[writerId])
+                        {
+                            failures.put("order-" + writerId, "first=" + first + " second=" + second);
+                        }
+
+                        lastFirstCounters[writerId] = first;
+                        reflectedUpdates += first + second;
+                    }
+
+                    if (reflectedUpdates != snapshot.getVersion())
+                    {
+                        failures.put("count", "version " + snapshot.getVersion() + " reflects " + reflectedUpdates + " updates");
+                    }
+
+                    lastVersion = snapshot.getVersion();
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        readers.forEach(Thread::start);
+        start.countDown();
+
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        writersDone.set(true);
+
+        for (Thread thread : readers)
+        {
+            thread.join();
+        }
+
+        assertTrue(failures.isEmpty(), failures.toString());
+        assertEquals((long) WRITER_COUNT * 2 * UPDATES_PER_WRITER, registry.snapshot().getVersion());
+        assertEquals(WRITER_COUNT * 2, registry.snapshot().size());
+    }
+
+    private static long counterOf(Rectangle rectangle)
+    {
+        return rectangle == null ? 0 : rectangle.getLowerLeft().getXCoordinate();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void assertSameIds(Map<String, Rectangle> expected, List<String> actualIds, BiPredicate<Rectangle, Rectangle> relation, Rectangle query)
+    {
+        var expectedIds = new HashSet<String>();
+
+        expected.forEach((id, rectangle) ->
+        {
+            if (relation.test(query, rectangle))
+            {
+                expectedIds.add(id);
+            }
+        });
+
+        assertEquals(expectedIds, new HashSet<>(actualIds));
+    }
+}
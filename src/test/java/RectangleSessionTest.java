@@ -0,0 +1,95 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.iholden.constants.Adjacency;
+import com.iholden.constants.Relation;
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.entities.impl.RectangleImpl;
+import com.iholden.session.RectangleSession;
+import com.iholden.session.RelationCodes;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class RectangleSessionTest
+{
+    @Test
+    public void relationMatrix_randomAddsAndRemoves_matchesBruteForce()
+    {
+        var session = new RectangleSession();
+        var expected = new HashMap<String, Rectangle>();
+        var random = new Random(7);
+
+        for (int i = 0; i < 600; i++)
+        {
+            if (!expected.isEmpty() && random.nextInt(4) == 0)
+            {
+                List<String> labels = new ArrayList<>(expected.keySet());
+                String label = labels.get(random.nextInt(labels.size()));
+
+                assertSame(expected.remove(label), session.remove(label));
+                continue;
+            }
+
+            Rectangle rectangle = new RectangleImpl(random.nextInt(6), random.nextInt(6), new PointImpl(random.nextInt(30), random.nextInt(30)));
+
+            session.add("r" + i, rectangle);
+            expected.put("r" + i, rectangle);
+        }
+
+        assertEquals(expected.size(), session.size());
+        assertEquals(expected.keySet(), session.labels());
+
+        for (Map.Entry<String, Rectangle> a : expected.entrySet())
+        {
+            var related = new HashSet<String>();
+
+            for (Map.Entry<String, Rectangle> b : expected.entrySet())
+            {
+                int code = RelationCodes.classify(a.getValue(), b.getValue());
+
+                assertEquals(code, session.getRelationCode(a.getKey(), b.getKey()), a.getKey() + " vs " + b.getKey());
+
+                if (!a.getKey().equals(b.getKey()) && (code != RelationCodes.NONE || RelationCodes.classify(b.getValue(), a.getValue()) != RelationCodes.NONE))
+                {
+                    related.add(b.getKey());
+                }
+            }
+
+            var reported = new HashSet<String>();
+
+            session.forEachRelated(a.getKey(), (label, outgoing, incoming) -> reported.add(label));
+
+            assertEquals(related, reported);
+            assertEquals(related.size(), session.countRelated(a.getKey()));
+        }
+    }
+
+    @Test
+    public void getRelation_containedRectangleSharingEdge_isDirectional()
+    {
+        var session = new RectangleSession();
+
+        session.add("outer", new RectangleImpl(6, 6, new PointImpl(0, 0)));
+        session.add("inner", new RectangleImpl(2, 2, new PointImpl(0, 2)));
+
+        assertEquals(Relation.CONTAINMENT, session.getRelation("outer", "inner"));
+        assertEquals(Relation.ADJACENCY, session.getRelation("inner", "outer"));
+        assertEquals(Adjacency.PARTIAL, session.getAdjacency("inner", "outer"));
+    }
+
+    @Test
+    public void add_labelAlreadyExists_throwsIllegalArgumentException()
+    {
+        var session = new RectangleSession();
+
+        session.add("A", new RectangleImpl(1, 1, new PointImpl(0, 0)));
+
+        assertThrows(IllegalArgumentException.class, () -> session.add("A", new RectangleImpl(2, 2, new PointImpl(0, 0))));
+    }
+}
@@ -0,0 +1,146 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.iholden.constants.Adjacency;
+import com.iholden.constants.Relation;
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.entities.impl.RectangleImpl;
+import com.iholden.entities.impl.RectanglePairImpl;
+import com.iholden.sampling.Estimate;
+import com.iholden.sampling.RelationEstimates;
+import com.iholden.sampling.RelationSampler;
+import com.iholden.support.Classification;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.LongFunction;
+
+public class RelationSamplerTest
+{
+    private static final int RUNS = 40;
+
+    private List<Rectangle> rectangles;
+    private Map<Relation, Double> relationShares;
+    private Map<Adjacency, Double> adjacentShares;
+
+    @BeforeEach
+    public void classifyAllPairs()
+    {
+        var random = new Random(5);
+        rectangles = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++)
+        {
+            rectangles.add(new RectangleImpl(1 + random.nextInt(20), 1 + random.nextInt(20),
+                    new PointImpl(random.nextInt(120), random.nextInt(120))));
+        }
+
+        var relationCounts = new EnumMap<Relation, Integer>(Relation.class);
+        var adjacencyCounts = new EnumMap<Adjacency, Integer>(Adjacency.class);
+
+        for (Rectangle rectangleA : rectangles)
+        {
+            for (Rectangle rectangleB : rectangles)
+            {
+                if (rectangleA != rectangleB)
+                {
+                    var classification = Classification.of(new RectanglePairImpl(rectangleA, rectangleB));
+
+                    relationCounts.merge(classification.getRelation(), 1, Integer::sum);
+                    adjacencyCounts.merge(classification.getAdjacency(), 1, Integer::sum);
+                }
+            }
+        }
+
+        double pairs = (double) rectangles.size() * (rectangles.size() - 1);
+        relationShares = new EnumMap<>(Relation.class);
+        adjacentShares = new EnumMap<>(Adjacency.class);
+
+        for (Relation relation : Relation.values())
+        {
+            relationShares.put(relation, relationCounts.getOrDefault(relation, 0) / pairs);
+        }
+
+        for (Adjacency adjacency : Adjacency.values())
+        {
+            adjacentShares.put(adjacency, adjacencyCounts.getOrDefault(adjacency, 0) / (double) relationCounts.get(Relation.ADJACENCY));
+        }
+    }
+
+    @Test
+    public void estimate_uniformSamples_intervalsCoverExactShares()
+    {
+        assertIntervalsCover(seed -> RelationSampler.uniform(300, seed));
+    }
+
+    @Test
+    public void estimate_stratifiedSamples_intervalsCoverExactShares()
+    {
+        assertIntervalsCover(seed -> RelationSampler.stratified(60, 8, 30, seed));
+    }
+
+    @Test
+    public void accept_longStream_holdsOnlyTheSample()
+    {
+        var sampler = RelationSampler.uniform(100, 3);
+
+        for (int i = 0; i < 200_000; i++)
+        {
+            sampler.accept(rectangles.get(i % rectangles.size()));
+        }
+
+        RelationEstimates estimates = sampler.estimate();
+
+        assertEquals(200_000, estimates.getRectangleCount());
+        assertEquals(200_000.0 * 199_999, estimates.getPopulationPairCount());
+        assertEquals(50, estimates.getSampledPairCount());
+    }
+
+    @Test
+    public void wilson_noHits_boundsAwayFromZero()
+    {
+        Estimate estimate = Estimate.wilson(0, 100, 0.95);
+
+        assertEquals(1.96, Estimate.zScore(0.95), 0.001);
+        assertEquals(0.0, estimate.getValue());
+        assertEquals(0.0, estimate.getLower());
+        assertEquals(0.037, estimate.getUpper(), 0.001);
+    }
+
+    /**
+     * Nominal 95% intervals should cover the exact share in most runs; a generous threshold keeps this stable
+     */
+    private void assertIntervalsCover(LongFunction<RelationSampler> samplers)
+    {
+        var covered = new EnumMap<Relation, Integer>(Relation.class);
+        int adjacentCovered = 0;
+
+        for (int seed = 0; seed < RUNS; seed++)
+        {
+            RelationSampler sampler = samplers.apply(seed);
+
+            rectangles.forEach(sampler);
+
+            RelationEstimates estimates = sampler.estimate();
+
+            for (Relation relation : Relation.values())
+            {
+                covered.merge(relation, estimates.shareOf(relation, 0.95).covers(relationShares.get(relation)) ? 1 : 0, Integer::sum);
+            }
+
+            adjacentCovered += estimates.shareAmongAdjacent(Adjacency.PARTIAL, 0.95).covers(adjacentShares.get(Adjacency.PARTIAL)) ? 1 : 0;
+        }
+
+        for (Relation relation : Relation.values())
+        {
+            assertTrue(covered.get(relation) >= 0.8 * RUNS, relation + " covered in " + covered.get(relation) + " runs");
+        }
+
+        assertTrue(adjacentCovered >= 0.8 * RUNS, "PARTIAL share covered in " + adjacentCovered + " runs");
+    }
+}
@@ -0,0 +1,149 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.iholden.cluster.RectangleDataset;
+import com.iholden.cluster.RelatedPairs;
+import com.iholden.cluster.ShardCoordinator;
+import com.iholden.cluster.ShardStats;
+import com.iholden.cluster.ShardedResult;
+import com.iholden.cluster.WorkerLauncher;
+import com.iholden.exceptions.ShardFailedException;
+import com.iholden.session.RelationCodes;
+import com.iholden.support.HilbertOrder;
+import com.iholden.support.RectangleColumns;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ShardCoordinatorTest
+{
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private RectangleColumns rectangles;
+
+    @BeforeEach
+    public void buildRandomDataset()
+    {
+        var random = new Random(11);
+        var lines = new ArrayList<String>();
+
+        for (int i = 0; i < 200; i++)
+        {
+            // Every 7th line is an exact duplicate of an earlier one
+            lines.add(i % 7 == 6 ? lines.get(random.nextInt(i)) : random.nextInt(30) + " " + random.nextInt(30) + " "
+                    + (random.nextInt(200) - 100) + " " + (random.nextInt(200) - 100));
+        }
+
+        rectangles = RectangleDataset.read(new BufferedReader(new StringReader("# length width x y\n" + String.join("\n", lines))));
+    }
+
+    @Test
+    public void run_manyTiles_reportsEveryRelatedPairOnce() throws Exception
+    {
+        ShardedResult result = new ShardCoordinator(WorkerLauncher.threads(), 3, 4, 4,
+                ShardCoordinator.DEFAULT_MAX_ATTEMPTS, TIMEOUT).run(rectangles);
+
+        assertEquals(bruteForce(), describe(result.getPairs()));
+        assertTrue(result.getShardStats().stream().mapToInt(ShardStats::getPairCount).sum() < result.getPairs().size());
+    }
+
+    @Test
+    public void run_workerDisconnects_retriesTile() throws Exception
+    {
+        var launches = new AtomicInteger();
+        WorkerLauncher flaky = coordinator ->
+        {
+            if (launches.getAndIncrement() == 0)
+            {
+                // Connects, then hangs up before reading its task
+                new Socket(coordinator.getAddress(), coordinator.getPort()).close();
+                return () -> { };
+            }
+
+            return WorkerLauncher.threads().launch(coordinator);
+        };
+
+        ShardedResult result = new ShardCoordinator(flaky, 1, 2, 2, ShardCoordinator.DEFAULT_MAX_ATTEMPTS, TIMEOUT).run(rectangles);
+
+        assertEquals(bruteForce(), describe(result.getPairs()));
+        assertTrue(result.getShardStats().stream().anyMatch(stats -> stats.getAttempts() == 2));
+    }
+
+    @Test
+    public void run_workerAlwaysDisconnects_throwsShardFailedException()
+    {
+        WorkerLauncher broken = coordinator ->
+        {
+            new Socket(coordinator.getAddress(), coordinator.getPort()).close();
+            return () -> { };
+        };
+
+        var coordinator = new ShardCoordinator(broken, 2, 2, 2, 2, TIMEOUT);
+
+        assertThrows(ShardFailedException.class, () -> coordinator.run(rectangles));
+    }
+
+    @Test
+    public void run_hilbertReorderedDataset_reportsOriginalIds() throws Exception
+    {
+        var written = new StringWriter();
+
+        RectangleDataset.write(HilbertOrder.reorder(rectangles), written);
+
+        RectangleColumns reread = RectangleDataset.read(new BufferedReader(new StringReader(written.toString())));
+        ShardedResult result = new ShardCoordinator(WorkerLauncher.threads(), 2, 3, 3,
+                ShardCoordinator.DEFAULT_MAX_ATTEMPTS, TIMEOUT).run(reread);
+
+        assertNotEquals(0, reread.getId(0));
+        assertEquals(bruteForce(), describe(result.getPairs()));
+    }
+
+    @Test
+    public void read_malformedLine_throwsIllegalArgumentException()
+    {
+        var input = new BufferedReader(new StringReader("1 2 3 4\n1 2 3\n"));
+
+        assertThrows(IllegalArgumentException.class, () -> RectangleDataset.read(input));
+    }
+
+    private List<String> bruteForce()
+    {
+        var expected = new ArrayList<String>();
+
+        for (int a = 0; a < rectangles.size(); a++)
+        {
+            for (int b = a + 1; b < rectangles.size(); b++)
+            {
+                int outgoing = RelationCodes.classify(rectangles.toRectangle(a), rectangles.toRectangle(b));
+                int incoming = RelationCodes.classify(rectangles.toRectangle(b), rectangles.toRectangle(a));
+
+                if (outgoing != RelationCodes.NONE || incoming != RelationCodes.NONE)
+                {
+                    expected.add(a + " " + b + " " + outgoing + " " + incoming);
+                }
+            }
+        }
+
+        return expected;
+    }
+
+    private static List<String> describe(RelatedPairs pairs)
+    {
+        var described = new ArrayList<String>();
+
+        for (int i = 0; i < pairs.size(); i++)
+        {
+            described.add(pairs.getIdA(i) + " " + pairs.getIdB(i) + " " + pairs.getOutgoingCode(i) + " " + pairs.getIncomingCode(i));
+        }
+
+        return described;
+    }
+}
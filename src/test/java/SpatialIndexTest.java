@@ -0,0 +1,1009 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.iholden.constants.Adjacency;
+import com.iholden.constants.Connectivity;
+import com.iholden.constants.Contact;
+import com.iholden.constants.ContactEvent;
+import com.iholden.constants.Orientation;
+import com.iholden.constants.Relation;
+import com.iholden.entities.Line;
+import com.iholden.entities.Point;
+import com.iholden.entities.Rectangle;
+import com.iholden.entities.RectanglePair;
+import com.iholden.entities.impl.LineImpl;
+import com.iholden.entities.impl.PointImpl;
+import com.iholden.entities.impl.RectangleImpl;
+import com.iholden.index.ConnectedComponents;
+import com.iholden.index.ContainmentForest;
+import com.iholden.index.ContainmentIndex;
+import com.iholden.index.NearPairs;
+import com.iholden.index.OccupancyFilter;
+import com.iholden.index.OccupancyGrid;
+import com.iholden.index.OverlapDepth;
+import com.iholden.index.PackedRTree;
+import com.iholden.index.PointStabbingIndex;
+import com.iholden.index.SegmentCrossings;
+import com.iholden.index.SweepAndPrune;
+import com.iholden.index.UnionContour;
+import com.iholden.index.WindowAggregate;
+import com.iholden.index.WindowAggregateIndex;
+import com.iholden.session.RelationCodes;
+import com.iholden.support.Classification;
+import com.iholden.support.HilbertOrder;
+import com.iholden.support.OccupancyBitmap;
+import com.iholden.support.PrimitiveSorts;
+import com.iholden.support.RectangleBuffer;
+import com.iholden.support.RectangleColumns;
+import com.iholden.support.UnionFind;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class SpatialIndexTest
+{
+    private static final int RECTANGLE_COUNT = 300;
+    private static final int QUERY_COUNT = 500;
+
+    protected Random random;
+    protected long[] minX;
+    protected long[] minY;
+    protected long[] maxX;
+    protected long[] maxY;
+    protected RectangleColumns columns;
+
+    @BeforeEach
+    public void buildRandomRectangles()
+    {
+        random = new Random(7);
+        minX = new long[RECTANGLE_COUNT];
+        minY = new long[RECTANGLE_COUNT];
+        maxX = new long[RECTANGLE_COUNT];
+        maxY = new long[RECTANGLE_COUNT];
+
+        for (int i = 0; i < RECTANGLE_COUNT; i++)
+        {
+            minX[i] = random.nextInt(60) - 30;
+            minY[i] = random.nextInt(60) - 30;
+            maxX[i] = minX[i] + random.nextInt(12);
+            maxY[i] = minY[i] + random.nextInt(12);
+        }
+
+        columns = RectangleColumns.of(minX, minY, maxX, maxY);
+    }
+
+    @Test
+    public void pointStabbing_singleQueries_matchInclusiveBruteForce()
+    {
+        PointStabbingIndex index = PointStabbingIndex.of(columns);
+
+        for (int query = 0; query < QUERY_COUNT; query++)
+        {
+            long x = random.nextInt(80) - 40;
+            long y = random.nextInt(80) - 40;
+            var actual = new TreeSet<Integer>();
+
+            index.forEachContaining(x, y, actual::add);
+
+            assertEquals(coveringBruteForce(x, y), actual);
+            assertEquals(actual.size(), index.countContaining(x, y));
+        }
+    }
+
+    @Test
+    public void pointStabbing_batchQueries_matchSingleQueries()
+    {
+        PointStabbingIndex index = PointStabbingIndex.of(columns);
+        var xs = new long[QUERY_COUNT];
+        var ys = new long[QUERY_COUNT];
+        var counts = new int[QUERY_COUNT];
+        var reported = new HashSet<Long>();
+
+        for (int query = 0; query < QUERY_COUNT; query++)
+        {
+            xs[query] = random.nextInt(80) - 40;
+            ys[query] = random.nextInt(80) - 40;
+        }
+
+        index.countContaining(xs, ys, counts);
+        index.forEachContaining(xs, ys, (query, id) -> assertTrue(reported.add(((long) query << 32) | id), "duplicate match"));
+
+        for (int query = 0; query < QUERY_COUNT; query++)
+        {
+            Set<Integer> expected = coveringBruteForce(xs[query], ys[query]);
+
+            assertEquals(expected.size(), counts[query]);
+
+            for (int id : expected)
+            {
+                assertTrue(reported.contains(((long) query << 32) | id));
+            }
+        }
+
+        assertEquals(sum(counts), reported.size());
+    }
+
+    @Test
+    public void windowAggregate_randomWindows_matchBruteForce()
+    {
+        WindowAggregateIndex index = WindowAggregateIndex.of(columns);
+
+        for (int query = 0; query < QUERY_COUNT; query++)
+        {
+            long windowMinX = random.nextInt(80) - 40;
+            long windowMinY = random.nextInt(80) - 40;
+            long windowMaxX = windowMinX + random.nextInt(15) + 1;
+            long windowMaxY = windowMinY + random.nextInt(15) + 1;
+            long matching = 0, matchingArea = 0, overlapping = 0, corner = 0;
+
+            for (int i = 0; i < RECTANGLE_COUNT; i++)
+            {
+                long area = (maxX[i] - minX[i]) * (maxY[i] - minY[i]);
+
+                if (minX[i] <= windowMaxX && maxX[i] >= windowMinX && minY[i] <= windowMaxY && maxY[i] >= windowMinY)
+                {
+                    matching++;
+                    matchingArea += area;
+                }
+
+                if (area > 0 && minX[i] < windowMaxX && maxX[i] > windowMinX && minY[i] < windowMaxY && maxY[i] > windowMinY)
+                {
+                    overlapping++;
+                }
+
+                if ((maxX[i] == windowMinX && maxY[i] == windowMinY) || (minX[i] == windowMaxX && maxY[i] == windowMinY)
+                        || (minX[i] == windowMaxX && minY[i] == windowMaxY) || (maxX[i] == windowMinX && minY[i] == windowMaxY))
+                {
+                    corner++;
+                }
+            }
+
+            WindowAggregate aggregate = index.aggregate(windowMinX, windowMinY, windowMaxX, windowMaxY);
+
+            assertEquals(matching, aggregate.getMatchingCount());
+            assertEquals(matchingArea, aggregate.getMatchingAreaSum());
+            assertEquals(overlapping, aggregate.getOverlappingCount());
+            assertEquals(corner, aggregate.getCornerAdjacentCount());
+        }
+    }
+
+    protected Set<Integer> coveringBruteForce(long x, long y)
+    {
+        var covering = new TreeSet<Integer>();
+
+        for (int i = 0; i < RECTANGLE_COUNT; i++)
+        {
+            if (minX[i] <= x && x <= maxX[i] && minY[i] <= y && y <= maxY[i])
+            {
+                covering.add(i);
+            }
+        }
+
+        return covering;
+    }
+
+    @Test
+    public void connectedComponents_eachConnectivity_matchesPairwiseBruteForce()
+    {
+        for (Connectivity connectivity : Connectivity.values())
+        {
+            var components = ConnectedComponents.of(columns, connectivity);
+            var expected = new UnionFind(RECTANGLE_COUNT);
+
+            for (int i = 0; i < RECTANGLE_COUNT; i++)
+            {
+                for (int j = i + 1; j < RECTANGLE_COUNT; j++)
+                {
+                    if (isConnectedBruteForce(i, j, connectivity))
+                    {
+                        expected.union(i, j);
+                    }
+                }
+            }
+
+            assertEquals(expected.setCount(), components.componentCount(), connectivity.name());
+
+            for (int i = 0; i < RECTANGLE_COUNT; i++)
+            {
+                int component = components.componentOf(i);
+                RectangleColumns bounds = components.getComponentBounds();
+
+                assertEquals(expected.sizeOf(i), components.componentSize(component));
+                assertTrue(bounds.getMinX(component) <= minX[i] && maxX[i] <= bounds.getMaxX(component));
+                assertTrue(bounds.getMinY(component) <= minY[i] && maxY[i] <= bounds.getMaxY(component));
+
+                for (int j = i + 1; j < RECTANGLE_COUNT; j++)
+                {
+                    assertEquals(expected.find(i) == expected.find(j), component == components.componentOf(j));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void overlapDepth_bothEdgeSemantics_matchHalfUnitGridBruteForce()
+    {
+        for (boolean inclusive : new boolean[] { true, false })
+        {
+            OverlapDepth depth = inclusive ? OverlapDepth.inclusive(columns) : OverlapDepth.exclusive(columns);
+            int expectedMaxDepth = 0;
+
+            // Every slot cell contains a point on the half-unit grid, since all coordinates are whole numbers
+            for (int x = -62; x <= 84; x++)
+            {
+                for (int y = -62; y <= 84; y++)
+                {
+                    expectedMaxDepth = Math.max(expectedMaxDepth, depthBruteForce(x / 2.0, y / 2.0, inclusive));
+                }
+            }
+
+            assertEquals(expectedMaxDepth, depth.getMaxDepth());
+            assertEquals(expectedMaxDepth, depthBruteForce(depth.getWitnessX(), depth.getWitnessY(), inclusive));
+
+            var regions = new RectangleBuffer();
+            int minDepth = Math.max(1, expectedMaxDepth - 1);
+
+            depth.regionsAtLeast(minDepth, regions);
+
+            for (int i = 0; i < regions.size(); i++)
+            {
+                double centerX = regions.getMinX(i) / 2.0 + regions.getMaxX(i) / 2.0;
+                double centerY = regions.getMinY(i) / 2.0 + regions.getMaxY(i) / 2.0;
+
+                assertTrue(depthBruteForce(centerX, centerY, inclusive) >= minDepth);
+            }
+        }
+    }
+
+    @Test
+    public void sweepAndPrune_randomTicks_eventsMatchBruteForceContacts()
+    {
+        var sweepAndPrune = SweepAndPrune.of(columns);
+        Map<Long, Contact> reported = contactsBruteForce();
+
+        assertEquals(reported.size(), sweepAndPrune.contactCount());
+
+        for (int tick = 0; tick < 200; tick++)
+        {
+            // Every tenth tick moves most rectangles, so both the per-rectangle and the whole-list sort are covered
+            int moves = tick % 10 == 0 ? RECTANGLE_COUNT : 30;
+
+            for (int move = 0; move < moves; move++)
+            {
+                int i = random.nextInt(RECTANGLE_COUNT);
+
+                if (random.nextInt(10) == 0)
+                {
+                    minX[i] = random.nextInt(60) - 30;
+                    minY[i] = random.nextInt(60) - 30;
+                    maxX[i] = minX[i] + random.nextInt(12);
+                    maxY[i] = minY[i] + random.nextInt(12);
+                    sweepAndPrune.setBounds(i, minX[i], minY[i], maxX[i], maxY[i]);
+                }
+                else
+                {
+                    long dx = random.nextInt(5) - 2;
+                    long dy = random.nextInt(5) - 2;
+
+                    minX[i] += dx;
+                    maxX[i] += dx;
+                    minY[i] += dy;
+                    maxY[i] += dy;
+                    sweepAndPrune.moveBy(i, dx, dy);
+                }
+            }
+
+            sweepAndPrune.tick((first, second, event) ->
+            {
+                Long key = (long) first * RECTANGLE_COUNT + second;
+
+                assertTrue(first < second);
+
+                switch (event)
+                {
+                    case OVERLAP_BEGIN -> assertNull(reported.put(key, Contact.OVERLAP));
+                    case ADJACENCY_BEGIN -> assertNull(reported.put(key, Contact.ADJACENCY));
+                    default -> assertEquals(event, ContactEvent.endOf(reported.remove(key)));
+                }
+            });
+
+            Map<Long, Contact> expected = contactsBruteForce();
+
+            assertEquals(expected, reported);
+            assertEquals(expected.size(), sweepAndPrune.contactCount());
+
+            for (int j = 0; j < 20; j++)
+            {
+                int first = random.nextInt(RECTANGLE_COUNT);
+                int second = random.nextInt(RECTANGLE_COUNT);
+
+                assertEquals(expected.getOrDefault((long) Math.min(first, second) * RECTANGLE_COUNT + Math.max(first, second), Contact.NONE),
+                        first == second ? Contact.NONE : sweepAndPrune.getContact(first, second));
+            }
+        }
+    }
+
+    @Test
+    public void unionContour_randomRectangles_matchesCellBoundaryBruteForce()
+    {
+        for (int count : new int[] { RECTANGLE_COUNT, 40 })
+        {
+            var subset = RectangleColumns.of(Arrays.copyOf(minX, count), Arrays.copyOf(minY, count),
+                    Arrays.copyOf(maxX, count), Arrays.copyOf(maxY, count));
+            var covered = new boolean[80][80];
+
+            for (int i = 0; i < count; i++)
+            {
+                for (long x = minX[i]; x < maxX[i]; x++)
+                {
+                    for (long y = minY[i]; y < maxY[i]; y++)
+                    {
+                        covered[(int) x + 35][(int) y + 35] = true;
+                    }
+                }
+            }
+
+            var expectedEdges = new HashSet<String>();
+            long coveredCells = 0;
+
+            for (int x = 1; x < 80; x++)
+            {
+                for (int y = 1; y < 80; y++)
+                {
+                    coveredCells += covered[x][y] ? 1 : 0;
+
+                    if (covered[x][y] != covered[x - 1][y])
+                    {
+                        expectedEdges.add("V " + (x - 35) + " " + (y - 35));
+                    }
+
+                    if (covered[x][y] != covered[x][y - 1])
+                    {
+                        expectedEdges.add("H " + (x - 35) + " " + (y - 35));
+                    }
+                }
+            }
+
+            var actualEdges = new HashSet<String>();
+            long[] signedArea = new long[1];
+
+            UnionContour.forEachLoop(subset, (lines, hole) ->
+            {
+                long area = 0;
+
+                for (int k = 0; k < lines.size(); k++)
+                {
+                    Line line = lines.get(k);
+                    Point from = sharedPoint(lines.get((k + lines.size() - 1) % lines.size()), line);
+                    Point to = sharedPoint(line, lines.get((k + 1) % lines.size()));
+
+                    assertNotEquals(line.getOrientation(), lines.get((k + 1) % lines.size()).getOrientation());
+                    area += from.getXCoordinate() * to.getYCoordinate() - to.getXCoordinate() * from.getYCoordinate();
+
+                    for (long step = 0; step < line.getLength(); step++)
+                    {
+                        long x = line.getPointA().getXCoordinate();
+                        long y = line.getPointA().getYCoordinate();
+                        String edge = line.getOrientation() == Orientation.VERTICAL ? "V " + x + " " + (y + step) : "H " + (x + step) + " " + y;
+
+                        assertTrue(actualEdges.add(edge), edge);
+                    }
+                }
+
+                // Outer loops run counter-clockwise, and holes clockwise
+                assertEquals(hole, area < 0);
+                signedArea[0] += area;
+            });
+
+            assertEquals(expectedEdges, actualEdges);
+            assertEquals(2 * coveredCells, signedArea[0]);
+        }
+    }
+
+    @Test
+    public void containmentForest_nestedLayout_matchesSmallestContainerBruteForce()
+    {
+        var bounds = new ArrayList<long[]>();
+
+        subdivide(new long[] { 0, 0, 400, 400 }, 0, bounds);
+
+        // Copies of some rectangles, containers among them, in no particular order
+        for (int i = 0, original = bounds.size(); i < original; i += 5)
+        {
+            bounds.add(bounds.get(i));
+        }
+
+        Collections.shuffle(bounds, random);
+
+        int count = bounds.size();
+        var nested = RectangleColumns.of(bounds.stream().mapToLong(b -> b[0]).toArray(), bounds.stream().mapToLong(b -> b[1]).toArray(),
+                bounds.stream().mapToLong(b -> b[2]).toArray(), bounds.stream().mapToLong(b -> b[3]).toArray());
+        var forest = ContainmentForest.of(nested);
+        var firstCopies = new int[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            firstCopies[i] = i;
+
+            for (int j = i - 1; j >= 0; j--)
+            {
+                firstCopies[i] = Arrays.equals(bounds.get(j), bounds.get(i)) ? j : firstCopies[i];
+            }
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+            int smallest = ContainmentForest.NO_PARENT;
+            int depth = 0;
+            int descendants = 1;
+
+            for (int j = 0; j < count; j++)
+            {
+                // Only the first copy of a container is an ancestor of what it contains; the others are its siblings
+                boolean ancestor = firstCopies[i] == i && nested.toRectangle(i).contains(nested.toRectangle(j));
+
+                if (nested.toRectangle(j).contains(nested.toRectangle(i)))
+                {
+                    depth += firstCopies[j] == j ? 1 : 0;
+
+                    if (smallest == ContainmentForest.NO_PARENT || nested.toRectangle(smallest).contains(nested.toRectangle(j)))
+                    {
+                        smallest = j;
+                    }
+                }
+
+                descendants += ancestor ? 1 : 0;
+                assertEquals(ancestor, forest.isAncestor(i, j));
+            }
+
+            assertEquals(smallest, forest.getParent(i));
+            assertEquals(depth, forest.getDepth(i));
+            assertEquals(descendants, forest.getSubtreeSize(i));
+            assertEquals(i, forest.getRectangleAtPreorder(forest.getPreorderIndex(i)));
+        }
+
+        // Where containers overlap, the parent is the container of least area, then least length plus width
+        var overlapping = ContainmentForest.of(columns);
+
+        for (int i = 0; i < RECTANGLE_COUNT; i++)
+        {
+            int smallest = ContainmentForest.NO_PARENT;
+
+            for (int j = 0; j < RECTANGLE_COUNT; j++)
+            {
+                Rectangle container = columns.toRectangle(j);
+
+                if (container.contains(columns.toRectangle(i)) && (smallest == ContainmentForest.NO_PARENT
+                        || container.getArea() < columns.toRectangle(smallest).getArea()
+                        || (container.getArea() == columns.toRectangle(smallest).getArea()
+                            && container.getLength() + container.getWidth() < columns.toRectangle(smallest).getLength() + columns.toRectangle(smallest).getWidth())))
+                {
+                    smallest = j;
+                }
+            }
+
+            assertEquals(smallest, overlapping.getParent(i));
+        }
+
+        // A root that partially overlaps a container must not hide it
+        var partial = ContainmentForest.of(RectangleColumns.of(new long[] { 0, 5, 6 }, new long[] { 0, 0, 1 },
+                new long[] { 10, 20, 8 }, new long[] { 10, 2, 3 }));
+
+        assertEquals(0, partial.getParent(2));
+        assertEquals(ContainmentForest.NO_PARENT, partial.getParent(1));
+    }
+
+    @Test
+    public void containmentIndex_randomQueries_matchRectangleContains()
+    {
+        // Duplicates of some rectangles, so that identical rectangles are both queried and indexed
+        var doubled = RectangleColumns.of(concat(minX, Arrays.copyOf(minX, 40)), concat(minY, Arrays.copyOf(minY, 40)),
+                concat(maxX, Arrays.copyOf(maxX, 40)), concat(maxY, Arrays.copyOf(maxY, 40)));
+        var index = ContainmentIndex.of(doubled);
+
+        for (int q = 0; q < QUERY_COUNT; q++)
+        {
+            Rectangle query;
+
+            if (q % 2 == 0)
+            {
+                query = doubled.toRectangle(random.nextInt(doubled.size()));
+            }
+            else
+            {
+                long x = random.nextInt(70) - 35, y = random.nextInt(70) - 35;
+                query = new RectangleImpl(random.nextInt(30), random.nextInt(30), new PointImpl(x, y));
+            }
+
+            long qMinX = query.getRangeX().getMin(), qMinY = query.getRangeY().getMin();
+            long qMaxX = query.getRangeX().getMax(), qMaxY = query.getRangeY().getMax();
+            var expectedContained = new TreeSet<Integer>();
+            var expectedEnclosing = new TreeSet<Integer>();
+
+            for (int i = 0; i < doubled.size(); i++)
+            {
+                if (query.contains(doubled.toRectangle(i)))
+                {
+                    expectedContained.add(doubled.getId(i));
+                }
+
+                if (doubled.toRectangle(i).contains(query))
+                {
+                    expectedEnclosing.add(doubled.getId(i));
+                }
+            }
+
+            var contained = new TreeSet<Integer>();
+            var enclosing = new TreeSet<Integer>();
+
+            index.forEachContainedIn(qMinX, qMinY, qMaxX, qMaxY, contained::add);
+            index.forEachEnclosing(qMinX, qMinY, qMaxX, qMaxY, enclosing::add);
+
+            assertEquals(expectedContained, contained);
+            assertEquals(expectedEnclosing, enclosing);
+            assertEquals(expectedContained.size(), index.countContainedIn(qMinX, qMinY, qMaxX, qMaxY));
+            assertEquals(expectedEnclosing.size(), index.countEnclosing(qMinX, qMinY, qMaxX, qMaxY));
+        }
+    }
+
+    @Test
+    public void segmentCrossings_randomLines_matchPairwiseBruteForce()
+    {
+        var lines = new ArrayList<Line>();
+
+        for (int i = 0; i < RECTANGLE_COUNT; i++)
+        {
+            long fixed = random.nextInt(40) - 20, from = random.nextInt(60) - 30, to = from + random.nextInt(i % 10 == 0 ? 2 : 25);
+            boolean vertical = random.nextBoolean();
+
+            // Every 9th line repeats an earlier one, reversed
+            if (i % 9 == 8)
+            {
+                Line earlier = lines.get(random.nextInt(i));
+                lines.add(new LineImpl(earlier.getPointB(), earlier.getPointA()));
+                continue;
+            }
+
+            lines.add(vertical ? new LineImpl(new PointImpl(fixed, to), new PointImpl(fixed, from))
+                    : new LineImpl(new PointImpl(from, fixed), new PointImpl(to, fixed)));
+        }
+
+        var expectedCrossings = new TreeSet<String>();
+        var expectedOverlaps = new TreeSet<String>();
+
+        for (int i = 0; i < lines.size(); i++)
+        {
+            for (int j = i + 1; j < lines.size(); j++)
+            {
+                Line first = lines.get(i), second = lines.get(j);
+                long firstFixed = first.getOrientation() == Orientation.VERTICAL ? first.getPointA().getXCoordinate() : first.getPointA().getYCoordinate();
+                long secondFixed = second.getOrientation() == Orientation.VERTICAL ? second.getPointA().getXCoordinate() : second.getPointA().getYCoordinate();
+                long firstMin = Math.min(coordinateAlong(first, first.getPointA()), coordinateAlong(first, first.getPointB()));
+                long firstMax = Math.max(coordinateAlong(first, first.getPointA()), coordinateAlong(first, first.getPointB()));
+                long secondMin = Math.min(coordinateAlong(second, second.getPointA()), coordinateAlong(second, second.getPointB()));
+                long secondMax = Math.max(coordinateAlong(second, second.getPointA()), coordinateAlong(second, second.getPointB()));
+
+                if (first.getOrientation() != second.getOrientation())
+                {
+                    if (firstMin < secondFixed && secondFixed < firstMax && secondMin < firstFixed && firstFixed < secondMax)
+                    {
+                        int horizontal = first.getOrientation() == Orientation.HORIZONTAL ? i : j;
+                        int vertical = horizontal == i ? j : i;
+                        expectedCrossings.add(horizontal + " " + vertical + " " + (horizontal == i ? secondFixed : firstFixed) + " " + (horizontal == i ? firstFixed : secondFixed));
+                    }
+                }
+                else if (firstFixed == secondFixed && (Math.min(firstMax, secondMax) > Math.max(firstMin, secondMin) || (firstMin == secondMin && firstMax == secondMax)))
+                {
+                    Adjacency adjacency = firstMin == secondMin && firstMax == secondMax ? Adjacency.PROPER
+                            : (firstMin < secondMin && secondMax < firstMax) || (secondMin < firstMin && firstMax < secondMax) ? Adjacency.SUB_LINE : Adjacency.PARTIAL;
+                    expectedOverlaps.add(i + " " + j + " " + adjacency);
+                }
+            }
+        }
+
+        var crossings = SegmentCrossings.of(lines);
+        var actualCrossings = new TreeSet<String>();
+        var actualOverlaps = new TreeSet<String>();
+
+        assertEquals(expectedCrossings.size(), crossings.forEachCrossing((horizontal, vertical, x, y) -> actualCrossings.add(horizontal + " " + vertical + " " + x + " " + y)));
+        assertEquals(expectedOverlaps.size(), crossings.forEachOverlap((first, second, adjacency) -> actualOverlaps.add(first + " " + second + " " + adjacency)));
+        assertEquals(expectedCrossings, actualCrossings);
+        assertEquals(expectedOverlaps, actualOverlaps);
+        assertEquals(expectedCrossings.size(), crossings.countCrossings());
+        assertEquals(expectedOverlaps.size(), crossings.countOverlaps());
+        assertTrue(expectedOverlaps.stream().anyMatch(overlap -> overlap.endsWith("SUB_LINE")));
+    }
+
+    @Test
+    public void occupancyFilter_clusteredQueries_sameRelatedPairsAsUnfiltered()
+    {
+        // Half the queries land among the rectangles, the other half in an empty corner of the grid
+        int queryCount = 120;
+        var queryMinX = new long[queryCount];
+        var queryMinY = new long[queryCount];
+        var queryMaxX = new long[queryCount];
+        var queryMaxY = new long[queryCount];
+
+        for (int q = 0; q < queryCount; q++)
+        {
+            long offset = q % 2 == 0 ? -30 : 100;
+            queryMinX[q] = offset + random.nextInt(60);
+            queryMinY[q] = offset + random.nextInt(60);
+            queryMaxX[q] = queryMinX[q] + random.nextInt(8);
+            queryMaxY[q] = queryMinY[q] + random.nextInt(8);
+        }
+
+        var queries = RectangleColumns.of(queryMinX, queryMinY, queryMaxX, queryMaxY);
+        var grid = OccupancyGrid.covering(RectangleColumns.of(concat(minX, queryMinX), concat(minY, queryMinY),
+                concat(maxX, queryMaxX), concat(maxY, queryMaxY)), 64, 4);
+        var expected = new TreeSet<String>();
+
+        for (int i = 0; i < columns.size(); i++)
+        {
+            for (int q = 0; q < queryCount; q++)
+            {
+                addIfRelated(expected, columns.toRectangle(i), queries.toRectangle(q), i, q);
+            }
+        }
+
+        var filter = OccupancyFilter.of(grid, columns, queries);
+        var actual = new TreeSet<String>();
+
+        filter.forEachSurvivor((i, q) -> addIfRelated(actual, columns.toRectangle(i), queries.toRectangle(q), i, q));
+
+        assertEquals(expected, actual);
+        assertEquals((long) columns.size() * queryCount, filter.getTestedCount());
+        assertTrue(filter.getSelectivity() < 0.25, "Selectivity " + filter.getSelectivity());
+        assertTrue(filter.getLiveQueryCount() <= queryCount / 2 + 5);
+    }
+
+    @Test
+    public void occupancyBitmap_randomRanges_matchBitSet()
+    {
+        var bitmap = new OccupancyBitmap();
+        var other = new OccupancyBitmap();
+        var expected = new BitSet();
+        var expectedOther = new BitSet();
+
+        for (int i = 0; i < 400; i++)
+        {
+            // Some long runs, so that some chunks switch from arrays to bitmaps, and some runs cross chunks
+            int from = random.nextInt(300_000), to = from + (i % 10 == 0 ? random.nextInt(20_000) : random.nextInt(40));
+
+            bitmap.addRange(from, to);
+            expected.set(from, to);
+
+            int single = random.nextInt(300_000);
+            other.add(single);
+            expectedOther.set(single);
+        }
+
+        assertEquals(expected.cardinality(), bitmap.getCardinality());
+        assertEquals(expected.intersects(expectedOther), bitmap.intersects(other));
+
+        for (int i = 0; i < 2000; i++)
+        {
+            int from = random.nextInt(320_000), to = from + 1 + random.nextInt(i % 2 == 0 ? 3 : 70_000);
+            int next = expected.nextSetBit(from);
+
+            assertEquals(next >= 0 && next < to, bitmap.intersectsRange(from, to));
+            assertEquals(expected.get(from), bitmap.contains(from));
+        }
+
+        var single = new OccupancyBitmap();
+        single.add(expectedOther.nextSetBit(0));
+        assertEquals(expected.get(expectedOther.nextSetBit(0)), bitmap.intersects(single));
+        assertTrue(bitmap.intersects(bitmap));
+    }
+
+    @Test
+    public void hilbertOrder_cornerOfGrid_visitsEachCellOnceThroughNeighbours()
+    {
+        // The curve fills the 8 by 8 cells at the origin before leaving them
+        var cellAtKey = new int[64];
+        Arrays.fill(cellAtKey, -1);
+
+        for (int x = 0; x < 8; x++)
+        {
+            for (int y = 0; y < 8; y++)
+            {
+                long key = HilbertOrder.keyOf(x, y);
+
+                assertTrue(key < 64 && cellAtKey[(int) key] < 0, "Key " + key);
+                cellAtKey[(int) key] = 8 * x + y;
+            }
+        }
+
+        for (int key = 1; key < 64; key++)
+        {
+            int dx = Math.abs(cellAtKey[key] / 8 - cellAtKey[key - 1] / 8), dy = Math.abs(cellAtKey[key] % 8 - cellAtKey[key - 1] % 8);
+
+            assertEquals(1, dx + dy);
+        }
+
+        RectangleColumns reordered = HilbertOrder.reorder(columns);
+        var ids = new TreeSet<Integer>();
+
+        for (int i = 0; i < reordered.size(); i++)
+        {
+            int id = reordered.getId(i);
+
+            ids.add(id);
+            assertEquals(columns.toRectangle(id).getRangeX().getMin(), reordered.getMinX(i));
+            assertEquals(columns.toRectangle(id).getRangeY().getMax(), reordered.getMaxY(i));
+        }
+
+        assertEquals(columns.size(), ids.size());
+    }
+
+    @Test
+    public void radixSortParallel_randomKeys_matchesStableMergeSort()
+    {
+        int size = 200_000;
+        var keys = new long[size + 10];
+        var values = new int[size + 10];
+
+        for (int i = 0; i < keys.length; i++)
+        {
+            // Few distinct high digits, both signs, and many ties to check stability
+            keys[i] = (random.nextInt(5) - 2) * (1L << 50) + random.nextInt(1000) * 4096L + (i % 3 == 0 ? 7 : 0);
+            values[i] = i;
+        }
+
+        long[] expectedKeys = keys.clone();
+        int[] expectedValues = values.clone();
+
+        PrimitiveSorts.sortParallel(expectedKeys, expectedValues, 5, size + 5);
+        PrimitiveSorts.radixSortParallel(keys, values, 5, size + 5);
+
+        assertArrayEquals(expectedKeys, keys);
+        assertArrayEquals(expectedValues, values);
+    }
+
+    @Test
+    public void packedRTree_writtenAndMapped_matchesBruteForce() throws IOException
+    {
+        var tree = PackedRTree.of(columns, 4);
+        Path file = Files.createTempFile("packed-rtree", ".bin");
+
+        try
+        {
+            tree.write(file);
+
+            var mapped = PackedRTree.map(file, true);
+
+            assertEquals(columns.size(), mapped.size());
+
+            for (int q = 0; q < QUERY_COUNT; q++)
+            {
+                long qMinX = random.nextInt(80) - 40, qMinY = random.nextInt(80) - 40;
+                long qMaxX = qMinX + random.nextInt(15), qMaxY = qMinY + random.nextInt(15);
+                var expected = new TreeSet<Integer>();
+                var built = new TreeSet<Integer>();
+                var read = new TreeSet<Integer>();
+
+                for (int i = 0; i < columns.size(); i++)
+                {
+                    if (minX[i] <= qMaxX && qMinX <= maxX[i] && minY[i] <= qMaxY && qMinY <= maxY[i])
+                    {
+                        expected.add(i);
+                    }
+                }
+
+                tree.forEachIntersecting(qMinX, qMinY, qMaxX, qMaxY, built::add);
+                mapped.forEachIntersecting(qMinX, qMinY, qMaxX, qMaxY, read::add);
+
+                assertEquals(expected, built);
+                assertEquals(expected, read);
+                assertEquals(expected.size(), mapped.countIntersecting(qMinX, qMinY, qMaxX, qMaxY));
+            }
+
+            // Flipping a byte of the bounds is caught by the checksum, but only when it is verified
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(file, bytes);
+
+            assertThrows(IOException.class, () -> PackedRTree.map(file, true));
+            assertEquals(columns.size(), PackedRTree.map(file, false).size());
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void nearPairs_severalDistances_matchPairwiseGaps()
+    {
+        for (long distance : new long[] { 0, 1, 4 })
+        {
+            var expected = new TreeSet<String>();
+
+            for (int i = 0; i < columns.size(); i++)
+            {
+                for (int j = i + 1; j < columns.size(); j++)
+                {
+                    long gapX = Math.max(0, Math.max(minX[j] - maxX[i], minX[i] - maxX[j]));
+                    long gapY = Math.max(0, Math.max(minY[j] - maxY[i], minY[i] - maxY[j]));
+
+                    if (gapX <= distance && gapY <= distance)
+                    {
+                        String horizontal = minX[j] >= maxX[i] && maxX[j] > maxX[i] ? "RIGHT" : maxX[j] <= minX[i] && minX[j] < minX[i] ? "LEFT" : "";
+                        String vertical = minY[j] >= maxY[i] && maxY[j] > maxY[i] ? "TOP" : maxY[j] <= minY[i] && minY[j] < minY[i] ? "BOTTOM" : "";
+                        String facing = vertical.isEmpty() && horizontal.isEmpty() ? "OVERLAP"
+                                : vertical.isEmpty() || horizontal.isEmpty() ? vertical + horizontal : vertical + "_" + horizontal;
+
+                        expected.add(i + " " + j + " " + gapX + " " + gapY + " " + facing);
+                    }
+                }
+            }
+
+            var actual = new TreeSet<String>();
+            long count = NearPairs.forEach(columns, distance, (first, second, gapX, gapY, facing) ->
+                    assertTrue(actual.add(first + " " + second + " " + gapX + " " + gapY + " " + facing)));
+
+            assertEquals(expected, actual);
+            assertEquals(expected.size(), count);
+        }
+
+        assertTrue(NearPairs.count(columns, 4) > NearPairs.count(columns, 0));
+    }
+
+    private static void addIfRelated(Set<String> related, Rectangle rectangle, Rectangle query, int i, int q)
+    {
+        int outgoing = RelationCodes.classify(rectangle, query), incoming = RelationCodes.classify(query, rectangle);
+
+        if (outgoing != RelationCodes.NONE || incoming != RelationCodes.NONE)
+        {
+            related.add(i + " " + q + " " + outgoing + " " + incoming);
+        }
+    }
+
+    private static long coordinateAlong(Line line, Point point)
+    {
+        return line.getOrientation() == Orientation.VERTICAL ? point.getYCoordinate() : point.getXCoordinate();
+    }
+
+    private static long[] concat(long[] first, long[] second)
+    {
+        var joined = Arrays.copyOf(first, first.length + second.length);
+
+        System.arraycopy(second, 0, joined, first.length, second.length);
+
+        return joined;
+    }
+
+    /**
+     * Splits the bounds into a grid of touching cells, each shrunk by a random inset, down to rectangles without area
+     */
+    private void subdivide(long[] bounds, int depth, List<long[]> out)
+    {
+        out.add(bounds);
+
+        long length = bounds[2] - bounds[0], width = bounds[3] - bounds[1];
+
+        if (depth == 4 || length < 12 || width < 12)
+        {
+            if (length > 2 && width > 2)
+            {
+                // A segment and a point strictly inside
+                out.add(new long[] { bounds[0] + 1, bounds[1] + 1, bounds[0] + 1, bounds[3] - 1 });
+                out.add(new long[] { bounds[2] - 1, bounds[3] - 1, bounds[2] - 1, bounds[3] - 1 });
+            }
+
+            return;
+        }
+
+        int columnCount = 1 + random.nextInt(3), rowCount = 2 + random.nextInt(2);
+
+        for (int column = 0; column < columnCount; column++)
+        {
+            for (int row = 0; row < rowCount; row++)
+            {
+                long cellMinX = bounds[0] + length * column / columnCount, cellMaxX = bounds[0] + length * (column + 1) / columnCount;
+                long cellMinY = bounds[1] + width * row / rowCount, cellMaxY = bounds[1] + width * (row + 1) / rowCount;
+                int inset = random.nextInt(3);
+
+                subdivide(new long[] { cellMinX + inset, cellMinY + inset, cellMaxX - random.nextInt(2) * inset, cellMaxY }, depth + 1, out);
+            }
+        }
+    }
+
+    private static Point sharedPoint(Line first, Line second)
+    {
+        return second.getPoints().contains(first.getPointA()) ? first.getPointA() : first.getPointB();
+    }
+
+    private Map<Long, Contact> contactsBruteForce()
+    {
+        var contacts = new HashMap<Long, Contact>();
+
+        for (int i = 0; i < RECTANGLE_COUNT; i++)
+        {
+            for (int j = i + 1; j < RECTANGLE_COUNT; j++)
+            {
+                if (isConnectedBruteForce(i, j, Connectivity.OVERLAP))
+                {
+                    contacts.put((long) i * RECTANGLE_COUNT + j, Contact.OVERLAP);
+                }
+                else if (Math.max(minX[i], minX[j]) <= Math.min(maxX[i], maxX[j]) && Math.max(minY[i], minY[j]) <= Math.min(maxY[i], maxY[j]))
+                {
+                    contacts.put((long) i * RECTANGLE_COUNT + j, Contact.ADJACENCY);
+                }
+            }
+        }
+
+        return contacts;
+    }
+
+    private int depthBruteForce(double x, double y, boolean inclusive)
+    {
+        int depth = 0;
+
+        for (int i = 0; i < RECTANGLE_COUNT; i++)
+        {
+            boolean covered = inclusive
+                    ? minX[i] <= x && x <= maxX[i] && minY[i] <= y && y <= maxY[i]
+                    : minX[i] < x && x < maxX[i] && minY[i] < y && y < maxY[i];
+
+            depth += covered ? 1 : 0;
+        }
+
+        return depth;
+    }
+
+    /**
+     * Connectivity per the rectangles' classification; only defined for rectangles with positive area, so overlap
+     * and degenerate rectangles fall back to comparing bounds
+     */
+    private boolean isConnectedBruteForce(int first, int second, Connectivity connectivity)
+    {
+        boolean overlapping = Math.max(minX[first], minX[second]) < Math.min(maxX[first], maxX[second])
+                && Math.max(minY[first], minY[second]) < Math.min(maxY[first], maxY[second]);
+        boolean touching = Math.max(minX[first], minX[second]) <= Math.min(maxX[first], maxX[second])
+                && Math.max(minY[first], minY[second]) <= Math.min(maxY[first], maxY[second]);
+        boolean cornerOnly = touching && Math.max(minX[first], minX[second]) == Math.min(maxX[first], maxX[second])
+                && Math.max(minY[first], minY[second]) == Math.min(maxY[first], maxY[second]);
+
+        if (connectivity == Connectivity.OVERLAP)
+        {
+            return overlapping;
+        }
+
+        if (minX[first] == maxX[first] || minY[first] == maxY[first] || minX[second] == maxX[second] || minY[second] == maxY[second])
+        {
+            return connectivity == Connectivity.CORNER ? touching : touching && !cornerOnly;
+        }
+
+        var classification = Classification.of(RectanglePair.of(columns.toRectangle(first), columns.toRectangle(second)));
+        var reverse = Classification.of(RectanglePair.of(columns.toRectangle(second), columns.toRectangle(first)));
+        boolean related = classification.getRelation() != Relation.NONE || reverse.getRelation() != Relation.NONE;
+
+        return connectivity == Connectivity.CORNER ? related : related && classification.getAdjacency() != Adjacency.SINGLE_POINT;
+    }
+
+    private static int sum(int[] values)
+    {
+        int total = 0;
+
+        for (int value : values)
+        {
+            total += value;
+        }
+
+        return total;
+    }
+}